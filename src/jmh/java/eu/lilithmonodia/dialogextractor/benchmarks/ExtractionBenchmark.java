@@ -0,0 +1,102 @@
+package eu.lilithmonodia.dialogextractor.benchmarks;
+
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import eu.lilithmonodia.dialogextractor.data.MinecraftLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the in-memory extraction hot paths on synthetic logs.
+ * <p>
+ * Run with the {@code gc} profiler (the default of the {@code jmh} task) to get the allocation per operation in
+ * {@code gc.alloc.rate.norm}; the {@code megabytes} counter gives the throughput in MB/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ExtractionBenchmark {
+    private static final Charset CHARSET = Charset.forName("windows-1252");
+    private static final int CHAT_LINES = 4096;
+
+    /**
+     * The size of the generated log in megabytes.
+     */
+    @Param({"1", "16"})
+    public int sizeMegabytes;
+
+    /**
+     * The share of chat lines in the generated log.
+     */
+    @Param({"0.1", "0.5"})
+    public double chatShare;
+
+    /**
+     * The probability that a word of a chat message is preceded by a colour code.
+     */
+    @Param({"0.0", "0.3"})
+    public double colourCodeDensity;
+
+    private String log;
+    private byte[] logBytes;
+    private List<String> chatLines;
+    private int nextChatLine;
+
+    /**
+     * Generates the log once per trial.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        SyntheticLogGenerator generator = new SyntheticLogGenerator(sizeMegabytes * 1024L * 1024L, chatShare,
+                colourCodeDensity, 42);
+        log = generator.generate();
+        logBytes = log.getBytes(CHARSET);
+        chatLines = generator.chatLines(CHAT_LINES);
+    }
+
+    /**
+     * Extracts the dialogue of the whole log held in memory through {@link MinecraftLog#extractDialogue()}.
+     *
+     * @param throughput The counter of processed bytes.
+     * @return The extracted dialogue.
+     */
+    @Benchmark
+    public MinecraftLog extractDialogue(Throughput throughput) {
+        throughput.add(logBytes.length);
+        return new MinecraftLog(log).extractDialogue();
+    }
+
+    /**
+     * Extracts the dialogue of the raw log bytes through the byte-level streaming path.
+     *
+     * @param throughput The counter of processed bytes.
+     * @return The number of extracted lines.
+     * @throws IOException Never, as the streams are in memory.
+     */
+    @Benchmark
+    public long extractStream(Throughput throughput) throws IOException {
+        throughput.add(logBytes.length);
+        return new DialogueExtractor().extract(new ByteArrayInputStream(logBytes), CHARSET,
+                OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Cleans a single chat line through {@link DialogueExtractor#cleanChatLine(String)}, cycling through a fixed
+     * set of generated lines.
+     *
+     * @param throughput The counter of processed bytes.
+     * @return The cleaned line.
+     */
+    @Benchmark
+    public String cleanChatLine(Throughput throughput) {
+        String line = chatLines.get(nextChatLine);
+        nextChatLine = (nextChatLine + 1) % CHAT_LINES;
+        throughput.add(line.length());
+        return new DialogueExtractor().cleanChatLine(line);
+    }
+}
@@ -0,0 +1,154 @@
+package eu.lilithmonodia.dialogextractor.benchmarks;
+
+import eu.lilithmonodia.dialogextractor.data.LogDocument;
+import eu.lilithmonodia.dialogextractor.data.MinecraftLog;
+import eu.lilithmonodia.dialogextractor.utils.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks the file I/O hot paths: GZIP decompression, opening a log for the viewer, extracting to a file and
+ * writing the extracted dialogue.
+ * <p>
+ * The logs are written to a temporary directory once per trial, so the benchmarks mostly measure reads from the page
+ * cache. The {@code megabytes} counter is based on the uncompressed size of the log.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class FileBenchmark {
+    private static final Charset CHARSET = Charset.forName("windows-1252");
+
+    /**
+     * The size of the generated log in megabytes.
+     */
+    @Param({"16", "128"})
+    public int sizeMegabytes;
+
+    /**
+     * The share of chat lines in the generated log.
+     */
+    @Param({"0.3"})
+    public double chatShare;
+
+    /**
+     * The probability that a word of a chat message is preceded by a colour code.
+     */
+    @Param({"0.2"})
+    public double colourCodeDensity;
+
+    private Path directory;
+    private File log;
+    private File gzip;
+    private File output;
+    private long logSize;
+    private String dialogue;
+
+    /**
+     * Writes the logs once per trial.
+     *
+     * @throws IOException If the temporary files cannot be written.
+     */
+    @Setup(Level.Trial)
+    public void writeLogs() throws IOException {
+        SyntheticLogGenerator generator = new SyntheticLogGenerator(sizeMegabytes * 1024L * 1024L, chatShare,
+                colourCodeDensity, 42);
+        directory = Files.createTempDirectory("dialog-extractor-jmh-");
+        log = generator.writeLog(directory.resolve("latest.log"), CHARSET).toFile();
+        gzip = generator.writeGzip(directory.resolve("2024-01-01-1.log.gz"), CHARSET).toFile();
+        output = directory.resolve("output" + FileUtils.EXTRACTED_FILE_SUFFIX).toFile();
+        logSize = log.length();
+        dialogue = new MinecraftLog(Files.readString(log.toPath(), CHARSET)).extractDialogue().log();
+    }
+
+    /**
+     * Deletes the temporary files.
+     *
+     * @throws IOException If a file cannot be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void deleteLogs() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Decompresses the GZIP-compressed log without processing it.
+     *
+     * @param throughput The counter of processed bytes.
+     * @return The number of uncompressed bytes.
+     * @throws IOException If the file cannot be read.
+     */
+    @Benchmark
+    public long decompressGzip(Throughput throughput) throws IOException {
+        throughput.add(logSize);
+        try (InputStream in = FileUtils.openLogStream(gzip)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * Opens the GZIP-compressed log as the viewer does: inflating it to a temporary file and indexing its lines.
+     *
+     * @param throughput The counter of processed bytes.
+     * @return The number of lines.
+     * @throws IOException If the file cannot be read.
+     */
+    @Benchmark
+    public int openGzipDocument(Throughput throughput) throws IOException {
+        throughput.add(logSize);
+        try (LogDocument document = LogDocument.open(gzip.toPath(), CHARSET)) {
+            return document.lineCount();
+        }
+    }
+
+    /**
+     * Extracts the dialogue of the uncompressed log into a file.
+     *
+     * @param throughput The counter of processed bytes.
+     * @return The number of extracted lines.
+     * @throws IOException If a file cannot be read or written.
+     */
+    @Benchmark
+    public long extractLogToFile(Throughput throughput) throws IOException {
+        throughput.add(logSize);
+        return FileUtils.extractToFile(log, CHARSET, output);
+    }
+
+    /**
+     * Extracts the dialogue of the GZIP-compressed log into a file.
+     *
+     * @param throughput The counter of processed bytes.
+     * @return The number of extracted lines.
+     * @throws IOException If a file cannot be read or written.
+     */
+    @Benchmark
+    public long extractGzipToFile(Throughput throughput) throws IOException {
+        throughput.add(logSize);
+        return FileUtils.extractToFile(gzip, CHARSET, output);
+    }
+
+    /**
+     * Writes the extracted dialogue held in memory through {@link FileUtils#writeToFile(File, String)}.
+     *
+     * @param throughput The counter of processed bytes, based on the length of the dialogue.
+     */
+    @Benchmark
+    public void writeToFile(Throughput throughput) {
+        throughput.add(dialogue.length());
+        FileUtils.writeToFile(output, dialogue);
+    }
+}
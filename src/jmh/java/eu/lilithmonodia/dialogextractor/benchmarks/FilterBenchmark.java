@@ -0,0 +1,62 @@
+package eu.lilithmonodia.dialogextractor.benchmarks;
+
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import eu.lilithmonodia.dialogextractor.data.FilterRules;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the extraction of a synthetic log with rule sets of growing size.
+ * <p>
+ * The rules are compiled into a single automaton, so the {@code megabytes} counter should stay about the same from
+ * one rule to a thousand.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+    private static final Charset CHARSET = Charset.forName("windows-1252");
+
+    /**
+     * The number of exclude rules, none of which matches the generated chat lines.
+     */
+    @Param({"1", "100", "1000"})
+    public int ruleCount;
+
+    private byte[] logBytes;
+    private DialogueExtractor extractor;
+
+    /**
+     * Generates the log and compiles the rules once per trial.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        logBytes = new SyntheticLogGenerator(16L * 1024 * 1024, 0.5, 0.3, 42).generate().getBytes(CHARSET);
+        List<String> rules = new ArrayList<>(ruleCount);
+        rules.add("exclude-line Shaders Reloaded!");
+        for (int i = 1; i < ruleCount; i++) {
+            rules.add("exclude [plugin-" + i + "]");
+        }
+        extractor = new DialogueExtractor(FilterRules.parse(rules));
+    }
+
+    /**
+     * Extracts the dialogue of the raw log bytes with the rule set.
+     *
+     * @param throughput The counter of processed bytes.
+     * @return The number of extracted lines.
+     * @throws IOException Never, as the streams are in memory.
+     */
+    @Benchmark
+    public long extract(Throughput throughput) throws IOException {
+        throughput.add(logBytes.length);
+        return extractor.extract(new ByteArrayInputStream(logBytes), CHARSET, OutputStream.nullOutputStream());
+    }
+}
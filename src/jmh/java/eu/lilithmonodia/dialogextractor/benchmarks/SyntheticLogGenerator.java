@@ -0,0 +1,167 @@
+package eu.lilithmonodia.dialogextractor.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates reproducible Minecraft-like logs for the benchmarks.
+ * <p>
+ * Lines look like real client logs: a timestamp, a thread and level, then either a chat message or an ordinary log
+ * message. Chat messages mix plain words and {@code §} colour codes, and now and then repeat the excluded
+ * {@code Shaders Reloaded!} line.
+ *
+ * @param sizeBytes         The approximate size of the log in bytes; generation stops after the line crossing it.
+ * @param chatShare         The share of lines that are chat lines, between 0 and 1.
+ * @param colourCodeDensity The probability that a word of a chat message is preceded by a colour code, between 0 and 1.
+ * @param seed              The seed of the random generator, so that runs compare like with like.
+ */
+public record SyntheticLogGenerator(long sizeBytes, double chatShare, double colourCodeDensity, long seed) {
+    private static final String[] WORDS = {
+            "the", "crafting", "table", "villager", "diamond", "nether", "portal", "redstone", "creeper", "enchanted",
+            "pickaxe", "shulker", "elytra", "beacon", "obsidian", "trade", "emerald", "village", "quest", "dragon"
+    };
+    private static final String[] THREADS = {"Render thread", "Server thread", "Worker-Main-3", "Download-2"};
+    private static final String[] MESSAGES = {
+            "Loaded 7 advancements", "Reloading ResourceManager: vanilla, fabric", "Sound engine started",
+            "Created: 1024x512x4 minecraft:textures/atlas/blocks.png-atlas", "Connecting to localhost, 25565"
+    };
+    private static final String COLOUR_CODES = "0123456789abcdefklmnor";
+    private static final String EXCLUDED_LINE = "Shaders Reloaded!";
+
+    /**
+     * Generates the log as a string.
+     *
+     * @return The generated log, with {@code '\n'} line separators.
+     */
+    public @NotNull String generate() {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder log = new StringBuilder((int) Math.min(sizeBytes + 256, Integer.MAX_VALUE - 8));
+        while (log.length() < sizeBytes) {
+            appendLine(log, random);
+            log.append('\n');
+        }
+        return log.toString();
+    }
+
+    /**
+     * Generates raw chat lines, as they appear in the log.
+     *
+     * @param count The number of lines to generate.
+     * @return The chat lines, each with its timestamp and {@code [CHAT]} prefix.
+     */
+    public @NotNull List<String> chatLines(int count) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<String> lines = new ArrayList<>(count);
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            line.setLength(0);
+            appendPrefix(line, random, "Render thread");
+            appendChat(line, random);
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the generated log to an uncompressed file.
+     *
+     * @param file    The file to write.
+     * @param charset The character encoding of the file.
+     * @return The file.
+     * @throws IOException If the file cannot be written.
+     */
+    public @NotNull Path writeLog(@NotNull Path file, @NotNull Charset charset) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, charset)) {
+            writer.write(generate());
+        }
+        return file;
+    }
+
+    /**
+     * Writes the generated log to a GZIP-compressed file.
+     *
+     * @param file    The file to write.
+     * @param charset The character encoding of the uncompressed log.
+     * @return The file.
+     * @throws IOException If the file cannot be written.
+     */
+    public @NotNull Path writeGzip(@NotNull Path file, @NotNull Charset charset) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+            out.write(generate().getBytes(charset));
+        }
+        return file;
+    }
+
+    /**
+     * Appends a single log line, without its separator.
+     *
+     * @param line   The builder receiving the line.
+     * @param random The random generator.
+     */
+    private void appendLine(@NotNull StringBuilder line, @NotNull SplittableRandom random) {
+        if (random.nextDouble() < chatShare) {
+            appendPrefix(line, random, "Render thread");
+            appendChat(line, random);
+        } else {
+            appendPrefix(line, random, THREADS[random.nextInt(THREADS.length)]);
+            line.append(MESSAGES[random.nextInt(MESSAGES.length)]);
+        }
+    }
+
+    /**
+     * Appends the timestamp, thread and level of a line.
+     *
+     * @param line   The builder receiving the prefix.
+     * @param random The random generator.
+     * @param thread The name of the thread.
+     */
+    private static void appendPrefix(@NotNull StringBuilder line, @NotNull SplittableRandom random,
+                                     @NotNull String thread) {
+        line.append('[').append(twoDigits(random.nextInt(24))).append(':').append(twoDigits(random.nextInt(60)))
+                .append(':').append(twoDigits(random.nextInt(60))).append("] [").append(thread).append("/INFO]: ");
+    }
+
+    /**
+     * Appends a chat message with its {@code [CHAT]} marker.
+     *
+     * @param line   The builder receiving the message.
+     * @param random The random generator.
+     */
+    private void appendChat(@NotNull StringBuilder line, @NotNull SplittableRandom random) {
+        line.append("[CHAT] ");
+        if (random.nextInt(200) == 0) {
+            line.append(EXCLUDED_LINE);
+            return;
+        }
+        int words = 3 + random.nextInt(15);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                line.append(' ');
+            }
+            if (random.nextDouble() < colourCodeDensity) {
+                line.append('§').append(COLOUR_CODES.charAt(random.nextInt(COLOUR_CODES.length())));
+            }
+            line.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+    }
+
+    /**
+     * Formats a number below 100 on two digits.
+     *
+     * @param value The number.
+     * @return The number, with a leading zero if needed.
+     */
+    private static @NotNull String twoDigits(int value) {
+        return value < 10 ? "0" + value : Integer.toString(value);
+    }
+}
@@ -0,0 +1,35 @@
+package eu.lilithmonodia.dialogextractor.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Counts the megabytes of log processed by a benchmark, so that JMH reports the throughput in MB/s next to the
+ * operation rate.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    /**
+     * The megabytes processed in the current iteration; reported by JMH as MB per time unit.
+     */
+    public double megabytes;
+
+    /**
+     * Resets the counter before each iteration.
+     */
+    @Setup(Level.Iteration)
+    public void reset() {
+        megabytes = 0;
+    }
+
+    /**
+     * Records that a number of bytes was processed.
+     *
+     * @param bytes The number of bytes.
+     */
+    public void add(long bytes) {
+        megabytes += bytes / BYTES_PER_MEGABYTE;
+    }
+}
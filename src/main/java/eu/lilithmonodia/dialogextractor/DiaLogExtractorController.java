@@ -1,11 +1,19 @@
 package eu.lilithmonodia.dialogextractor;
 
-import eu.lilithmonodia.dialogextractor.data.MinecraftLog;
+import eu.lilithmonodia.dialogextractor.data.IncrementalExtractor;
+import eu.lilithmonodia.dialogextractor.data.LogDocument;
+import eu.lilithmonodia.dialogextractor.utils.ExtractionCache;
+import eu.lilithmonodia.dialogextractor.utils.ExtractionMetrics;
+import eu.lilithmonodia.dialogextractor.utils.LogFollower;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.TextArea;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextField;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.control.Tooltip;
 import javafx.scene.input.DragEvent;
 import javafx.scene.input.Dragboard;
 import javafx.scene.input.TransferMode;
@@ -15,22 +23,29 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
+import java.io.*;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import static eu.lilithmonodia.dialogextractor.utils.FileUtils.*;
 import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logAction;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
 
 /**
  * The DialogExtractorController class handles the processing of dialogue extraction from an input file.
  * <p>
  * It provides methods for uploading a file, extracting content, and downloading the processed content to an output file.
+ * Uploads and extractions run as background tasks, one at a time, so the window stays responsive and they can be
+ * cancelled.
  */
 public class DiaLogExtractorController {
     private static final Charset WINDOWS_CHARSET = Charset.forName("windows-1252");
     private static final Charset UTF8 = StandardCharsets.UTF_8;
-    private static final Logger LOGGER = LogManager.getLogger(DiaLogExtractorController.class);
     @FXML
     ComboBox<Charset> encodingComboBox;
     @FXML
@@ -38,9 +53,19 @@ public class DiaLogExtractorController {
     @FXML
     private Button downloadButton;
     @FXML
-    private TextArea originalContentArea;
+    private Button extractButton;
     @FXML
-    private TextArea processedContentArea;
+    private Button cancelButton;
+    @FXML
+    private ToggleButton followButton;
+    @FXML
+    private ProgressBar progressBar;
+    @FXML
+    private Label progressLabel;
+    @FXML
+    private LogView originalContentArea;
+    @FXML
+    private LogView processedContentArea;
     @FXML
     private TextField uploadFilePath;
     @FXML
@@ -48,7 +73,25 @@ public class DiaLogExtractorController {
     @FXML
     private Pane dragAndDropOverlay;
 
+    private final ExecutorService taskExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dialog-extractor-task");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ExtractionCache extractionCache;
+    private final IncrementalExtractor incrementalExtractor = new IncrementalExtractor();
+    private LogDocumentTask currentTask;
+    private LogFollower follower;
     private String fileName;
+    private File uploadedFile;
+    private long uploadedFileModified;
+
+    /**
+     * Holds the logger of the controller, so that building the window does not wait for Log4j2 to be configured.
+     */
+    private static final class Log {
+        private static final Logger LOGGER = LogManager.getLogger(DiaLogExtractorController.class);
+    }
 
     @FXML
     private void initialize() {
@@ -65,49 +108,284 @@ public class DiaLogExtractorController {
      */
     @FXML
     private void handleUpload() {
-        logAction(LOGGER, "Attempting to upload file ...");
+        logAction(Log.LOGGER, "Attempting to upload file ...");
         Window window = uploadButton.getScene().getWindow();
         File file = chooseFile(window, false, null);
         if (file != null) {
-            fileName = file.getName().split("\\.")[0];
-            uploadFilePath.setText(file.getAbsolutePath());
-            processFile(file, originalContentArea, encodingComboBox.getValue());
+            openFile(file);
         }
-        logAction(LOGGER, "File upload finished successfully.");
+        logAction(Log.LOGGER, "File upload finished successfully.");
     }
 
     /**
-     * Downloads a file by writing the content from a text area to a specified output file.
+     * Downloads a file by copying the extracted dialogue shown in the processed view to a specified output file.
      * <p>
      * The file path of the downloaded file will be displayed in a text field.
      */
     @FXML
     private void handleDownload() {
-        logAction(LOGGER, "Attempting to download file ...");
+        logAction(Log.LOGGER, "Attempting to download file ...");
         Window window = downloadButton.getScene().getWindow();
-        File outFile = chooseFile(window, true, fileName + "-dialog-extracted.log");
-        String outputText = processedContentArea.getText();
-        if (outFile != null && !outputText.isEmpty()) {
+        File outFile = chooseFile(window, true, fileName + EXTRACTED_FILE_SUFFIX);
+        LogDocument processed = processedContentArea.getDocument();
+        if (outFile != null && processed != null && !processed.isEmpty()) {
             downloadFilePath.setText(outFile.getAbsolutePath());
-            writeToFile(outFile, outputText);
+            saveDocument(processed, outFile);
+            showMetrics();
         }
-        logAction(LOGGER, "File download finished successfully.");
+        logAction(Log.LOGGER, "File download finished successfully.");
     }
 
     /**
-     * Extracts content from the originalContentArea, processes it, and sets the processed content in the processedContentArea.
+     * Starts extracting the dialogue of the log shown in the originalContentArea into the processedContentArea.
      * <p>
+     * The dialogue is streamed into a temporary file by a background task rather than held in memory. If the uploaded
+     * file was edited since it was opened, it is opened again first, keeping the chosen encoding, and only the lines
+     * that changed since the previous extraction are cleaned again.
      * Sets the enabled/disabled state of the downloadButton depending on the extracted content.
      */
     @FXML
     private void handleExtraction() {
-        logAction(LOGGER, "Attempting to extract content ...");
-        String content = originalContentArea.getText();
-        MinecraftLog minecraftLog = new MinecraftLog(content);
-        String outputText = minecraftLog.extractDialogue().log();
-        processedContentArea.setText(outputText);
-        downloadButton.setDisable(outputText.isEmpty());
-        logAction(LOGGER, "Content extraction finished successfully.");
+        LogDocument source = originalContentArea.getDocument();
+        if (source == null) {
+            return;
+        }
+        if (uploadedFile.lastModified() != uploadedFileModified) {
+            logAction(Log.LOGGER, "The uploaded file changed, opening it again ...");
+            Charset charset = encodingComboBox.getValue();
+            openFile(uploadedFile, document -> {
+                document.setCharset(charset);
+                originalContentArea.refresh();
+                handleExtraction();
+            });
+            return;
+        }
+        downloadButton.setDisable(true);
+        ExtractionTask task = new ExtractionTask(source, uploadedFile.toPath(), extractionCache(),
+                incrementalExtractor, processedContentArea);
+        runTask(task, () -> downloadButton.setDisable(task.getValue().isEmpty()));
+    }
+
+    /**
+     * Starts or stops following the uploaded log, depending on the state of the followButton.
+     */
+    @FXML
+    private void handleFollow() {
+        if (followButton.isSelected()) {
+            startFollowing();
+        } else {
+            stopFollowing();
+        }
+    }
+
+    /**
+     * Follows the uploaded log on a background thread and appends the dialogue of its new lines to the
+     * processedContentArea as the game writes them.
+     * <p>
+     * The dialogue is written to a temporary file, and only the appended lines are read and indexed on each update.
+     */
+    private void startFollowing() {
+        if (uploadedFile == null || !uploadedFile.getName().endsWith(".log")) {
+            followButton.setSelected(false);
+            progressLabel.setText("Following needs an uncompressed .log file.");
+            return;
+        }
+        if (currentTask != null) {
+            currentTask.cancel();
+        }
+        logAction(Log.LOGGER, "Attempting to follow file ...");
+        LogDocument dialogue;
+        Writer writer;
+        try {
+            Path followed = Files.createTempFile("dialog-extractor-", EXTRACTED_FILE_SUFFIX);
+            followed.toFile().deleteOnExit();
+            writer = new BufferedWriter(new OutputStreamWriter(openOutputStream(followed.toFile()), UTF8));
+            dialogue = LogDocument.openTemporary(followed, UTF8, LogDocument.IndexListener.NONE);
+        } catch (IOException e) {
+            logError(Log.LOGGER, "An error occurred while starting to follow the file.", e);
+            followButton.setSelected(false);
+            progressLabel.setText("Failed: " + e.getMessage());
+            return;
+        }
+        processedContentArea.setDocument(dialogue);
+        downloadButton.setDisable(true);
+        extractButton.setDisable(true);
+        progressLabel.setText("Following...");
+
+        LogFollower logFollower = new LogFollower(uploadedFile.toPath(), encodingComboBox.getValue(), writer);
+        follower = logFollower;
+        Thread thread = new Thread(() -> follow(logFollower, writer, dialogue), "dialog-extractor-follow");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Runs a follower until it is stopped, showing the appended dialogue after each update.
+     *
+     * @param logFollower The follower to run.
+     * @param writer      The writer of the dialogue file, closed once following stops.
+     * @param dialogue    The document over the dialogue file, shown in the processedContentArea.
+     */
+    private void follow(@NotNull LogFollower logFollower, @NotNull Writer writer, @NotNull LogDocument dialogue) {
+        try (writer) {
+            logFollower.follow(lines -> {
+                dialogue.refresh();
+                long total = logFollower.written();
+                Platform.runLater(() -> {
+                    if (processedContentArea.getDocument() == dialogue) {
+                        processedContentArea.setDocument(dialogue);
+                        downloadButton.setDisable(dialogue.isEmpty());
+                        progressLabel.setText(String.format("Following: %,d lines", total));
+                    }
+                });
+            });
+        } catch (IOException e) {
+            logError(Log.LOGGER, "An error occurred while following the file.", e);
+            Platform.runLater(() -> {
+                if (follower == logFollower) {
+                    progressLabel.setText("Failed: " + e.getMessage());
+                    stopFollowing();
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops following the uploaded log, if it is followed. The dialogue extracted so far stays shown.
+     */
+    private void stopFollowing() {
+        if (follower == null) {
+            return;
+        }
+        follower.close();
+        follower = null;
+        followButton.setSelected(false);
+        extractButton.setDisable(currentTask != null);
+        logAction(Log.LOGGER, "File following stopped.");
+    }
+
+    /**
+     * Cancels the running upload or extraction, if any.
+     */
+    @FXML
+    private void handleCancel() {
+        if (currentTask != null) {
+            currentTask.cancel();
+        }
+    }
+
+    /**
+     * Starts opening a log file in the originalContentArea and selects its detected encoding.
+     *
+     * @param file The log file to open.
+     */
+    private void openFile(@NotNull File file) {
+        openFile(file, document -> encodingComboBox.setValue(document.charset()));
+    }
+
+    /**
+     * Starts opening a log file in the originalContentArea.
+     *
+     * @param file     The log file to open.
+     * @param onOpened The action run on the JavaFX Application Thread with the opened log.
+     */
+    private void openFile(@NotNull File file, @NotNull Consumer<LogDocument> onOpened) {
+        fileName = getBaseName(file);
+        uploadedFile = file;
+        uploadedFileModified = file.lastModified();
+        uploadFilePath.setText(file.getAbsolutePath());
+        OpenLogTask task = new OpenLogTask(file, originalContentArea);
+        runTask(task, () -> onOpened.accept(task.getValue()));
+    }
+
+    /**
+     * Decodes the shown log again with the encoding chosen in the encodingComboBox.
+     * <p>
+     * The raw bytes and line index of the log are kept, so only the lines on screen are decoded again; the file is
+     * neither re-read nor re-inflated.
+     */
+    @FXML
+    private void handleEncodingChange() {
+        LogDocument document = originalContentArea.getDocument();
+        Charset charset = encodingComboBox.getValue();
+        if (document != null && charset != null && !charset.equals(document.charset())) {
+            logAction(Log.LOGGER, "Changing the encoding of the log to " + charset + " ...");
+            document.setCharset(charset);
+            originalContentArea.refresh();
+        }
+    }
+
+    /**
+     * Runs a task in the background, cancelling the running one, and binds the progress controls to it.
+     *
+     * @param task        The task to run.
+     * @param onSucceeded The action run on the JavaFX Application Thread once the task succeeds.
+     */
+    private void runTask(@NotNull LogDocumentTask task, @NotNull Runnable onSucceeded) {
+        stopFollowing();
+        if (currentTask != null) {
+            currentTask.cancel();
+        }
+        currentTask = task;
+        progressBar.progressProperty().bind(task.progressProperty());
+        progressLabel.textProperty().bind(task.messageProperty());
+        extractButton.setDisable(true);
+        cancelButton.setDisable(false);
+        task.setOnSucceeded(event -> {
+            onSucceeded.run();
+            taskFinished(task, task.getMessage());
+        });
+        task.setOnCancelled(event -> taskFinished(task, "Cancelled."));
+        task.setOnFailed(event -> {
+            logError(Log.LOGGER, "An error occurred while processing the file.", task.getException());
+            taskFinished(task, "Failed: " + task.getException().getMessage());
+        });
+        taskExecutor.execute(task);
+    }
+
+    /**
+     * Unbinds the progress controls from a finished task, unless another task has replaced it, and shows the time spent
+     * in each stage so far in the tooltip of the progress label.
+     *
+     * @param task   The finished task.
+     * @param status The status shown in the progress label.
+     */
+    private void taskFinished(@NotNull LogDocumentTask task, String status) {
+        if (task != currentTask) {
+            return;
+        }
+        currentTask = null;
+        progressBar.progressProperty().unbind();
+        progressLabel.textProperty().unbind();
+        cancelButton.setDisable(true);
+        showMetrics();
+        if (follower == null) {
+            progressLabel.setText(status);
+            extractButton.setDisable(false);
+        }
+    }
+
+    /**
+     * Returns the cache of extraction results, opening it on first use rather than while the window is built.
+     *
+     * @return The cache in the default directory.
+     */
+    private @NotNull ExtractionCache extractionCache() {
+        if (extractionCache == null) {
+            extractionCache = ExtractionCache.defaultCache();
+        }
+        return extractionCache;
+    }
+
+    /**
+     * Shows the {@link ExtractionMetrics} summary in the tooltip of the progress label.
+     */
+    private void showMetrics() {
+        Tooltip tooltip = new Tooltip(ExtractionMetrics.summary());
+        tooltip.setStyle("-fx-font-family: monospace;");
+        progressLabel.setTooltip(tooltip);
     }
 
     /**
@@ -145,10 +423,7 @@ public class DiaLogExtractorController {
     private void handleDragDrop(@NotNull DragEvent event) {
         Dragboard dragboard = event.getDragboard();
         if (dragboard.hasFiles()) {
-            File file = dragboard.getFiles().get(0);
-            fileName = file.getName().split("\\.")[0];
-            uploadFilePath.setText(file.getAbsolutePath());
-            processFile(file, originalContentArea, encodingComboBox.getValue());
+            openFile(dragboard.getFiles().get(0));
         }
         dragAndDropOverlay.setVisible(false);
     }
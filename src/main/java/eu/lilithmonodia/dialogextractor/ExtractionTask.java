@@ -0,0 +1,115 @@
+package eu.lilithmonodia.dialogextractor;
+
+import eu.lilithmonodia.dialogextractor.data.IncrementalExtractor;
+import eu.lilithmonodia.dialogextractor.data.LogDocument;
+import eu.lilithmonodia.dialogextractor.utils.ExtractionCache;
+import eu.lilithmonodia.dialogextractor.utils.ExtractionMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static eu.lilithmonodia.dialogextractor.utils.FileUtils.EXTRACTED_FILE_SUFFIX;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
+
+/**
+ * Extracts the dialogue of an opened log in the background.
+ * <p>
+ * The dialogue is written into a temporary file, which is then opened and shown as it is indexed. The
+ * {@link IncrementalExtractor} of the window only cleans the lines that changed since its previous extraction, so
+ * extracting a log again after editing a few of its lines reuses the rest of the dialogue. The progress of the
+ * extraction reports the bytes of the log compared and extracted so far and the dialogue lines written. If the uploaded
+ * file was extracted before with the same encoding, the cached dialogue is opened instead.
+ */
+class ExtractionTask extends LogDocumentTask {
+    private static final Logger LOGGER = LogManager.getLogger(ExtractionTask.class);
+
+    private final LogDocument source;
+    private final Path uploadedFile;
+    private final ExtractionCache cache;
+    private final IncrementalExtractor extractor;
+
+    /**
+     * Creates a task extracting the dialogue of the given log.
+     *
+     * @param source       The opened log.
+     * @param uploadedFile The file the log was opened from, which keys the cache.
+     * @param cache        The cache of extraction results.
+     * @param extractor    The extractor remembering the previous extraction of the window.
+     * @param view         The view showing the extracted dialogue.
+     */
+    ExtractionTask(@NotNull LogDocument source, @NotNull Path uploadedFile, @NotNull ExtractionCache cache,
+                   @NotNull IncrementalExtractor extractor, @NotNull LogView view) {
+        super(view);
+        this.source = source;
+        this.uploadedFile = uploadedFile;
+        this.cache = cache;
+        this.extractor = extractor;
+    }
+
+    /**
+     * Extracts the dialogue into a temporary file and opens it.
+     *
+     * @return The extracted dialogue, owning its temporary file.
+     * @throws IOException If the log cannot be read, the result cannot be written, or the task is cancelled.
+     */
+    @Override
+    protected @NotNull LogDocument call() throws IOException {
+        logDebug(LOGGER, "Attempting to extract content ...");
+        String key = cacheKey();
+        Path cached = key != null ? cache.lookup(key) : null;
+        if (cached != null) {
+            logDebug(LOGGER, "Opening the cached dialogue of " + uploadedFile);
+            return LogDocument.open(cached, StandardCharsets.UTF_8, indexListener("Indexing"));
+        }
+        Path extracted = Files.createTempFile("dialog-extractor-", EXTRACTED_FILE_SUFFIX);
+        extracted.toFile().deleteOnExit();
+        long dialogueLines;
+        try (ExtractionMetrics.StageTimer timer = ExtractionMetrics.start(ExtractionMetrics.Stage.EXTRACT,
+                uploadedFile.getFileName().toString())) {
+            long startNanos = System.nanoTime();
+            IncrementalExtractor.Result result = extractor.extract(source, extracted, (phase, bytes, total, lines) -> {
+                checkCancelled();
+                String stage = phase == IncrementalExtractor.Phase.COMPARING ? "Comparing" : "Extracting";
+                reportProgress(stage, bytes, total, lines, startNanos);
+            });
+            long totalBytes = Files.size(source.path());
+            ExtractionMetrics.add(ExtractionMetrics.Counter.BYTES_READ, totalBytes);
+            dialogueLines = result.lines();
+            timer.bytes(totalBytes).lines(dialogueLines);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(extracted);
+            throw e;
+        }
+        if (key != null) {
+            try {
+                cache.store(key, extracted, dialogueLines);
+            } catch (IOException e) {
+                logError(LOGGER, "An error occurred while storing the dialogue in the cache.", e);
+            }
+        }
+        LogDocument dialogue = LogDocument.openTemporary(extracted, StandardCharsets.UTF_8, indexListener("Indexing"));
+        logDebug(LOGGER, "Content extraction finished successfully.");
+        return dialogue;
+    }
+
+    /**
+     * Computes the cache key of the uploaded file with the current encoding of the log.
+     *
+     * @return The key, or null if the uploaded file cannot be read any more.
+     */
+    private @Nullable String cacheKey() {
+        try {
+            return cache.key(uploadedFile, source.charset());
+        } catch (IOException e) {
+            logError(LOGGER, "An error occurred while looking the dialogue up in the cache.", e);
+            return null;
+        }
+    }
+}
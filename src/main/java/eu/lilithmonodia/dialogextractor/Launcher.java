@@ -1,17 +1,30 @@
 package eu.lilithmonodia.dialogextractor;
 
+import eu.lilithmonodia.dialogextractor.cli.DiaLogExtractorCli;
+
 /**
  * The Launcher class is responsible for starting the application by invoking the main method of the DiaLogExtractor class.
+ * <p>
+ * If the first argument is a command-line command, such as {@code extract}, the application runs headless through
+ * {@link DiaLogExtractorCli} instead, and JavaFX is never started.
  */
 public class Launcher {
     /**
      * The main method is the entry point of the application.
      * <p>
-     * It calls the main method of the DiaLogExtractor class to start the application.
+     * It calls the main method of the DiaLogExtractor class to start the application, or runs the headless command
+     * given in the arguments and exits with its status.
      *
      * @param args the command line arguments
      */
     public static void main(String[] args) {
+        if (DiaLogExtractorCli.isCliCommand(args)) {
+            int status = DiaLogExtractorCli.run(args, System.out, System.err);
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
         DiaLogExtractor.main(args);
     }
 }
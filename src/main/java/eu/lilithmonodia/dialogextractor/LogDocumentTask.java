@@ -0,0 +1,132 @@
+package eu.lilithmonodia.dialogextractor;
+
+import eu.lilithmonodia.dialogextractor.data.LogDocument;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A background task producing a {@link LogDocument} and showing it in a {@link LogView} while it is being indexed.
+ * <p>
+ * The lines indexed so far are handed to the view in batches on the JavaFX Application Thread, at most one batch being
+ * pending at any time. The progress reports the bytes processed and the lines produced, along with the throughput.
+ * If the task is cancelled or fails, the partial document is closed and removed from the view.
+ */
+abstract class LogDocumentTask extends Task<LogDocument> {
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    private final LogView view;
+    private final AtomicBoolean batchPending = new AtomicBoolean();
+    private volatile LogDocument document;
+
+    /**
+     * Creates a task showing its document in the given view.
+     *
+     * @param view The view showing the document.
+     */
+    protected LogDocumentTask(@NotNull LogView view) {
+        this.view = view;
+    }
+
+    /**
+     * Creates a listener reporting the progress of the indexing of the document and handing its lines to the view.
+     *
+     * @param stage The name of the stage shown in the progress message.
+     * @return The listener, which stops the indexing once the task is cancelled.
+     */
+    protected final @NotNull LogDocument.IndexListener indexListener(@NotNull String stage) {
+        long startNanos = System.nanoTime();
+        return (indexed, bytesRead, totalBytes) -> {
+            checkCancelled();
+            reportProgress(stage, bytesRead, totalBytes, indexed.lineCount(), startNanos);
+            showBatch(indexed);
+        };
+    }
+
+    /**
+     * Stops the task if it has been cancelled.
+     *
+     * @throws InterruptedIOException If the task has been cancelled.
+     */
+    protected final void checkCancelled() throws InterruptedIOException {
+        if (isCancelled()) {
+            throw new InterruptedIOException("The task was cancelled.");
+        }
+    }
+
+    /**
+     * Updates the progress and the progress message of the task.
+     *
+     * @param stage      The name of the stage shown in the progress message.
+     * @param bytes      The number of bytes processed so far.
+     * @param totalBytes The total number of bytes to process.
+     * @param lines      The number of lines produced so far.
+     * @param startNanos The time the stage started at, from {@link System#nanoTime()}.
+     */
+    protected final void reportProgress(@NotNull String stage, long bytes, long totalBytes, long lines, long startNanos) {
+        updateProgress(bytes, Math.max(totalBytes, 1));
+        double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+        updateMessage(String.format("%s: %,.1f / %,.1f MB, %,d lines, %,.1f MB/s", stage,
+                bytes / BYTES_PER_MEGABYTE, totalBytes / BYTES_PER_MEGABYTE, lines,
+                bytes / BYTES_PER_MEGABYTE / seconds));
+    }
+
+    /**
+     * Hands the lines indexed so far to the view, unless a batch is still waiting to be shown.
+     *
+     * @param indexed The document being indexed.
+     */
+    private void showBatch(@NotNull LogDocument indexed) {
+        document = indexed;
+        if (batchPending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                batchPending.set(false);
+                if (!isDone()) {
+                    view.setDocument(indexed);
+                }
+            });
+        }
+    }
+
+    /**
+     * Shows the complete document.
+     */
+    @Override
+    protected void succeeded() {
+        view.setDocument(getValue());
+    }
+
+    /**
+     * Discards the partial document.
+     */
+    @Override
+    protected void cancelled() {
+        discard();
+    }
+
+    /**
+     * Discards the partial document.
+     */
+    @Override
+    protected void failed() {
+        discard();
+    }
+
+    /**
+     * Closes the partial document and removes it from the view if it is shown.
+     */
+    private void discard() {
+        LogDocument partial = document;
+        if (partial == null) {
+            return;
+        }
+        if (view.getDocument() == partial) {
+            view.setDocument(null);
+        } else {
+            partial.close();
+        }
+    }
+}
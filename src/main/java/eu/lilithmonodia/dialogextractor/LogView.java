@@ -0,0 +1,144 @@
+package eu.lilithmonodia.dialogextractor;
+
+import eu.lilithmonodia.dialogextractor.data.LogDocument;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.input.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * A read-only, virtualized view of a {@link LogDocument}.
+ * <p>
+ * The items of the list are only line indices: a cell reads and decodes its line from the document when it is shown,
+ * so only the lines currently on screen are held in memory, whatever the size of the log. The view owns its document
+ * and closes it when it is replaced. A document that is still being indexed can be shown and grown batch by batch.
+ */
+public class LogView extends ListView<Integer> {
+    private static final KeyCombination COPY = new KeyCodeCombination(KeyCode.C, KeyCombination.SHORTCUT_DOWN);
+
+    private LineIndices lineIndices = new LineIndices(0);
+    private LogDocument document;
+
+    /**
+     * Creates an empty log view.
+     */
+    public LogView() {
+        setItems(lineIndices);
+        setCellFactory(view -> new LineCell());
+        getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        setOnKeyPressed(event -> {
+            if (COPY.match(event)) {
+                copySelection();
+                event.consume();
+            }
+        });
+    }
+
+    /**
+     * Returns the document shown by the view.
+     *
+     * @return The document, or null if the view is empty.
+     */
+    public @Nullable LogDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * Shows a document, closing the one shown before.
+     * <p>
+     * Showing the document that is already shown adds the lines indexed since it was last shown, keeping the scroll
+     * position and the selection.
+     *
+     * @param document The document to show, or null to empty the view.
+     */
+    public void setDocument(@Nullable LogDocument document) {
+        if (document != null && document == this.document) {
+            lineIndices.grow(document.lineCount());
+            return;
+        }
+        LogDocument previous = this.document;
+        this.document = document;
+        getSelectionModel().clearSelection();
+        lineIndices = new LineIndices(document == null ? 0 : document.lineCount());
+        setItems(lineIndices);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Copies the selected lines to the system clipboard, separated by line separators.
+     */
+    private void copySelection() {
+        if (document == null || getSelectionModel().getSelectedIndices().isEmpty()) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int index : getSelectionModel().getSelectedIndices().stream().sorted().toList()) {
+            if (!text.isEmpty()) {
+                text.append('\n');
+            }
+            text.append(document.lineText(index));
+        }
+        ClipboardContent content = new ClipboardContent();
+        content.putString(text.toString());
+        Clipboard.getSystemClipboard().setContent(content);
+    }
+
+    /**
+     * A cell decoding its line from the document when it is updated.
+     */
+    private final class LineCell extends ListCell<Integer> {
+        @Override
+        protected void updateItem(Integer index, boolean empty) {
+            super.updateItem(index, empty);
+            setText(empty || index == null || document == null ? null : document.line(index));
+        }
+    }
+
+    /**
+     * The observable list of line indices {@code 0} to {@code size - 1}, computed rather than stored.
+     */
+    private static final class LineIndices extends ObservableListBase<Integer> {
+        private int size;
+
+        /**
+         * Creates the list of the indices of a document.
+         *
+         * @param size The number of lines of the document.
+         */
+        private LineIndices(int size) {
+            this.size = size;
+        }
+
+        /**
+         * Adds the indices of newly indexed lines and notifies the view of them.
+         *
+         * @param newSize The new number of indices; ignored if it is not larger than the current one.
+         */
+        private void grow(int newSize) {
+            if (newSize <= size) {
+                return;
+            }
+            beginChange();
+            nextAdd(size, newSize);
+            size = newSize;
+            endChange();
+        }
+
+        @Override
+        public @NotNull Integer get(int index) {
+            return Objects.checkIndex(index, size);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
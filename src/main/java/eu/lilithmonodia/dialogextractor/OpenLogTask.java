@@ -0,0 +1,62 @@
+package eu.lilithmonodia.dialogextractor;
+
+import eu.lilithmonodia.dialogextractor.data.LogDocument;
+import eu.lilithmonodia.dialogextractor.utils.ArchiveExtractor;
+import eu.lilithmonodia.dialogextractor.utils.ExtractionMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
+
+/**
+ * Opens a {@code .log} or {@code .gz} log file, or the logs of an archive, in the background and shows its lines as they are indexed.
+ * <p>
+ * The character encoding of the log is detected from its first block.
+ */
+class OpenLogTask extends LogDocumentTask {
+    private static final Logger LOGGER = LogManager.getLogger(OpenLogTask.class);
+
+    private final File file;
+
+    /**
+     * Creates a task opening the given file.
+     *
+     * @param file The log file to open.
+     * @param view The view showing the file.
+     */
+    OpenLogTask(@NotNull File file, @NotNull LogView view) {
+        super(view);
+        this.file = file;
+    }
+
+    /**
+     * Opens and indexes the file.
+     *
+     * @return The opened document.
+     * @throws IOException If the input is not a log file, cannot be read, or the task is cancelled.
+     */
+    @Override
+    protected @NotNull LogDocument call() throws IOException {
+        logDebug(LOGGER, "Attempting to process file ...");
+        if (!Files.isRegularFile(file.toPath())) {
+            throw new IOException("The input is not a file.");
+        }
+        String name = file.getName();
+        if (!name.endsWith(".gz") && !name.endsWith(".log") && !ArchiveExtractor.isArchive(file.toPath())) {
+            throw new IOException("Unsupported file extension");
+        }
+        LogDocument document;
+        try (ExtractionMetrics.StageTimer timer = ExtractionMetrics.start(ExtractionMetrics.Stage.OPEN, name)) {
+            document = LogDocument.open(file.toPath(), null, indexListener("Reading"));
+            ExtractionMetrics.add(ExtractionMetrics.Counter.BYTES_READ, file.length());
+            timer.bytes(file.length()).lines(document.lineCount());
+        }
+        logDebug(LOGGER, "File processing finished successfully.");
+        return document;
+    }
+}
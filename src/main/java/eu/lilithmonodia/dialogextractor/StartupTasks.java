@@ -0,0 +1,91 @@
+package eu.lilithmonodia.dialogextractor;
+
+import eu.lilithmonodia.dialogextractor.data.CharsetDetector;
+import eu.lilithmonodia.dialogextractor.data.FilterRules;
+import javafx.application.Platform;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logAction;
+
+/**
+ * Runs the initialization that the first window does not need on a background thread, while the window is built.
+ * <p>
+ * Configuring Log4j2, loading the filter rules and preparing the charset decoders only happen once the application is
+ * started, in that order, on a single daemon thread. Nothing on the path to the first window logs, so the JavaFX
+ * Application Thread never waits for Log4j2. Once the window is shown, the time since the JVM started is logged, which
+ * gives the cold start time.
+ * <p>
+ * When the {@value #CDS_TRAINING_PROPERTY} system property is true, the application exits as soon as the window is shown
+ * and the initialization is over. The build uses such a run to record the classes that an AppCDS archive should hold.
+ * <p>
+ * This class can't be instantiated or extended, as it contains only static methods.
+ */
+final class StartupTasks {
+    /**
+     * The system property making the application exit once it has started, for the AppCDS training run.
+     */
+    static final String CDS_TRAINING_PROPERTY = "dialogextractor.cdsTraining";
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dialog-extractor-startup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * This class can't be instantiated or extended, as it contains only static methods.
+     */
+    private StartupTasks() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Starts the deferred initialization in the background.
+     */
+    static void start() {
+        EXECUTOR.execute(StartupTasks::initialize);
+    }
+
+    /**
+     * Logs the cold start time once the first window is shown, after the deferred initialization, and exits if this is
+     * the AppCDS training run.
+     */
+    static void windowShown() {
+        Instant shown = Instant.now();
+        EXECUTOR.execute(() -> {
+            ProcessHandle.current().info().startInstant().ifPresent(started -> logAction(logger(),
+                    "First window shown " + Duration.between(started, shown).toMillis() + " ms after the JVM started."));
+            if (Boolean.getBoolean(CDS_TRAINING_PROPERTY)) {
+                Platform.runLater(Platform::exit);
+            }
+        });
+    }
+
+    /**
+     * Configures Log4j2, loads the filter rules and prepares the decoders of the charsets offered for logs.
+     */
+    private static void initialize() {
+        logAction(logger(), "Application launch started...");
+        FilterRules.active();
+        CharsetDetector.WINDOWS_1252.newDecoder();
+        StandardCharsets.UTF_8.newDecoder();
+    }
+
+    /**
+     * Returns the logger of the startup, configuring Log4j2 on first use.
+     *
+     * @return The logger.
+     */
+    private static @NotNull Logger logger() {
+        return LogManager.getLogger(StartupTasks.class);
+    }
+}
@@ -0,0 +1,95 @@
+package eu.lilithmonodia.dialogextractor.cli;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Represents a parsed command line of the form {@code <command> [arguments...] [--option value...]}.
+ *
+ * @param command   The command name, i.e. the first argument.
+ * @param arguments The positional arguments following the command.
+ * @param options   The {@code --name value} options, keyed by name without the dashes.
+ */
+public record CommandLine(@NotNull String command, @NotNull List<String> arguments, @NotNull Map<String, String> options) {
+    private static final String OPTION_PREFIX = "--";
+
+    /**
+     * Parses raw command-line arguments.
+     * <p>
+     * An option is written {@code --name value} or {@code --name=value}. A flag, i.e. an option that takes no value,
+     * is stored with the value {@code "true"} and never consumes the following argument.
+     *
+     * @param args      The raw command-line arguments; the first one is the command.
+     * @param flagNames The names of the options that take no value.
+     * @return The parsed command line.
+     * @throws IllegalArgumentException if no command is given.
+     */
+    public static @NotNull CommandLine parse(String @NotNull [] args, @NotNull Set<String> flagNames) {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("No command given.");
+        }
+        List<String> arguments = new ArrayList<>();
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith(OPTION_PREFIX)) {
+                arguments.add(arg);
+                continue;
+            }
+            String name = arg.substring(OPTION_PREFIX.length());
+            int equals = name.indexOf('=');
+            if (equals >= 0) {
+                options.put(name.substring(0, equals), name.substring(equals + 1));
+            } else if (!flagNames.contains(name) && i + 1 < args.length) {
+                options.put(name, args[++i]);
+            } else {
+                options.put(name, "true");
+            }
+        }
+        return new CommandLine(args[0], List.copyOf(arguments), Collections.unmodifiableMap(options));
+    }
+
+    /**
+     * Returns the value of an option.
+     *
+     * @param name         The option name.
+     * @param defaultValue The value to return if the option is absent.
+     * @return The option value, or the default value.
+     */
+    public @Nullable String option(@NotNull String name, @Nullable String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    /**
+     * Returns the value of an integer option.
+     *
+     * @param name         The option name.
+     * @param defaultValue The value to return if the option is absent.
+     * @return The option value, or the default value.
+     * @throws IllegalArgumentException if the option value is not an integer.
+     */
+    public int intOption(@NotNull String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option --" + name + " expects an integer but got: " + value, e);
+        }
+    }
+
+    /**
+     * Checks whether a flag option is set.
+     *
+     * @param name The option name.
+     * @return True if the option is present and not explicitly {@code false}.
+     */
+    public boolean flag(@NotNull String name) {
+        String value = options.get(name);
+        return value != null && !"false".equalsIgnoreCase(value);
+    }
+}
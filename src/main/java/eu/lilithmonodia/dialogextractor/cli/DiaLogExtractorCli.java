@@ -0,0 +1,584 @@
+package eu.lilithmonodia.dialogextractor.cli;
+
+import eu.lilithmonodia.dialogextractor.data.ChatRecordStore;
+import eu.lilithmonodia.dialogextractor.data.FilterRules;
+import eu.lilithmonodia.dialogextractor.data.SearchIndex;
+import eu.lilithmonodia.dialogextractor.data.TimeIndex;
+import eu.lilithmonodia.dialogextractor.utils.BatchExtractor;
+import eu.lilithmonodia.dialogextractor.utils.ExtractionCache;
+import eu.lilithmonodia.dialogextractor.utils.ExtractionMetrics;
+import eu.lilithmonodia.dialogextractor.utils.FileUtils;
+import eu.lilithmonodia.dialogextractor.utils.LogFollower;
+import eu.lilithmonodia.dialogextractor.utils.LogMerger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
+
+/**
+ * The DiaLogExtractorCli class is the headless command-line entry point of the application.
+ * <p>
+ * It is selected by {@link eu.lilithmonodia.dialogextractor.Launcher} when the first argument is a known command, so
+ * that extraction can run on servers without starting JavaFX.
+ * <p>
+ * This class can't be instantiated or extended as it contains only static methods.
+ */
+public class DiaLogExtractorCli {
+    static final String EXTRACT_COMMAND = "extract";
+    static final String MERGE_COMMAND = "merge";
+    static final String RANGE_COMMAND = "range";
+    static final String FOLLOW_COMMAND = "follow";
+    static final String STATS_COMMAND = "stats";
+    static final String INDEX_COMMAND = "index";
+    static final String SEARCH_COMMAND = "search";
+    static final String SERVE_COMMAND = "serve";
+    static final int EXIT_SUCCESS = 0;
+    static final int EXIT_FAILURE = 1;
+    static final int EXIT_USAGE = 2;
+    private static final Set<String> COMMANDS = Set.of(EXTRACT_COMMAND, MERGE_COMMAND, RANGE_COMMAND, FOLLOW_COMMAND,
+            STATS_COMMAND, INDEX_COMMAND, SEARCH_COMMAND, SERVE_COMMAND);
+    private static final Set<String> FLAGS = Set.of("gzip", "save-index", "cache", "stats", "combine");
+    private static final String DEFAULT_CHARSET = "windows-1252";
+    private static final int DEFAULT_SEARCH_LIMIT = 100;
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_QUEUE_TIMEOUT = 5000;
+    private static final String USAGE = """
+            Usage:
+              extract <file|directory|glob>... [options]
+                  Extracts the dialogue of every .log and .log.gz file in parallel. The logs inside .zip, .tar.gz
+                  and .tgz archives are read without unpacking them, each to its own file.
+                  --parallelism <n>   Number of files extracted at the same time (default: number of cores).
+                  --charset <name>    Character encoding of the logs (default: windows-1252).
+                  --output <dir>      Directory receiving the extracted files (default: current directory).
+                  --suffix <suffix>   Suffix appended to each log's base name (default: -dialog-extracted.log).
+                  --gzip              Compress the extracted files in parallel blocks, appending .gz to the suffix.
+                  --cache             Reuse the results of earlier extractions of unchanged logs, kept in
+                                      ~/.dialog-extractor/cache.
+                  --cache-size <mb>   Size the cache is trimmed to, least recently used first (default: 512).
+                  --combine           Write the logs of each archive to one file named after the archive.
+              merge <file|directory|glob>... [options]
+                  Merges the dialogue of rotated .log and .log.gz files into one chronological transcript.
+                  --charset <name>    Character encoding of the logs (default: windows-1252).
+                  --output <file>     File receiving the transcript, compressed if it ends with .gz
+                                      (default: merged-dialog-extracted.log).
+              range <file> --from <HH:MM:SS> --to <HH:MM:SS> [options]
+                  Extracts the dialogue of an uncompressed .log file between two times, inclusive. A --to earlier
+                  than --from falls on the next day.
+                  --charset <name>    Character encoding of the log (default: windows-1252).
+                  --output <file>     File receiving the dialogue (default: <name>-dialog-extracted.log).
+                  --save-index        Save the time index next to the log (<file>.tidx) to speed up later ranges.
+              follow <file> [options]
+                  Extracts the dialogue of a log, then keeps appending the dialogue of new lines as the game writes
+                  them, across log rotations, until the process is stopped.
+                  --charset <name>    Character encoding of the log (default: windows-1252).
+                  --output <file>     File receiving the dialogue (default: <name>-dialog-extracted.log).
+              stats <file> [options]
+                  Parses the chat lines of a .log or .log.gz file and prints the number of messages per sender.
+                  --charset <name>    Character encoding of the log (default: windows-1252).
+              index <file|directory>... [options]
+                  Adds the extracted dialogue files (*-dialog-extracted.log and .log.gz) found in the directories,
+                  recursively, to the search index. Only new and modified files are read.
+                  --index <dir>       Directory of the index (default: ~/.dialog-extractor/index).
+              search <word>... [options]
+                  Prints the indexed dialogue lines holding every word; from:<name> matches the lines of a player.
+                  --index <dir>       Directory of the index (default: ~/.dialog-extractor/index).
+                  --limit <n>         Maximum number of lines printed (default: 100).
+              serve [options]
+                  Serves the extraction over HTTP until the process is stopped: POST a .log or .log.gz file to
+                  /extract to receive its dialogue, and GET /metrics for the request and stage counters.
+                  --bind <address>    Address to listen on (default: 127.0.0.1).
+                  --port <n>          Port to listen on (default: 8080).
+                  --max-concurrent <n>
+                                      Number of logs extracted at the same time (default: number of cores).
+                  --max-queued <n>    Number of requests waiting for their turn before others get a 503
+                                      (default: twice the concurrency).
+                  --queue-timeout <ms>
+                                      How long a request waits for its turn (default: 5000).
+                  --charset <name>    Character encoding of logs posted without ?charset= (default: windows-1252).
+            Every command accepts:
+                  --rules <file>      Filter rules deciding which chat lines are kept
+                                      (default: ~/.dialog-extractor/rules.txt if it exists).
+                  --dedup <n|all>     Drop the dialogue lines repeating one of the n lines before them, or any
+                                      earlier line with all, like a dedup rule.
+                  --stats             Print the time spent in each stage and the bytes and lines processed
+                                      to the error stream once the command is over.
+            """;
+
+    /**
+     * Holds the logger of the command line, so that {@link #isCliCommand(String[])} can be called before the window of
+     * the application is built without configuring Log4j2.
+     */
+    private static final class Log {
+        private static final Logger LOGGER = LogManager.getLogger(DiaLogExtractorCli.class);
+    }
+
+    /**
+     * The DiaLogExtractorCli class provides the command-line entry point.
+     * <p>
+     * This class can't be instantiated or extended, as it contains only static methods.
+     */
+    private DiaLogExtractorCli() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Checks whether the command-line arguments ask for a headless command.
+     *
+     * @param args The command-line arguments.
+     * @return True if the first argument is a known command.
+     */
+    public static boolean isCliCommand(String @NotNull [] args) {
+        return args.length > 0 && COMMANDS.contains(args[0]);
+    }
+
+    /**
+     * Runs a headless command.
+     *
+     * @param args The command-line arguments; the first one is the command.
+     * @param out  The stream receiving the regular output.
+     * @param err  The stream receiving errors and usage information.
+     * @return The process exit status: 0 on success, 1 if the command failed and 2 on invalid usage.
+     */
+    public static int run(String @NotNull [] args, @NotNull PrintStream out, @NotNull PrintStream err) {
+        try {
+            CommandLine commandLine = CommandLine.parse(args, FLAGS);
+            activateRules(commandLine);
+            if (!commandLine.flag("stats")) {
+                return runCommand(commandLine, out, err);
+            }
+            ExtractionMetrics.reset();
+            try {
+                return runCommand(commandLine, out, err);
+            } finally {
+                err.print(ExtractionMetrics.summary());
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.print(USAGE);
+            return EXIT_USAGE;
+        } catch (IOException e) {
+            logError(Log.LOGGER, "An error occurred while running the command.", e);
+            err.println("Error: " + e.getMessage());
+            return EXIT_FAILURE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Interrupted.");
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Runs the command of a parsed command line.
+     *
+     * @param commandLine The parsed command line.
+     * @param out         The stream receiving the regular output.
+     * @param err         The stream receiving errors.
+     * @return The process exit status.
+     * @throws IOException              If reading or writing a file fails.
+     * @throws InterruptedException     If the command is interrupted.
+     * @throws IllegalArgumentException if the command or one of its options is invalid.
+     */
+    private static int runCommand(@NotNull CommandLine commandLine, @NotNull PrintStream out, @NotNull PrintStream err)
+            throws IOException, InterruptedException {
+        if (EXTRACT_COMMAND.equals(commandLine.command())) {
+            return extract(commandLine, out, err);
+        }
+        if (MERGE_COMMAND.equals(commandLine.command())) {
+            return merge(commandLine, out, err);
+        }
+        if (RANGE_COMMAND.equals(commandLine.command())) {
+            return range(commandLine, out);
+        }
+        if (FOLLOW_COMMAND.equals(commandLine.command())) {
+            return follow(commandLine, out);
+        }
+        if (STATS_COMMAND.equals(commandLine.command())) {
+            return stats(commandLine, out);
+        }
+        if (INDEX_COMMAND.equals(commandLine.command())) {
+            return index(commandLine, out);
+        }
+        if (SEARCH_COMMAND.equals(commandLine.command())) {
+            return search(commandLine, out);
+        }
+        if (SERVE_COMMAND.equals(commandLine.command())) {
+            return serve(commandLine, out);
+        }
+        throw new IllegalArgumentException("Unknown command: " + commandLine.command());
+    }
+
+    /**
+     * Runs the {@code extract} command, which extracts many log files in parallel.
+     *
+     * @param commandLine The parsed command line.
+     * @param out         The stream receiving the per-file results and the summary.
+     * @param err         The stream receiving the failures.
+     * @return The process exit status.
+     * @throws IOException          If the inputs cannot be listed or the output directory cannot be created.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    private static int extract(@NotNull CommandLine commandLine, @NotNull PrintStream out, @NotNull PrintStream err)
+            throws IOException, InterruptedException {
+        if (commandLine.arguments().isEmpty()) {
+            throw new IllegalArgumentException("No input given.");
+        }
+        int parallelism = commandLine.intOption("parallelism", Runtime.getRuntime().availableProcessors());
+        Charset charset = Charset.forName(commandLine.option("charset", DEFAULT_CHARSET));
+        Path outputDirectory = Path.of(commandLine.option("output", "."));
+        String suffix = commandLine.option("suffix", FileUtils.EXTRACTED_FILE_SUFFIX);
+        if (commandLine.flag("gzip") && !suffix.endsWith(".gz")) {
+            suffix += ".gz";
+        }
+        Files.createDirectories(outputDirectory);
+
+        ExtractionCache cache = null;
+        if (commandLine.flag("cache")) {
+            int cacheSize = commandLine.intOption("cache-size", 512);
+            if (cacheSize < 0) {
+                throw new IllegalArgumentException("The cache size cannot be negative.");
+            }
+            cache = ExtractionCache.inDefaultDirectory(cacheSize * 1024L * 1024L);
+        }
+        BatchExtractor batchExtractor = new BatchExtractor(parallelism, charset, outputDirectory, suffix, cache,
+                commandLine.flag("combine"));
+        List<Path> inputs = batchExtractor.collectInputs(commandLine.arguments());
+        if (inputs.isEmpty()) {
+            err.println("No log files found.");
+            return EXIT_FAILURE;
+        }
+
+        long start = System.nanoTime();
+        List<BatchExtractor.Result> results = batchExtractor.extractAll(inputs);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long bytes = 0;
+        long lines = 0;
+        int failed = 0;
+        for (BatchExtractor.Result result : results) {
+            if (result.succeeded()) {
+                out.println(result.input() + " -> " + result.output() + " (" + result.lines() + " lines)");
+                bytes += result.bytes();
+                lines += result.lines();
+            } else {
+                err.println("FAILED " + result.input() + ": " + result.error().getMessage());
+                failed++;
+            }
+        }
+        out.printf("Extracted %d of %d files (%d lines, %.1f MB) in %.2f s, %.1f MB/s%n",
+                results.size() - failed, results.size(), lines, bytes / 1e6, seconds, bytes / 1e6 / Math.max(seconds, 1e-9));
+        return failed == 0 ? EXIT_SUCCESS : EXIT_FAILURE;
+    }
+
+    /**
+     * Runs the {@code merge} command, which merges the dialogue of rotated logs into one chronological transcript.
+     *
+     * @param commandLine The parsed command line.
+     * @param out         The stream receiving the summary.
+     * @param err         The stream receiving the failures.
+     * @return The process exit status.
+     * @throws IOException If the inputs cannot be listed or read, or the transcript cannot be written.
+     */
+    private static int merge(@NotNull CommandLine commandLine, @NotNull PrintStream out, @NotNull PrintStream err)
+            throws IOException {
+        if (commandLine.arguments().isEmpty()) {
+            throw new IllegalArgumentException("No input given.");
+        }
+        Charset charset = Charset.forName(commandLine.option("charset", DEFAULT_CHARSET));
+        Path output = Path.of(commandLine.option("output", "merged" + FileUtils.EXTRACTED_FILE_SUFFIX));
+
+        BatchExtractor batchExtractor = new BatchExtractor(1, charset, Path.of("."), FileUtils.EXTRACTED_FILE_SUFFIX);
+        List<Path> inputs = batchExtractor.collectInputs(commandLine.arguments());
+        if (inputs.isEmpty()) {
+            err.println("No log files found.");
+            return EXIT_FAILURE;
+        }
+
+        long start = System.nanoTime();
+        long lines;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(FileUtils.openOutputStream(output.toFile()),
+                StandardCharsets.UTF_8))) {
+            lines = new LogMerger(charset).merge(inputs, writer);
+        }
+        out.printf("Merged %d files into %s (%d lines) in %.2f s%n", inputs.size(), output, lines,
+                (System.nanoTime() - start) / 1e9);
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Runs the {@code range} command, which extracts the dialogue of a log between two times through its time index.
+     *
+     * @param commandLine The parsed command line.
+     * @param out         The stream receiving the summary.
+     * @return The process exit status.
+     * @throws IOException If the log cannot be read or indexed, or the output cannot be written.
+     */
+    private static int range(@NotNull CommandLine commandLine, @NotNull PrintStream out) throws IOException {
+        if (commandLine.arguments().size() != 1) {
+            throw new IllegalArgumentException("Exactly one input log is expected.");
+        }
+        Path log = Path.of(commandLine.arguments().get(0));
+        if (!log.getFileName().toString().endsWith(".log")) {
+            throw new IllegalArgumentException("Time ranges need an uncompressed .log file: " + log);
+        }
+        int from = timeOption(commandLine, "from");
+        int to = timeOption(commandLine, "to");
+        if (to < from) {
+            to += 24 * 60 * 60;
+        }
+        Charset charset = Charset.forName(commandLine.option("charset", DEFAULT_CHARSET));
+        Path output = Path.of(commandLine.option("output",
+                FileUtils.getBaseName(log.toFile()) + FileUtils.EXTRACTED_FILE_SUFFIX));
+
+        long start = System.nanoTime();
+        TimeIndex index = TimeIndex.open(log);
+        if (commandLine.flag("save-index")) {
+            index.save(log);
+        }
+        TimeIndex.Slice slice = index.slice(from, to);
+        long lines;
+        try (OutputStream stream = FileUtils.openOutputStream(output.toFile())) {
+            lines = TimeIndex.extract(log, slice, charset, stream);
+        }
+        out.printf("%s -> %s (%d lines from %.1f MB) in %.2f s%n", log, output, lines, slice.length() / 1e6,
+                (System.nanoTime() - start) / 1e9);
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Runs the {@code follow} command, which keeps extracting the dialogue appended to a log until the process is
+     * stopped.
+     *
+     * @param commandLine The parsed command line.
+     * @param out         The stream receiving the progress.
+     * @return The process exit status.
+     * @throws IOException          If the log cannot be read or the output cannot be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the log to change.
+     */
+    private static int follow(@NotNull CommandLine commandLine, @NotNull PrintStream out)
+            throws IOException, InterruptedException {
+        if (commandLine.arguments().size() != 1) {
+            throw new IllegalArgumentException("Exactly one input log is expected.");
+        }
+        Path log = Path.of(commandLine.arguments().get(0));
+        Charset charset = Charset.forName(commandLine.option("charset", DEFAULT_CHARSET));
+        Path output = Path.of(commandLine.option("output",
+                FileUtils.getBaseName(log.toFile()) + FileUtils.EXTRACTED_FILE_SUFFIX));
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(FileUtils.openOutputStream(output.toFile()),
+                StandardCharsets.UTF_8));
+             LogFollower follower = new LogFollower(log, charset, writer)) {
+            out.println("Following " + log + " into " + output + ", stop with Ctrl+C.");
+            follower.follow(lines -> out.printf("+%d lines (%d in total)%n", lines, follower.written()));
+        }
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Runs the {@code stats} command, which counts the messages of every sender of a log.
+     *
+     * @param commandLine The parsed command line.
+     * @param out         The stream receiving the counts, most active sender first.
+     * @return The process exit status.
+     * @throws IOException If the log cannot be read.
+     */
+    private static int stats(@NotNull CommandLine commandLine, @NotNull PrintStream out) throws IOException {
+        if (commandLine.arguments().size() != 1) {
+            throw new IllegalArgumentException("Exactly one input log is expected.");
+        }
+        Path log = Path.of(commandLine.arguments().get(0));
+        Charset charset = Charset.forName(commandLine.option("charset", DEFAULT_CHARSET));
+
+        ChatRecordStore records;
+        try (InputStream in = FileUtils.openLogStream(log.toFile())) {
+            records = ChatRecordStore.read(in, charset);
+        }
+        int[] counts = records.messageCounts();
+        Integer[] senders = new Integer[counts.length];
+        for (int id = 0; id < counts.length; id++) {
+            senders[id] = id;
+        }
+        Arrays.sort(senders, (a, b) -> Integer.compare(counts[b], counts[a]));
+        int fromPlayers = 0;
+        for (int id : senders) {
+            out.printf("%8d  %s%n", counts[id], records.senderName(id));
+            fromPlayers += counts[id];
+        }
+        out.printf("%d chat lines, %d from %d players, %d system messages%n", records.size(), fromPlayers,
+                counts.length, records.size() - fromPlayers);
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Runs the {@code index} command, which adds extracted dialogue files to the search index.
+     *
+     * @param commandLine The parsed command line.
+     * @param out         The stream receiving the summary.
+     * @return The process exit status.
+     * @throws IOException If a file cannot be read or the index cannot be written.
+     */
+    private static int index(@NotNull CommandLine commandLine, @NotNull PrintStream out) throws IOException {
+        if (commandLine.arguments().isEmpty()) {
+            throw new IllegalArgumentException("No input given.");
+        }
+        List<Path> files = new ArrayList<>();
+        for (String argument : commandLine.arguments()) {
+            Path path = Path.of(argument);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(DiaLogExtractorCli::isDialogueFile).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        long start = System.nanoTime();
+        try (SearchIndex index = SearchIndex.open(indexDirectory(commandLine))) {
+            int read = index.update(files);
+            out.printf("Indexed %d new or modified files of %d (%d in the index) in %.2f s%n", read, files.size(),
+                    index.size(), (System.nanoTime() - start) / 1e9);
+        }
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Runs the {@code search} command, which prints the indexed dialogue lines matching a query.
+     *
+     * @param commandLine The parsed command line.
+     * @param out         The stream receiving the matching lines as {@code file:line: text}.
+     * @return The process exit status: 0 if lines were found, 1 otherwise.
+     * @throws IOException If the index or a dialogue file cannot be read.
+     */
+    private static int search(@NotNull CommandLine commandLine, @NotNull PrintStream out) throws IOException {
+        if (commandLine.arguments().isEmpty()) {
+            throw new IllegalArgumentException("No search words given.");
+        }
+        int limit = commandLine.intOption("limit", DEFAULT_SEARCH_LIMIT);
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be at least 1.");
+        }
+
+        List<SearchIndex.Hit> hits;
+        try (SearchIndex index = SearchIndex.open(indexDirectory(commandLine))) {
+            hits = index.search(String.join(" ", commandLine.arguments()), limit);
+        }
+        List<String> lines = SearchIndex.readLines(hits);
+        for (int i = 0; i < hits.size(); i++) {
+            out.printf("%s:%d: %s%n", hits.get(i).file(), hits.get(i).line(), lines.get(i));
+        }
+        return hits.isEmpty() ? EXIT_FAILURE : EXIT_SUCCESS;
+    }
+
+    /**
+     * Runs the {@code serve} command, which serves the extraction over HTTP until the process is stopped.
+     *
+     * @param commandLine The parsed command line.
+     * @param out         The stream receiving the address of the server.
+     * @return The process exit status.
+     * @throws IOException          If the address cannot be bound.
+     * @throws InterruptedException If the thread is interrupted, which stops the server.
+     */
+    private static int serve(@NotNull CommandLine commandLine, @NotNull PrintStream out)
+            throws IOException, InterruptedException {
+        if (!commandLine.arguments().isEmpty()) {
+            throw new IllegalArgumentException("The serve command takes no input.");
+        }
+        int port = commandLine.intOption("port", DEFAULT_PORT);
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("The port must be between 0 and 65535.");
+        }
+        int maxConcurrent = commandLine.intOption("max-concurrent", Runtime.getRuntime().availableProcessors());
+        int maxQueued = commandLine.intOption("max-queued", maxConcurrent * 2);
+        int queueTimeout = commandLine.intOption("queue-timeout", DEFAULT_QUEUE_TIMEOUT);
+        Charset charset = Charset.forName(commandLine.option("charset", DEFAULT_CHARSET));
+        InetSocketAddress address = new InetSocketAddress(commandLine.option("bind", "127.0.0.1"), port);
+
+        try (ExtractionServer server = new ExtractionServer(address, maxConcurrent, maxQueued, queueTimeout, charset)) {
+            server.start();
+            out.println("Serving on http://" + server.address().getHostString() + ":" + server.address().getPort()
+                    + ", stop with Ctrl+C.");
+            new CountDownLatch(1).await();
+        }
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Returns the index directory given with {@code --index}, or the default one.
+     *
+     * @param commandLine The parsed command line.
+     * @return The index directory.
+     */
+    private static @NotNull Path indexDirectory(@NotNull CommandLine commandLine) {
+        String directory = commandLine.option("index", null);
+        return directory != null ? Path.of(directory) : SearchIndex.defaultDirectory();
+    }
+
+    /**
+     * Checks whether a path names a dialogue file written by the extraction.
+     *
+     * @param path The path to check.
+     * @return True if the path is a regular file carrying the extracted file suffix, compressed or not.
+     */
+    private static boolean isDialogueFile(@NotNull Path path) {
+        String name = path.getFileName().toString();
+        return Files.isRegularFile(path) && (name.endsWith(FileUtils.EXTRACTED_FILE_SUFFIX)
+                || name.endsWith(FileUtils.EXTRACTED_FILE_SUFFIX + ".gz"));
+    }
+
+    /**
+     * Activates the filter rules given with {@code --rules}, if any, adding a {@code dedup} rule if {@code --dedup} is
+     * given.
+     *
+     * @param commandLine The parsed command line.
+     * @throws IOException              If the rule file cannot be read.
+     * @throws IllegalArgumentException if the rule file holds an invalid rule or the dedup window is invalid.
+     */
+    private static void activateRules(@NotNull CommandLine commandLine) throws IOException {
+        String rules = commandLine.option("rules", null);
+        if (rules != null) {
+            FilterRules.activate(FilterRules.load(Path.of(rules)));
+        }
+        String dedup = commandLine.option("dedup", null);
+        if (dedup != null) {
+            List<FilterRules.Rule> deduplicated = new ArrayList<>(FilterRules.active().rules());
+            deduplicated.add(new FilterRules.Rule(FilterRules.Kind.DEDUPLICATE, dedup));
+            FilterRules.activate(new FilterRules(deduplicated));
+        }
+    }
+
+    /**
+     * Returns the value of a required {@code HH:MM:SS} option.
+     *
+     * @param commandLine The parsed command line.
+     * @param name        The option name.
+     * @return The second of the day.
+     * @throws IllegalArgumentException if the option is absent or not a time.
+     */
+    private static int timeOption(@NotNull CommandLine commandLine, @NotNull String name) {
+        String value = commandLine.option(name, null);
+        if (value == null) {
+            throw new IllegalArgumentException("Option --" + name + " is required.");
+        }
+        try {
+            return LocalTime.parse(value).toSecondOfDay();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Option --" + name + " expects a time HH:MM:SS but got: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package eu.lilithmonodia.dialogextractor.cli;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import eu.lilithmonodia.dialogextractor.utils.CountingInputStream;
+import eu.lilithmonodia.dialogextractor.utils.ExtractionMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logAction;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
+
+/**
+ * Serves the dialogue extraction over HTTP, so that one machine can extract logs for everyone.
+ * <p>
+ * A log is extracted by posting it to {@code /extract}, plain or GZIP-compressed, which is told from its first bytes.
+ * Its character encoding is given by the {@code charset} query parameter, e.g. {@code /extract?charset=UTF-8}. The
+ * dialogue is streamed back as UTF-8 text while the log is still being received, so neither body is held in memory.
+ * If the extraction fails after the response has started, the connection is closed before the end of the response,
+ * so that a client cannot mistake a partial dialogue for a complete one. {@code /metrics} prints the request counts and
+ * the totals of {@link ExtractionMetrics} as plain text.
+ * <p>
+ * At most {@code maxConcurrent} logs are extracted at the same time, and up to {@code maxQueued} more requests wait
+ * for their turn for at most the queue timeout. Any other request is answered at once with
+ * {@code 503 Service Unavailable} and a {@code Retry-After} header, so a burst of uploads slows nobody down beyond the
+ * queue timeout and the memory of the server stays bounded.
+ */
+public class ExtractionServer implements AutoCloseable {
+    static final String EXTRACT_PATH = "/extract";
+    static final String METRICS_PATH = "/metrics";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SPARE_WORKERS = 1;
+    private static final Logger LOGGER = LogManager.getLogger(ExtractionServer.class);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore admissions;
+    private final Semaphore slots;
+    private final long queueTimeoutMillis;
+    private final Charset defaultCharset;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder linesSent = new LongAdder();
+    private final AtomicLong active = new AtomicLong();
+
+    /**
+     * Creates a server bound to an address, which only accepts requests once {@link #start()} is called.
+     *
+     * @param address            The address to listen on; port 0 picks a free port.
+     * @param maxConcurrent      The maximum number of logs extracted at the same time.
+     * @param maxQueued          The maximum number of requests waiting for their turn.
+     * @param queueTimeoutMillis How long a request waits for its turn before it is rejected, in milliseconds.
+     * @param defaultCharset     The character encoding of the logs posted without a {@code charset} parameter.
+     * @throws IOException              If the address cannot be bound.
+     * @throws IllegalArgumentException if a limit is out of range.
+     */
+    public ExtractionServer(@NotNull InetSocketAddress address, int maxConcurrent, int maxQueued,
+                            long queueTimeoutMillis, @NotNull Charset defaultCharset) throws IOException {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("The concurrency limit must be at least 1.");
+        }
+        if (maxQueued < 0 || queueTimeoutMillis < 0) {
+            throw new IllegalArgumentException("The queue size and timeout cannot be negative.");
+        }
+        this.admissions = new Semaphore(maxConcurrent + maxQueued);
+        this.slots = new Semaphore(maxConcurrent);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.defaultCharset = defaultCharset;
+        this.executor = Executors.newFixedThreadPool(maxConcurrent + maxQueued + SPARE_WORKERS);
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext(EXTRACT_PATH, this::handleExtract);
+        server.createContext(METRICS_PATH, this::handleMetrics);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+        logAction(LOGGER, "Extraction server listening on " + address() + ".");
+    }
+
+    /**
+     * Returns the address the server listens on, with the port actually bound.
+     *
+     * @return The address.
+     */
+    public @NotNull InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests, gives the running ones a second to finish, and stops the workers.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+        logAction(LOGGER, "Extraction server stopped.");
+    }
+
+    /**
+     * Handles a request to {@link #EXTRACT_PATH}, streaming the dialogue of the posted log back to the client.
+     *
+     * @param exchange The exchange.
+     * @throws IOException If the request cannot be read or the response cannot be written; the server then closes
+     *                     the connection without ending the response.
+     */
+    private void handleExtract(@NotNull HttpExchange exchange) throws IOException {
+        requests.increment();
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            sendText(exchange, 405, "Post the log to extract.\n");
+            return;
+        }
+        Charset charset;
+        try {
+            String name = queryParameter(exchange, "charset");
+            charset = name == null ? defaultCharset : Charset.forName(name);
+        } catch (IllegalArgumentException e) {
+            sendText(exchange, 400, "Unknown charset.\n");
+            return;
+        }
+        if (!admissions.tryAcquire()) {
+            reject(exchange);
+            return;
+        }
+        try {
+            if (!slots.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                reject(exchange);
+                return;
+            }
+            try {
+                active.incrementAndGet();
+                extract(exchange, charset);
+            } finally {
+                active.decrementAndGet();
+                slots.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The server is stopping.", e);
+        } finally {
+            admissions.release();
+        }
+    }
+
+    /**
+     * Extracts the dialogue of the posted log into the response, which is only ended once the whole log is extracted.
+     *
+     * @param exchange The exchange.
+     * @param charset  The character encoding of the log.
+     * @throws IOException If the log cannot be read or inflated, or the response cannot be written.
+     */
+    private void extract(@NotNull HttpExchange exchange, @NotNull Charset charset) throws IOException {
+        CountingInputStream counted = new CountingInputStream(exchange.getRequestBody());
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        try (ExtractionMetrics.StageTimer timer = ExtractionMetrics.start(ExtractionMetrics.Stage.EXTRACT,
+                String.valueOf(exchange.getRemoteAddress()))) {
+            long lines = new DialogueExtractor().extract(openLog(counted), charset, out);
+            ExtractionMetrics.add(ExtractionMetrics.Counter.BYTES_READ, counted.count());
+            timer.bytes(counted.count()).lines(lines);
+            bytesReceived.add(counted.count());
+            linesSent.add(lines);
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            logError(LOGGER, "An error occurred while extracting a log for " + exchange.getRemoteAddress(), e);
+            throw e;
+        }
+        out.close();
+    }
+
+    /**
+     * Handles a request to {@link #METRICS_PATH}, printing one {@code name value} pair per line.
+     *
+     * @param exchange The exchange.
+     * @throws IOException If the response cannot be written.
+     */
+    private void handleMetrics(@NotNull HttpExchange exchange) throws IOException {
+        StringBuilder metrics = new StringBuilder();
+        metric(metrics, "requests_total", requests.sum());
+        metric(metrics, "requests_rejected_total", rejected.sum());
+        metric(metrics, "requests_failed_total", failed.sum());
+        metric(metrics, "requests_active", active.get());
+        metric(metrics, "bytes_received_total", bytesReceived.sum());
+        metric(metrics, "lines_sent_total", linesSent.sum());
+        for (ExtractionMetrics.Stage stage : ExtractionMetrics.Stage.values()) {
+            metric(metrics, "stage_runs_total{stage=\"" + stage.label() + "\"}", ExtractionMetrics.runs(stage));
+            metric(metrics, "stage_nanos_total{stage=\"" + stage.label() + "\"}", ExtractionMetrics.nanos(stage));
+        }
+        for (ExtractionMetrics.Counter counter : ExtractionMetrics.Counter.values()) {
+            metric(metrics, counter.name().toLowerCase(Locale.ROOT) + "_total", ExtractionMetrics.count(counter));
+        }
+        sendText(exchange, 200, metrics.toString());
+    }
+
+    /**
+     * Appends a metric to the metrics page.
+     *
+     * @param metrics The metrics page.
+     * @param name    The name of the metric, without the common prefix.
+     * @param value   The value of the metric.
+     */
+    private static void metric(@NotNull StringBuilder metrics, @NotNull String name, long value) {
+        metrics.append("dialog_extractor_").append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Answers a request the server has no room for.
+     *
+     * @param exchange The exchange.
+     * @throws IOException If the response cannot be written.
+     */
+    private void reject(@NotNull HttpExchange exchange) throws IOException {
+        rejected.increment();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendText(exchange, 503, "Too many extractions in progress, retry later.\n");
+    }
+
+    /**
+     * Sends a whole plain-text response.
+     *
+     * @param exchange The exchange.
+     * @param status   The status code.
+     * @param text     The body of the response.
+     * @throws IOException If the response cannot be written.
+     */
+    private static void sendText(@NotNull HttpExchange exchange, int status, @NotNull String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Returns the value of a query parameter of the request.
+     *
+     * @param exchange The exchange.
+     * @param name     The name of the parameter.
+     * @return The decoded value of the first parameter of that name, or null if there is none.
+     */
+    private static @Nullable String queryParameter(@NotNull HttpExchange exchange, @NotNull String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            String key = URLDecoder.decode(equals < 0 ? parameter : parameter.substring(0, equals),
+                    StandardCharsets.UTF_8);
+            if (key.equals(name)) {
+                return equals < 0 ? "" : URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Opens the posted log, inflating it if it starts with the GZIP magic number.
+     *
+     * @param body The body of the request.
+     * @return The uncompressed log.
+     * @throws IOException If the body cannot be read or the GZIP header is invalid.
+     */
+    private static @NotNull InputStream openLog(@NotNull InputStream body) throws IOException {
+        InputStream in = new BufferedInputStream(body, BUFFER_SIZE);
+        in.mark(2);
+        boolean gzip = in.read() == 0x1F && in.read() == 0x8B;
+        in.reset();
+        return gzip ? ExtractionMetrics.inflating(new GZIPInputStream(in, BUFFER_SIZE), "request") : in;
+    }
+}
@@ -0,0 +1,122 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Guesses the character encoding of a Minecraft log from a sample of its raw bytes.
+ * <p>
+ * Logs are either UTF-8 or the legacy {@code windows-1252} encoding. Colour codes make the difference visible early:
+ * the section sign {@code §} is the two bytes {@code C2 A7} in UTF-8 but the single byte {@code A7} in
+ * {@code windows-1252}, which is not valid UTF-8 on its own. The sample is read once, without decoding it.
+ * <p>
+ * This class can't be instantiated or extended as it contains only static methods.
+ */
+public class CharsetDetector {
+    /**
+     * The legacy single-byte encoding of Minecraft logs, also chosen for pure ASCII samples.
+     */
+    public static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    /**
+     * This class can't be instantiated or extended, as it contains only static methods.
+     */
+    private CharsetDetector() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Guesses the character encoding of a sample of a log.
+     * <p>
+     * The sample is checked for UTF-8 validity in a single pass. It is UTF-8 if it holds more well-formed multibyte
+     * sequences, such as {@code §} colour codes, than malformed bytes; otherwise it is {@code windows-1252}. A sequence
+     * cut off by the end of the sample is ignored. The position and limit of the buffer are left unchanged.
+     *
+     * @param sample The raw bytes of the start of the log, between the position and the limit of the buffer.
+     * @return {@link StandardCharsets#UTF_8} or {@link #WINDOWS_1252}.
+     */
+    public static @NotNull Charset detect(@NotNull ByteBuffer sample) {
+        long multibyte = 0;
+        long malformed = 0;
+        int limit = sample.limit();
+        int i = sample.position();
+        while (i < limit) {
+            int lead = sample.get(i) & 0xFF;
+            if (lead < 0x80) {
+                i++;
+                continue;
+            }
+            int length = sequenceLength(lead);
+            if (length == 0) {
+                malformed++;
+                i++;
+            } else if (i + length > limit) {
+                break;
+            } else if (isWellFormed(sample, i, lead, length)) {
+                multibyte++;
+                i += length;
+            } else {
+                malformed++;
+                i++;
+            }
+        }
+        return multibyte > malformed ? StandardCharsets.UTF_8 : WINDOWS_1252;
+    }
+
+    /**
+     * Returns the length of the UTF-8 sequence started by a lead byte.
+     *
+     * @param lead The lead byte, at least {@code 0x80}.
+     * @return The number of bytes of the sequence, or 0 if the byte cannot start a sequence.
+     */
+    private static int sequenceLength(int lead) {
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            return 2;
+        }
+        if (lead >= 0xE0 && lead <= 0xEF) {
+            return 3;
+        }
+        if (lead >= 0xF0 && lead <= 0xF4) {
+            return 4;
+        }
+        return 0;
+    }
+
+    /**
+     * Checks the continuation bytes of a UTF-8 sequence, rejecting overlong forms, surrogates and code points above
+     * {@code U+10FFFF}.
+     *
+     * @param sample The sample.
+     * @param start  The index of the lead byte.
+     * @param lead   The lead byte.
+     * @param length The length of the sequence.
+     * @return True if the sequence is well-formed.
+     */
+    private static boolean isWellFormed(@NotNull ByteBuffer sample, int start, int lead, int length) {
+        int second = sample.get(start + 1) & 0xFF;
+        int min = 0x80;
+        int max = 0xBF;
+        if (lead == 0xE0) {
+            min = 0xA0;
+        } else if (lead == 0xED) {
+            max = 0x9F;
+        } else if (lead == 0xF0) {
+            min = 0x90;
+        } else if (lead == 0xF4) {
+            max = 0x8F;
+        }
+        if (second < min || second > max) {
+            return false;
+        }
+        for (int i = start + 2; i < start + length; i++) {
+            int continuation = sample.get(i) & 0xFF;
+            if (continuation < 0x80 || continuation > 0xBF) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,233 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.util.Objects;
+
+/**
+ * Removes colour codes and surrounding whitespace from chat lines in a single pass over a reusable buffer.
+ * <p>
+ * The result is the same as {@code tail.replaceAll("§.", "").trim()}, but no regex is compiled and nothing is allocated
+ * per line once the buffer has grown to the longest line seen. Like the regex, a {@code §} followed by a line terminator
+ * or at the very end of the line is kept, and a {@code §} followed by a surrogate pair removes the whole pair.
+ * <p>
+ * A cleaner holds the last cleaned line until the next call, and reads as that line through {@link CharSequence}. It is
+ * not thread-safe; use one cleaner per thread.
+ */
+public class ChatLineCleaner implements CharSequence {
+    private static final char COLOUR_CODE_MARKER = '§';
+    private static final int INITIAL_CAPACITY = 256;
+
+    private char[] chars = new char[INITIAL_CAPACITY];
+    private CharBuffer charBuffer = CharBuffer.wrap(chars);
+    private int start;
+    private int end;
+
+    /**
+     * Cleans a range of a character sequence, typically the part of a raw chat line following the dialogue prefix.
+     *
+     * @param line The character sequence holding the chat line.
+     * @param from The index of the first character to clean.
+     * @param to   The index just past the last character to clean.
+     * @return This cleaner, holding the cleaned line.
+     */
+    public @NotNull ChatLineCleaner clean(@NotNull CharSequence line, int from, int to) {
+        int length = to - from;
+        ensureCapacity(length);
+        if (line instanceof String string) {
+            string.getChars(from, to, chars, 0);
+        } else if (line instanceof StringBuilder builder) {
+            builder.getChars(from, to, chars, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                chars[i] = line.charAt(from + i);
+            }
+        }
+        cleanBuffer(length);
+        return this;
+    }
+
+    /**
+     * Decodes the remaining bytes of a buffer and cleans the resulting characters.
+     * <p>
+     * The decoder is reset before use; it should replace malformed and unmappable input, as a reader would.
+     *
+     * @param tail    The bytes to decode, typically the part of a raw chat line following the dialogue prefix.
+     * @param decoder The decoder for the charset of the bytes.
+     * @return This cleaner, holding the cleaned line.
+     */
+    public @NotNull ChatLineCleaner clean(@NotNull ByteBuffer tail, @NotNull CharsetDecoder decoder) {
+        ensureCapacity((int) Math.ceil(tail.remaining() * (double) decoder.maxCharsPerByte()) + 1);
+        charBuffer.clear();
+        decoder.reset();
+        decoder.decode(tail, charBuffer, true);
+        decoder.flush(charBuffer);
+        cleanBuffer(charBuffer.position());
+        return this;
+    }
+
+    /**
+     * Returns the length of the cleaned line.
+     *
+     * @return The number of characters in the cleaned line.
+     */
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    /**
+     * Returns a character of the cleaned line.
+     *
+     * @param index The index of the character in the cleaned line.
+     * @return The character.
+     * @throws IndexOutOfBoundsException if the index is outside the cleaned line.
+     */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return chars[start + index];
+    }
+
+    /**
+     * Returns a part of the cleaned line as a new string.
+     *
+     * @param from The index of the first character.
+     * @param to   The index just past the last character.
+     * @return The part of the cleaned line.
+     * @throws IndexOutOfBoundsException if the range is outside the cleaned line.
+     */
+    @Override
+    public @NotNull CharSequence subSequence(int from, int to) {
+        Objects.checkFromToIndex(from, to, end - start);
+        return new String(chars, start + from, to - from);
+    }
+
+    /**
+     * Copies a part of the cleaned line into an array.
+     *
+     * @param from        The index of the first character to copy.
+     * @param to          The index just past the last character to copy.
+     * @param destination The array receiving the characters.
+     * @param position    The index of the first character in the array.
+     */
+    void getChars(int from, int to, char @NotNull [] destination, int position) {
+        System.arraycopy(chars, start + from, destination, position, to - from);
+    }
+
+    /**
+     * Checks whether the cleaned line is equal to the given text.
+     *
+     * @param text The text to compare with.
+     * @return True if the cleaned line has exactly the characters of the text.
+     */
+    public boolean contentEquals(@NotNull String text) {
+        if (text.length() != length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (chars[start + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the cleaned line is kept by filter rules, without creating a string.
+     *
+     * @param rules The filter rules.
+     * @return True if the rules keep the cleaned line.
+     */
+    public boolean isAcceptedBy(@NotNull FilterRules rules) {
+        return rules.accepts(chars, start, end);
+    }
+
+    /**
+     * Writes the cleaned line to a writer without creating a string.
+     *
+     * @param writer The writer to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(@NotNull Writer writer) throws IOException {
+        writer.write(chars, start, end - start);
+    }
+
+    /**
+     * Appends the cleaned line to a string builder.
+     *
+     * @param builder The builder to append to.
+     */
+    public void appendTo(@NotNull StringBuilder builder) {
+        builder.append(chars, start, end - start);
+    }
+
+    /**
+     * Returns the cleaned line as a new string.
+     *
+     * @return The cleaned line.
+     */
+    @Override
+    public @NotNull String toString() {
+        return new String(chars, start, end - start);
+    }
+
+    /**
+     * Removes colour codes in place from the first characters of the buffer, then trims the result.
+     *
+     * @param length The number of characters in the buffer to clean.
+     */
+    private void cleanBuffer(int length) {
+        int write = 0;
+        for (int read = 0; read < length; read++) {
+            char c = chars[read];
+            if (c == COLOUR_CODE_MARKER && read + 1 < length && !isLineTerminator(chars[read + 1])) {
+                read++;
+                if (Character.isHighSurrogate(chars[read]) && read + 1 < length
+                        && Character.isLowSurrogate(chars[read + 1])) {
+                    read++;
+                }
+                continue;
+            }
+            chars[write++] = c;
+        }
+        int trimmedStart = 0;
+        while (trimmedStart < write && chars[trimmedStart] <= ' ') {
+            trimmedStart++;
+        }
+        while (write > trimmedStart && chars[write - 1] <= ' ') {
+            write--;
+        }
+        start = trimmedStart;
+        end = write;
+    }
+
+    /**
+     * Checks whether a character is one that the regex {@code .} does not match.
+     *
+     * @param c The character to check.
+     * @return True if the character is a line terminator.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Grows the buffer so that it can hold at least the given number of characters.
+     *
+     * @param capacity The required capacity.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            chars = new char[Math.max(capacity, chars.length * 2)];
+            charBuffer = CharBuffer.wrap(chars);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Finds chat lines directly in the raw bytes of a Minecraft log, before any charset decoding.
+ * <p>
+ * The {@code [CHAT]} marker and the line separator are plain ASCII, and in every supported charset an ASCII byte always
+ * stands for itself. The marker can therefore be searched for with a Boyer-Moore-Horspool scan over the bytes, and only
+ * the part of a matching line that follows the marker has to be decoded. Lines without the marker are skipped without
+ * ever being decoded.
+ */
+public class ChatLineScanner {
+    private static final byte[] MARKER = DialogueExtractor.DIALOG_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final int[] SHIFTS = buildShiftTable(MARKER);
+    private static final byte NEWLINE = (byte) DialogueExtractor.LINE_SEPARATOR;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final Set<String> SUPPORTED_CHARSETS = Set.of(
+            StandardCharsets.UTF_8.name(),
+            StandardCharsets.ISO_8859_1.name(),
+            StandardCharsets.US_ASCII.name(),
+            "windows-1252");
+
+    /**
+     * Receives the chat lines found by a {@link ChatLineScanner}.
+     */
+    @FunctionalInterface
+    public interface ChatLineHandler {
+        /**
+         * Handles the part of a chat line that follows the {@code [CHAT]} marker.
+         *
+         * @param tail A buffer whose position and limit delimit the bytes following the marker, up to but excluding
+         *             the line separator. The buffer must not be retained after this call returns.
+         * @throws IOException If handling the line fails.
+         */
+        void handle(@NotNull ByteBuffer tail) throws IOException;
+    }
+
+    /**
+     * Checks whether logs in the given charset can be scanned at byte level.
+     *
+     * @param charset The character encoding of the log.
+     * @return True if ASCII bytes always stand for themselves in the charset and decoding is stateless.
+     */
+    public static boolean supports(@NotNull Charset charset) {
+        return SUPPORTED_CHARSETS.contains(charset.name());
+    }
+
+    /**
+     * Scans a whole input stream for chat lines.
+     * <p>
+     * The stream is read in large blocks; only whole lines are scanned, and a line cut off at the end of a block is
+     * carried over to the next one. The stream is not closed.
+     *
+     * @param in      The input stream supplying the raw Minecraft log.
+     * @param handler The handler receiving each chat line.
+     * @return The number of chat lines found.
+     * @throws IOException If reading from the stream or handling a line fails.
+     */
+    public long scan(@NotNull InputStream in, @NotNull ChatLineHandler handler) throws IOException {
+        byte[] bytes = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long found = 0;
+        int filled = 0;
+        int searched = 0;
+        while (true) {
+            if (filled == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                buffer = ByteBuffer.wrap(bytes);
+            }
+            int read = in.read(bytes, filled, bytes.length - filled);
+            if (read == -1) {
+                break;
+            }
+            filled += read;
+            int lastNewline = lastIndexOf(bytes, NEWLINE, searched, filled);
+            if (lastNewline < 0) {
+                searched = filled;
+                continue;
+            }
+            found += scan(buffer, 0, lastNewline + 1, handler);
+            filled -= lastNewline + 1;
+            System.arraycopy(bytes, lastNewline + 1, bytes, 0, filled);
+            searched = filled;
+        }
+        if (filled > 0) {
+            found += scan(buffer, 0, filled, handler);
+        }
+        return found;
+    }
+
+    /**
+     * Scans a region of a buffer for chat lines.
+     * <p>
+     * The region is treated as a sequence of whole lines; a last line without a line separator ends at {@code to}.
+     * The position and limit of the buffer are restored before this method returns.
+     *
+     * @param buffer  The buffer holding the raw Minecraft log.
+     * @param from    The absolute index of the first byte of the region.
+     * @param to      The absolute index just past the last byte of the region.
+     * @param handler The handler receiving each chat line.
+     * @return The number of chat lines found.
+     * @throws IOException If handling a line fails.
+     */
+    public long scan(@NotNull ByteBuffer buffer, int from, int to, @NotNull ChatLineHandler handler) throws IOException {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        long found = 0;
+        try {
+            int pos = from;
+            while (pos < to) {
+                int marker = indexOfMarker(buffer, pos, to);
+                if (marker < 0) {
+                    break;
+                }
+                int tailStart = marker + MARKER.length;
+                int lineEnd = indexOf(buffer, NEWLINE, tailStart, to);
+                if (lineEnd < 0) {
+                    lineEnd = to;
+                }
+                buffer.limit(lineEnd).position(tailStart);
+                handler.handle(buffer);
+                buffer.limit(limit);
+                found++;
+                pos = lineEnd + 1;
+            }
+        } finally {
+            buffer.limit(limit).position(position);
+        }
+        return found;
+    }
+
+    /**
+     * Finds the first occurrence of the {@code [CHAT]} marker in a region of a buffer using a Horspool scan.
+     *
+     * @param buffer The buffer to search.
+     * @param from   The absolute index to start searching from.
+     * @param to     The absolute index to stop searching at.
+     * @return The absolute index of the first byte of the marker, or -1 if the region does not contain it.
+     */
+    static int indexOfMarker(@NotNull ByteBuffer buffer, int from, int to) {
+        int last = MARKER.length - 1;
+        byte lastByte = MARKER[last];
+        int i = from;
+        while (i + last < to) {
+            byte b = buffer.get(i + last);
+            if (b == lastByte && matchesMarkerAt(buffer, i)) {
+                return i;
+            }
+            i += SHIFTS[b & 0xFF];
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the bytes before the last byte of the marker match the marker at a given index.
+     *
+     * @param buffer The buffer to check.
+     * @param index  The absolute index where the marker would start.
+     * @return True if the marker prefix matches.
+     */
+    private static boolean matchesMarkerAt(@NotNull ByteBuffer buffer, int index) {
+        for (int j = 0; j < MARKER.length - 1; j++) {
+            if (buffer.get(index + j) != MARKER[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the first occurrence of a byte in a region of a buffer.
+     *
+     * @param buffer The buffer to search.
+     * @param value  The byte to look for.
+     * @param from   The absolute index to start searching from.
+     * @param to     The absolute index to stop searching at.
+     * @return The absolute index of the byte, or -1 if the region does not contain it.
+     */
+    static int indexOf(@NotNull ByteBuffer buffer, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the last occurrence of a byte in a region of an array.
+     *
+     * @param bytes The array to search.
+     * @param value The byte to look for.
+     * @param from  The index of the first byte of the region.
+     * @param to    The index just past the last byte of the region.
+     * @return The index of the byte, or -1 if the region does not contain it.
+     */
+    private static int lastIndexOf(byte @NotNull [] bytes, byte value, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the Horspool bad-character shift table for a pattern.
+     *
+     * @param pattern The pattern to build the table for.
+     * @return A table giving, for every byte value, how far the search window may be shifted.
+     */
+    private static int @NotNull [] buildShiftTable(byte @NotNull [] pattern) {
+        int[] shifts = new int[256];
+        Arrays.fill(shifts, pattern.length);
+        for (int i = 0; i < pattern.length - 1; i++) {
+            shifts[pattern[i] & 0xFF] = pattern.length - 1 - i;
+        }
+        return shifts;
+    }
+}
@@ -0,0 +1,581 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
+
+/**
+ * Holds the chat lines of a log as structured records: timestamp, thread, log level, sender and message.
+ * <p>
+ * The records are stored by column in primitive arrays rather than as one object per line. Timestamps are kept as
+ * seconds, the thread, level and sender names are interned once and referred to by their id, and the messages share a
+ * single character buffer. A record costs five ints plus the characters of its message, and filtering or counting by
+ * sender only scans an int column.
+ * <p>
+ * A line is parsed as {@code [HH:MM:SS] [thread/LEVEL]: [CHAT] <sender> message}; the sender is only set for player
+ * messages, and the message is cleaned and filtered like the text extraction does. Timestamps are counted in seconds
+ * from the midnight starting the log and roll over to the next day when they jump back by more than an hour, as in
+ * {@link TimeIndex}. A store is not thread-safe while it is being filled.
+ */
+public class ChatRecordStore {
+    /**
+     * The id returned for a missing name, such as the sender of a system message.
+     */
+    public static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int TIMESTAMP_LENGTH = 10;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final int ROLLOVER_THRESHOLD = 60 * 60;
+    private static final Logger LOGGER = LogManager.getLogger(ChatRecordStore.class);
+
+    private final FilterRules rules;
+    private final @Nullable LineDeduplicator deduplicator;
+    private final ChatLineCleaner cleaner = new ChatLineCleaner();
+    private final Names threadNames = new Names();
+    private final Names levelNames = new Names();
+    private final Names senderNames = new Names();
+    private int size;
+    private int[] seconds = new int[INITIAL_CAPACITY];
+    private int[] threads = new int[INITIAL_CAPACITY];
+    private int[] levels = new int[INITIAL_CAPACITY];
+    private int[] senders = new int[INITIAL_CAPACITY];
+    private int[] messageEnds = new int[INITIAL_CAPACITY];
+    private char[] chars = new char[INITIAL_CAPACITY * 32];
+    private int dayStart;
+    private int lastSecondOfDay = -1;
+    private int second = -1;
+
+    /**
+     * A single chat record, read back from a store.
+     *
+     * @param second  The timestamp in seconds from the midnight starting the log, or -1 if no line had one yet.
+     * @param thread  The thread that logged the line, or null if the line has no header.
+     * @param level   The log level of the line, or null if the line has no header.
+     * @param sender  The player who sent the message, or null for a system message.
+     * @param message The cleaned message, without the sender.
+     */
+    public record ChatRecord(int second, @Nullable String thread, @Nullable String level, @Nullable String sender,
+                             @NotNull String message) {
+    }
+
+    /**
+     * Creates an empty store filtering with the {@link FilterRules#active() active rules}.
+     */
+    public ChatRecordStore() {
+        this(FilterRules.active());
+    }
+
+    /**
+     * Creates an empty store.
+     *
+     * @param rules The rules deciding which chat lines are kept.
+     */
+    public ChatRecordStore(@NotNull FilterRules rules) {
+        this.rules = rules;
+        this.deduplicator = rules.newDeduplicator();
+    }
+
+    /**
+     * Reads the chat records of a log.
+     * <p>
+     * Lines are split on {@code '\n'} only, like the text extraction. The reader is not closed.
+     *
+     * @param reader The reader supplying the raw Minecraft log.
+     * @return The store holding the chat records.
+     * @throws IOException If reading from the reader fails.
+     */
+    public static @NotNull ChatRecordStore read(@NotNull Reader reader) throws IOException {
+        logDebug(LOGGER, "Structured dialogue extraction started...");
+
+        ChatRecordStore store = new ChatRecordStore();
+        char[] buffer = new char[BUFFER_SIZE];
+        StringBuilder line = new StringBuilder();
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            int start = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == DialogueExtractor.LINE_SEPARATOR) {
+                    line.append(buffer, start, i - start);
+                    store.addLine(line);
+                    line.setLength(0);
+                    start = i + 1;
+                }
+            }
+            line.append(buffer, start, read - start);
+        }
+        if (!line.isEmpty()) {
+            store.addLine(line);
+        }
+
+        logDebug(LOGGER, "Structured dialogue extraction completed with " + store.size() + " records.");
+        return store;
+    }
+
+    /**
+     * Reads the chat records of a log from an input stream, which is not closed.
+     *
+     * @param in      The input stream supplying the raw Minecraft log.
+     * @param charset The character encoding of the input stream.
+     * @return The store holding the chat records.
+     * @throws IOException If reading from the input stream fails.
+     */
+    public static @NotNull ChatRecordStore read(@NotNull InputStream in, @NotNull Charset charset) throws IOException {
+        return read(new InputStreamReader(in, charset));
+    }
+
+    /**
+     * Parses a raw log line and stores it if it is a chat line kept by the filter rules.
+     * <p>
+     * The timestamp of every line is tracked, so the lines of the log must be added in order, chat lines or not. With
+     * a {@code dedup} rule, a chat line repeating an earlier one is not stored, as it would not be extracted.
+     *
+     * @param line The raw log line, without its line separator.
+     * @return True if a record was added.
+     */
+    public boolean addLine(@NotNull CharSequence line) {
+        boolean hasTimestamp = updateSecond(line);
+        int chatIndex = DialogueWriter.indexOfPrefix(line);
+        if (chatIndex == -1) {
+            return false;
+        }
+        cleaner.clean(line, chatIndex + DialogueExtractor.DIALOG_PREFIX.length(), line.length());
+        if (!cleaner.isAcceptedBy(rules) || deduplicator != null && deduplicator.isDuplicate(cleaner)) {
+            return false;
+        }
+        ensureCapacity(size + 1);
+
+        int thread = NONE;
+        int level = NONE;
+        int headerEnd = hasTimestamp ? headerEnd(line, chatIndex) : -1;
+        if (headerEnd != -1) {
+            int slash = lastIndexOf(line, '/', TIMESTAMP_LENGTH + 2, headerEnd);
+            if (slash != -1) {
+                thread = threadNames.intern(line, TIMESTAMP_LENGTH + 2, slash);
+                level = levelNames.intern(line, slash + 1, headerEnd);
+            } else {
+                thread = threadNames.intern(line, TIMESTAMP_LENGTH + 2, headerEnd);
+            }
+        }
+
+        int messageStart = 0;
+        int sender = NONE;
+        int senderEnd = senderEnd(cleaner);
+        if (senderEnd != -1) {
+            sender = senderNames.intern(cleaner, 1, senderEnd);
+            messageStart = senderEnd + 1;
+            while (messageStart < cleaner.length() && cleaner.charAt(messageStart) == ' ') {
+                messageStart++;
+            }
+        }
+        int offset = size == 0 ? 0 : messageEnds[size - 1];
+        int length = cleaner.length() - messageStart;
+        if (offset + length > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(offset + length, chars.length * 2));
+        }
+        cleaner.getChars(messageStart, cleaner.length(), chars, offset);
+
+        seconds[size] = second;
+        threads[size] = thread;
+        levels[size] = level;
+        senders[size] = sender;
+        messageEnds[size] = offset + length;
+        size++;
+        return true;
+    }
+
+    /**
+     * Returns the number of records.
+     *
+     * @return The number of stored chat lines.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the timestamp of a record.
+     *
+     * @param index The index of the record.
+     * @return The seconds from the midnight starting the log, or -1 if no line had a timestamp yet.
+     */
+    public int second(int index) {
+        return seconds[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Returns the thread of a record.
+     *
+     * @param index The index of the record.
+     * @return The thread name, or null if the line has no header.
+     */
+    public @Nullable String thread(int index) {
+        return threadNames.name(threads[Objects.checkIndex(index, size)]);
+    }
+
+    /**
+     * Returns the log level of a record.
+     *
+     * @param index The index of the record.
+     * @return The level name, or null if the line has no header.
+     */
+    public @Nullable String level(int index) {
+        return levelNames.name(levels[Objects.checkIndex(index, size)]);
+    }
+
+    /**
+     * Returns the sender id of a record, usable with {@link #senderName(int)}.
+     *
+     * @param index The index of the record.
+     * @return The sender id, or {@link #NONE} for a system message.
+     */
+    public int senderId(int index) {
+        return senders[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Returns the sender of a record.
+     *
+     * @param index The index of the record.
+     * @return The sender name, or null for a system message.
+     */
+    public @Nullable String sender(int index) {
+        return senderNames.name(senderId(index));
+    }
+
+    /**
+     * Returns the message of a record.
+     *
+     * @param index The index of the record.
+     * @return The cleaned message, without the sender.
+     */
+    public @NotNull String message(int index) {
+        Objects.checkIndex(index, size);
+        int start = index == 0 ? 0 : messageEnds[index - 1];
+        return new String(chars, start, messageEnds[index] - start);
+    }
+
+    /**
+     * Reads a whole record back as an object.
+     *
+     * @param index The index of the record.
+     * @return The record.
+     */
+    public @NotNull ChatRecord get(int index) {
+        return new ChatRecord(second(index), thread(index), level(index), sender(index), message(index));
+    }
+
+    /**
+     * Returns the number of distinct senders.
+     *
+     * @return The number of sender ids, which run from 0 to this number excluded.
+     */
+    public int senderCount() {
+        return senderNames.size();
+    }
+
+    /**
+     * Returns the name of a sender id.
+     *
+     * @param senderId The sender id.
+     * @return The sender name, or null for {@link #NONE}.
+     */
+    public @Nullable String senderName(int senderId) {
+        return senderNames.name(senderId);
+    }
+
+    /**
+     * Looks the id of a sender up.
+     *
+     * @param sender The sender name.
+     * @return The sender id, or {@link #NONE} if no record has this sender.
+     */
+    public int senderIdOf(@NotNull String sender) {
+        return senderNames.find(sender);
+    }
+
+    /**
+     * Finds the records of a sender.
+     *
+     * @param sender The sender name.
+     * @return The indexes of the records sent by the sender, in order.
+     */
+    public int @NotNull [] recordsOf(@NotNull String sender) {
+        int id = senderIdOf(sender);
+        if (id == NONE) {
+            return new int[0];
+        }
+        int[] matches = new int[messageCounts()[id]];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (senders[i] == id) {
+                matches[count++] = i;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Counts the records of every sender.
+     *
+     * @return The number of records per sender id.
+     */
+    public int @NotNull [] messageCounts() {
+        int[] counts = new int[senderNames.size()];
+        for (int i = 0; i < size; i++) {
+            if (senders[i] != NONE) {
+                counts[senders[i]]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Updates the current timestamp from the {@code [HH:MM:SS]} prefix of a line, if it has one.
+     *
+     * @param line The raw log line.
+     * @return True if the line starts with a timestamp.
+     */
+    private boolean updateSecond(@NotNull CharSequence line) {
+        if (line.length() < TIMESTAMP_LENGTH || line.charAt(0) != '[' || line.charAt(3) != ':'
+                || line.charAt(6) != ':' || line.charAt(9) != ']') {
+            return false;
+        }
+        int hours = twoDigits(line, 1);
+        int minutes = twoDigits(line, 4);
+        int secs = twoDigits(line, 7);
+        if (hours < 0 || minutes < 0 || secs < 0) {
+            return false;
+        }
+        int secondOfDay = hours * 3600 + minutes * 60 + secs;
+        if (secondOfDay + ROLLOVER_THRESHOLD < lastSecondOfDay) {
+            dayStart += SECONDS_PER_DAY;
+        }
+        lastSecondOfDay = secondOfDay;
+        second = Math.max(second, dayStart + secondOfDay);
+        return true;
+    }
+
+    /**
+     * Finds the end of the {@code [thread/LEVEL]: } header following the timestamp of a line.
+     *
+     * @param line      The raw log line, starting with a timestamp.
+     * @param chatIndex The index of the dialogue prefix.
+     * @return The index of the closing bracket of the header, or -1 if the line has no header.
+     */
+    private static int headerEnd(@NotNull CharSequence line, int chatIndex) {
+        if (chatIndex < TIMESTAMP_LENGTH + 2 || line.charAt(TIMESTAMP_LENGTH) != ' '
+                || line.charAt(TIMESTAMP_LENGTH + 1) != '[') {
+            return -1;
+        }
+        for (int i = TIMESTAMP_LENGTH + 2; i + 1 < chatIndex; i++) {
+            if (line.charAt(i) == ']' && line.charAt(i + 1) == ':') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the end of the {@code <sender>} prefix of a player message.
+     *
+     * @param message The cleaned message.
+     * @return The index of the closing angle bracket, or -1 if the message has no sender.
+     */
+    static int senderEnd(@NotNull CharSequence message) {
+        if (message.length() < 3 || message.charAt(0) != '<') {
+            return -1;
+        }
+        for (int i = 1; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == '>') {
+                return i > 1 ? i : -1;
+            }
+            if (c == ' ' || c == '<') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the last occurrence of a character in a range.
+     *
+     * @param text The text to search.
+     * @param c    The character to find.
+     * @param from The index of the first character of the range.
+     * @param to   The index just past the last character of the range.
+     * @return The index of the character, or -1 if the range does not contain it.
+     */
+    private static int lastIndexOf(@NotNull CharSequence text, char c, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses two decimal digits.
+     *
+     * @param text  The text holding the digits.
+     * @param index The index of the first digit.
+     * @return The parsed number, or -1 if the characters are not digits.
+     */
+    private static int twoDigits(@NotNull CharSequence text, int index) {
+        int tens = text.charAt(index) - '0';
+        int units = text.charAt(index + 1) - '0';
+        return tens < 0 || tens > 9 || units < 0 || units > 9 ? -1 : tens * 10 + units;
+    }
+
+    /**
+     * Grows the columns so that they can hold at least the given number of records.
+     *
+     * @param capacity The required number of records.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > seconds.length) {
+            int newCapacity = Math.max(capacity, seconds.length * 2);
+            seconds = Arrays.copyOf(seconds, newCapacity);
+            threads = Arrays.copyOf(threads, newCapacity);
+            levels = Arrays.copyOf(levels, newCapacity);
+            senders = Arrays.copyOf(senders, newCapacity);
+            messageEnds = Arrays.copyOf(messageEnds, newCapacity);
+        }
+    }
+
+    /**
+     * Interns names by their characters, so that a name seen on many lines is turned into a string once.
+     * <p>
+     * Names are looked up with an open-addressing hash table of ids, hashed and compared on the characters of the
+     * source text, so a lookup of a known name does not allocate.
+     */
+    private static final class Names {
+        private final List<String> names = new ArrayList<>();
+        private int[] slots = new int[16];
+
+        /**
+         * Returns the id of the name held in a range of a text, adding the name if it is new.
+         *
+         * @param text The text holding the name.
+         * @param from The index of the first character of the name.
+         * @param to   The index just past the last character of the name.
+         * @return The id of the name.
+         */
+        int intern(@NotNull CharSequence text, int from, int to) {
+            int hash = hash(text, from, to);
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id == NONE) {
+                    String name = text.subSequence(from, to).toString();
+                    names.add(name);
+                    slots[slot] = names.size();
+                    if (names.size() * 2 > slots.length) {
+                        rehash();
+                    }
+                    return names.size() - 1;
+                }
+                if (regionEquals(names.get(id), text, from, to)) {
+                    return id;
+                }
+            }
+        }
+
+        /**
+         * Looks the id of a name up.
+         *
+         * @param name The name.
+         * @return The id of the name, or {@link #NONE} if it was never interned.
+         */
+        int find(@NotNull String name) {
+            int mask = slots.length - 1;
+            for (int slot = hash(name, 0, name.length()) & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id == NONE || names.get(id).equals(name)) {
+                    return id;
+                }
+            }
+        }
+
+        /**
+         * Returns the name of an id.
+         *
+         * @param id The id of the name.
+         * @return The name, or null for {@link #NONE}.
+         */
+        @Nullable String name(int id) {
+            return id == NONE ? null : names.get(id);
+        }
+
+        /**
+         * Returns the number of interned names.
+         *
+         * @return The number of names.
+         */
+        int size() {
+            return names.size();
+        }
+
+        /**
+         * Doubles the hash table and re-inserts every name.
+         */
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < names.size(); id++) {
+                String name = names.get(id);
+                int slot = hash(name, 0, name.length()) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id + 1;
+            }
+        }
+
+        /**
+         * Hashes a range of characters.
+         *
+         * @param text The text holding the characters.
+         * @param from The index of the first character.
+         * @param to   The index just past the last character.
+         * @return The hash, spread over the low bits.
+         */
+        private static int hash(@NotNull CharSequence text, int from, int to) {
+            int hash = 0;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + text.charAt(i);
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        /**
+         * Compares a name with a range of characters.
+         *
+         * @param name The name.
+         * @param text The text holding the characters.
+         * @param from The index of the first character.
+         * @param to   The index just past the last character.
+         * @return True if the range holds exactly the name.
+         */
+        private static boolean regionEquals(@NotNull String name, @NotNull CharSequence text, int from, int to) {
+            if (name.length() != to - from) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if (name.charAt(i) != text.charAt(from + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
+
+/**
+ * Streams dialogue out of a Minecraft log one line at a time.
+ * <p>
+ * Only the line currently being read is held in memory, so the memory footprint stays bounded
+ * no matter how big the log is. {@link MinecraftLog} is a thin in-memory wrapper over this class.
+ * <p>
+ * Chat lines are kept or dropped by {@link FilterRules}: either the rules given to the extractor, or the rules active
+ * when each extraction starts.
+ */
+public class DialogueExtractor {
+    /**
+     * The version of the extracted text. Bump it whenever a change alters the dialogue extracted from a log, so that
+     * cached extraction results are no longer reused.
+     */
+    public static final int FORMAT_VERSION = 1;
+    /**
+     * The marker of a chat line, after which the dialogue starts.
+     */
+    public static final String DIALOG_PREFIX = "[CHAT]";
+    static final char LINE_SEPARATOR = '\n';
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Logger LOGGER = LogManager.getLogger(DialogueExtractor.class);
+
+    private final @Nullable FilterRules rules;
+
+    /**
+     * Creates an extractor filtering with the {@link FilterRules#active() active rules} of each extraction.
+     */
+    public DialogueExtractor() {
+        this.rules = null;
+    }
+
+    /**
+     * Creates an extractor filtering with the given rules.
+     *
+     * @param rules The rules deciding which chat lines are kept.
+     */
+    public DialogueExtractor(@NotNull FilterRules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Reads a Minecraft log from the given reader and writes the extracted dialogue to the given writer.
+     * <p>
+     * Lines are split on {@code '\n'} only and the extracted lines are joined with {@code '\n'},
+     * without a trailing separator. Neither the reader nor the writer is closed.
+     *
+     * @param reader The reader supplying the raw Minecraft log.
+     * @param writer The writer receiving the extracted dialogue.
+     * @return The number of dialogue lines written.
+     * @throws IOException If reading from the reader or writing to the writer fails.
+     */
+    public long extract(@NotNull Reader reader, @NotNull Writer writer) throws IOException {
+        logDebug(LOGGER, "Streaming dialogue extraction started...");
+
+        char[] buffer = new char[BUFFER_SIZE];
+        StringBuilder line = new StringBuilder();
+        DialogueWriter dialogueWriter = new DialogueWriter(writer, rules());
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            int start = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == LINE_SEPARATOR) {
+                    line.append(buffer, start, i - start);
+                    dialogueWriter.writeLine(line);
+                    line.setLength(0);
+                    start = i + 1;
+                }
+            }
+            line.append(buffer, start, read - start);
+        }
+        if (!line.isEmpty()) {
+            dialogueWriter.writeLine(line);
+        }
+        writer.flush();
+
+        logDebug(LOGGER, "Streaming dialogue extraction completed successfully.");
+        dialogueWriter.publishMetrics();
+        return dialogueWriter.written();
+    }
+
+    /**
+     * Reads a Minecraft log from the given input stream and writes the extracted dialogue as UTF-8 to the given
+     * output stream.
+     * <p>
+     * If the charset allows it, the log is scanned at byte level by a {@link ChatLineScanner} and only chat lines are
+     * decoded; otherwise the whole stream is decoded and handed to {@link #extract(Reader, Writer)}.
+     * Neither stream is closed.
+     *
+     * @param in      The input stream supplying the raw Minecraft log.
+     * @param charset The character encoding of the input stream.
+     * @param out     The output stream receiving the extracted dialogue.
+     * @return The number of dialogue lines written.
+     * @throws IOException If reading from the input stream or writing to the output stream fails.
+     */
+    public long extract(@NotNull InputStream in, @NotNull Charset charset, @NotNull OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (!ChatLineScanner.supports(charset)) {
+            return extract(new InputStreamReader(in, charset), writer);
+        }
+        logDebug(LOGGER, "Byte-level dialogue extraction started...");
+
+        DialogueWriter dialogueWriter = new DialogueWriter(writer, rules());
+        new ChatLineScanner().scan(in, dialogueWriter.chatLineHandler(charset));
+        writer.flush();
+
+        logDebug(LOGGER, "Byte-level dialogue extraction completed successfully.");
+        dialogueWriter.publishMetrics();
+        return dialogueWriter.written();
+    }
+
+    /**
+     * Extracts the dialogue from the remaining bytes of a buffer, such as a memory-mapped region of a log file.
+     * <p>
+     * The bytes are treated as whole lines. The position and limit of the buffer are left unchanged, and the writer
+     * is not flushed.
+     *
+     * @param buffer  The buffer holding the raw Minecraft log.
+     * @param charset The character encoding of the bytes.
+     * @param writer  The writer receiving the extracted dialogue.
+     * @return The number of dialogue lines written.
+     * @throws IOException If writing to the writer fails.
+     */
+    public long extract(@NotNull ByteBuffer buffer, @NotNull Charset charset, @NotNull Writer writer) throws IOException {
+        if (!ChatLineScanner.supports(charset)) {
+            return extract(new StringReader(charset.decode(buffer.duplicate()).toString()), writer);
+        }
+        DialogueWriter dialogueWriter = new DialogueWriter(writer, rules());
+        new ChatLineScanner().scan(buffer, buffer.position(), buffer.limit(), dialogueWriter.chatLineHandler(charset));
+        dialogueWriter.publishMetrics();
+        return dialogueWriter.written();
+    }
+
+    /**
+     * Extracts the dialogue from a single raw log line.
+     *
+     * @param rawLine The raw log line, without its line separator.
+     * @return The cleaned dialogue, or null if the line does not hold any dialogue.
+     */
+    public @Nullable String extractLine(@NotNull CharSequence rawLine) {
+        String line = rawLine.toString();
+        int chatIndex = line.indexOf(DIALOG_PREFIX);
+        if (chatIndex == -1) {
+            return null;
+        }
+        ChatLineCleaner cleaner = new ChatLineCleaner().clean(line, chatIndex + DIALOG_PREFIX.length(), line.length());
+        return cleaner.isAcceptedBy(rules()) ? cleaner.toString() : null;
+    }
+
+    /**
+     * Cleans a chat line by removing the dialogue prefix and colour codes.
+     *
+     * @param rawChatLine The raw chat line to be cleaned.
+     * @return The cleaned chat line without the dialogue prefix and colour codes.
+     */
+    public @NotNull String cleanChatLine(@NotNull String rawChatLine) {
+        int chatIndex = rawChatLine.indexOf(DIALOG_PREFIX);
+        int from = (chatIndex != -1) ? chatIndex + DIALOG_PREFIX.length() : 0;
+
+        return new ChatLineCleaner().clean(rawChatLine, from, rawChatLine.length()).toString();
+    }
+
+    /**
+     * Returns the rules of this extractor.
+     *
+     * @return The rules given to the extractor, or the active rules.
+     */
+    private @NotNull FilterRules rules() {
+        return rules != null ? rules : FilterRules.active();
+    }
+}
@@ -0,0 +1,180 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import eu.lilithmonodia.dialogextractor.utils.ExtractionMetrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writes cleaned dialogue lines to a writer, joined with the line separator, and counts them.
+ * <p>
+ * This is the last step shared by every extraction path: it skips the lines dropped by the {@link FilterRules}, and the
+ * repeated lines if the rules have a {@code dedup} rule, and makes sure the output has a separator between lines but
+ * none at the end. The lines are counted locally and only
+ * added to the {@link ExtractionMetrics} by {@link #publishMetrics()}, so that nothing shared is touched per line.
+ * A dialogue writer owns a {@link ChatLineCleaner} and, like it, is not thread-safe.
+ */
+public class DialogueWriter {
+    private final Writer writer;
+    private final FilterRules rules;
+    private final ChatLineCleaner cleaner = new ChatLineCleaner();
+    private final LineDeduplicator deduplicator;
+    private long written;
+    private long chatLines;
+    private long duplicates;
+    private long publishedWritten;
+    private long publishedChatLines;
+    private long publishedDuplicates;
+
+    /**
+     * Creates a dialogue writer filtering with the {@link FilterRules#active() active rules}.
+     *
+     * @param writer The writer receiving the dialogue. It is neither flushed nor closed by this class.
+     */
+    public DialogueWriter(@NotNull Writer writer) {
+        this(writer, FilterRules.active());
+    }
+
+    /**
+     * Creates a dialogue writer.
+     *
+     * @param writer The writer receiving the dialogue. It is neither flushed nor closed by this class.
+     * @param rules  The rules deciding which chat lines are written.
+     */
+    public DialogueWriter(@NotNull Writer writer, @NotNull FilterRules rules) {
+        this.writer = writer;
+        this.rules = rules;
+        this.deduplicator = rules.newDeduplicator();
+    }
+
+    /**
+     * Returns the number of dialogue lines written so far.
+     *
+     * @return The number of lines written.
+     */
+    public long written() {
+        return written;
+    }
+
+    /**
+     * Returns the number of chat lines handed to this writer so far, including those dropped by the filter rules.
+     *
+     * @return The number of chat lines.
+     */
+    public long chatLines() {
+        return chatLines;
+    }
+
+    /**
+     * Returns the number of lines dropped so far because they repeated an earlier line.
+     *
+     * @return The number of duplicate lines, 0 unless the rules have a {@code dedup} rule.
+     */
+    public long duplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Adds the chat, dialogue and duplicate lines counted since the last call to the {@link ExtractionMetrics}.
+     */
+    public void publishMetrics() {
+        ExtractionMetrics.add(ExtractionMetrics.Counter.CHAT_LINES, chatLines - publishedChatLines);
+        ExtractionMetrics.add(ExtractionMetrics.Counter.DIALOGUE_LINES, written - publishedWritten);
+        ExtractionMetrics.add(ExtractionMetrics.Counter.DUPLICATE_LINES, duplicates - publishedDuplicates);
+        publishedChatLines = chatLines;
+        publishedWritten = written;
+        publishedDuplicates = duplicates;
+    }
+
+    /**
+     * Makes this writer continue dialogue written to the same writer by other means, so that the next line written is
+     * preceded by a line separator. The continued lines are counted by {@link #written()} but not added to the
+     * {@link ExtractionMetrics}.
+     *
+     * @param lines The number of dialogue lines already written.
+     */
+    void continueAfter(long lines) {
+        written += lines;
+        publishedWritten += lines;
+    }
+
+    /**
+     * Cleans a raw log line and writes it if it holds dialogue.
+     *
+     * @param line The raw log line, without its line separator.
+     * @throws IOException If writing to the writer fails.
+     */
+    public void writeLine(@NotNull CharSequence line) throws IOException {
+        int chatIndex = indexOfPrefix(line);
+        if (chatIndex != -1) {
+            write(cleaner.clean(line, chatIndex + DialogueExtractor.DIALOG_PREFIX.length(), line.length()));
+        }
+    }
+
+    /**
+     * Creates a handler that decodes, cleans and writes the chat lines found by a {@link ChatLineScanner}.
+     *
+     * @param charset The character encoding of the scanned bytes.
+     * @return The handler.
+     */
+    public ChatLineScanner.@NotNull ChatLineHandler chatLineHandler(@NotNull Charset charset) {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        return tail -> write(cleaner.clean(tail, decoder));
+    }
+
+    /**
+     * Writes a cleaned chat line, preceded by a line separator unless it is the first line written.
+     * Lines dropped by the filter rules, or repeating an earlier line when the rules deduplicate, are skipped.
+     *
+     * @param cleanedLine The cleaner holding the cleaned chat line.
+     * @throws IOException If writing to the writer fails.
+     */
+    public void write(@NotNull ChatLineCleaner cleanedLine) throws IOException {
+        chatLines++;
+        if (!cleanedLine.isAcceptedBy(rules)) {
+            return;
+        }
+        if (deduplicator != null && deduplicator.isDuplicate(cleanedLine)) {
+            duplicates++;
+            return;
+        }
+        if (written > 0) {
+            writer.write(DialogueExtractor.LINE_SEPARATOR);
+        }
+        cleanedLine.writeTo(writer);
+        written++;
+    }
+
+    /**
+     * Finds the first occurrence of the dialogue prefix in a character sequence without creating a string.
+     *
+     * @param line The character sequence to search.
+     * @return The index of the prefix, or -1 if the sequence does not contain it.
+     */
+    public static int indexOfPrefix(@NotNull CharSequence line) {
+        if (line instanceof String string) {
+            return string.indexOf(DialogueExtractor.DIALOG_PREFIX);
+        }
+        if (line instanceof StringBuilder builder) {
+            return builder.indexOf(DialogueExtractor.DIALOG_PREFIX);
+        }
+        String prefix = DialogueExtractor.DIALOG_PREFIX;
+        int last = line.length() - prefix.length();
+        for (int i = 0; i <= last; i++) {
+            int j = 0;
+            while (j < prefix.length() && line.charAt(i + j) == prefix.charAt(j)) {
+                j++;
+            }
+            if (j == prefix.length()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,463 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logAction;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
+
+/**
+ * Decides which cleaned chat lines are kept as dialogue, from a list of include and exclude rules.
+ * <p>
+ * All the patterns of a rule set are compiled into one Aho-Corasick automaton, stored as a dense transition table over
+ * the characters used by the patterns. A line is matched against every pattern in a single pass with one table lookup
+ * per character, so the cost of filtering depends on the length of the line and not on the number of rules.
+ * Whole-line rules are matched by the same automaton, by framing their text and the line with two reserved
+ * characters.
+ * <p>
+ * Rule sets are written one rule per line, as a keyword followed by the text of the rule:
+ * <pre>
+ * # Comments and blank lines are ignored.
+ * include &lt;Steve&gt;
+ * exclude joined the game
+ * exclude-line Shaders Reloaded!
+ * dedup 500
+ * </pre>
+ * The text is trimmed, like the cleaned lines it is matched against. A {@code dedup} rule is not matched against lines:
+ * it makes the dialogue writers drop the kept lines that repeat one of the given number of lines before them, or any
+ * line before them with {@code dedup all}, using a {@link LineDeduplicator}. A rule set is immutable and thread-safe.
+ */
+public final class FilterRules {
+    /**
+     * The rules applied when none are configured: the reload message of shader packs is dropped.
+     */
+    public static final FilterRules DEFAULT = new FilterRules(List.of(new Rule(Kind.EXCLUDE_LINE, "Shaders Reloaded!")));
+    /**
+     * The text of a {@code dedup} rule dropping the lines repeating any line before them.
+     */
+    public static final String DEDUPLICATE_ALL = "all";
+    static final String CONFIG_FILE_NAME = "rules.txt";
+    private static final char LINE_START = '\uFDD0';
+    private static final char LINE_END = '\uFDD1';
+    private static final byte INCLUDE_MATCH = 1;
+    private static final byte EXCLUDE_MATCH = 2;
+    private static final Logger LOGGER = LogManager.getLogger(FilterRules.class);
+    private static volatile FilterRules active;
+
+    private final List<Rule> rules;
+    private final boolean hasIncludes;
+    private final int deduplicationWindow;
+    private final char[] symbolOf = new char[Character.MAX_VALUE + 1];
+    private final int symbols;
+    private final int[] transitions;
+    private final byte[] matches;
+
+    /**
+     * The kind of rule, named by the keyword starting it in a rule file.
+     */
+    public enum Kind {
+        /**
+         * Keeps only the lines containing the text of at least one include rule, if there is any.
+         */
+        INCLUDE("include"),
+        /**
+         * Drops the lines containing the text.
+         */
+        EXCLUDE("exclude"),
+        /**
+         * Drops the lines equal to the text.
+         */
+        EXCLUDE_LINE("exclude-line"),
+        /**
+         * Drops the lines repeating a line kept before them, within a window of lines or anywhere.
+         */
+        DEDUPLICATE("dedup");
+
+        private final String keyword;
+
+        /**
+         * Creates a kind of rule.
+         *
+         * @param keyword The keyword of the kind in a rule file.
+         */
+        Kind(@NotNull String keyword) {
+            this.keyword = keyword;
+        }
+
+        /**
+         * Returns the keyword of the kind in a rule file.
+         *
+         * @return The keyword.
+         */
+        public @NotNull String keyword() {
+            return keyword;
+        }
+    }
+
+    /**
+     * A single filter rule.
+     *
+     * @param kind The kind of rule.
+     * @param text The text the rule matches.
+     */
+    public record Rule(@NotNull Kind kind, @NotNull String text) {
+        /**
+         * Validates a rule.
+         *
+         * @throws IllegalArgumentException if the text is empty for a rule matching part of a line, as it would match
+         *                                  every line, if it contains a reserved character, or if it is neither
+         *                                  {@value FilterRules#DEDUPLICATE_ALL} nor a valid window for a {@code dedup}
+         *                                  rule.
+         */
+        public Rule {
+            if (kind == Kind.DEDUPLICATE) {
+                deduplicationWindow(text);
+            }
+            if (text.isEmpty() && kind != Kind.EXCLUDE_LINE) {
+                throw new IllegalArgumentException("The text of an " + kind.keyword() + " rule cannot be empty.");
+            }
+            if (text.indexOf(LINE_START) != -1 || text.indexOf(LINE_END) != -1) {
+                throw new IllegalArgumentException("The text of a rule cannot contain the characters U+FDD0 and U+FDD1.");
+            }
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return text.isEmpty() ? kind.keyword() : kind.keyword() + " " + text;
+        }
+    }
+
+    /**
+     * Compiles a rule set.
+     *
+     * @param rules The rules, in any order.
+     */
+    public FilterRules(@NotNull List<Rule> rules) {
+        this.rules = List.copyOf(rules);
+        this.hasIncludes = rules.stream().anyMatch(rule -> rule.kind() == Kind.INCLUDE);
+        this.deduplicationWindow = rules.stream()
+                .filter(rule -> rule.kind() == Kind.DEDUPLICATE)
+                .mapToInt(rule -> deduplicationWindow(rule.text()))
+                .reduce((first, second) -> second)
+                .orElse(-1);
+
+        List<Rule> matched = rules.stream().filter(rule -> rule.kind() != Kind.DEDUPLICATE).toList();
+        List<String> patterns = new ArrayList<>(matched.size());
+        int maxStates = 1;
+        int nextSymbol = 1;
+        for (Rule rule : matched) {
+            String pattern = rule.kind() == Kind.EXCLUDE_LINE ? LINE_START + rule.text() + LINE_END : rule.text();
+            patterns.add(pattern);
+            maxStates += pattern.length();
+            for (int i = 0; i < pattern.length(); i++) {
+                if (symbolOf[pattern.charAt(i)] == 0) {
+                    symbolOf[pattern.charAt(i)] = (char) nextSymbol++;
+                }
+            }
+        }
+        this.symbols = nextSymbol;
+
+        int[] table = new int[maxStates * symbols];
+        Arrays.fill(table, -1);
+        byte[] output = new byte[maxStates];
+        int states = 1;
+        for (int r = 0; r < patterns.size(); r++) {
+            String pattern = patterns.get(r);
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int cell = state * symbols + symbolOf[pattern.charAt(i)];
+                if (table[cell] == -1) {
+                    table[cell] = states++;
+                }
+                state = table[cell];
+            }
+            output[state] |= matched.get(r).kind() == Kind.INCLUDE ? INCLUDE_MATCH : EXCLUDE_MATCH;
+        }
+        this.transitions = Arrays.copyOf(table, states * symbols);
+        this.matches = Arrays.copyOf(output, states);
+        link();
+    }
+
+    /**
+     * Parses a rule set from the lines of a rule file.
+     *
+     * @param lines The lines of the rule file.
+     * @return The rule set.
+     * @throws IllegalArgumentException if a line starts with an unknown keyword or holds an invalid rule.
+     */
+    public static @NotNull FilterRules parse(@NotNull List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            int lineNumber = i + 1;
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            String keyword = space == -1 ? line : line.substring(0, space);
+            String text = space == -1 ? "" : line.substring(space + 1).strip();
+            Kind kind = Arrays.stream(Kind.values())
+                    .filter(candidate -> candidate.keyword().equals(keyword.toLowerCase(Locale.ROOT)))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown filter rule '" + keyword + "' on line "
+                            + lineNumber + "."));
+            try {
+                rules.add(new Rule(kind, text));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid filter rule on line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return new FilterRules(rules);
+    }
+
+    /**
+     * Loads a rule set from a UTF-8 rule file.
+     *
+     * @param file The rule file.
+     * @return The rule set.
+     * @throws IOException              If the file cannot be read.
+     * @throws IllegalArgumentException if the file holds an invalid rule.
+     */
+    public static @NotNull FilterRules load(@NotNull Path file) throws IOException {
+        return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the default rule file, {@code rules.txt} in the {@code .dialog-extractor} directory of the user.
+     *
+     * @return The path of the default rule file; it does not have to exist.
+     */
+    public static @NotNull Path defaultConfigFile() {
+        return Path.of(System.getProperty("user.home"), ".dialog-extractor", CONFIG_FILE_NAME);
+    }
+
+    /**
+     * Returns the rule set used by extractors and dialogue writers created without one.
+     * <p>
+     * Unless another rule set was activated, it is loaded from the {@link #defaultConfigFile() default rule file} on
+     * first use, and is {@link #DEFAULT} if that file is missing or invalid.
+     *
+     * @return The active rule set.
+     */
+    public static @NotNull FilterRules active() {
+        FilterRules rules = active;
+        if (rules == null) {
+            synchronized (FilterRules.class) {
+                rules = active;
+                if (rules == null) {
+                    rules = loadDefaultConfig();
+                    active = rules;
+                }
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Replaces the active rule set. Extractions already running keep the rules they started with.
+     *
+     * @param rules The rule set to use from now on.
+     */
+    public static void activate(@NotNull FilterRules rules) {
+        active = rules;
+    }
+
+    /**
+     * Returns the rules of the set.
+     *
+     * @return The rules, in the order they were given.
+     */
+    public @NotNull List<Rule> rules() {
+        return rules;
+    }
+
+    /**
+     * Creates a deduplicator for a dialogue writer, following the last {@code dedup} rule of the set.
+     *
+     * @return A new deduplicator, or null if the set has no {@code dedup} rule.
+     */
+    public @Nullable LineDeduplicator newDeduplicator() {
+        return deduplicationWindow < 0 ? null : new LineDeduplicator(deduplicationWindow);
+    }
+
+    /**
+     * Checks whether the set has a {@code dedup} rule, which makes whether a line is kept depend on the lines before it.
+     *
+     * @return True if repeated lines are dropped.
+     */
+    public boolean deduplicates() {
+        return deduplicationWindow >= 0;
+    }
+
+    /**
+     * Parses the text of a {@code dedup} rule.
+     *
+     * @param text The text of the rule.
+     * @return The window of the rule, or 0 for {@value #DEDUPLICATE_ALL}.
+     * @throws IllegalArgumentException if the text is neither {@value #DEDUPLICATE_ALL} nor a window between 1 and
+     *                                  {@link LineDeduplicator#MAX_WINDOW}.
+     */
+    private static int deduplicationWindow(@NotNull String text) {
+        if (DEDUPLICATE_ALL.equalsIgnoreCase(text)) {
+            return 0;
+        }
+        try {
+            int window = Integer.parseInt(text);
+            if (window >= 1 && window <= LineDeduplicator.MAX_WINDOW) {
+                return window;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below, like a window out of range.
+        }
+        throw new IllegalArgumentException("A dedup rule expects '" + DEDUPLICATE_ALL
+                + "' or a number of lines between 1 and " + LineDeduplicator.MAX_WINDOW + " but got: " + text);
+    }
+
+    /**
+     * Returns a short hash of the rules, which changes whenever the rules change what is extracted.
+     *
+     * @return The hash as eight hexadecimal digits.
+     */
+    public @NotNull String fingerprint() {
+        CRC32 crc = new CRC32();
+        crc.update(toString().getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    /**
+     * Checks whether a cleaned chat line is kept by the rules.
+     *
+     * @param line The cleaned chat line.
+     * @return True if the line contains no excluded text, is not an excluded line, and contains an included text or
+     * there are no include rules.
+     */
+    public boolean accepts(@NotNull CharSequence line) {
+        int state = next(0, LINE_START);
+        int matched = matches[state];
+        for (int i = 0; i < line.length() && (matched & EXCLUDE_MATCH) == 0; i++) {
+            state = next(state, line.charAt(i));
+            matched |= matches[state];
+        }
+        return isAccepted(matched | matches[next(state, LINE_END)]);
+    }
+
+    /**
+     * Checks whether a range of characters holding a cleaned chat line is kept by the rules.
+     *
+     * @param chars The characters holding the line.
+     * @param from  The index of the first character of the line.
+     * @param to    The index just past the last character of the line.
+     * @return True if the line is kept.
+     */
+    boolean accepts(char @NotNull [] chars, int from, int to) {
+        int state = next(0, LINE_START);
+        int matched = matches[state];
+        for (int i = from; i < to && (matched & EXCLUDE_MATCH) == 0; i++) {
+            state = next(state, chars[i]);
+            matched |= matches[state];
+        }
+        return isAccepted(matched | matches[next(state, LINE_END)]);
+    }
+
+    /**
+     * Returns the rule set in the format of a rule file.
+     *
+     * @return One rule per line.
+     */
+    @Override
+    public @NotNull String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Rule rule : rules) {
+            builder.append(rule).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Follows the transition of the automaton for one character.
+     *
+     * @param state The current state.
+     * @param c     The next character of the line.
+     * @return The next state.
+     */
+    private int next(int state, char c) {
+        return transitions[state * symbols + symbolOf[c]];
+    }
+
+    /**
+     * Turns the matches found in a line into a decision.
+     *
+     * @param matched The match bits collected over the line.
+     * @return True if the line is kept.
+     */
+    private boolean isAccepted(int matched) {
+        return (matched & EXCLUDE_MATCH) == 0 && (!hasIncludes || (matched & INCLUDE_MATCH) != 0);
+    }
+
+    /**
+     * Turns the trie of the patterns into a complete automaton: computes the failure links breadth first, replaces the
+     * missing transitions by those of the failure states and merges the matches of each state with those of its
+     * failure state.
+     */
+    private void link() {
+        int[] failure = new int[matches.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < symbols; symbol++) {
+            int child = transitions[symbol];
+            if (child == -1) {
+                transitions[symbol] = 0;
+            } else {
+                failure[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int symbol = 0; symbol < symbols; symbol++) {
+                int cell = state * symbols + symbol;
+                int child = transitions[cell];
+                int fallback = transitions[failure[state] * symbols + symbol];
+                if (child == -1) {
+                    transitions[cell] = fallback;
+                } else {
+                    failure[child] = fallback;
+                    matches[child] |= matches[fallback];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the default rule file, falling back to the default rules.
+     *
+     * @return The configured rule set, or {@link #DEFAULT}.
+     */
+    private static @NotNull FilterRules loadDefaultConfig() {
+        Path file = defaultConfigFile();
+        try {
+            FilterRules rules = load(file);
+            logAction(LOGGER, "Loaded " + rules.rules().size() + " filter rules from " + file);
+            return rules;
+        } catch (NoSuchFileException e) {
+            return DEFAULT;
+        } catch (IOException | IllegalArgumentException e) {
+            logError(LOGGER, "The filter rules in " + file + " cannot be loaded, using the default rules.", e);
+            return DEFAULT;
+        }
+    }
+}
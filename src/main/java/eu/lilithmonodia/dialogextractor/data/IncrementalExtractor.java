@@ -0,0 +1,391 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.BitSet;
+import java.util.zip.CRC32C;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
+
+/**
+ * Extracts the dialogue of a log again after it was edited, cleaning only the lines that changed.
+ * <p>
+ * After each extraction, the extractor remembers a CRC32C hash of every raw line, which raw lines produced a dialogue
+ * line, and the output file. The next extraction hashes the lines of the log again and compares them with the
+ * remembered ones from both ends: the dialogue of the lines before the first difference and after the last one is
+ * copied from the previous output, and only the lines in between are cleaned again. Editing a few lines of a large log
+ * thus costs a hashing pass over the log and a copy of the dialogue, instead of cleaning every chat line again.
+ * <p>
+ * Everything is extracted again when there is no previous extraction, when its output file was changed or removed, or
+ * when the charset or the {@link FilterRules#active() active rules} differ from those it used. It also happens when the
+ * rules have a {@code dedup} rule, as whether a line is kept then depends on every line before it. Either way, the
+ * output is the same as that of {@link DialogueExtractor#extract(InputStream, Charset, OutputStream)}.
+ * <p>
+ * An incremental extractor keeps the state of its last extraction between calls and is not thread-safe.
+ */
+public class IncrementalExtractor {
+    private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Logger LOGGER = LogManager.getLogger(IncrementalExtractor.class);
+
+    private @Nullable Snapshot previous;
+
+    /**
+     * A phase of an incremental extraction.
+     */
+    public enum Phase {
+        /**
+         * Hashing the lines of the log and comparing them with those of the previous extraction.
+         */
+        COMPARING,
+        /**
+         * Cleaning the lines that changed and writing the dialogue.
+         */
+        EXTRACTING
+    }
+
+    /**
+     * Receives the progress of an incremental extraction.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * Called after each chunk of lines is processed.
+         *
+         * @param phase      The current phase.
+         * @param bytes      The number of bytes of the phase processed so far.
+         * @param totalBytes The total number of bytes the phase processes.
+         * @param lines      The number of dialogue lines written so far.
+         * @throws IOException To stop the extraction, e.g. when it is cancelled.
+         */
+        void progress(@NotNull Phase phase, long bytes, long totalBytes, long lines) throws IOException;
+    }
+
+    /**
+     * The outcome of an incremental extraction.
+     *
+     * @param lines        The number of dialogue lines of the output.
+     * @param cleanedLines The number of raw lines that were cleaned again; the dialogue of the others was copied.
+     */
+    public record Result(long lines, int cleanedLines) {
+    }
+
+    /**
+     * What an extraction left behind for the next one.
+     *
+     * @param output     The output file.
+     * @param size       The size of the output file once written.
+     * @param modified   The last modification time of the output file once written.
+     * @param charset    The charset of the log.
+     * @param rules      The fingerprint of the filter rules.
+     * @param hashes     The hash of each raw line.
+     * @param dialogue   The raw lines that produced a dialogue line.
+     * @param lines      The number of dialogue lines of the output.
+     */
+    private record Snapshot(@NotNull Path output, long size, @NotNull FileTime modified, @NotNull Charset charset,
+                            @NotNull String rules, int @NotNull [] hashes, @NotNull BitSet dialogue, long lines) {
+    }
+
+    /**
+     * Receives a chunk of whole lines read at once.
+     */
+    @FunctionalInterface
+    private interface ChunkHandler {
+        /**
+         * Handles a chunk of lines.
+         *
+         * @param chunk      The bytes of the lines, from the start of the first one to the end of the last one.
+         * @param chunkStart The offset of the chunk in the file.
+         * @param fromLine   The index of the first line of the chunk.
+         * @param toLine     The index just past the last line of the chunk.
+         * @throws IOException If handling the lines fails.
+         */
+        void handle(@NotNull ByteBuffer chunk, long chunkStart, int fromLine, int toLine) throws IOException;
+    }
+
+    /**
+     * Extracts the dialogue of a log into an output file, reusing the dialogue of the previous extraction for the lines
+     * that did not change since.
+     * <p>
+     * The output file must differ from the output of the previous extraction, which is read while the new one is
+     * written. The log must be fully indexed.
+     *
+     * @param log      The log to extract.
+     * @param output   The file receiving the dialogue as UTF-8; it is replaced if it exists.
+     * @param listener The listener receiving the progress of the extraction.
+     * @return The number of dialogue lines written and of raw lines cleaned.
+     * @throws IOException If the log or the previous output cannot be read, the output cannot be written, or the
+     *                     listener stops the extraction.
+     */
+    public @NotNull Result extract(@NotNull LogDocument log, @NotNull Path output, @NotNull ProgressListener listener)
+            throws IOException {
+        FilterRules rules = FilterRules.active();
+        Charset charset = log.charset();
+        int count = log.lineCount();
+        int[] hashes = hash(log, listener);
+        Snapshot reused = reusable(output, charset, rules);
+        int[] oldHashes = reused != null ? reused.hashes() : new int[0];
+        int max = Math.min(oldHashes.length, count);
+        int prefix = 0;
+        while (prefix < max && oldHashes[prefix] == hashes[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix && oldHashes[oldHashes.length - 1 - suffix] == hashes[count - 1 - suffix]) {
+            suffix++;
+        }
+        BitSet dialogue = new BitSet(count);
+        long lines;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), BUFFER_SIZE);
+             DialogueCopier copier = reused != null ? new DialogueCopier(reused.output()) : null) {
+            long prefixLines = 0;
+            long suffixLines = 0;
+            if (copier != null) {
+                BitSet oldDialogue = reused.dialogue();
+                int oldSuffixStart = oldHashes.length - suffix;
+                prefixLines = oldDialogue.get(0, prefix).cardinality();
+                suffixLines = oldDialogue.get(oldSuffixStart, oldHashes.length).cardinality();
+                copier.transfer(prefixLines, out);
+                copier.transfer(reused.lines() - prefixLines - suffixLines, null);
+                dialogue.or(oldDialogue.get(0, prefix));
+                for (int i = oldDialogue.nextSetBit(oldSuffixStart); i >= 0; i = oldDialogue.nextSetBit(i + 1)) {
+                    dialogue.set(i - oldSuffixStart + count - suffix);
+                }
+            }
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            DialogueWriter dialogueWriter = new DialogueWriter(writer, rules);
+            dialogueWriter.continueAfter(prefixLines);
+            clean(log, prefix, count - suffix, dialogueWriter, dialogue, listener);
+            if (suffixLines > 0 && dialogueWriter.written() > 0) {
+                writer.write(DialogueExtractor.LINE_SEPARATOR);
+            }
+            writer.flush();
+            if (suffixLines > 0) {
+                copier.copyRest(out);
+            }
+            dialogueWriter.publishMetrics();
+            lines = dialogueWriter.written() + suffixLines;
+        }
+        previous = new Snapshot(output, Files.size(output), Files.getLastModifiedTime(output), charset,
+                rules.fingerprint(), hashes, dialogue, lines);
+        logDebug(LOGGER, "Cleaned " + (count - prefix - suffix) + " of " + count + " lines of " + log.path());
+        return new Result(lines, count - prefix - suffix);
+    }
+
+    /**
+     * Forgets the previous extraction, so that the next one extracts everything.
+     */
+    public void reset() {
+        previous = null;
+    }
+
+    /**
+     * Returns the previous extraction if its output can be reused by an extraction with the given settings.
+     *
+     * @param output  The output file of the new extraction.
+     * @param charset The charset of the log.
+     * @param rules   The filter rules.
+     * @return The previous extraction, or null if everything must be extracted again.
+     */
+    private @Nullable Snapshot reusable(@NotNull Path output, @NotNull Charset charset, @NotNull FilterRules rules) {
+        Snapshot snapshot = previous;
+        if (snapshot == null || rules.deduplicates() || snapshot.output().equals(output)
+                || !snapshot.charset().equals(charset) || !snapshot.rules().equals(rules.fingerprint())) {
+            return null;
+        }
+        try {
+            if (Files.size(snapshot.output()) == snapshot.size()
+                    && Files.getLastModifiedTime(snapshot.output()).equals(snapshot.modified())) {
+                return snapshot;
+            }
+        } catch (IOException e) {
+            logDebug(LOGGER, "The previous output " + snapshot.output() + " is gone: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Computes the hash of every line of a log.
+     *
+     * @param log      The log.
+     * @param listener The listener receiving the progress of the {@link Phase#COMPARING} phase.
+     * @return The CRC32C of each line, without its line separator.
+     * @throws IOException If the log cannot be read or the listener stops the extraction.
+     */
+    private static int @NotNull [] hash(@NotNull LogDocument log, @NotNull ProgressListener listener)
+            throws IOException {
+        int count = log.lineCount();
+        int[] hashes = new int[count];
+        long totalBytes = count > 0 ? log.lineEnd(count - 1) : 0;
+        CRC32C crc = new CRC32C();
+        forEachChunk(log, 0, count, (chunk, chunkStart, fromLine, toLine) -> {
+            for (int i = fromLine; i < toLine; i++) {
+                crc.reset();
+                crc.update(chunk.limit((int) (log.lineEnd(i) - chunkStart)).position((int) (log.lineStart(i) - chunkStart)));
+                hashes[i] = (int) crc.getValue();
+            }
+            listener.progress(Phase.COMPARING, log.lineEnd(toLine - 1), totalBytes, 0);
+        });
+        return hashes;
+    }
+
+    /**
+     * Cleans a range of lines of a log and writes their dialogue.
+     *
+     * @param log            The log.
+     * @param from           The index of the first line to clean.
+     * @param to             The index just past the last line to clean.
+     * @param dialogueWriter The writer of the dialogue.
+     * @param dialogue       The set receiving the indexes of the lines that produced a dialogue line.
+     * @param listener       The listener receiving the progress of the {@link Phase#EXTRACTING} phase.
+     * @throws IOException If the log cannot be read, the dialogue cannot be written, or the listener stops the
+     *                     extraction.
+     */
+    private static void clean(@NotNull LogDocument log, int from, int to, @NotNull DialogueWriter dialogueWriter,
+                              @NotNull BitSet dialogue, @NotNull ProgressListener listener) throws IOException {
+        if (from >= to) {
+            return;
+        }
+        Charset charset = log.charset();
+        ChatLineScanner scanner = new ChatLineScanner();
+        ChatLineScanner.ChatLineHandler handler = ChatLineScanner.supports(charset)
+                ? dialogueWriter.chatLineHandler(charset) : null;
+        long rangeStart = log.lineStart(from);
+        long totalBytes = log.lineEnd(to - 1) - rangeStart;
+        forEachChunk(log, from, to, (chunk, chunkStart, fromLine, toLine) -> {
+            for (int i = fromLine; i < toLine; i++) {
+                long before = dialogueWriter.written();
+                if (handler != null) {
+                    scanner.scan(chunk.clear(), (int) (log.lineStart(i) - chunkStart),
+                            (int) (log.lineEnd(i) - chunkStart), handler);
+                } else {
+                    dialogueWriter.writeLine(log.lineText(i));
+                }
+                if (dialogueWriter.written() > before) {
+                    dialogue.set(i);
+                }
+            }
+            listener.progress(Phase.EXTRACTING, log.lineEnd(toLine - 1) - rangeStart, totalBytes,
+                    dialogueWriter.written());
+        });
+    }
+
+    /**
+     * Reads a range of lines of a log in chunks of whole lines of about {@value #CHUNK_SIZE} bytes.
+     * <p>
+     * The chunks are read into one direct buffer reused for the whole range, so the handler must not keep a chunk
+     * after it returns. Only a single line longer than the buffer is read into a buffer of its own.
+     *
+     * @param log     The log.
+     * @param from    The index of the first line to read.
+     * @param to      The index just past the last line to read.
+     * @param handler The handler receiving each chunk.
+     * @throws IOException If the log cannot be read or handling a chunk fails.
+     */
+    private static void forEachChunk(@NotNull LogDocument log, int from, int to, @NotNull ChunkHandler handler)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        int line = from;
+        while (line < to) {
+            long chunkStart = log.lineStart(line);
+            int end = line + 1;
+            while (end < to && log.lineEnd(end) - chunkStart <= CHUNK_SIZE) {
+                end++;
+            }
+            ByteBuffer chunk = log.bytes(chunkStart, (int) (log.lineEnd(end - 1) - chunkStart), buffer);
+            handler.handle(chunk, chunkStart, line, end);
+            line = end;
+        }
+    }
+
+    /**
+     * Copies lines of a previous output to a new one, reading the previous output once from start to end.
+     */
+    private static final class DialogueCopier implements Closeable {
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+
+        /**
+         * Opens a previous output.
+         *
+         * @param file The file holding the previous dialogue.
+         * @throws IOException If the file cannot be opened.
+         */
+        private DialogueCopier(@NotNull Path file) throws IOException {
+            in = Files.newInputStream(file);
+        }
+
+        /**
+         * Copies or skips the next lines, consuming the line separator that follows the last one. The copied lines
+         * are joined with line separators, with none after the last one.
+         *
+         * @param lines The number of lines.
+         * @param out   The stream receiving the lines, or null to skip them.
+         * @throws IOException If reading or writing fails.
+         */
+        private void transfer(long lines, @Nullable OutputStream out) throws IOException {
+            long remaining = lines;
+            while (remaining > 0 && (position < limit || fill())) {
+                int end = position;
+                while (end < limit && buffer[end] != DialogueExtractor.LINE_SEPARATOR) {
+                    end++;
+                }
+                if (end < limit) {
+                    remaining--;
+                }
+                int stop = end < limit && remaining > 0 ? end + 1 : end;
+                if (out != null) {
+                    out.write(buffer, position, stop - position);
+                }
+                position = Math.min(end + 1, limit);
+            }
+        }
+
+        /**
+         * Copies the rest of the previous output.
+         *
+         * @param out The stream receiving the bytes.
+         * @throws IOException If reading or writing fails.
+         */
+        private void copyRest(@NotNull OutputStream out) throws IOException {
+            out.write(buffer, position, limit - position);
+            position = limit;
+            in.transferTo(out);
+        }
+
+        /**
+         * Reads the next block of the previous output into the buffer.
+         *
+         * @return False at the end of the file.
+         * @throws IOException If reading fails.
+         */
+        private boolean fill() throws IOException {
+            int read = in.read(buffer);
+            position = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        }
+
+        /**
+         * Closes the previous output.
+         *
+         * @throws IOException If closing fails.
+         */
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Detects repeated dialogue lines from 64-bit hashes of their text, in a bounded amount of memory.
+ * <p>
+ * With a window, a line is a duplicate if the same text is among the previous lines checked, up to the size of the
+ * window; the hashes of the window are kept in a ring and counted in an open-addressing table, so checking a line costs
+ * the same whatever the size of the window. Without a window, a line is a duplicate if the same text was checked at any
+ * point before. The hashes are then kept in an open-addressing set of at most {@value #MAX_SEEN} entries, or 32 MB;
+ * once it is full, new lines are no longer remembered, so later repeats of them are kept rather than the memory
+ * growing.
+ * <p>
+ * Lines are never dropped by mistake unless two different lines have the same 64-bit hash. A deduplicator is not
+ * thread-safe.
+ */
+public class LineDeduplicator {
+    /**
+     * The largest window, which bounds the memory of a windowed deduplicator to about 32 MB.
+     */
+    public static final int MAX_WINDOW = 1_000_000;
+    static final int MAX_SEEN = 1 << 21;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final long EMPTY = 0;
+
+    private final int window;
+    private final long[] ring;
+    private long checked;
+    private long[] keys;
+    private int[] counts;
+    private int size;
+
+    /**
+     * Creates a deduplicator.
+     *
+     * @param window The number of previous lines a line is compared with, or 0 to compare it with every line seen.
+     * @throws IllegalArgumentException if the window is negative or larger than {@link #MAX_WINDOW}.
+     */
+    public LineDeduplicator(int window) {
+        if (window < 0 || window > MAX_WINDOW) {
+            throw new IllegalArgumentException("The window must be between 0 and " + MAX_WINDOW + " lines.");
+        }
+        this.window = window;
+        this.ring = new long[window];
+        int capacity = window > 0 ? Integer.highestOneBit(window * 2 - 1) * 2 : INITIAL_CAPACITY;
+        this.keys = new long[capacity];
+        this.counts = window > 0 ? new int[capacity] : null;
+    }
+
+    /**
+     * Checks whether a line repeats one of the lines checked before, and remembers it.
+     *
+     * @param line The text of the line.
+     * @return True if the line is a duplicate and should be dropped.
+     */
+    public boolean isDuplicate(@NotNull CharSequence line) {
+        long hash = hash(line);
+        return window > 0 ? slide(hash) : !remember(hash);
+    }
+
+    /**
+     * Computes the 64-bit hash of a text.
+     *
+     * @param text The text.
+     * @return The hash, never 0, which marks an empty slot.
+     */
+    static long hash(@NotNull CharSequence text) {
+        long hash = 0x9E3779B97F4A7C15L ^ text.length();
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0xBF58476D1CE4E5B9L;
+            hash ^= hash >>> 29;
+        }
+        hash ^= hash >>> 32;
+        hash *= 0x94D049BB133111EBL;
+        hash ^= hash >>> 29;
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    /**
+     * Checks a hash against the window, then adds it, evicting the oldest one once the window is full.
+     *
+     * @param hash The hash of the line.
+     * @return True if the hash was already in the window.
+     */
+    private boolean slide(long hash) {
+        boolean duplicate = keys[find(hash)] == hash;
+        int slot = (int) (checked % window);
+        if (checked >= window) {
+            decrement(ring[slot]);
+        }
+        ring[slot] = hash;
+        checked++;
+        int index = find(hash);
+        if (keys[index] != hash) {
+            keys[index] = hash;
+            size++;
+        }
+        counts[index]++;
+        return duplicate;
+    }
+
+    /**
+     * Adds a hash to the set of every line seen, unless the set is full.
+     *
+     * @param hash The hash of the line.
+     * @return False if the hash was already in the set.
+     */
+    private boolean remember(long hash) {
+        int index = find(hash);
+        if (keys[index] == hash) {
+            return false;
+        }
+        if (size >= MAX_SEEN) {
+            return true;
+        }
+        keys[index] = hash;
+        size++;
+        if (size * 4L > keys.length * 3L) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Removes one occurrence of a hash from the window table, deleting its slot once it is no longer in the window.
+     * <p>
+     * The slot is freed by shifting back the entries of the probe sequence that follows it, so no tombstones are left.
+     *
+     * @param hash The hash leaving the window.
+     */
+    private void decrement(long hash) {
+        int index = find(hash);
+        if (--counts[index] > 0) {
+            return;
+        }
+        int mask = keys.length - 1;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = home(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                counts[hole] = counts[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        counts[hole] = 0;
+        size--;
+    }
+
+    /**
+     * Finds the slot of a hash, or the empty slot where it would be inserted, by linear probing.
+     *
+     * @param hash The hash.
+     * @return The index of the slot.
+     */
+    private int find(long hash) {
+        int mask = keys.length - 1;
+        int index = home(hash);
+        while (keys[index] != EMPTY && keys[index] != hash) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the first slot probed for a hash.
+     *
+     * @param hash The hash.
+     * @return The index of the slot.
+     */
+    private int home(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+    }
+
+    /**
+     * Doubles the capacity of the set of every line seen.
+     */
+    private void grow() {
+        long[] old = keys;
+        keys = new long[old.length * 2];
+        for (long key : old) {
+            if (key != EMPTY) {
+                keys[find(key)] = key;
+            }
+        }
+    }
+}
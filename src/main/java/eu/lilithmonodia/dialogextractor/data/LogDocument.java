@@ -0,0 +1,701 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import eu.lilithmonodia.dialogextractor.utils.ArchiveExtractor;
+import eu.lilithmonodia.dialogextractor.utils.ExtractionMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
+
+/**
+ * Represents a log file opened for random access by line.
+ * <p>
+ * Opening a document only records the byte offset of every line, in chunks of direct memory; the text of a line is
+ * read from the file by a positional read when it is asked for. This lets a viewer show any part of a huge log while
+ * the heap holds only the lines currently on screen. The offset table still takes 8 bytes per line of direct memory,
+ * which counts against {@code -XX:MaxDirectMemorySize}, and a document holds at most {@value #MAX_LINES} lines. The
+ * file is never memory-mapped, so closing the document releases it at once and the game can rotate its log, or a
+ * temporary copy can be deleted, while the application keeps running. GZIP-compressed logs are inflated once into a
+ * temporary file, which is deleted when the document is closed; so are the logs of a {@code .zip}, {@code .tar.gz} or
+ * {@code .tgz} archive, joined one after the other.
+ * <p>
+ * {@link #lineText(int)} reads a line as a {@link CharSequence} view over its bytes. For single-byte charsets, such as
+ * windows-1252, the view decodes each character when it is read, so that searching or copying lines never creates
+ * strings.
+ * <p>
+ * The index is built by a single thread and grows while the file is read. Other threads may read the lines indexed so
+ * far at any time, which lets a viewer show the start of a log before the whole file is indexed.
+ * <p>
+ * The index does not depend on the character encoding, so the encoding can be detected from the first block read, or
+ * changed later, without reading or inflating the file again.
+ */
+public class LogDocument implements Closeable {
+    private static final int INDEX_BUFFER_SIZE = 1024 * 1024;
+    private static final int INDEX_CHUNK_SHIFT = 16;
+    private static final int INDEX_CHUNK_SIZE = 1 << INDEX_CHUNK_SHIFT;
+    /**
+     * The largest number of lines a document can hold, bounded by the {@code int} line indexes.
+     */
+    public static final int MAX_LINES = Integer.MAX_VALUE - 1;
+    private static final Logger LOGGER = LogManager.getLogger(LogDocument.class);
+
+    private final Path path;
+    private volatile Charset charset;
+    private final FileChannel channel;
+    private final boolean temporary;
+    private volatile LongBuffer[] lineStarts = {allocateIndexChunk()};
+    private volatile int lineCount;
+    private long indexedSize;
+    private volatile char @Nullable [] byteTable;
+
+    /**
+     * Receives the progress of the indexing of a document.
+     */
+    @FunctionalInterface
+    public interface IndexListener {
+        /**
+         * A listener ignoring the progress.
+         */
+        IndexListener NONE = (document, bytesRead, totalBytes) -> {
+        };
+
+        /**
+         * Called on the indexing thread after each block of the file has been indexed.
+         *
+         * @param document   The document being indexed, whose lines indexed so far can already be read.
+         * @param bytesRead  The number of bytes read from the file so far; for a compressed file or an archive,
+         *                   compressed bytes.
+         * @param totalBytes The size of the file.
+         * @throws IOException If the indexing should stop, for example because it was cancelled.
+         */
+        void indexed(@NotNull LogDocument document, long bytesRead, long totalBytes) throws IOException;
+    }
+
+    /**
+     * Creates an empty document over an uncompressed file.
+     *
+     * @param path      The file holding the uncompressed log.
+     * @param charset   The character encoding of the file, or null to detect it from the first block indexed.
+     * @param temporary Whether the file is owned by the document and deleted when it is closed.
+     * @throws IOException If the file cannot be opened.
+     */
+    private LogDocument(@NotNull Path path, @Nullable Charset charset, boolean temporary) throws IOException {
+        this.path = path;
+        this.charset = charset;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.temporary = temporary;
+        this.byteTable = charset == null ? null : singleByteTable(charset);
+    }
+
+    /**
+     * Opens a {@code .log} or {@code .gz} log file and indexes its lines.
+     *
+     * @param file    The log file.
+     * @param charset The character encoding of the log.
+     * @return The opened document.
+     * @throws IOException If the file cannot be read or decompressed.
+     */
+    public static @NotNull LogDocument open(@NotNull Path file, @NotNull Charset charset) throws IOException {
+        return open(file, charset, IndexListener.NONE);
+    }
+
+    /**
+     * Opens a {@code .log} or {@code .gz} log file and indexes its lines, reporting the progress to a listener.
+     * <p>
+     * A GZIP-compressed file is inflated and indexed in the same pass. So is an archive, whose logs are read as one
+     * log, in the order of the archive, with a line separator added after a log not ending with one. If no charset is
+     * given, it is detected by {@link CharsetDetector} from the first block indexed, before the listener is first
+     * called.
+     *
+     * @param file     The log file.
+     * @param charset  The character encoding of the log, or null to detect it.
+     * @param listener The listener receiving the progress.
+     * @return The opened document.
+     * @throws IOException If the file cannot be read or decompressed, or the listener stops the indexing.
+     */
+    public static @NotNull LogDocument open(@NotNull Path file, @Nullable Charset charset,
+                                            @NotNull IndexListener listener) throws IOException {
+        String name = file.getFileName().toString();
+        boolean archive = ArchiveExtractor.isArchive(file);
+        if (!archive && !name.endsWith(".gz")) {
+            return index(new LogDocument(file, charset, false), listener);
+        }
+        Path inflated = Files.createTempFile("dialog-extractor-", ".log");
+        inflated.toFile().deleteOnExit();
+        LogDocument document;
+        try {
+            document = new LogDocument(inflated, charset, true);
+        } catch (IOException e) {
+            Files.deleteIfExists(inflated);
+            throw e;
+        }
+        try (FileChannel compressed = FileChannel.open(file, StandardOpenOption.READ);
+             InputStream raw = Channels.newInputStream(compressed);
+             OutputStream out = Files.newOutputStream(inflated)) {
+            logDebug(LOGGER, "Inflating and indexing log lines ...");
+            long totalBytes = compressed.size();
+            InflatedCopy copy = new InflatedCopy(document, out, compressed, listener);
+            if (archive) {
+                ArchiveExtractor.readEntries(raw, name, (entryName, in) -> {
+                    copy.separate();
+                    copy.append(in);
+                });
+            } else {
+                try (InputStream in = ExtractionMetrics.inflating(new GZIPInputStream(raw, INDEX_BUFFER_SIZE), name)) {
+                    copy.append(in);
+                }
+            }
+            document.finishIndex(copy.position);
+            listener.indexed(document, totalBytes, totalBytes);
+            logDebug(LOGGER, "Log lines indexed successfully.");
+            return document;
+        } catch (IOException | RuntimeException e) {
+            document.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a temporary file, such as an extraction result, and takes ownership of it.
+     * <p>
+     * The file is deleted when the document is closed.
+     *
+     * @param file     The uncompressed temporary file.
+     * @param charset  The character encoding of the file.
+     * @param listener The listener receiving the progress of the indexing.
+     * @return The opened document.
+     * @throws IOException If the file cannot be read, or the listener stops the indexing.
+     */
+    public static @NotNull LogDocument openTemporary(@NotNull Path file, @NotNull Charset charset,
+                                                     @NotNull IndexListener listener) throws IOException {
+        LogDocument document;
+        try {
+            document = new LogDocument(file, charset, true);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return index(document, listener);
+    }
+
+    /**
+     * Indexes the lines of the uncompressed file of a document.
+     *
+     * @param document The empty document.
+     * @param listener The listener receiving the progress.
+     * @return The indexed document.
+     * @throws IOException If the file cannot be read, or the listener stops the indexing.
+     */
+    private static @NotNull LogDocument index(@NotNull LogDocument document, @NotNull IndexListener listener)
+            throws IOException {
+        logDebug(LOGGER, "Indexing log lines ...");
+        try {
+            long totalBytes = document.channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(INDEX_BUFFER_SIZE);
+            long position = 0;
+            int read;
+            while ((read = document.channel.read(buffer.clear(), position)) > 0) {
+                document.indexBlock(buffer.flip(), position);
+                position += read;
+                listener.indexed(document, position, totalBytes);
+            }
+            document.finishIndex(position);
+            listener.indexed(document, totalBytes, totalBytes);
+            logDebug(LOGGER, "Log lines indexed successfully.");
+            return document;
+        } catch (IOException | RuntimeException e) {
+            document.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Adds the lines ending in a block of the file to the index.
+     *
+     * @param block    The bytes of the block, between its position and limit.
+     * @param position The offset of the block in the file.
+     */
+    private void indexBlock(@NotNull ByteBuffer block, long position) {
+        if (charset == null) {
+            setCharset(CharsetDetector.detect(block));
+        }
+        int offset = block.position();
+        for (int i = offset; i < block.limit(); i++) {
+            if (block.get(i) == '\n') {
+                appendLine(position + i - offset + 1);
+            }
+        }
+    }
+
+    /**
+     * Adds the last line to the index if the file does not end with a line separator.
+     *
+     * @param size The size of the file.
+     */
+    private void finishIndex(long size) {
+        if (charset == null) {
+            setCharset(CharsetDetector.WINDOWS_1252);
+        }
+        if (lineStart(lineStarts, lineCount) < size) {
+            appendLine(size + 1);
+        }
+        indexedSize = size;
+    }
+
+    /**
+     * Indexes the bytes appended to the file since it was last indexed, such as the dialogue of a followed log.
+     * <p>
+     * Only the appended bytes are read. This must be called by the single thread growing the index. A last line
+     * without a line separator is never extended, so bytes appended after it must start with a line separator, as
+     * the dialogue writers of this application do.
+     *
+     * @return True if lines were added.
+     * @throws IOException If the file cannot be read.
+     */
+    public boolean refresh() throws IOException {
+        long size = channel.size();
+        if (size <= indexedSize) {
+            return false;
+        }
+        int before = lineCount;
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(INDEX_BUFFER_SIZE, size - indexedSize));
+        long position = indexedSize;
+        int read;
+        while (position < size && (read = channel.read(buffer.clear(), position)) > 0) {
+            indexBlock(buffer.flip(), position);
+            position += read;
+        }
+        finishIndex(position);
+        return lineCount > before;
+    }
+
+    /**
+     * Adds a line to the index.
+     * <p>
+     * The offsets are kept in chunks of {@value #INDEX_CHUNK_SIZE} entries, so the table grows without copying. A
+     * new chunk and the offset are written before the line count is published, so readers that see the new count
+     * also see the offsets it covers. A separator ending a last line that was already indexed without one is
+     * skipped, as that line already ends there.
+     *
+     * @param nextLineStart The offset just past the line separator of the line.
+     * @throws IllegalStateException if the document already holds {@link #MAX_LINES} lines.
+     */
+    private void appendLine(long nextLineStart) {
+        LongBuffer[] starts = lineStarts;
+        int count = lineCount;
+        if (nextLineStart <= lineStart(starts, count)) {
+            return;
+        }
+        if (count == MAX_LINES) {
+            throw new IllegalStateException("The log has more than " + MAX_LINES + " lines.");
+        }
+        int entry = count + 1;
+        if (entry >>> INDEX_CHUNK_SHIFT == starts.length) {
+            starts = Arrays.copyOf(starts, starts.length + 1);
+            starts[starts.length - 1] = allocateIndexChunk();
+            lineStarts = starts;
+        }
+        starts[entry >>> INDEX_CHUNK_SHIFT].put(entry & (INDEX_CHUNK_SIZE - 1), nextLineStart);
+        lineCount = entry;
+    }
+
+    /**
+     * Reads an entry of the table of line offsets.
+     *
+     * @param starts The chunks of the table.
+     * @param entry  The index of the entry, which is the index of a line, or the line count for the end of the file.
+     * @return The offset stored in the entry.
+     */
+    private static long lineStart(LongBuffer @NotNull [] starts, int entry) {
+        return starts[entry >>> INDEX_CHUNK_SHIFT].get(entry & (INDEX_CHUNK_SIZE - 1));
+    }
+
+    /**
+     * Allocates a chunk of the table of line offsets in direct memory.
+     *
+     * @return The chunk, filled with zeros.
+     */
+    private static @NotNull LongBuffer allocateIndexChunk() {
+        return ByteBuffer.allocateDirect(INDEX_CHUNK_SIZE * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    /**
+     * Returns the file holding the uncompressed log.
+     *
+     * @return The path of the file.
+     */
+    public @NotNull Path path() {
+        return path;
+    }
+
+    /**
+     * Returns the character encoding used to decode the lines.
+     *
+     * @return The charset of the document, given or detected before the document is first handed out.
+     */
+    public @NotNull Charset charset() {
+        return charset;
+    }
+
+    /**
+     * Changes the character encoding used to decode the lines.
+     * <p>
+     * The raw bytes and the line index are kept, so only the lines read afterwards are decoded with the new charset.
+     * The charset must be ASCII-compatible, as lines are still split on the {@code '\n'} byte.
+     *
+     * @param charset The new charset.
+     */
+    public void setCharset(@NotNull Charset charset) {
+        this.byteTable = singleByteTable(charset);
+        this.charset = charset;
+    }
+
+    /**
+     * Returns the number of lines.
+     *
+     * @return The number of lines indexed so far; a trailing line separator does not start a new line.
+     */
+    public int lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Checks whether the document has no lines.
+     *
+     * @return True if the document is empty.
+     */
+    public boolean isEmpty() {
+        return lineCount == 0;
+    }
+
+    /**
+     * Reads and decodes a single line.
+     *
+     * @param index The index of the line.
+     * @return The text of the line, without its line separator or trailing carriage return.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     * @throws UncheckedIOException      if the file cannot be read.
+     */
+    public @NotNull String line(int index) {
+        return lineText(index).toString();
+    }
+
+    /**
+     * Returns a view of a single line over the bytes of the file.
+     * <p>
+     * The bytes of the line are read into a buffer of their own. With a single-byte charset, the view decodes a
+     * character from them each time it is read; otherwise the line is decoded into a new buffer. The view does not
+     * follow later changes of the charset.
+     *
+     * @param index The index of the line.
+     * @return The text of the line, without its line separator or trailing carriage return.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     * @throws UncheckedIOException      if the file cannot be read.
+     */
+    public @NotNull CharSequence lineText(int index) {
+        Objects.checkIndex(index, lineCount);
+        LongBuffer[] starts = lineStarts;
+        long start = lineStart(starts, index);
+        int length = (int) (lineStart(starts, index + 1) - 1 - start);
+        ByteBuffer bytes;
+        try {
+            bytes = bytes(start, length, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read line " + index + " of " + path, e);
+        }
+        if (bytes.limit() > 0 && bytes.get(bytes.limit() - 1) == '\r') {
+            bytes.limit(bytes.limit() - 1);
+        }
+        char[] table = byteTable;
+        return table != null ? new SingleByteText(bytes, table) : charset.decode(bytes);
+    }
+
+    /**
+     * Finds the first line at or after a given line that contains a text.
+     *
+     * @param text     The text to look for.
+     * @param fromLine The index of the first line to search.
+     * @return The index of the first matching line, or -1 if no line from {@code fromLine} on contains the text.
+     * @throws UncheckedIOException if the file cannot be read.
+     */
+    public int find(@NotNull CharSequence text, int fromLine) {
+        int count = lineCount;
+        for (int index = Math.max(fromLine, 0); index < count; index++) {
+            if (contains(lineText(index), text)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a character sequence contains another one, without creating strings.
+     *
+     * @param sequence The sequence to search.
+     * @param text     The text to look for.
+     * @return True if the text occurs in the sequence.
+     */
+    private static boolean contains(@NotNull CharSequence sequence, @NotNull CharSequence text) {
+        int last = sequence.length() - text.length();
+        if (text.isEmpty()) {
+            return last >= 0;
+        }
+        char first = text.charAt(0);
+        for (int i = 0; i <= last; i++) {
+            if (sequence.charAt(i) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < text.length() && sequence.charAt(i + j) == text.charAt(j)) {
+                j++;
+            }
+            if (j == text.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the offset of the first byte of a line.
+     *
+     * @param index The index of the line.
+     * @return The offset of the line in the file.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    long lineStart(int index) {
+        Objects.checkIndex(index, lineCount);
+        return lineStart(lineStarts, index);
+    }
+
+    /**
+     * Returns the offset just past the last byte of a line, before its line separator.
+     *
+     * @param index The index of the line.
+     * @return The offset of the end of the line in the file, including a trailing carriage return.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    long lineEnd(int index) {
+        Objects.checkIndex(index, lineCount);
+        return lineStart(lineStarts, index + 1) - 1;
+    }
+
+    /**
+     * Reads the bytes of a range of the file with positional reads, which leave no mapping of the file behind.
+     *
+     * @param start  The offset of the range.
+     * @param length The length of the range.
+     * @param reuse  A buffer to read into if it is large enough, such as a direct buffer reused for every chunk of a
+     *               pass over the file, or null to read into a new heap buffer.
+     * @return A buffer holding the bytes of the range, from position 0 to its limit; shorter if the file ends early.
+     * @throws IOException If the file cannot be read.
+     */
+    @NotNull ByteBuffer bytes(long start, int length, @Nullable ByteBuffer reuse) throws IOException {
+        ByteBuffer bytes = reuse != null && reuse.capacity() >= length
+                ? reuse.clear().limit(length) : ByteBuffer.allocate(length);
+        while (bytes.hasRemaining() && channel.read(bytes, start + bytes.position()) > 0) {
+            // Keep reading until the whole range is in the buffer.
+        }
+        return bytes.flip();
+    }
+
+    /**
+     * Computes the characters of the 256 byte values of a single-byte charset.
+     *
+     * @param charset The charset.
+     * @return The character of each byte value, or null if the charset is not a single-byte charset.
+     */
+    static char @Nullable [] singleByteTable(@NotNull Charset charset) {
+        if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1.0f
+                || charset.newDecoder().maxCharsPerByte() != 1.0f) {
+            return null;
+        }
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        char[] table = new String(bytes, charset).toCharArray();
+        return table.length == bytes.length ? table : null;
+    }
+
+    /**
+     * Opens a stream over the raw bytes of the uncompressed log.
+     *
+     * @return A new input stream, to be closed by the caller.
+     * @throws IOException If the file cannot be opened.
+     */
+    public @NotNull InputStream openStream() throws IOException {
+        return new BufferedInputStream(Files.newInputStream(path), INDEX_BUFFER_SIZE);
+    }
+
+    /**
+     * Closes the file and deletes it if the document owns it.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+            if (temporary) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            logError(LOGGER, "An error occurred while closing the log document.", e);
+        }
+    }
+
+    /**
+     * Copies inflated log bytes into the temporary file of a document and indexes them in the same pass.
+     */
+    private static final class InflatedCopy {
+        private final LogDocument document;
+        private final OutputStream out;
+        private final FileChannel source;
+        private final IndexListener listener;
+        private final byte[] buffer = new byte[INDEX_BUFFER_SIZE];
+        private long position;
+        private byte last = '\n';
+
+        /**
+         * Creates a copy into a document.
+         *
+         * @param document The document being indexed.
+         * @param out      The stream writing the temporary file of the document.
+         * @param source   The channel of the compressed file, whose position is reported as the progress.
+         * @param listener The listener receiving the progress.
+         */
+        private InflatedCopy(@NotNull LogDocument document, @NotNull OutputStream out, @NotNull FileChannel source,
+                             @NotNull IndexListener listener) {
+            this.document = document;
+            this.out = out;
+            this.source = source;
+            this.listener = listener;
+        }
+
+        /**
+         * Copies and indexes every byte of a stream.
+         *
+         * @param in The inflated log.
+         * @throws IOException If the stream cannot be read, the file cannot be written, or the listener stops the
+         *                     indexing.
+         */
+        private void append(@NotNull InputStream in) throws IOException {
+            int read;
+            while ((read = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+                write(read);
+            }
+        }
+
+        /**
+         * Ends the last line copied with a line separator if it has none, so that the next log starts a new line.
+         *
+         * @throws IOException If the file cannot be written, or the listener stops the indexing.
+         */
+        private void separate() throws IOException {
+            if (last != '\n') {
+                buffer[0] = '\n';
+                write(1);
+            }
+        }
+
+        /**
+         * Writes and indexes the start of the buffer.
+         *
+         * @param length The number of bytes to write.
+         * @throws IOException If the file cannot be written, or the listener stops the indexing.
+         */
+        private void write(int length) throws IOException {
+            out.write(buffer, 0, length);
+            out.flush();
+            document.indexBlock(ByteBuffer.wrap(buffer, 0, length), position);
+            position += length;
+            last = buffer[length - 1];
+            listener.indexed(document, source.position(), source.size());
+        }
+    }
+
+    /**
+     * A line of a single-byte charset, decoding each character from its byte when it is read.
+     */
+    private static final class SingleByteText implements CharSequence {
+        private final ByteBuffer bytes;
+        private final char[] table;
+
+        /**
+         * Creates a view over the bytes of a line.
+         *
+         * @param bytes The bytes of the line, from position 0 to the limit.
+         * @param table The character of each byte value.
+         */
+        private SingleByteText(@NotNull ByteBuffer bytes, char @NotNull [] table) {
+            this.bytes = bytes;
+            this.table = table;
+        }
+
+        /**
+         * Returns the length of the line.
+         *
+         * @return The number of characters, which is the number of bytes.
+         */
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        /**
+         * Decodes a character of the line.
+         *
+         * @param index The index of the character.
+         * @return The character.
+         * @throws IndexOutOfBoundsException if the index is outside the line.
+         */
+        @Override
+        public char charAt(int index) {
+            return table[bytes.get(index) & 0xFF];
+        }
+
+        /**
+         * Returns a view of a part of the line.
+         *
+         * @param from The index of the first character.
+         * @param to   The index just past the last character.
+         * @return The view, sharing the bytes of this one.
+         * @throws IndexOutOfBoundsException if the range is outside the line.
+         */
+        @Override
+        public @NotNull CharSequence subSequence(int from, int to) {
+            Objects.checkFromToIndex(from, to, bytes.limit());
+            return new SingleByteText(bytes.slice(from, to - from), table);
+        }
+
+        /**
+         * Decodes the whole line.
+         *
+         * @return The line as a new string.
+         */
+        @Override
+        public @NotNull String toString() {
+            char[] chars = new char[bytes.limit()];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = table[bytes.get(i) & 0xFF];
+            }
+            return new String(chars);
+        }
+    }
+}
@@ -4,19 +4,23 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Arrays;
-import java.util.List;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 
-import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logAction;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
 
 /**
  * Represents a Minecraft log, which contains chat messages and other events.
+ * <p>
+ * This record is a thin in-memory wrapper over {@link DialogueExtractor}; use the extractor directly to process logs
+ * that should not be held in memory as a whole.
  */
 public record MinecraftLog(String log) {
 
-    private static final String COLOUR_CODE_REGEX = "§.";
     private static final Logger LOGGER = LogManager.getLogger(MinecraftLog.class);
-    private static final String DIALOG_PREFIX = "[CHAT]";
+    private static final DialogueExtractor EXTRACTOR = new DialogueExtractor();
 
     /**
      * Extracts dialogues from the Minecraft log by cleaning and removing colour codes.
@@ -25,47 +29,30 @@ public record MinecraftLog(String log) {
      */
     @NotNull
     public MinecraftLog extractDialogue() {
-        logAction(LOGGER, "Extracting dialogue from Minecraft log...");
+        logDebug(LOGGER, "Extracting dialogue from Minecraft log...");
 
-        List<String> extractedDialogs = cleanAndExtractDialogue();
+        StringWriter extractedDialogs = new StringWriter();
+        try {
+            EXTRACTOR.extract(new StringReader(log), extractedDialogs);
+        } catch (IOException e) {
+            throw new UncheckedIOException("In-memory dialogue extraction failed.", e);
+        }
 
-        logAction(LOGGER, "Dialogue extraction completed successfully.");
-        return new MinecraftLog(String.join("\n", extractedDialogs));
+        logDebug(LOGGER, "Dialogue extraction completed successfully.");
+        return new MinecraftLog(extractedDialogs.toString());
     }
 
     /**
-     * Cleans and extracts dialogues from the Minecraft log.
+     * Parses the chat lines of the Minecraft log into structured records.
      *
-     * @return A list of cleaned dialogues without the dialogue prefix and colour codes.
+     * @return The store holding the timestamp, thread, level, sender and message of every chat line.
      */
-    private List<String> cleanAndExtractDialogue() {
-        logAction(LOGGER, "Cleaning and extracting dialogues from Minecraft log...");
-
-        List<String> extractedDialogs = Arrays.stream(log.split("\n"))
-                .filter(line -> line.contains(DIALOG_PREFIX))
-                .map(this::cleanChatLine)
-                .filter(cleanedLine -> !"Shaders Reloaded!".equals(cleanedLine))
-                .toList();
-
-        logAction(LOGGER, "Dialogues cleaned and extracted successfully.");
-
-        return extractedDialogs;
-    }
-
-    /**
-     * Cleans a chat line by removing the dialogue prefix and colour codes.
-     *
-     * @param rawChatLine The raw chat line to be cleaned.
-     * @return The cleaned chat line without the dialogue prefix and colour codes.
-     */
-    private @NotNull String cleanChatLine(@NotNull String rawChatLine) {
-        int chatIndex = rawChatLine.indexOf(DIALOG_PREFIX);
-        String cleanedLine = (chatIndex != -1)
-                ? rawChatLine.substring(chatIndex + DIALOG_PREFIX.length())
-                : rawChatLine;
-
-        cleanedLine = cleanedLine.replaceAll(COLOUR_CODE_REGEX, "").trim();
-
-        return cleanedLine;
+    @NotNull
+    public ChatRecordStore extractRecords() {
+        try {
+            return ChatRecordStore.read(new StringReader(log));
+        } catch (IOException e) {
+            throw new UncheckedIOException("In-memory dialogue extraction failed.", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,742 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import eu.lilithmonodia.dialogextractor.utils.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logAction;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
+
+/**
+ * An inverted index over an archive of extracted dialogue files, answering keyword and sender queries with the files
+ * and lines that match.
+ * <p>
+ * Every word of a dialogue line is indexed, lower-cased, with the list of the file and line numbers it appears on. The
+ * sender of a {@code <name> message} line is also indexed as {@code from:name}. A posting list is stored sorted and
+ * delta-encoded as variable-length integers, so a frequent word costs one or two bytes per line.
+ * <p>
+ * The index is kept in a directory as a manifest listing the indexed files, and immutable segment files holding the
+ * postings of the files added by one update. An update only indexes the new and modified files; modified and deleted
+ * files are masked out of the older segments, and the segments are merged into one once there are too many of them.
+ * The dictionaries of the segments are held in memory and the postings are read on demand, so a query costs a binary
+ * search and one read per word and segment.
+ * <p>
+ * An index is not thread-safe.
+ */
+public class SearchIndex implements Closeable {
+    static final String MANIFEST_NAME = "manifest.bin";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int MANIFEST_MAGIC = 0x44494458;
+    private static final int SEGMENT_MAGIC = 0x44534547;
+    private static final int VERSION = 1;
+    private static final int MAX_SEGMENTS = 8;
+    private static final int MAX_TOKEN_LENGTH = 64;
+    private static final String SENDER_PREFIX = "from:";
+    private static final Logger LOGGER = LogManager.getLogger(SearchIndex.class);
+
+    private final Path directory;
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<Path, Integer> liveDocuments = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private final List<Segment> segments = new ArrayList<>();
+    private int nextSegment;
+
+    /**
+     * Creates an empty index in a directory.
+     *
+     * @param directory The directory of the index.
+     */
+    private SearchIndex(@NotNull Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * A line matching a query.
+     *
+     * @param file The dialogue file holding the line.
+     * @param line The number of the line in the file, starting at 1.
+     */
+    public record Hit(@NotNull Path file, int line) {
+    }
+
+    /**
+     * An indexed file as it was when it was indexed.
+     *
+     * @param path     The absolute path of the file.
+     * @param size     The size of the file in bytes.
+     * @param modified The last modification time of the file, in milliseconds since the epoch.
+     */
+    private record Document(@NotNull Path path, long size, long modified) {
+    }
+
+    /**
+     * Opens the index kept in a directory, or an empty index if the directory holds none yet.
+     *
+     * @param directory The directory of the index; it is created on the first update.
+     * @return The index.
+     * @throws IOException If the index exists but cannot be read.
+     */
+    public static @NotNull SearchIndex open(@NotNull Path directory) throws IOException {
+        SearchIndex index = new SearchIndex(directory);
+        Path manifest = directory.resolve(MANIFEST_NAME);
+        if (!Files.exists(manifest)) {
+            return index;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest)))) {
+            if (in.readInt() != MANIFEST_MAGIC || in.readInt() != VERSION) {
+                throw new IOException(directory + " does not hold a search index of this version.");
+            }
+            index.nextSegment = in.readInt();
+            int segmentCount = in.readInt();
+            for (int i = 0; i < segmentCount; i++) {
+                int id = in.readInt();
+                index.segments.add(Segment.open(directory.resolve(segmentName(id)), id));
+            }
+            int documentCount = in.readInt();
+            for (int id = 0; id < documentCount; id++) {
+                Document document = new Document(Path.of(in.readUTF()), in.readLong(), in.readLong());
+                index.documents.add(document);
+                if (in.readBoolean()) {
+                    index.deleted.set(id);
+                } else {
+                    index.liveDocuments.put(document.path(), id);
+                }
+            }
+        } catch (IOException e) {
+            index.close();
+            throw e;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the default index directory, {@code index} in the {@code .dialog-extractor} directory of the user.
+     *
+     * @return The path of the default index directory; it does not have to exist.
+     */
+    public static @NotNull Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".dialog-extractor", "index");
+    }
+
+    /**
+     * Brings the index up to date with a set of dialogue files.
+     * <p>
+     * Files that are not indexed yet, or changed since they were indexed, are read and indexed into a new segment;
+     * unchanged files are skipped. Indexed files that no longer exist are removed from the results. Files indexed
+     * earlier but missing from the given list are kept as long as they exist.
+     *
+     * @param files The dialogue files, compressed or not, as written by the extraction.
+     * @return The number of files read.
+     * @throws IOException If a file cannot be read or the index cannot be written.
+     */
+    public int update(@NotNull List<Path> files) throws IOException {
+        logAction(LOGGER, "Updating the search index in " + directory + "...");
+
+        Map<String, PostingWriter> postings = new HashMap<>();
+        int read = 0;
+        for (Path file : files) {
+            Path path = file.toAbsolutePath().normalize();
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            Integer existing = liveDocuments.get(path);
+            if (existing != null) {
+                Document document = documents.get(existing);
+                if (document.size() == attributes.size()
+                        && document.modified() == attributes.lastModifiedTime().toMillis()) {
+                    continue;
+                }
+                deleted.set(existing);
+                liveDocuments.remove(path);
+            }
+            int id = documents.size();
+            documents.add(new Document(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+            liveDocuments.put(path, id);
+            indexFile(path, id, postings);
+            read++;
+        }
+        for (Iterator<Map.Entry<Path, Integer>> entries = liveDocuments.entrySet().iterator(); entries.hasNext(); ) {
+            Map.Entry<Path, Integer> entry = entries.next();
+            if (!Files.exists(entry.getKey())) {
+                deleted.set(entry.getValue());
+                entries.remove();
+            }
+        }
+
+        Files.createDirectories(directory);
+        List<Segment> obsolete = List.of();
+        if (!postings.isEmpty()) {
+            segments.add(writeSegment(new TreeMap<>(postings)));
+        }
+        if (segments.size() > MAX_SEGMENTS) {
+            obsolete = new ArrayList<>(segments);
+            Segment merged = writeSegment(mergeSegments());
+            segments.clear();
+            segments.add(merged);
+        }
+        saveManifest();
+        for (Segment segment : obsolete) {
+            segment.close();
+            Files.deleteIfExists(segment.file);
+        }
+
+        logAction(LOGGER, "Search index updated with " + read + " files.");
+        return read;
+    }
+
+    /**
+     * Finds the lines matching every word of a query.
+     * <p>
+     * Words are matched case-insensitively against whole words, and {@code from:name} only matches the lines sent by
+     * that player. The hits are ordered by the time their file was indexed and then by line.
+     *
+     * @param query The words to look for, separated by spaces.
+     * @param limit The maximum number of hits to return.
+     * @return The matching lines.
+     * @throws IOException If the postings cannot be read.
+     */
+    public @NotNull List<Hit> search(@NotNull String query, int limit) throws IOException {
+        List<byte[][]> terms = new ArrayList<>();
+        for (String token : queryTokens(query)) {
+            byte[][] postings = new byte[segments.size()][];
+            for (int i = 0; i < segments.size(); i++) {
+                postings[i] = segments.get(i).postings(token);
+            }
+            terms.add(postings);
+        }
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        terms.sort(Comparator.comparingLong(SearchIndex::encodedLength));
+
+        long[] matches = decode(terms.get(0));
+        for (int i = 1; i < terms.size() && matches.length > 0; i++) {
+            matches = intersect(matches, decode(terms.get(i)));
+        }
+        List<Hit> hits = new ArrayList<>(Math.min(limit, matches.length));
+        for (int i = 0; i < matches.length && hits.size() < limit; i++) {
+            hits.add(new Hit(documents.get((int) (matches[i] >>> 32)).path(), (int) matches[i]));
+        }
+        return hits;
+    }
+
+    /**
+     * Reads the text of the lines of some hits, reading each file once.
+     *
+     * @param hits The hits, as returned by {@link #search(String, int)}.
+     * @return The text of each hit, in the same order, or an empty string if the file no longer has the line.
+     * @throws IOException If a file cannot be read.
+     */
+    public static @NotNull List<String> readLines(@NotNull List<Hit> hits) throws IOException {
+        Map<Path, SortedMap<Integer, String>> byFile = new LinkedHashMap<>();
+        for (Hit hit : hits) {
+            byFile.computeIfAbsent(hit.file(), file -> new TreeMap<>()).put(hit.line(), "");
+        }
+        for (Map.Entry<Path, SortedMap<Integer, String>> entry : byFile.entrySet()) {
+            SortedMap<Integer, String> lines = entry.getValue();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    FileUtils.openLogStream(entry.getKey().toFile()), StandardCharsets.UTF_8))) {
+                int number = 0;
+                String line;
+                while (number < lines.lastKey() && (line = reader.readLine()) != null) {
+                    number++;
+                    if (lines.containsKey(number)) {
+                        lines.put(number, line);
+                    }
+                }
+            }
+        }
+        List<String> texts = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            texts.add(byFile.get(hit.file()).get(hit.line()));
+        }
+        return texts;
+    }
+
+    /**
+     * Returns the number of files in the index.
+     *
+     * @return The number of indexed files that still exist.
+     */
+    public int size() {
+        return liveDocuments.size();
+    }
+
+    /**
+     * Closes the segment files.
+     */
+    @Override
+    public void close() {
+        for (Segment segment : segments) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                logError(LOGGER, "An error occurred while closing " + segment.file, e);
+            }
+        }
+    }
+
+    /**
+     * Reads a dialogue file and adds the words of its lines to the postings of a new segment.
+     *
+     * @param file     The dialogue file.
+     * @param id       The id of the file.
+     * @param postings The postings of the new segment, by word.
+     * @throws IOException If the file cannot be read.
+     */
+    private static void indexFile(@NotNull Path file, int id, @NotNull Map<String, PostingWriter> postings)
+            throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(FileUtils.openLogStream(file.toFile()),
+                StandardCharsets.UTF_8))) {
+            int number = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                int lineNumber = number;
+                int senderEnd = ChatRecordStore.senderEnd(line);
+                if (senderEnd != -1) {
+                    postings.computeIfAbsent(SENDER_PREFIX + line.substring(1, senderEnd).toLowerCase(Locale.ROOT),
+                            token -> new PostingWriter()).add(id, lineNumber);
+                }
+                for (String token : tokens(line)) {
+                    postings.computeIfAbsent(token, key -> new PostingWriter()).add(id, lineNumber);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits a text into lower-cased words, made of letters and digits.
+     *
+     * @param text The text to split.
+     * @return The words, in order, with duplicates.
+     */
+    private static @NotNull List<String> tokens(@NotNull String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start == -1) {
+                start = i;
+            } else if (!wordChar && start != -1) {
+                if (i - start <= MAX_TOKEN_LENGTH) {
+                    tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Splits a query into the words to look up.
+     *
+     * @param query The query.
+     * @return The words, with {@code from:name} kept whole for the sender.
+     */
+    private static @NotNull List<String> queryTokens(@NotNull String query) {
+        List<String> tokens = new ArrayList<>();
+        for (String part : query.trim().split("\\s+")) {
+            if (part.regionMatches(true, 0, SENDER_PREFIX, 0, SENDER_PREFIX.length())
+                    && part.length() > SENDER_PREFIX.length()) {
+                tokens.add(part.toLowerCase(Locale.ROOT));
+            } else {
+                tokens.addAll(tokens(part));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the total encoded size of the postings of a word, used to intersect the rarest words first.
+     *
+     * @param postings The postings of the word in every segment.
+     * @return The number of encoded bytes.
+     */
+    private static long encodedLength(byte[] @NotNull [] postings) {
+        long length = 0;
+        for (byte[] segment : postings) {
+            length += segment == null ? 0 : segment.length;
+        }
+        return length;
+    }
+
+    /**
+     * Decodes the postings of a word in every segment, leaving out the deleted files.
+     *
+     * @param postings The encoded postings of the word, one array per segment, null where the word is absent.
+     * @return The postings as file id in the high and line in the low 32 bits, sorted.
+     */
+    private long @NotNull [] decode(byte[] @NotNull [] postings) {
+        long[] decoded = new long[16];
+        int count = 0;
+        for (byte[] bytes : postings) {
+            if (bytes == null) {
+                continue;
+            }
+            PostingReader reader = new PostingReader(bytes);
+            while (reader.next()) {
+                if (deleted.get(reader.document)) {
+                    continue;
+                }
+                if (count == decoded.length) {
+                    decoded = Arrays.copyOf(decoded, count * 2);
+                }
+                decoded[count++] = ((long) reader.document << 32) | reader.line;
+            }
+        }
+        return Arrays.copyOf(decoded, count);
+    }
+
+    /**
+     * Intersects two sorted posting arrays.
+     *
+     * @param a The first array.
+     * @param b The second array.
+     * @return The postings found in both arrays.
+     */
+    private static long @NotNull [] intersect(long @NotNull [] a, long @NotNull [] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Merges the postings of every segment, leaving out the deleted files.
+     *
+     * @return The merged postings, by word in order.
+     * @throws IOException If a segment cannot be read.
+     */
+    private @NotNull SortedMap<String, PostingWriter> mergeSegments() throws IOException {
+        SortedSet<String> words = new TreeSet<>();
+        for (Segment segment : segments) {
+            words.addAll(Arrays.asList(segment.words));
+        }
+        SortedMap<String, PostingWriter> merged = new TreeMap<>();
+        byte[][] postings = new byte[segments.size()][];
+        for (String word : words) {
+            for (int i = 0; i < segments.size(); i++) {
+                postings[i] = segments.get(i).postings(word);
+            }
+            long[] decoded = decode(postings);
+            if (decoded.length == 0) {
+                continue;
+            }
+            PostingWriter writer = new PostingWriter();
+            for (long posting : decoded) {
+                writer.add((int) (posting >>> 32), (int) posting);
+            }
+            merged.put(word, writer);
+        }
+        return merged;
+    }
+
+    /**
+     * Writes a new segment file and opens it.
+     *
+     * @param postings The postings of the segment, by word in order.
+     * @return The open segment.
+     * @throws IOException If the segment file cannot be written.
+     */
+    private @NotNull Segment writeSegment(@NotNull SortedMap<String, PostingWriter> postings) throws IOException {
+        int id = nextSegment++;
+        Path file = directory.resolve(segmentName(id));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeInt(VERSION);
+            long[] offsets = new long[postings.size()];
+            int i = 0;
+            for (PostingWriter writer : postings.values()) {
+                offsets[i++] = out.size();
+                out.write(writer.bytes, 0, writer.length);
+            }
+            long dictionaryOffset = out.size();
+            out.writeInt(postings.size());
+            i = 0;
+            for (Map.Entry<String, PostingWriter> entry : postings.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(offsets[i++]);
+                out.writeInt(entry.getValue().length);
+            }
+            out.writeLong(dictionaryOffset);
+        }
+        return Segment.open(file, id);
+    }
+
+    /**
+     * Writes the manifest to a temporary file and moves it in place.
+     *
+     * @throws IOException If the manifest cannot be written.
+     */
+    private void saveManifest() throws IOException {
+        Path temp = Files.createTempFile(directory, MANIFEST_NAME, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MANIFEST_MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(nextSegment);
+                out.writeInt(segments.size());
+                for (Segment segment : segments) {
+                    out.writeInt(segment.id);
+                }
+                out.writeInt(documents.size());
+                for (int id = 0; id < documents.size(); id++) {
+                    Document document = documents.get(id);
+                    out.writeUTF(document.path().toString());
+                    out.writeLong(document.size());
+                    out.writeLong(document.modified());
+                    out.writeBoolean(deleted.get(id));
+                }
+            }
+            Path manifest = directory.resolve(MANIFEST_NAME);
+            try {
+                Files.move(temp, manifest, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns the file name of a segment.
+     *
+     * @param id The id of the segment.
+     * @return The file name.
+     */
+    private static @NotNull String segmentName(int id) {
+        return SEGMENT_PREFIX + id + SEGMENT_SUFFIX;
+    }
+
+    /**
+     * An immutable segment file: the postings of the words of some files, followed by the sorted dictionary of the
+     * words with the offset and length of their postings.
+     */
+    private static final class Segment implements Closeable {
+        private final Path file;
+        private final int id;
+        private final FileChannel channel;
+        private final String[] words;
+        private final long[] offsets;
+        private final int[] lengths;
+
+        /**
+         * Creates a segment from its dictionary.
+         *
+         * @param file    The segment file.
+         * @param id      The id of the segment.
+         * @param channel The open channel of the file.
+         * @param words   The sorted words.
+         * @param offsets The offsets of the postings of the words.
+         * @param lengths The encoded lengths of the postings of the words.
+         */
+        private Segment(@NotNull Path file, int id, @NotNull FileChannel channel, String @NotNull [] words,
+                        long @NotNull [] offsets, int @NotNull [] lengths) {
+            this.file = file;
+            this.id = id;
+            this.channel = channel;
+            this.words = words;
+            this.offsets = offsets;
+            this.lengths = lengths;
+        }
+
+        /**
+         * Opens a segment file and loads its dictionary.
+         *
+         * @param file The segment file.
+         * @param id   The id of the segment.
+         * @return The segment.
+         * @throws IOException If the file cannot be read or is not a segment.
+         */
+        static @NotNull Segment open(@NotNull Path file, int id) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+                readFully(channel, header.limit(Integer.BYTES * 2), 0);
+                if (header.getInt(0) != SEGMENT_MAGIC || header.getInt(Integer.BYTES) != VERSION) {
+                    throw new IOException(file + " is not a search index segment.");
+                }
+                readFully(channel, header.clear(), channel.size() - Long.BYTES);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        Channels.newInputStream(channel.position(header.getLong(0)))));
+                int count = in.readInt();
+                String[] words = new String[count];
+                long[] offsets = new long[count];
+                int[] lengths = new int[count];
+                for (int i = 0; i < count; i++) {
+                    words[i] = in.readUTF();
+                    offsets[i] = in.readLong();
+                    lengths[i] = in.readInt();
+                }
+                return new Segment(file, id, channel, words, offsets, lengths);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Reads the encoded postings of a word.
+         *
+         * @param word The word.
+         * @return The encoded postings, or null if the segment does not hold the word.
+         * @throws IOException If the segment cannot be read.
+         */
+        byte @Nullable [] postings(@NotNull String word) throws IOException {
+            int index = Arrays.binarySearch(words, word);
+            if (index < 0) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(lengths[index]);
+            readFully(channel, buffer, offsets[index]);
+            return buffer.array();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        /**
+         * Fills a buffer from a position of a channel.
+         *
+         * @param channel  The channel to read.
+         * @param buffer   The buffer to fill up to its limit.
+         * @param position The position of the first byte to read.
+         * @throws IOException If the channel cannot be read or ends too early.
+         */
+        private static void readFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position)
+                throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException("The search index segment is truncated.");
+                }
+                position += read;
+            }
+        }
+    }
+
+    /**
+     * Encodes a posting list on the fly: each posting is written as the difference to the previous file id, then the
+     * difference to the previous line, which restarts at 0 in a new file, both as variable-length integers.
+     */
+    private static final class PostingWriter {
+        private byte[] bytes = new byte[8];
+        private int length;
+        private int lastDocument;
+        private int lastLine;
+
+        /**
+         * Adds a posting; postings must be added in order, and a repeated posting is ignored.
+         *
+         * @param document The file id.
+         * @param line     The line number.
+         */
+        void add(int document, int line) {
+            if (document == lastDocument && line == lastLine) {
+                return;
+            }
+            if (document != lastDocument) {
+                lastLine = 0;
+            }
+            writeVarint(document - lastDocument);
+            writeVarint(line - lastLine);
+            lastDocument = document;
+            lastLine = line;
+        }
+
+        /**
+         * Writes a non-negative integer seven bits at a time, low bits first.
+         *
+         * @param value The integer to write.
+         */
+        private void writeVarint(int value) {
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+
+    /**
+     * Decodes a posting list written by a {@link PostingWriter}.
+     */
+    private static final class PostingReader {
+        private final byte[] bytes;
+        private int position;
+        private int document;
+        private int line;
+
+        /**
+         * Creates a reader over encoded postings.
+         *
+         * @param bytes The encoded postings.
+         */
+        PostingReader(byte @NotNull [] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * Decodes the next posting into {@code document} and {@code line}.
+         *
+         * @return True if a posting was decoded, false at the end of the list.
+         */
+        boolean next() {
+            if (position == bytes.length) {
+                return false;
+            }
+            int documentDelta = readVarint();
+            if (documentDelta != 0) {
+                line = 0;
+            }
+            document += documentDelta;
+            line += readVarint();
+            return true;
+        }
+
+        /**
+         * Reads a non-negative integer written by {@link PostingWriter#writeVarint(int)}.
+         *
+         * @return The integer.
+         */
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
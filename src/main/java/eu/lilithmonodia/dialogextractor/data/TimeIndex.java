@@ -0,0 +1,355 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
+
+/**
+ * Maps the {@code [HH:MM:SS]} timestamps of an uncompressed log file to the byte offsets of its lines.
+ * <p>
+ * An entry is recorded for the first line of every second, in two primitive arrays, so the index stays small next to
+ * the log. Timestamps are counted in seconds from the midnight starting the log, rolling over to the next day when
+ * they jump back by more than an hour, and never decrease, so a time range is found by binary search. The index
+ * can be saved to a sidecar file next to the log and is reused as long as the log is unchanged.
+ */
+public class TimeIndex {
+    static final String SIDECAR_SUFFIX = ".tidx";
+    private static final int SIDECAR_MAGIC = 0x54494458;
+    private static final int SIDECAR_VERSION = 1;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int TIMESTAMP_LENGTH = 10;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final int ROLLOVER_THRESHOLD = 60 * 60;
+    private static final Logger LOGGER = LogManager.getLogger(TimeIndex.class);
+
+    private final long logSize;
+    private final long logModified;
+    private final long[] offsets;
+    private final int[] seconds;
+
+    /**
+     * Creates an index from its entries.
+     *
+     * @param logSize     The size of the indexed log in bytes.
+     * @param logModified The last modification time of the indexed log, in milliseconds since the epoch.
+     * @param offsets     The byte offsets of the indexed lines.
+     * @param seconds     The timestamps of the indexed lines, in the same order.
+     */
+    private TimeIndex(long logSize, long logModified, long @NotNull [] offsets, int @NotNull [] seconds) {
+        this.logSize = logSize;
+        this.logModified = logModified;
+        this.offsets = offsets;
+        this.seconds = seconds;
+    }
+
+    /**
+     * A range of bytes of a log file holding whole lines.
+     *
+     * @param start The offset of the first byte.
+     * @param end   The offset just past the last byte.
+     */
+    public record Slice(long start, long end) {
+        /**
+         * Returns the number of bytes in the slice.
+         *
+         * @return The length of the slice.
+         */
+        public long length() {
+            return end - start;
+        }
+    }
+
+    /**
+     * Returns the sidecar file of a log file.
+     *
+     * @param log The log file.
+     * @return The sidecar file, next to the log.
+     */
+    public static @NotNull Path sidecarOf(@NotNull Path log) {
+        return log.resolveSibling(log.getFileName() + SIDECAR_SUFFIX);
+    }
+
+    /**
+     * Loads the index of a log file from its sidecar file, or builds it by scanning the log if the sidecar is missing
+     * or out of date.
+     *
+     * @param log The uncompressed log file.
+     * @return The index.
+     * @throws IOException If the log cannot be read.
+     */
+    public static @NotNull TimeIndex open(@NotNull Path log) throws IOException {
+        TimeIndex index = load(log);
+        return index != null ? index : build(log);
+    }
+
+    /**
+     * Builds the index of a log file by scanning it once.
+     *
+     * @param log The uncompressed log file.
+     * @return The index.
+     * @throws IOException If the log cannot be read.
+     */
+    public static @NotNull TimeIndex build(@NotNull Path log) throws IOException {
+        logDebug(LOGGER, "Building the time index of " + log + "...");
+
+        long modified = Files.getLastModifiedTime(log).toMillis();
+        long[] offsets = new long[1024];
+        int[] seconds = new int[1024];
+        int count = 0;
+        byte[] header = new byte[TIMESTAMP_LENGTH];
+        int headerLength = 0;
+        long lineStart = 0;
+        int dayStart = 0;
+        int lastSecondOfDay = -1;
+        int lastSecond = Integer.MIN_VALUE;
+        long size;
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = 0;
+            int read;
+            while ((read = channel.read(buffer.clear(), position)) > 0) {
+                byte[] bytes = buffer.array();
+                for (int i = 0; i < read; i++) {
+                    byte b = bytes[i];
+                    if (b == '\n') {
+                        headerLength = 0;
+                        lineStart = position + i + 1;
+                        continue;
+                    }
+                    if (headerLength == TIMESTAMP_LENGTH) {
+                        continue;
+                    }
+                    header[headerLength++] = b;
+                    if (headerLength < TIMESTAMP_LENGTH) {
+                        continue;
+                    }
+                    int secondOfDay = parseTimestamp(header);
+                    if (secondOfDay < 0) {
+                        continue;
+                    }
+                    if (secondOfDay + ROLLOVER_THRESHOLD < lastSecondOfDay) {
+                        dayStart += SECONDS_PER_DAY;
+                    }
+                    lastSecondOfDay = secondOfDay;
+                    int second = Math.max(lastSecond, dayStart + secondOfDay);
+                    if (second != lastSecond) {
+                        if (count == offsets.length) {
+                            offsets = Arrays.copyOf(offsets, count * 2);
+                            seconds = Arrays.copyOf(seconds, count * 2);
+                        }
+                        offsets[count] = lineStart;
+                        seconds[count] = second;
+                        count++;
+                        lastSecond = second;
+                    }
+                }
+                position += read;
+            }
+        }
+
+        logDebug(LOGGER, "Time index built with " + count + " entries.");
+        return new TimeIndex(size, modified, Arrays.copyOf(offsets, count), Arrays.copyOf(seconds, count));
+    }
+
+    /**
+     * Loads the index of a log file from its sidecar file.
+     *
+     * @param log The log file.
+     * @return The index, or null if the sidecar is missing, unreadable or does not match the current log.
+     * @throws IOException If the log cannot be read.
+     */
+    public static @Nullable TimeIndex load(@NotNull Path log) throws IOException {
+        long size = Files.size(log);
+        long modified = Files.getLastModifiedTime(log).toMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecarOf(log))))) {
+            if (in.readInt() != SIDECAR_MAGIC || in.readInt() != SIDECAR_VERSION
+                    || in.readLong() != size || in.readLong() != modified) {
+                return null;
+            }
+            int count = in.readInt();
+            long[] offsets = new long[count];
+            int[] seconds = new int[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = in.readLong();
+            }
+            for (int i = 0; i < count; i++) {
+                seconds[i] = in.readInt();
+            }
+            return new TimeIndex(size, modified, offsets, seconds);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | NegativeArraySizeException e) {
+            logError(LOGGER, "The time index sidecar of " + log + " is unreadable and will be rebuilt.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves the index to the sidecar file of the given log file.
+     *
+     * @param log The indexed log file.
+     * @throws IOException If the sidecar file cannot be written.
+     */
+    public void save(@NotNull Path log) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(sidecarOf(log))))) {
+            out.writeInt(SIDECAR_MAGIC);
+            out.writeInt(SIDECAR_VERSION);
+            out.writeLong(logSize);
+            out.writeLong(logModified);
+            out.writeInt(offsets.length);
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+            for (int second : seconds) {
+                out.writeInt(second);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries in the index.
+     *
+     * @return The number of indexed seconds.
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Finds the lines whose timestamp lies in a range.
+     * <p>
+     * The bounds are counted in seconds from the midnight starting the log, so a time on the day after the log starts
+     * is its second of day plus one day. Lines without a timestamp belong to the previous timestamped line.
+     *
+     * @param fromSecond The first second of the range, inclusive.
+     * @param toSecond   The last second of the range, inclusive.
+     * @return The slice of the log holding the lines of the range; it is empty if no line matches.
+     */
+    public @NotNull Slice slice(int fromSecond, int toSecond) {
+        int first = firstAtOrAfter(fromSecond);
+        if (toSecond < fromSecond || first == offsets.length) {
+            return new Slice(logSize, logSize);
+        }
+        int last = firstAtOrAfter(toSecond == Integer.MAX_VALUE ? toSecond : toSecond + 1);
+        return new Slice(offsets[first], last == offsets.length ? logSize : offsets[last]);
+    }
+
+    /**
+     * Extracts the dialogue of a slice of a log file, reading only the bytes of the slice.
+     * <p>
+     * The output is written as UTF-8 like every other extraction path. The output stream is flushed but not closed.
+     *
+     * @param log     The indexed log file.
+     * @param slice   The slice to extract.
+     * @param charset The character encoding of the log.
+     * @param out     The stream receiving the extracted dialogue.
+     * @return The number of dialogue lines written.
+     * @throws IOException If the log cannot be read or the output stream fails.
+     */
+    public static long extract(@NotNull Path log, @NotNull Slice slice, @NotNull Charset charset,
+                               @NotNull OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ);
+             InputStream in = new BufferedInputStream(new SliceInputStream(channel, slice), 64 * 1024)) {
+            return new DialogueExtractor().extract(in, charset, out);
+        }
+    }
+
+    /**
+     * Finds the first entry whose timestamp is at or after a second.
+     *
+     * @param second The second to look for.
+     * @return The index of the entry, or the number of entries if every entry is earlier.
+     */
+    private int firstAtOrAfter(int second) {
+        int position = Arrays.binarySearch(seconds, second);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * Parses the {@code [HH:MM:SS]} prefix of a line.
+     *
+     * @param header The first bytes of the line.
+     * @return The second of the day, or -1 if the line does not start with a timestamp.
+     */
+    private static int parseTimestamp(byte @NotNull [] header) {
+        if (header[0] != '[' || header[3] != ':' || header[6] != ':' || header[9] != ']') {
+            return -1;
+        }
+        int hours = twoDigits(header, 1);
+        int minutes = twoDigits(header, 4);
+        int secs = twoDigits(header, 7);
+        if (hours < 0 || minutes < 0 || secs < 0) {
+            return -1;
+        }
+        return hours * 3600 + minutes * 60 + secs;
+    }
+
+    /**
+     * Parses two ASCII digits.
+     *
+     * @param bytes The bytes holding the digits.
+     * @param index The index of the first digit.
+     * @return The parsed number, or -1 if the bytes are not digits.
+     */
+    private static int twoDigits(byte @NotNull [] bytes, int index) {
+        int tens = bytes[index] - '0';
+        int units = bytes[index + 1] - '0';
+        return tens < 0 || tens > 9 || units < 0 || units > 9 ? -1 : tens * 10 + units;
+    }
+
+    /**
+     * An input stream over a slice of a file channel, reading with positional reads.
+     */
+    private static final class SliceInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        /**
+         * Creates a stream over a slice.
+         *
+         * @param channel The channel of the file; it is not closed by this stream.
+         * @param slice   The slice to read.
+         */
+        SliceInputStream(@NotNull FileChannel channel, @NotNull Slice slice) {
+            this.channel = channel;
+            this.position = slice.start();
+            this.end = slice.end();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int wanted = (int) Math.min(length, end - position);
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, wanted), position);
+            if (read == -1) {
+                return -1;
+            }
+            position += read;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,713 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import eu.lilithmonodia.dialogextractor.data.ChatLineScanner;
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import eu.lilithmonodia.dialogextractor.data.DialogueWriter;
+import eu.lilithmonodia.dialogextractor.data.FilterRules;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
+
+/**
+ * Extracts the dialogue of the logs bundled in a {@code .zip}, {@code .tar.gz} or {@code .tgz} archive, without
+ * unpacking the archive to disk.
+ * <p>
+ * The {@code .log} and {@code .log.gz} entries of the archive are streamed through the extraction, the latter being
+ * inflated on the fly; other entries are skipped. The dialogue of each entry is written to its own file, or the
+ * dialogue of all the entries is written to one combined file, in the order of the archive.
+ * <p>
+ * The entries of a zip archive can be read independently, so they are extracted on a pool of workers; the combined
+ * file then holds the dialogue of at most two entries per worker in memory while waiting for the earlier entries. A tar
+ * archive is a single compressed stream, so its entries are extracted one after the other. When the active rules
+ * drop repeated lines, the combined file is written by a single dialogue writer, so that repeats are found across
+ * entries.
+ */
+public class ArchiveExtractor {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final Logger LOGGER = LogManager.getLogger(ArchiveExtractor.class);
+
+    private final int parallelism;
+    private final Charset charset;
+
+    /**
+     * Creates an archive extractor.
+     *
+     * @param parallelism The maximum number of zip entries extracted at the same time.
+     * @param charset     The character encoding of the logs.
+     * @throws IllegalArgumentException if the parallelism is not positive.
+     */
+    public ArchiveExtractor(int parallelism, @NotNull Charset charset) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1.");
+        }
+        this.parallelism = parallelism;
+        this.charset = charset;
+    }
+
+    /**
+     * Receives the log entries of an archive.
+     */
+    @FunctionalInterface
+    public interface EntryHandler {
+        /**
+         * Handles a log entry.
+         *
+         * @param name The name of the entry in the archive.
+         * @param in   The uncompressed content of the log, valid until this call returns. Closing it has no effect.
+         * @throws IOException If handling the entry fails.
+         */
+        void handle(@NotNull String name, @NotNull InputStream in) throws IOException;
+    }
+
+    /**
+     * The dialogue extracted from one zip entry, waiting to be written to the combined file.
+     *
+     * @param dialogue The dialogue as UTF-8.
+     * @param lines    The number of dialogue lines.
+     */
+    private record EntryDialogue(byte @NotNull [] dialogue, long lines) {
+    }
+
+    /**
+     * Checks whether a file is an archive this class can read, from its name.
+     *
+     * @param file The file.
+     * @return True if the name ends with {@code .zip}, {@code .tar.gz} or {@code .tgz}.
+     */
+    public static boolean isArchive(@NotNull Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".zip") || isTar(name);
+    }
+
+    /**
+     * Reads the log entries of an archive one after the other from a stream.
+     *
+     * @param archive     The raw stream of the archive, which is not closed.
+     * @param archiveName The file name of the archive, which tells its format.
+     * @param handler     The handler receiving each log entry, in the order of the archive.
+     * @throws IOException If the archive is malformed or cannot be read, or handling an entry fails.
+     */
+    public static void readEntries(@NotNull InputStream archive, @NotNull String archiveName,
+                                   @NotNull EntryHandler handler) throws IOException {
+        if (isTar(archiveName.toLowerCase(Locale.ROOT))) {
+            readTarEntries(new GZIPInputStream(new UnclosedInputStream(archive), BUFFER_SIZE), handler);
+            return;
+        }
+        ZipInputStream zip = new ZipInputStream(new BufferedInputStream(new UnclosedInputStream(archive), BUFFER_SIZE));
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (!entry.isDirectory() && isLogEntry(entry.getName())) {
+                handleEntry(entry.getName(), new UnclosedInputStream(zip), handler);
+            }
+        }
+    }
+
+    /**
+     * Extracts the dialogue of each log entry of an archive into its own file, named after the base name of the entry.
+     * <p>
+     * A failure in one entry is recorded in its result and does not stop the other entries. So is an entry whose
+     * output file is already taken by an earlier entry of the same base name.
+     *
+     * @param archive         The archive.
+     * @param outputDirectory The directory receiving the extracted files.
+     * @param outputSuffix    The suffix appended to the base name of each entry to name its output file.
+     * @return The results, in the order of the entries in the archive. The input of a result is the path of the entry
+     * resolved against the archive, such as {@code logs.zip/2024-01-01-1.log.gz}.
+     * @throws IOException          If the archive cannot be opened or read.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    public @NotNull List<BatchExtractor.Result> extractEntries(@NotNull Path archive, @NotNull Path outputDirectory,
+                                                               @NotNull String outputSuffix)
+            throws IOException, InterruptedException {
+        return extractEntries(archive, outputDirectory, outputSuffix, new HashSet<>());
+    }
+
+    /**
+     * Extracts the dialogue of each log entry of an archive into its own file, unless another file of the batch
+     * already took its output file.
+     *
+     * @param archive         The archive.
+     * @param outputDirectory The directory receiving the extracted files.
+     * @param outputSuffix    The suffix appended to the base name of each entry to name its output file.
+     * @param claimedOutputs  The output files already taken, updated with those of the entries.
+     * @return The results, in the order of the entries in the archive.
+     * @throws IOException          If the archive cannot be opened or read.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    @NotNull List<BatchExtractor.Result> extractEntries(@NotNull Path archive, @NotNull Path outputDirectory,
+                                                        @NotNull String outputSuffix, @NotNull Set<Path> claimedOutputs)
+            throws IOException, InterruptedException {
+        logDebug(LOGGER, "Extracting the entries of " + archive + " ...");
+        List<BatchExtractor.Result> results = new ArrayList<>();
+        try (ExtractionMetrics.StageTimer timer = ExtractionMetrics.start(ExtractionMetrics.Stage.EXTRACT,
+                archive.getFileName().toString())) {
+            if (isTar(archive.getFileName().toString().toLowerCase(Locale.ROOT))) {
+                try (InputStream in = Files.newInputStream(archive)) {
+                    readEntries(in, archive.getFileName().toString(), (name, entry) -> {
+                        Path output = claim(outputDirectory, name, outputSuffix, claimedOutputs);
+                        results.add(output == null ? collision(archive, name, outputDirectory, outputSuffix)
+                                : extractEntry(archive, name, -1, entry, false, output));
+                    });
+                }
+            } else {
+                results.addAll(extractZipEntries(archive, outputDirectory, outputSuffix, claimedOutputs));
+            }
+            long bytes = Files.size(archive);
+            ExtractionMetrics.add(ExtractionMetrics.Counter.BYTES_READ, bytes);
+            timer.bytes(bytes).lines(results.stream().mapToLong(BatchExtractor.Result::lines).sum());
+        }
+        return results;
+    }
+
+    /**
+     * Extracts the dialogue of every log entry of an archive into one file, in the order of the archive.
+     * <p>
+     * The dialogue of the entries is joined with line separators, like the lines of a single log. The output is
+     * written through {@link FileUtils#openOutputStream(File)}, so an output file ending in {@code .gz} is compressed.
+     *
+     * @param archive The archive.
+     * @param outFile The file receiving the dialogue.
+     * @return The number of dialogue lines written.
+     * @throws IOException          If the archive cannot be read or the output cannot be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    public long extractCombined(@NotNull Path archive, @NotNull File outFile) throws IOException, InterruptedException {
+        logDebug(LOGGER, "Extracting the entries of " + archive + " into " + outFile + " ...");
+        String name = archive.getFileName().toString();
+        long lines;
+        try (ExtractionMetrics.StageTimer timer = ExtractionMetrics.start(ExtractionMetrics.Stage.EXTRACT, name);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(FileUtils.openOutputStream(outFile),
+                     StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            FilterRules rules = FilterRules.active();
+            if (isTar(name.toLowerCase(Locale.ROOT)) || rules.deduplicates() || parallelism == 1) {
+                DialogueWriter dialogueWriter = new DialogueWriter(writer, rules);
+                try (InputStream in = Files.newInputStream(archive)) {
+                    readEntries(in, name, (entryName, entry) -> extractInto(entry, dialogueWriter));
+                }
+                dialogueWriter.publishMetrics();
+                lines = dialogueWriter.written();
+            } else {
+                lines = combineZipEntries(archive, writer);
+            }
+            writer.flush();
+            long bytes = Files.size(archive);
+            ExtractionMetrics.add(ExtractionMetrics.Counter.BYTES_READ, bytes);
+            timer.bytes(bytes).lines(lines);
+        }
+        return lines;
+    }
+
+    /**
+     * Extracts the log entries of a zip archive into their own files on a pool of workers.
+     *
+     * @param archive         The zip archive.
+     * @param outputDirectory The directory receiving the extracted files.
+     * @param outputSuffix    The suffix of the output files.
+     * @param claimedOutputs  The output files already taken.
+     * @return The results, in the order of the entries.
+     * @throws IOException          If the archive cannot be opened.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    private @NotNull List<BatchExtractor.Result> extractZipEntries(@NotNull Path archive, @NotNull Path outputDirectory,
+                                                                   @NotNull String outputSuffix,
+                                                                   @NotNull Set<Path> claimedOutputs)
+            throws IOException, InterruptedException {
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            List<Callable<BatchExtractor.Result>> tasks = new ArrayList<>();
+            for (ZipEntry entry : logEntries(zip)) {
+                Path output = claim(outputDirectory, entry.getName(), outputSuffix, claimedOutputs);
+                tasks.add(output == null
+                        ? () -> collision(archive, entry.getName(), outputDirectory, outputSuffix)
+                        : () -> {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        return extractEntry(archive, entry.getName(), entry.getSize(), in,
+                                entry.getName().endsWith(".gz"), output);
+                    }
+                });
+            }
+            List<BatchExtractor.Result> results = new ArrayList<>(tasks.size());
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, tasks.size())));
+            try {
+                for (Future<BatchExtractor.Result> future : executor.invokeAll(tasks)) {
+                    results.add(await(future));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Extracts the log entries of a zip archive on a pool of workers and writes their dialogue in the order of the
+     * archive, keeping at most two entries per worker in flight.
+     *
+     * @param archive The zip archive.
+     * @param writer  The writer receiving the combined dialogue.
+     * @return The number of dialogue lines written.
+     * @throws IOException          If the archive cannot be read or the dialogue cannot be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    private long combineZipEntries(@NotNull Path archive, @NotNull Writer writer)
+            throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        Deque<Future<EntryDialogue>> inFlight = new ArrayDeque<>();
+        long written = 0;
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            for (ZipEntry entry : logEntries(zip)) {
+                inFlight.add(executor.submit(() -> {
+                    ByteArrayOutputStream dialogue = new ByteArrayOutputStream();
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        long lines = extract(entry.getName(), in, entry.getName().endsWith(".gz"), dialogue);
+                        return new EntryDialogue(dialogue.toByteArray(), lines);
+                    }
+                }));
+                if (inFlight.size() >= parallelism * 2) {
+                    written = append(await(inFlight.poll()), writer, written);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                written = append(await(inFlight.poll()), writer, written);
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+            executor.shutdownNow();
+        }
+        return written;
+    }
+
+    /**
+     * Writes the dialogue of an entry after the dialogue written so far.
+     *
+     * @param entry   The dialogue of the entry.
+     * @param writer  The writer receiving the combined dialogue.
+     * @param written The number of lines written so far.
+     * @return The number of lines written, including those of the entry.
+     * @throws IOException If writing fails.
+     */
+    private static long append(@NotNull EntryDialogue entry, @NotNull Writer writer, long written) throws IOException {
+        if (entry.lines() == 0) {
+            return written;
+        }
+        if (written > 0) {
+            writer.write('\n');
+        }
+        writer.write(new String(entry.dialogue(), StandardCharsets.UTF_8));
+        return written + entry.lines();
+    }
+
+    /**
+     * Extracts the dialogue of one entry into its output file.
+     *
+     * @param archive The archive.
+     * @param name    The name of the entry.
+     * @param size    The size of the entry in the archive, or -1 if it is not known before reading it.
+     * @param in         The content of the entry.
+     * @param compressed Whether the content is still GZIP-compressed.
+     * @param output     The output file.
+     * @return The result of the extraction.
+     */
+    private @NotNull BatchExtractor.Result extractEntry(@NotNull Path archive, @NotNull String name, long size,
+                                                        @NotNull InputStream in, boolean compressed,
+                                                        @NotNull Path output) {
+        CountingInputStream counted = new CountingInputStream(in);
+        try (OutputStream out = FileUtils.openOutputStream(output.toFile())) {
+            long lines = extract(name, counted, compressed, out);
+            return new BatchExtractor.Result(archive.resolve(name), output, lines, size >= 0 ? size : counted.count(),
+                    null);
+        } catch (IOException | RuntimeException e) {
+            logError(LOGGER, "An error occurred while extracting " + name + " from " + archive, e);
+            return new BatchExtractor.Result(archive.resolve(name), output, 0, 0, e);
+        }
+    }
+
+    /**
+     * Extracts the dialogue of one entry.
+     *
+     * @param name       The name of the entry.
+     * @param in         The content of the entry.
+     * @param compressed Whether the content is still GZIP-compressed.
+     * @param out        The stream receiving the dialogue as UTF-8.
+     * @return The number of dialogue lines written.
+     * @throws IOException If the entry cannot be read or inflated, or the dialogue cannot be written.
+     */
+    private long extract(@NotNull String name, @NotNull InputStream in, boolean compressed, @NotNull OutputStream out)
+            throws IOException {
+        InputStream log = compressed
+                ? ExtractionMetrics.inflating(new GZIPInputStream(in, BUFFER_SIZE), name)
+                : new BufferedInputStream(in, BUFFER_SIZE);
+        try (log) {
+            return new DialogueExtractor().extract(log, charset, out);
+        }
+    }
+
+    /**
+     * Extracts the dialogue of an uncompressed log into a dialogue writer shared by several logs.
+     *
+     * @param in             The uncompressed log.
+     * @param dialogueWriter The writer of the combined dialogue.
+     * @throws IOException If the log cannot be read or the dialogue cannot be written.
+     */
+    private void extractInto(@NotNull InputStream in, @NotNull DialogueWriter dialogueWriter) throws IOException {
+        if (ChatLineScanner.supports(charset)) {
+            new ChatLineScanner().scan(in, dialogueWriter.chatLineHandler(charset));
+            return;
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset), BUFFER_SIZE);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            dialogueWriter.writeLine(line);
+        }
+    }
+
+    /**
+     * Lists the log entries of a zip archive.
+     *
+     * @param zip The zip archive.
+     * @return The log entries, in the order of the archive.
+     */
+    private static @NotNull List<ZipEntry> logEntries(@NotNull ZipFile zip) {
+        return zip.stream().filter(entry -> !entry.isDirectory() && isLogEntry(entry.getName()))
+                .map(ZipEntry.class::cast).toList();
+    }
+
+    /**
+     * Chooses the output file of an entry, unless an earlier entry took it.
+     *
+     * @param outputDirectory The directory receiving the extracted files.
+     * @param name            The name of the entry.
+     * @param outputSuffix    The suffix of the output files.
+     * @param claimedOutputs  The output files already taken, updated with the chosen one.
+     * @return The output file, or null if it is already taken.
+     */
+    private static @Nullable Path claim(@NotNull Path outputDirectory, @NotNull String name,
+                                        @NotNull String outputSuffix, @NotNull Set<Path> claimedOutputs) {
+        Path output = outputFile(outputDirectory, name, outputSuffix);
+        return claimedOutputs.add(output) ? output : null;
+    }
+
+    /**
+     * Creates the result of an entry whose output file is taken by an earlier entry.
+     *
+     * @param archive         The archive.
+     * @param name            The name of the entry.
+     * @param outputDirectory The directory receiving the extracted files.
+     * @param outputSuffix    The suffix of the output files.
+     * @return The failed result.
+     */
+    private static @NotNull BatchExtractor.Result collision(@NotNull Path archive, @NotNull String name,
+                                                            @NotNull Path outputDirectory,
+                                                            @NotNull String outputSuffix) {
+        Path output = outputFile(outputDirectory, name, outputSuffix);
+        return new BatchExtractor.Result(archive.resolve(name), null, 0, 0,
+                new FileAlreadyExistsException(output.toString(), null, "Output name collides"));
+    }
+
+    /**
+     * Names the output file of an entry after the base name of its file name.
+     *
+     * @param outputDirectory The directory receiving the extracted files.
+     * @param name            The name of the entry, possibly with directories.
+     * @param outputSuffix    The suffix of the output files.
+     * @return The output file.
+     */
+    private static @NotNull Path outputFile(@NotNull Path outputDirectory, @NotNull String name,
+                                            @NotNull String outputSuffix) {
+        return outputDirectory.resolve(FileUtils.getBaseName(new File(fileName(name))) + outputSuffix);
+    }
+
+    /**
+     * Checks whether an archive name is that of a GZIP-compressed tar archive.
+     *
+     * @param name The lower-case file name of the archive.
+     * @return True if it ends with {@code .tar.gz} or {@code .tgz}.
+     */
+    private static boolean isTar(@NotNull String name) {
+        return name.endsWith(".tar.gz") || name.endsWith(".tgz");
+    }
+
+    /**
+     * Checks whether an entry holds a log to extract.
+     *
+     * @param name The name of the entry.
+     * @return True if its file name ends with {@code .log} or {@code .log.gz} and it is not an extracted file.
+     */
+    private static boolean isLogEntry(@NotNull String name) {
+        String fileName = fileName(name);
+        return (fileName.endsWith(".log") || fileName.endsWith(".log.gz"))
+                && !fileName.endsWith(FileUtils.EXTRACTED_FILE_SUFFIX);
+    }
+
+    /**
+     * Returns the file name of an entry, without its directories.
+     *
+     * @param name The name of the entry.
+     * @return The part of the name after the last slash.
+     */
+    private static @NotNull String fileName(@NotNull String name) {
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Hands a log entry to a handler, inflating it if its name ends with {@code .gz}.
+     *
+     * @param name    The name of the entry.
+     * @param in      The content of the entry, which the handler cannot close.
+     * @param handler The handler.
+     * @throws IOException If the entry cannot be inflated or handling it fails.
+     */
+    private static void handleEntry(@NotNull String name, @NotNull InputStream in, @NotNull EntryHandler handler)
+            throws IOException {
+        if (name.endsWith(".gz")) {
+            handler.handle(name, new UnclosedInputStream(ExtractionMetrics.inflating(new GZIPInputStream(in,
+                    BUFFER_SIZE), name)));
+        } else {
+            handler.handle(name, in);
+        }
+    }
+
+    /**
+     * Reads the log entries of an uncompressed tar stream.
+     * <p>
+     * Plain, ustar and GNU headers are read, with GNU long names and the {@code path} record of pax headers. Entries
+     * other than regular files are skipped.
+     *
+     * @param tar     The uncompressed tar stream.
+     * @param handler The handler receiving each log entry.
+     * @throws IOException If the stream is not a valid tar archive or cannot be read, or handling an entry fails.
+     */
+    private static void readTarEntries(@NotNull InputStream tar, @NotNull EntryHandler handler) throws IOException {
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        String longName = null;
+        while (tar.readNBytes(header, 0, TAR_BLOCK_SIZE) == TAR_BLOCK_SIZE && !isZeroBlock(header)) {
+            long size = tarSize(header);
+            byte type = header[156];
+            String name = longName != null ? longName : tarName(header);
+            longName = null;
+            TarEntryInputStream entry = new TarEntryInputStream(tar, size);
+            if (type == 'L') {
+                longName = cString(entry.readAllBytes(), 0, (int) size);
+            } else if (type == 'x') {
+                longName = paxPath(new String(entry.readAllBytes(), StandardCharsets.UTF_8));
+            } else if ((type == '0' || type == 0) && isLogEntry(name)) {
+                handleEntry(name, entry, handler);
+            }
+            entry.skipRest();
+            tar.skipNBytes((TAR_BLOCK_SIZE - size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE);
+        }
+    }
+
+    /**
+     * Checks whether a tar block only holds zeros, as the blocks ending an archive do.
+     *
+     * @param block The block.
+     * @return True if every byte is zero.
+     */
+    private static boolean isZeroBlock(byte @NotNull [] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the name of a tar entry, joining the ustar prefix and name fields.
+     *
+     * @param header The header block of the entry.
+     * @return The name of the entry.
+     */
+    private static @NotNull String tarName(byte @NotNull [] header) {
+        String name = cString(header, 0, 100);
+        boolean ustar = header[257] == 'u' && header[258] == 's' && header[259] == 't' && header[260] == 'a'
+                && header[261] == 'r';
+        String prefix = ustar ? cString(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    /**
+     * Reads the size of a tar entry, written in octal or, for large entries, in GNU base-256.
+     *
+     * @param header The header block of the entry.
+     * @return The size of the entry in bytes.
+     * @throws IOException If the size field is malformed.
+     */
+    private static long tarSize(byte @NotNull [] header) throws IOException {
+        if ((header[124] & 0x80) != 0) {
+            long size = 0;
+            for (int i = 125; i < 136; i++) {
+                size = (size << 8) | (header[i] & 0xFF);
+            }
+            return size;
+        }
+        String octal = cString(header, 124, 12).strip();
+        try {
+            return octal.isEmpty() ? 0 : Long.parseLong(octal, 8);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed tar entry size: " + octal, e);
+        }
+    }
+
+    /**
+     * Finds the {@code path} record of a pax extended header.
+     *
+     * @param records The records of the header, each written as {@code <length> <key>=<value>\n}.
+     * @return The path, or null if the header does not set it.
+     */
+    private static @Nullable String paxPath(@NotNull String records) {
+        for (String record : records.split("\n")) {
+            int space = record.indexOf(' ');
+            if (space >= 0 && record.startsWith("path=", space + 1)) {
+                return record.substring(space + 1 + "path=".length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a NUL-terminated string from a field of a tar header.
+     *
+     * @param bytes  The bytes holding the field.
+     * @param offset The offset of the field.
+     * @param length The length of the field.
+     * @return The characters of the field up to its first NUL byte.
+     */
+    private static @NotNull String cString(byte @NotNull [] bytes, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Waits for a worker task and unwraps its failure.
+     *
+     * @param future The task.
+     * @param <T>    The type of the result of the task.
+     * @return The result of the task.
+     * @throws IOException          If the task failed with an I/O error.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    private static <T> T await(@NotNull Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("An archive task failed unexpectedly.", e.getCause());
+        }
+    }
+
+    /**
+     * A stream that leaves the stream it reads from open when it is closed.
+     */
+    private static final class UnclosedInputStream extends FilterInputStream {
+        /**
+         * Creates a stream over another one.
+         *
+         * @param in The stream to read from.
+         */
+        private UnclosedInputStream(@NotNull InputStream in) {
+            super(in);
+        }
+
+        /**
+         * Leaves the underlying stream open.
+         */
+        @Override
+        public void close() {
+            // The underlying stream belongs to the caller.
+        }
+    }
+
+    /**
+     * A stream over the data of one tar entry, which ends with the entry and leaves the tar stream open.
+     */
+    private static final class TarEntryInputStream extends FilterInputStream {
+        private long remaining;
+
+        /**
+         * Creates a stream over the data of an entry.
+         *
+         * @param tar  The tar stream, positioned at the data of the entry.
+         * @param size The size of the entry.
+         */
+        private TarEntryInputStream(@NotNull InputStream tar, long size) {
+            super(tar);
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException("The tar archive ends in the middle of an entry.");
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            if (remaining == 0) {
+                return length == 0 ? 0 : -1;
+            }
+            int read = in.read(bytes, offset, (int) Math.min(length, remaining));
+            if (read == -1) {
+                throw new EOFException("The tar archive ends in the middle of an entry.");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        /**
+         * Skips the data of the entry that was not read.
+         *
+         * @throws IOException If the tar stream ends too early.
+         */
+        private void skipRest() throws IOException {
+            in.skipNBytes(remaining);
+            remaining = 0;
+        }
+
+        /**
+         * Leaves the tar stream open.
+         */
+        @Override
+        public void close() {
+            // The tar stream is read further for the next entries.
+        }
+    }
+}
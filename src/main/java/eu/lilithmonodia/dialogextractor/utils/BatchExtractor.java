@@ -0,0 +1,307 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logAction;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
+
+/**
+ * Extracts the dialogue of many log files at the same time on a bounded worker pool.
+ * <p>
+ * Every input file is streamed through {@link FileUtils#extractToFile(File, Charset, File)} into its own output file,
+ * so memory use depends on the number of workers and not on the size or number of the logs. With an
+ * {@link ExtractionCache}, logs extracted before are copied from the cache instead.
+ * <p>
+ * Archives are read in place by an {@link ArchiveExtractor} once the plain log files are done, each with the whole
+ * pool of workers. The entries of an archive are written to their own files, or to one file named after the archive.
+ */
+public class BatchExtractor {
+    private static final Logger LOGGER = LogManager.getLogger(BatchExtractor.class);
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private final int parallelism;
+    private final Charset charset;
+    private final Path outputDirectory;
+    private final String outputSuffix;
+    private final @Nullable ExtractionCache cache;
+    private final boolean combineArchives;
+
+    /**
+     * Creates a batch extractor.
+     *
+     * @param parallelism     The maximum number of files extracted at the same time.
+     * @param charset         The character encoding of the log files.
+     * @param outputDirectory The directory receiving the extracted files.
+     * @param outputSuffix    The suffix appended to the base name of each log file to name its output file.
+     * @throws IllegalArgumentException if the parallelism is not positive.
+     */
+    public BatchExtractor(int parallelism, @NotNull Charset charset, @NotNull Path outputDirectory,
+                          @NotNull String outputSuffix) {
+        this(parallelism, charset, outputDirectory, outputSuffix, null);
+    }
+
+    /**
+     * Creates a batch extractor reusing the results of an extraction cache.
+     *
+     * @param parallelism     The maximum number of files extracted at the same time.
+     * @param charset         The character encoding of the log files.
+     * @param outputDirectory The directory receiving the extracted files.
+     * @param outputSuffix    The suffix appended to the base name of each log file to name its output file.
+     * @param cache           The cache of extraction results, or null to always extract.
+     * @throws IllegalArgumentException if the parallelism is not positive.
+     */
+    public BatchExtractor(int parallelism, @NotNull Charset charset, @NotNull Path outputDirectory,
+                          @NotNull String outputSuffix, @Nullable ExtractionCache cache) {
+        this(parallelism, charset, outputDirectory, outputSuffix, cache, false);
+    }
+
+    /**
+     * Creates a batch extractor reusing the results of an extraction cache and choosing how archives are written.
+     *
+     * @param parallelism     The maximum number of files extracted at the same time.
+     * @param charset         The character encoding of the log files.
+     * @param outputDirectory The directory receiving the extracted files.
+     * @param outputSuffix    The suffix appended to the base name of each log file to name its output file.
+     * @param cache           The cache of extraction results, or null to always extract.
+     * @param combineArchives True to write the logs of an archive to one file, false to write one file per log.
+     * @throws IllegalArgumentException if the parallelism is not positive.
+     */
+    public BatchExtractor(int parallelism, @NotNull Charset charset, @NotNull Path outputDirectory,
+                          @NotNull String outputSuffix, @Nullable ExtractionCache cache, boolean combineArchives) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1.");
+        }
+        this.parallelism = parallelism;
+        this.charset = charset;
+        this.outputDirectory = outputDirectory;
+        this.outputSuffix = outputSuffix;
+        this.cache = cache;
+        this.combineArchives = combineArchives;
+    }
+
+    /**
+     * The outcome of extracting a single log file.
+     *
+     * @param input  The log file, or the log inside an archive resolved against the archive.
+     * @param output The file the dialogue was written to, or null if the extraction failed before choosing it.
+     * @param lines  The number of dialogue lines written.
+     * @param bytes  The size of the log file in bytes.
+     * @param error  The error that made the extraction fail, or null if it succeeded.
+     */
+    public record Result(@NotNull Path input, @Nullable Path output, long lines, long bytes, @Nullable Exception error) {
+        /**
+         * Checks whether the extraction succeeded.
+         *
+         * @return True if no error occurred.
+         */
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Resolves command-line arguments into the list of log files to extract.
+     * <p>
+     * An argument can be a log file or archive, a directory such as {@code .minecraft/logs} whose {@code .log},
+     * {@code .log.gz}, {@code .zip}, {@code .tar.gz} and {@code .tgz} files are taken, or a glob such as
+     * {@code logs/*.log.gz}. Files that already carry the output suffix are skipped, so re-running a batch on its own
+     * output directory does not extract the extracted files.
+     *
+     * @param arguments The files, directories or globs to resolve.
+     * @return The log files, sorted and without duplicates.
+     * @throws IOException If a directory cannot be listed.
+     */
+    public @NotNull List<Path> collectInputs(@NotNull List<String> arguments) throws IOException {
+        SortedSet<Path> inputs = new TreeSet<>();
+        for (String argument : arguments) {
+            if (isGlob(argument)) {
+                inputs.addAll(matchGlob(argument));
+                continue;
+            }
+            Path path = Path.of(argument);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    files.filter(this::isLogFile).forEach(inputs::add);
+                }
+            } else {
+                inputs.add(path);
+            }
+        }
+        return new ArrayList<>(inputs);
+    }
+
+    /**
+     * Extracts the dialogue of every given file on a pool of {@code parallelism} workers.
+     * <p>
+     * A failure in one file is recorded in its result and does not stop the other files. An archive gives one result
+     * per log it holds, or a single result when its logs are combined.
+     *
+     * @param inputs The log files and archives to extract.
+     * @return The results, in the order of the inputs.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the workers.
+     */
+    public @NotNull List<Result> extractAll(@NotNull List<Path> inputs) throws InterruptedException {
+        logAction(LOGGER, "Batch extraction of " + inputs.size() + " files started...");
+
+        Map<Path, Path> claimedOutputs = new HashMap<>();
+        List<Callable<Result>> tasks = new ArrayList<>(inputs.size());
+        List<Path> archives = new ArrayList<>();
+        for (Path input : inputs) {
+            if (ArchiveExtractor.isArchive(input)) {
+                archives.add(input);
+                continue;
+            }
+            Path output = outputDirectory.resolve(FileUtils.getBaseName(input.toFile()) + outputSuffix);
+            Path previous = claimedOutputs.putIfAbsent(output, input);
+            tasks.add(previous == null
+                    ? () -> extract(input, output)
+                    : () -> new Result(input, null, 0, 0,
+                    new FileAlreadyExistsException(output.toString(), previous.toString(), "Output name collides")));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, tasks.size())));
+        List<Result> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<Result> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A batch task failed unexpectedly.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<Path, List<Result>> archiveResults = new HashMap<>();
+        Set<Path> claimedByArchives = new HashSet<>(claimedOutputs.keySet());
+        for (Path archive : archives) {
+            archiveResults.put(archive, extractArchive(archive, claimedByArchives));
+        }
+        if (!archives.isEmpty()) {
+            Iterator<Result> plainResults = new ArrayList<>(results).iterator();
+            results.clear();
+            for (Path input : inputs) {
+                List<Result> archiveResult = archiveResults.get(input);
+                if (archiveResult != null) {
+                    results.addAll(archiveResult);
+                } else {
+                    results.add(plainResults.next());
+                }
+            }
+        }
+
+        logAction(LOGGER, "Batch extraction finished successfully.");
+        return results;
+    }
+
+    /**
+     * Extracts a single log file into its output file.
+     *
+     * @param input  The log file.
+     * @param output The output file.
+     * @return The result of the extraction.
+     */
+    private @NotNull Result extract(@NotNull Path input, @NotNull Path output) {
+        try {
+            long bytes = Files.size(input);
+            long lines = cache != null
+                    ? cache.extractToFile(input.toFile(), charset, output.toFile())
+                    : FileUtils.extractToFile(input.toFile(), charset, output.toFile());
+            return new Result(input, output, lines, bytes, null);
+        } catch (IOException | RuntimeException e) {
+            logError(LOGGER, "An error occurred while extracting " + input, e);
+            return new Result(input, output, 0, 0, e);
+        }
+    }
+
+    /**
+     * Extracts the logs of an archive, into one file per log or into one combined file.
+     *
+     * @param archive        The archive.
+     * @param claimedOutputs The output files already taken, updated with those of the archive.
+     * @return The results of the archive, or a single failed result if it cannot be read.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the workers.
+     */
+    private @NotNull List<Result> extractArchive(@NotNull Path archive, @NotNull Set<Path> claimedOutputs)
+            throws InterruptedException {
+        ArchiveExtractor archiveExtractor = new ArchiveExtractor(parallelism, charset);
+        Path output = combineArchives
+                ? outputDirectory.resolve(FileUtils.getBaseName(archive.toFile()) + outputSuffix) : null;
+        try {
+            if (output == null) {
+                return archiveExtractor.extractEntries(archive, outputDirectory, outputSuffix, claimedOutputs);
+            }
+            if (!claimedOutputs.add(output)) {
+                return List.of(new Result(archive, null, 0, 0,
+                        new FileAlreadyExistsException(output.toString(), null, "Output name collides")));
+            }
+            long lines = archiveExtractor.extractCombined(archive, output.toFile());
+            return List.of(new Result(archive, output, lines, Files.size(archive), null));
+        } catch (IOException | RuntimeException e) {
+            logError(LOGGER, "An error occurred while extracting " + archive, e);
+            return List.of(new Result(archive, output, 0, 0, e));
+        }
+    }
+
+    /**
+     * Checks whether a path names a log file or archive that should be extracted from a directory.
+     *
+     * @param path The path to check.
+     * @return True if the path is a regular {@code .log}, {@code .log.gz} or archive file that is not an output file.
+     */
+    private boolean isLogFile(@NotNull Path path) {
+        String name = path.getFileName().toString();
+        return Files.isRegularFile(path)
+                && (name.endsWith(".log") || name.endsWith(".log.gz") || ArchiveExtractor.isArchive(path))
+                && !name.endsWith(outputSuffix);
+    }
+
+    /**
+     * Checks whether an argument is a glob pattern.
+     *
+     * @param argument The argument to check.
+     * @return True if the argument contains a glob character.
+     */
+    private static boolean isGlob(@NotNull String argument) {
+        return argument.chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0);
+    }
+
+    /**
+     * Lists the log files matching a glob pattern.
+     * <p>
+     * The search starts in the deepest directory of the pattern that contains no glob character and only descends
+     * further than the pattern's depth if it contains {@code **}.
+     *
+     * @param glob The glob pattern.
+     * @return The matching log files.
+     * @throws IOException If a directory cannot be walked.
+     */
+    private @NotNull List<Path> matchGlob(@NotNull String glob) throws IOException {
+        String separator = FileSystems.getDefault().getSeparator();
+        int firstGlobCharacter = 0;
+        while (GLOB_CHARACTERS.indexOf(glob.charAt(firstGlobCharacter)) < 0) {
+            firstGlobCharacter++;
+        }
+        int baseEnd = Math.max(glob.lastIndexOf('/', firstGlobCharacter), glob.lastIndexOf(separator, firstGlobCharacter));
+        Path base = baseEnd < 0 ? Path.of("") : Path.of(glob.substring(0, baseEnd + 1));
+        String remainder = glob.substring(baseEnd + 1);
+        int depth = remainder.contains("**") ? Integer.MAX_VALUE : remainder.split("[/\\\\]").length;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        if (!Files.isDirectory(base.toAbsolutePath())) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(base, depth)) {
+            return files.filter(path -> matcher.matches(path) && isLogFile(path)).toList();
+        }
+    }
+}
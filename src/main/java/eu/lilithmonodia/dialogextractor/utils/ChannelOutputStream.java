@@ -0,0 +1,117 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An output stream writing to a file channel through a large direct buffer.
+ * <p>
+ * Bytes are gathered off-heap and handed to the channel in large writes, so streaming many short lines costs few
+ * system calls and no intermediate heap copies of the whole output.
+ */
+public class ChannelOutputStream extends OutputStream {
+    static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private boolean closed;
+
+    /**
+     * Creates a stream over an open channel.
+     *
+     * @param channel The channel receiving the bytes; it is closed with the stream.
+     */
+    public ChannelOutputStream(@NotNull FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Creates or truncates a file and opens a stream over it.
+     *
+     * @param file The file to write.
+     * @return The stream over the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static @NotNull ChannelOutputStream create(@NotNull Path file) throws IOException {
+        return new ChannelOutputStream(FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+        if (length >= BUFFER_SIZE) {
+            drain();
+            writeFully(ByteBuffer.wrap(bytes, offset, length));
+            return;
+        }
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int copied = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, copied);
+            offset += copied;
+            length -= copied;
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     *
+     * @throws IOException If the channel fails.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel and empties the buffer.
+     *
+     * @throws IOException If the channel fails.
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Writes all the remaining bytes of a buffer to the channel.
+     *
+     * @param bytes The bytes to write.
+     * @throws IOException If the channel fails.
+     */
+    private void writeFully(@NotNull ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream counting the bytes read or skipped through it.
+ * <p>
+ * Mark and reset are not supported, since bytes read again after a reset would be counted twice. Wrap the counting
+ * stream in a buffered one to peek at its content.
+ */
+public class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    /**
+     * Creates a stream over another one.
+     *
+     * @param in The stream to read from; it is closed with this stream.
+     */
+    public CountingInputStream(@NotNull InputStream in) {
+        super(in);
+    }
+
+    /**
+     * Returns the number of bytes read or skipped so far.
+     *
+     * @return The number of bytes.
+     */
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+        int read = in.read(bytes, offset, length);
+        if (read > 0) {
+            count += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        if (skipped > 0) {
+            count += skipped;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        // Not supported, see markSupported().
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
@@ -0,0 +1,334 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import eu.lilithmonodia.dialogextractor.data.FilterRules;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
+
+/**
+ * Keeps the extracted dialogue of log files on disk, so that re-opening an unchanged log skips its decompression and
+ * extraction.
+ * <p>
+ * An entry is keyed by the size, modification time and a fast hash of the raw log file, the charset it is decoded
+ * with, the fingerprint of the active {@link FilterRules} and {@link DialogueExtractor#FORMAT_VERSION}. The hash covers the first and last blocks of the file, which
+ * catches rewritten logs without reading them whole. An entry is stored as {@code <key>.<lines>.log}, so a hit knows
+ * the number of dialogue lines without reading the entry, which an empty entry could not tell anyway: it holds either
+ * no line or one empty line. Entries are touched on every hit, and once the cache grows past its size limit the least
+ * recently used entries are deleted.
+ */
+public class ExtractionCache {
+    static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+    private static final String ENTRY_SUFFIX = ".log";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int SAMPLE_SIZE = 64 * 1024;
+    private static final Logger LOGGER = LogManager.getLogger(ExtractionCache.class);
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * Creates a cache.
+     *
+     * @param directory The directory holding the entries; it is created on the first store.
+     * @param maxBytes  The size the entries are trimmed to after each store.
+     * @throws IllegalArgumentException if the size limit is negative.
+     */
+    public ExtractionCache(@NotNull Path directory, long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("The cache size limit cannot be negative.");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * A cache entry as found on disk.
+     *
+     * @param path     The file of the entry.
+     * @param size     The size of the entry in bytes.
+     * @param lastUsed The last time the entry was stored or hit.
+     */
+    private record Entry(@NotNull Path path, long size, @NotNull FileTime lastUsed) {
+    }
+
+    /**
+     * Creates a cache in the default directory with the given size limit.
+     *
+     * @param maxBytes The size the entries are trimmed to after each store.
+     * @return The cache.
+     */
+    public static @NotNull ExtractionCache inDefaultDirectory(long maxBytes) {
+        return new ExtractionCache(Path.of(System.getProperty("user.home"), ".dialog-extractor", "cache"), maxBytes);
+    }
+
+    /**
+     * Creates a cache in the default directory with the default size limit of 512 MB.
+     *
+     * @return The cache.
+     */
+    public static @NotNull ExtractionCache defaultCache() {
+        return inDefaultDirectory(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Computes the key of a log file decoded with a charset and filtered with the active rules.
+     *
+     * @param log     The raw log file, compressed or not.
+     * @param charset The character encoding of the log.
+     * @return The key of the extracted dialogue, usable as a file name.
+     * @throws IOException If the log cannot be read.
+     */
+    public @NotNull String key(@NotNull Path log, @NotNull Charset charset) throws IOException {
+        CRC32C hash = new CRC32C();
+        long size;
+        long modified;
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            size = channel.size();
+            modified = Files.getLastModifiedTime(log).toMillis();
+            ByteBuffer sample = ByteBuffer.allocate(SAMPLE_SIZE);
+            hashBlock(channel, 0, sample, hash);
+            if (size > SAMPLE_SIZE) {
+                hashBlock(channel, Math.max(SAMPLE_SIZE, size - SAMPLE_SIZE), sample, hash);
+            }
+        }
+        String charsetName = charset.name().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9._-]", "_");
+        return String.format("%x-%x-%08x-%s-%s-v%d", size, modified, hash.getValue(), charsetName,
+                FilterRules.active().fingerprint(), DialogueExtractor.FORMAT_VERSION);
+    }
+
+    /**
+     * Looks an entry up and marks it as recently used.
+     *
+     * @param key The key of the entry.
+     * @return The file holding the extracted dialogue as UTF-8, or null on a miss.
+     */
+    public @Nullable Path lookup(@NotNull String key) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, path -> linesOf(path, key) >= 0)) {
+            for (Path entry : entries) {
+                Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+                return entry;
+            }
+            return null;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logError(LOGGER, "An error occurred while reading the cache entry " + key, e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the number of dialogue lines of an entry from its file name.
+     *
+     * @param entry The file of the entry.
+     * @param key   The key the entry should have.
+     * @return The number of lines, or -1 if the file is not an entry with that key.
+     */
+    private static long linesOf(@NotNull Path entry, @NotNull String key) {
+        String name = entry.getFileName().toString();
+        int start = key.length() + 1;
+        int end = name.length() - ENTRY_SUFFIX.length();
+        if (end <= start || !name.startsWith(key) || name.charAt(key.length()) != '.'
+                || !name.endsWith(ENTRY_SUFFIX)) {
+            return -1;
+        }
+        long lines = 0;
+        for (int i = start; i < end; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9' || lines > (Long.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            lines = lines * 10 + (c - '0');
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the file of an entry.
+     *
+     * @param key   The key of the entry.
+     * @param lines The number of dialogue lines of the entry.
+     * @return The file of the entry in the cache directory.
+     */
+    private @NotNull Path entryFile(@NotNull String key, long lines) {
+        return directory.resolve(key + '.' + lines + ENTRY_SUFFIX);
+    }
+
+    /**
+     * Copies extracted dialogue into the cache and evicts the least recently used entries over the size limit.
+     * <p>
+     * The entry is written to a temporary file first and moved in place, so concurrent readers never see a partial
+     * entry.
+     *
+     * @param key       The key of the entry.
+     * @param extracted The file holding the extracted dialogue as UTF-8; it is left in place.
+     * @param lines     The number of dialogue lines written to the file by the extraction.
+     * @throws IOException If the entry cannot be written.
+     */
+    public void store(@NotNull String key, @NotNull Path extracted, long lines) throws IOException {
+        Files.createDirectories(directory);
+        Path entry = entryFile(key, lines);
+        Path temp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+        try {
+            Files.copy(extracted, temp, StandardCopyOption.REPLACE_EXISTING);
+            moveIntoPlace(temp, entry);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        evict();
+    }
+
+    /**
+     * Moves a complete temporary file of the cache directory onto an entry, atomically where the file system allows.
+     *
+     * @param temp  The temporary file.
+     * @param entry The file of the entry.
+     * @throws IOException If the file cannot be moved.
+     */
+    private static void moveIntoPlace(@NotNull Path temp, @NotNull Path entry) throws IOException {
+        try {
+            Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Extracts the dialogue of a log file into an output file, reusing and filling the cache.
+     * <p>
+     * On a hit, the cached dialogue is copied to the output file and the log is not read beyond its hashed blocks. On a
+     * miss, the log is extracted into a temporary file of the cache directory, copied to the output file, and moved in
+     * place as the new entry, so the dialogue is written twice. If the cache directory cannot be written, the log is
+     * extracted straight to the output file. Like {@link FileUtils#extractToFile(File, Charset, File)}, an output file
+     * ending in {@code .gz} is compressed.
+     *
+     * @param file    The log file to extract.
+     * @param charset The character encoding of the log file.
+     * @param outFile The file receiving the extracted dialogue.
+     * @return The number of dialogue lines written.
+     * @throws IOException If the log cannot be read or the output file cannot be written.
+     */
+    public long extractToFile(@NotNull File file, @NotNull Charset charset, @NotNull File outFile) throws IOException {
+        String key = key(file.toPath(), charset);
+        Path entry = lookup(key);
+        if (entry != null) {
+            logDebug(LOGGER, "Cache hit for " + file);
+            copyDialogue(entry, outFile);
+            return linesOf(entry, key);
+        }
+        Path extracted;
+        try {
+            Files.createDirectories(directory);
+            extracted = Files.createTempFile(directory, key, TEMP_SUFFIX);
+        } catch (IOException e) {
+            logError(LOGGER, "An error occurred while opening the cache, extracting " + file + " without it.", e);
+            return FileUtils.extractToFile(file, charset, outFile);
+        }
+        try {
+            long lines = FileUtils.extractToFile(file, charset, extracted.toFile());
+            copyDialogue(extracted, outFile);
+            try {
+                moveIntoPlace(extracted, entryFile(key, lines));
+                evict();
+            } catch (IOException e) {
+                logError(LOGGER, "An error occurred while storing " + file + " in the cache.", e);
+            }
+            return lines;
+        } finally {
+            Files.deleteIfExists(extracted);
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits its size limit.
+     *
+     * @throws IOException If the cache directory cannot be listed.
+     */
+    synchronized void evict() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                if (!path.getFileName().toString().endsWith(ENTRY_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    entries.add(new Entry(path, attributes.size(), attributes.lastModifiedTime()));
+                    total += attributes.size();
+                } catch (NoSuchFileException e) {
+                    // Evicted by another process in the meantime.
+                }
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        entries.sort(Comparator.comparing(Entry::lastUsed));
+        for (Entry entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(entry.path());
+                total -= entry.size();
+            } catch (IOException e) {
+                logError(LOGGER, "An error occurred while evicting the cache entry " + entry.path(), e);
+            }
+        }
+    }
+
+    /**
+     * Hashes one block of a file.
+     *
+     * @param channel  The channel of the file.
+     * @param position The offset of the block.
+     * @param sample   The buffer receiving the block.
+     * @param hash     The hash to update.
+     * @throws IOException If the file cannot be read.
+     */
+    private static void hashBlock(@NotNull FileChannel channel, long position, @NotNull ByteBuffer sample,
+                                  @NotNull CRC32C hash) throws IOException {
+        sample.clear();
+        int read;
+        while (sample.hasRemaining() && (read = channel.read(sample, position)) > 0) {
+            position += read;
+        }
+        hash.update(sample.flip());
+    }
+
+    /**
+     * Copies extracted dialogue to an output file.
+     *
+     * @param dialogue The file holding the extracted dialogue.
+     * @param outFile  The file to write, compressed if its name ends with {@code .gz}.
+     * @throws IOException If the dialogue cannot be read or the output file cannot be written.
+     */
+    private static void copyDialogue(@NotNull Path dialogue, @NotNull File outFile) throws IOException {
+        try (OutputStream out = FileUtils.openOutputStream(outFile)) {
+            Files.copy(dialogue, out);
+        }
+    }
+}
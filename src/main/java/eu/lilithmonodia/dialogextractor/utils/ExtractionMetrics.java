@@ -0,0 +1,417 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the time spent in each stage of the work on logs and the amount of data going through it, for the whole
+ * process.
+ * <p>
+ * A stage is timed by a {@link StageTimer}, which adds its duration to the totals of the stage and commits a
+ * {@link StageEvent} to JDK Flight Recorder when a recording is running, e.g. with
+ * {@code -XX:StartFlightRecording}. The totals are updated once per stage run or per stream, never per line, so they
+ * cost nothing noticeable when nobody reads them. Stages may nest: inflating a GZIP-compressed log happens while its
+ * dialogue is extracted, so the time of the {@link Stage#DECOMPRESS} stage is also part of {@link Stage#EXTRACT}.
+ * <p>
+ * The ExtractionMetrics class is not meant to be instantiated or extended, as it contains only static methods.
+ */
+public final class ExtractionMetrics {
+    private static final LongAdder[] RUNS = adders(Stage.values().length);
+    private static final LongAdder[] NANOS = adders(Stage.values().length);
+    private static final LongAdder[] COUNTS = adders(Counter.values().length);
+
+    /**
+     * The ExtractionMetrics class is not meant to be instantiated or extended, as it contains only static methods.
+     */
+    private ExtractionMetrics() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * A stage of the work on a log.
+     */
+    public enum Stage {
+        /**
+         * Opening a log and indexing its lines for display.
+         */
+        OPEN("open"),
+        /**
+         * Inflating a GZIP-compressed log.
+         */
+        DECOMPRESS("decompress"),
+        /**
+         * Extracting the dialogue of a log, writing it as it is found.
+         */
+        EXTRACT("extract"),
+        /**
+         * Saving a dialogue to a file.
+         */
+        WRITE("write");
+
+        private final String label;
+
+        /**
+         * Creates a stage.
+         *
+         * @param label The name of the stage in the summary and in the recorded events.
+         */
+        Stage(@NotNull String label) {
+            this.label = label;
+        }
+
+        /**
+         * Returns the name of the stage in the summary and in the recorded events.
+         *
+         * @return The name of the stage.
+         */
+        public @NotNull String label() {
+            return label;
+        }
+    }
+
+    /**
+     * A quantity counted over every stage.
+     */
+    public enum Counter {
+        /**
+         * The bytes read from log files, compressed or not.
+         */
+        BYTES_READ("Bytes read"),
+        /**
+         * The bytes produced by inflating GZIP-compressed logs.
+         */
+        BYTES_INFLATED("Bytes inflated"),
+        /**
+         * The chat lines found in the logs, before the filter rules are applied.
+         */
+        CHAT_LINES("Chat lines scanned"),
+        /**
+         * The dialogue lines kept by the filter rules and written.
+         */
+        DIALOGUE_LINES("Dialogue lines matched"),
+        /**
+         * The dialogue lines dropped because they repeated an earlier line.
+         */
+        DUPLICATE_LINES("Duplicate lines dropped");
+
+        private final String label;
+
+        /**
+         * Creates a counter.
+         *
+         * @param label The name of the counter in the summary.
+         */
+        Counter(@NotNull String label) {
+            this.label = label;
+        }
+
+        /**
+         * Returns the name of the counter in the summary.
+         *
+         * @return The name of the counter.
+         */
+        public @NotNull String label() {
+            return label;
+        }
+    }
+
+    /**
+     * Starts timing a run of a stage.
+     *
+     * @param stage   The stage.
+     * @param subject What the stage works on, typically a file name, recorded in the event.
+     * @return The timer, to be closed once the stage is over.
+     */
+    public static @NotNull StageTimer start(@NotNull Stage stage, @NotNull String subject) {
+        return new StageTimer(stage, subject);
+    }
+
+    /**
+     * Adds an amount to a counter.
+     *
+     * @param counter The counter.
+     * @param amount  The amount to add.
+     */
+    public static void add(@NotNull Counter counter, long amount) {
+        COUNTS[counter.ordinal()].add(amount);
+    }
+
+    /**
+     * Returns the value of a counter.
+     *
+     * @param counter The counter.
+     * @return The sum of the amounts added since the start of the process or the last {@link #reset()}.
+     */
+    public static long count(@NotNull Counter counter) {
+        return COUNTS[counter.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of finished runs of a stage.
+     *
+     * @param stage The stage.
+     * @return The number of runs since the start of the process or the last {@link #reset()}.
+     */
+    public static long runs(@NotNull Stage stage) {
+        return RUNS[stage.ordinal()].sum();
+    }
+
+    /**
+     * Returns the time spent in a stage.
+     *
+     * @param stage The stage.
+     * @return The total duration of its finished runs, in nanoseconds.
+     */
+    public static long nanos(@NotNull Stage stage) {
+        return NANOS[stage.ordinal()].sum();
+    }
+
+    /**
+     * Clears every total.
+     */
+    public static void reset() {
+        for (LongAdder adder : RUNS) {
+            adder.reset();
+        }
+        for (LongAdder adder : NANOS) {
+            adder.reset();
+        }
+        for (LongAdder adder : COUNTS) {
+            adder.reset();
+        }
+    }
+
+    /**
+     * Formats the totals as a table of stages followed by the counters, one per line.
+     *
+     * @return The summary, ending with a line separator.
+     */
+    public static @NotNull String summary() {
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT, "%-12s%8s%14s%n", "Stage", "Runs", "Time"));
+        for (Stage stage : Stage.values()) {
+            summary.append(String.format(Locale.ROOT, "%-12s%8d%11.1f ms%n",
+                    stage.label(), runs(stage), nanos(stage) / 1_000_000.0));
+        }
+        for (Counter counter : Counter.values()) {
+            summary.append(String.format(Locale.ROOT, "%-24s%14d%n", counter.label() + ":", count(counter)));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Wraps the stream of a GZIP-compressed log so that the time spent reading from it and the bytes it yields are
+     * added to the {@link Stage#DECOMPRESS} stage once it is closed.
+     * <p>
+     * Only the time spent inside the reads is counted, not the time the reader spends on the bytes in between, while
+     * the recorded event spans the whole life of the stream.
+     *
+     * @param in      The inflating stream.
+     * @param subject What is inflated, typically a file name.
+     * @return The wrapping stream.
+     */
+    public static @NotNull InputStream inflating(@NotNull InputStream in, @NotNull String subject) {
+        return new InflatingInputStream(in, start(Stage.DECOMPRESS, subject));
+    }
+
+    /**
+     * Creates the adders backing a group of totals.
+     *
+     * @param count The number of totals.
+     * @return The adders.
+     */
+    private static LongAdder @NotNull [] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Times one run of a stage, from its creation to its closing.
+     * <p>
+     * A timer is meant to be used by one thread, in a try-with-resources statement. Closing it more than once has no
+     * further effect.
+     */
+    public static final class StageTimer implements AutoCloseable {
+        private final Stage stage;
+        private final String subject;
+        private final StageEvent event = new StageEvent();
+        private final long startNanos;
+        private long bytes;
+        private long lines;
+        private boolean closed;
+
+        /**
+         * Starts timing a run of a stage.
+         *
+         * @param stage   The stage.
+         * @param subject What the stage works on.
+         */
+        private StageTimer(@NotNull Stage stage, @NotNull String subject) {
+            this.stage = stage;
+            this.subject = subject;
+            event.begin();
+            startNanos = System.nanoTime();
+        }
+
+        /**
+         * Sets the number of bytes the run went through, recorded in the event.
+         *
+         * @param bytes The number of bytes.
+         * @return This timer.
+         */
+        public @NotNull StageTimer bytes(long bytes) {
+            this.bytes = bytes;
+            return this;
+        }
+
+        /**
+         * Sets the number of lines the run produced, recorded in the event.
+         *
+         * @param lines The number of lines.
+         * @return This timer.
+         */
+        public @NotNull StageTimer lines(long lines) {
+            this.lines = lines;
+            return this;
+        }
+
+        /**
+         * Stops timing, adds the duration of the run to its stage and commits its event.
+         */
+        @Override
+        public void close() {
+            finish(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Adds a run of the given duration to the stage and commits its event.
+         *
+         * @param nanos The duration of the run, in nanoseconds.
+         */
+        private void finish(long nanos) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            RUNS[stage.ordinal()].increment();
+            NANOS[stage.ordinal()].add(nanos);
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = stage.label();
+                event.subject = subject;
+                event.bytes = bytes;
+                event.lines = lines;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * The JDK Flight Recorder event of a stage run.
+     */
+    @Name("eu.lilithmonodia.dialogextractor.Stage")
+    @Label("Dialogue Extractor Stage")
+    @Category("DiaLogExtractor")
+    @Description("A run of a stage of the work on a log")
+    static final class StageEvent extends Event {
+        @Label("Stage")
+        String stage;
+
+        @Label("Subject")
+        String subject;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Lines")
+        long lines;
+    }
+
+    /**
+     * A stream timing the reads from an inflating stream and counting the bytes they yield.
+     */
+    private static final class InflatingInputStream extends FilterInputStream {
+        private final StageTimer timer;
+        private long busyNanos;
+        private long inflated;
+
+        /**
+         * Creates a stream over an inflating stream.
+         *
+         * @param in    The inflating stream.
+         * @param timer The timer of the {@link Stage#DECOMPRESS} stage.
+         */
+        private InflatingInputStream(@NotNull InputStream in, @NotNull StageTimer timer) {
+            super(in);
+            this.timer = timer;
+        }
+
+        /**
+         * Reads a byte.
+         *
+         * @return The byte, or -1 at the end of the stream.
+         * @throws IOException If inflating fails.
+         */
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = in.read();
+            busyNanos += System.nanoTime() - start;
+            if (b != -1) {
+                inflated++;
+            }
+            return b;
+        }
+
+        /**
+         * Reads bytes into an array.
+         *
+         * @param bytes  The array receiving the bytes.
+         * @param offset The index of the first byte in the array.
+         * @param length The maximum number of bytes to read.
+         * @return The number of bytes read, or -1 at the end of the stream.
+         * @throws IOException If inflating fails.
+         */
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            int read = in.read(bytes, offset, length);
+            busyNanos += System.nanoTime() - start;
+            if (read > 0) {
+                inflated += read;
+            }
+            return read;
+        }
+
+        /**
+         * Closes the inflating stream and records the run of the {@link Stage#DECOMPRESS} stage.
+         *
+         * @throws IOException If closing the inflating stream fails.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!timer.closed) {
+                    add(Counter.BYTES_INFLATED, inflated);
+                    timer.bytes(inflated).finish(busyNanos);
+                }
+            }
+        }
+    }
+}
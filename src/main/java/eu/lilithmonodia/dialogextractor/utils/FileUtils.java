@@ -1,6 +1,8 @@
 package eu.lilithmonodia.dialogextractor.utils;
 
-import javafx.scene.control.TextArea;
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import eu.lilithmonodia.dialogextractor.data.FilterRules;
+import eu.lilithmonodia.dialogextractor.data.LogDocument;
 import javafx.stage.FileChooser;
 import javafx.stage.Window;
 import org.apache.logging.log4j.LogManager;
@@ -12,10 +14,9 @@ import java.io.*;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 
-import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logAction;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
 import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
 
 /**
@@ -24,7 +25,13 @@ import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
  * This class can't be instantiated or extended as it contains only static methods.
  */
 public class FileUtils {
+    /**
+     * The suffix appended to the base name of a log file to name the file holding its extracted dialogue.
+     */
+    public static final String EXTRACTED_FILE_SUFFIX = "-dialog-extracted.log";
     private static final Logger LOGGER = LogManager.getLogger(FileUtils.class);
+    private static final long MAPPED_EXTRACTION_THRESHOLD = 64L * 1024 * 1024;
+    private static final int WRITE_SLICE_SIZE = 64 * 1024;
 
     /**
      * The FileUtils class provides utility methods for file-related operations.
@@ -49,38 +56,22 @@ public class FileUtils {
         FileChooser fileChooser = new FileChooser();
         if (isSaveDialog) {
             fileChooser.setInitialFileName(initialFileName);
-            setupFileChooser(fileChooser, "Save As", "Log files (*.log)", "*.log");
+            setupFileChooser(fileChooser, "Save As", "Log files (*.log), GZ files (*.gz)", "*.log", "*.gz");
             return fileChooser.showSaveDialog(window);
         }
-        setupFileChooser(fileChooser, "Open Minecraft Log File", "GZ files (*.gz), Log files (*.log)", "*.gz", "*.log");
+        setupFileChooser(fileChooser, "Open Minecraft Log File",
+                "GZ files (*.gz), Log files (*.log), Archives (*.zip, *.tgz)", "*.gz", "*.log", "*.zip", "*.tgz");
         return fileChooser.showOpenDialog(window);
     }
 
     /**
-     * Processes a file and sets its content in a text area.
+     * Returns the base name of the given file, that is its name up to the first dot.
      *
-     * @param file                The file to process.
-     * @param originalContentArea The text area to set the processed content.
-     * @param charset             The character encoding of the file.
-     *                            If null, the default charset of the system will be used.
-     * @throws IllegalArgumentException if the input is not a regular file.
+     * @param file The file for which to retrieve the base name.
+     * @return The base name of the file, e.g. {@code 2024-01-01-1} for {@code 2024-01-01-1.log.gz}.
      */
-    public static void processFile(@NotNull File file, @NotNull TextArea originalContentArea, Charset charset) {
-        logAction(LOGGER, "Attempting to process file ...");
-        if (!Files.isRegularFile(file.toPath())) {
-            throw new IllegalArgumentException("The input is not a file.");
-        }
-        try {
-            var content = switch (getFileExtension(file)) {
-                case ".gz" -> decompressGzip(file, charset);
-                case ".log" -> Files.readString(file.toPath(), charset);
-                default -> throw new IOException("Unsupported file extension");
-            };
-            originalContentArea.setText(content);
-        } catch (IOException e) {
-            logError(LOGGER, "An error occurred while processing the file.", e);
-        }
-        logAction(LOGGER, "File processing finished successfully.");
+    public static @NotNull String getBaseName(@NotNull File file) {
+        return file.getName().split("\\.")[0];
     }
 
     /**
@@ -99,19 +90,84 @@ public class FileUtils {
     }
 
     /**
-     * Decompresses a GZIP-compressed file and returns its content as a string.
+     * Streams the dialogue of a log file into an output file without loading either of them into memory.
+     * <p>
+     * GZIP-compressed files are decompressed and extracted in overlapping stages by a {@link GzipPipelineExtractor}.
+     * Large uncompressed files are memory-mapped and extracted in parallel chunks by a {@link MappedLogExtractor},
+     * unless the active rules drop repeated lines, which needs the lines to be checked in order.
+     * The output is written in UTF-8 through {@link #openOutputStream(File)}, so an output file ending in {@code .gz}
+     * is compressed.
      *
-     * @param file The GZIP-compressed file to decompress.
-     * @return The decompressed content of the file.
-     * @throws IOException If an I/O error occurs while decompressing the file.
+     * @param file    The log file to extract the dialogue from.
+     * @param charset The character encoding of the log file.
+     * @param outFile The file to write the extracted dialogue to.
+     * @return The number of dialogue lines written.
+     * @throws IOException If the file extension is unsupported or an I/O error occurs.
      */
-    private static String decompressGzip(File file, Charset charset) throws IOException {
-        try (InputStream fileIn = Files.newInputStream(file.toPath());
-             GZIPInputStream gzipIn = new GZIPInputStream(fileIn);
-             Reader reader = new InputStreamReader(gzipIn, charset);
-             BufferedReader bufferedReader = new BufferedReader(reader)) {
-            return bufferedReader.lines().collect(Collectors.joining("\n"));
+    public static long extractToFile(@NotNull File file, @NotNull Charset charset, @NotNull File outFile) throws IOException {
+        logDebug(LOGGER, "Attempting to extract file ...");
+        long written;
+        String extension = getFileExtension(file);
+        try (ExtractionMetrics.StageTimer timer = ExtractionMetrics.start(ExtractionMetrics.Stage.EXTRACT, file.getName())) {
+            if (".gz".equals(extension)) {
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(openOutputStream(outFile), StandardCharsets.UTF_8))) {
+                    written = new GzipPipelineExtractor().extract(file.toPath(), charset, writer);
+                }
+            } else if (".log".equals(extension) && file.length() >= MAPPED_EXTRACTION_THRESHOLD
+                    && !FilterRules.active().deduplicates()) {
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(openOutputStream(outFile), StandardCharsets.UTF_8))) {
+                    written = new MappedLogExtractor().extract(file.toPath(), charset, writer);
+                }
+            } else {
+                try (InputStream in = openLogStream(file);
+                     OutputStream out = openOutputStream(outFile)) {
+                    written = new DialogueExtractor().extract(in, charset, out);
+                }
+            }
+            ExtractionMetrics.add(ExtractionMetrics.Counter.BYTES_READ, file.length());
+            timer.bytes(file.length()).lines(written);
         }
+        logDebug(LOGGER, "File extraction finished successfully.");
+        return written;
+    }
+
+    /**
+     * Opens a raw byte stream over the content of a log file, decompressing it on the fly if it is GZIP-compressed.
+     *
+     * @param file The log file to open.
+     * @return A buffered input stream over the uncompressed content of the file. Inflating a GZIP-compressed file is
+     * timed as the {@link ExtractionMetrics.Stage#DECOMPRESS} stage.
+     * @throws IOException If the file extension is unsupported or the file cannot be opened.
+     */
+    public static @NotNull InputStream openLogStream(@NotNull File file) throws IOException {
+        return switch (getFileExtension(file)) {
+            case ".gz" -> {
+                InputStream fileIn = Files.newInputStream(file.toPath());
+                try {
+                    yield ExtractionMetrics.inflating(new GZIPInputStream(fileIn, 64 * 1024), file.getName());
+                } catch (IOException e) {
+                    fileIn.close();
+                    throw e;
+                }
+            }
+            case ".log" -> new BufferedInputStream(Files.newInputStream(file.toPath()), 64 * 1024);
+            default -> throw new IOException("Unsupported file extension");
+        };
+    }
+
+    /**
+     * Opens a stream writing to a file through a large direct buffer, replacing its content.
+     * <p>
+     * If the file name ends with {@code .gz}, the bytes are GZIP-compressed in parallel blocks by a
+     * {@link ParallelGzipOutputStream}.
+     *
+     * @param file The file to write.
+     * @return The stream over the file, to be closed by the caller.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static @NotNull OutputStream openOutputStream(@NotNull File file) throws IOException {
+        ChannelOutputStream out = ChannelOutputStream.create(file.toPath());
+        return ".gz".equals(getFileExtension(file)) ? new ParallelGzipOutputStream(out) : out;
     }
 
     /**
@@ -130,17 +186,50 @@ public class FileUtils {
 
     /**
      * Writes the specified content to the given file.
+     * <p>
+     * The content is written in slices, and the {@code '\n'} separators of each slice are counted as it is written, so
+     * the line count of the write stage costs no second pass over the content.
      *
      * @param file    The file to write to.
-     * @param content The content to write to the file.
+     * @param content The content to write to the file, as lines joined with {@code '\n'}.
      */
     public static void writeToFile(File file, String content) {
-        logAction(LOGGER, "Attempting to write to file ...");
-        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
-            writer.write(content);
+        logDebug(LOGGER, "Attempting to write to file ...");
+        try (ExtractionMetrics.StageTimer timer = ExtractionMetrics.start(ExtractionMetrics.Stage.WRITE, file.getName());
+             Writer writer = new OutputStreamWriter(openOutputStream(file), StandardCharsets.UTF_8)) {
+            long separators = 0;
+            for (int start = 0; start < content.length(); start += WRITE_SLICE_SIZE) {
+                int end = Math.min(start + WRITE_SLICE_SIZE, content.length());
+                for (int i = start; i < end; i++) {
+                    if (content.charAt(i) == '\n') {
+                        separators++;
+                    }
+                }
+                writer.write(content, start, end - start);
+            }
+            timer.lines(content.isEmpty() ? 0 : separators + 1);
+        } catch (IOException e) {
+            logError(LOGGER, "An error occurred while writing to the file.", e);
+        }
+        logDebug(LOGGER, "File writing finished successfully.");
+    }
+
+    /**
+     * Copies the content of an opened document to the given file, compressing it if the file name ends with
+     * {@code .gz}.
+     *
+     * @param document The document to save.
+     * @param file     The file to write to.
+     */
+    public static void saveDocument(@NotNull LogDocument document, @NotNull File file) {
+        logDebug(LOGGER, "Attempting to write to file ...");
+        try (ExtractionMetrics.StageTimer timer = ExtractionMetrics.start(ExtractionMetrics.Stage.WRITE, file.getName());
+             InputStream in = document.openStream();
+             OutputStream out = openOutputStream(file)) {
+            timer.bytes(in.transferTo(out)).lines(document.lineCount());
         } catch (IOException e) {
             logError(LOGGER, "An error occurred while writing to the file.", e);
         }
-        logAction(LOGGER, "File writing finished successfully.");
+        logDebug(LOGGER, "File writing finished successfully.");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,347 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import eu.lilithmonodia.dialogextractor.data.ChatLineScanner;
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import eu.lilithmonodia.dialogextractor.data.DialogueWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
+
+/**
+ * Extracts the dialogue of a GZIP-compressed log in a three-stage pipeline.
+ * <ol>
+ *     <li>An inflater thread decompresses the file into fixed-size blocks.</li>
+ *     <li>A scanner thread searches the blocks for chat lines at byte level and copies the matching line tails into
+ *     batches.</li>
+ *     <li>The calling thread decodes, cleans and writes the batched chat lines.</li>
+ * </ol>
+ * The stages hand their data over through bounded queues, and inflated blocks are recycled, so memory use is fixed and
+ * inflation overlaps with extraction. Charsets that cannot be scanned at byte level fall back to sequential extraction.
+ */
+public class GzipPipelineExtractor {
+    private static final int BLOCK_SIZE = 256 * 1024;
+    private static final int QUEUE_CAPACITY = 8;
+    private static final Block END_OF_BLOCKS = new Block(new byte[0], 0);
+    private static final TailBatch END_OF_TAILS = new TailBatch(0);
+    private static final Logger LOGGER = LogManager.getLogger(GzipPipelineExtractor.class);
+
+    /**
+     * A block of inflated bytes.
+     *
+     * @param bytes  The recycled array holding the bytes.
+     * @param length The number of valid bytes in the array.
+     */
+    private record Block(byte @NotNull [] bytes, int length) {
+    }
+
+    /**
+     * Extracts the dialogue of a GZIP-compressed log file and writes it to the given writer.
+     * <p>
+     * The writer is flushed but not closed.
+     *
+     * @param file    The GZIP-compressed log file, with a {@code .gz} extension.
+     * @param charset The character encoding of the decompressed log.
+     * @param writer  The writer receiving the extracted dialogue.
+     * @return The number of dialogue lines written.
+     * @throws IOException If the file cannot be read or decompressed, or the writer fails.
+     */
+    public long extract(@NotNull Path file, @NotNull Charset charset, @NotNull Writer writer) throws IOException {
+        if (!ChatLineScanner.supports(charset)) {
+            try (Reader reader = new InputStreamReader(FileUtils.openLogStream(file.toFile()), charset)) {
+                return new DialogueExtractor().extract(reader, writer);
+            }
+        }
+        logDebug(LOGGER, "Pipelined GZIP extraction started...");
+
+        BlockingQueue<byte[]> freeBlocks = new ArrayBlockingQueue<>(QUEUE_CAPACITY + 2);
+        for (int i = 0; i < QUEUE_CAPACITY + 2; i++) {
+            freeBlocks.add(new byte[BLOCK_SIZE]);
+        }
+        BlockingQueue<Block> blocks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<TailBatch> tails = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService stages = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "gzip-pipeline-stage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        DialogueWriter dialogueWriter = new DialogueWriter(writer);
+        try {
+            stages.execute(() -> runStage(() -> inflate(file, freeBlocks, blocks), blocks, END_OF_BLOCKS, failure));
+            stages.execute(() -> runStage(() -> scan(freeBlocks, blocks, tails), tails, END_OF_TAILS, failure));
+
+            ChatLineScanner.ChatLineHandler handler = dialogueWriter.chatLineHandler(charset);
+            TailBatch batch;
+            while ((batch = tails.take()) != END_OF_TAILS) {
+                batch.forEach(handler);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting " + file);
+        } finally {
+            stages.shutdownNow();
+        }
+        rethrow(failure.get());
+        writer.flush();
+        dialogueWriter.publishMetrics();
+
+        logDebug(LOGGER, "Pipelined GZIP extraction finished successfully.");
+        return dialogueWriter.written();
+    }
+
+    /**
+     * The first stage: decompresses the file into recycled blocks.
+     *
+     * @param file       The GZIP-compressed log file.
+     * @param freeBlocks The arrays available for filling.
+     * @param blocks     The queue receiving the filled blocks.
+     * @throws IOException          If the file cannot be read or decompressed.
+     * @throws InterruptedException If the stage is cancelled.
+     */
+    private static void inflate(@NotNull Path file, @NotNull BlockingQueue<byte[]> freeBlocks,
+                                @NotNull BlockingQueue<Block> blocks) throws IOException, InterruptedException {
+        try (InputStream in = FileUtils.openLogStream(file.toFile())) {
+            while (true) {
+                byte[] bytes = freeBlocks.take();
+                int length = in.readNBytes(bytes, 0, bytes.length);
+                if (length == 0) {
+                    return;
+                }
+                blocks.put(new Block(bytes, length));
+            }
+        }
+    }
+
+    /**
+     * The second stage: finds the chat lines in the inflated blocks and batches their tails.
+     *
+     * @param freeBlocks The queue receiving the arrays of consumed blocks.
+     * @param blocks     The queue supplying the inflated blocks.
+     * @param tails      The queue receiving the batches of chat line tails.
+     * @throws IOException          If the stage is cancelled while reading.
+     * @throws InterruptedException If the stage is cancelled while writing.
+     */
+    private static void scan(@NotNull BlockingQueue<byte[]> freeBlocks, @NotNull BlockingQueue<Block> blocks,
+                             @NotNull BlockingQueue<TailBatch> tails) throws IOException, InterruptedException {
+        TailBatch[] batch = {new TailBatch(TailBatch.CAPACITY)};
+        new ChatLineScanner().scan(new BlockInputStream(blocks, freeBlocks), tail -> {
+            batch[0].add(tail);
+            if (batch[0].isFull()) {
+                putBatch(tails, batch[0]);
+                batch[0] = new TailBatch(TailBatch.CAPACITY);
+            }
+        });
+        tails.put(batch[0]);
+    }
+
+    /**
+     * Hands a full batch over to the last stage.
+     *
+     * @param tails The queue receiving the batches.
+     * @param batch The batch to hand over.
+     * @throws InterruptedIOException If the stage is cancelled.
+     */
+    private static void putBatch(@NotNull BlockingQueue<TailBatch> tails, @NotNull TailBatch batch)
+            throws InterruptedIOException {
+        try {
+            tails.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Scanner stage cancelled.");
+        }
+    }
+
+    /**
+     * The body of a pipeline stage.
+     */
+    @FunctionalInterface
+    private interface StageBody {
+        /**
+         * Runs the stage.
+         *
+         * @throws Exception If the stage fails.
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs a stage, records its failure and always signals the end of its output to the next stage.
+     *
+     * @param body       The stage to run.
+     * @param downstream The queue of the next stage.
+     * @param end        The end-of-stream marker of the queue.
+     * @param failure    The first failure of the pipeline.
+     * @param <T>        The element type of the queue.
+     */
+    private static <T> void runStage(@NotNull StageBody body, @NotNull BlockingQueue<T> downstream, @NotNull T end,
+                                     @NotNull AtomicReference<Throwable> failure) {
+        try {
+            body.run();
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            try {
+                downstream.put(end);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Rethrows the failure of a stage, if any.
+     *
+     * @param failure The failure, or null if every stage succeeded.
+     * @throws IOException If a stage failed with an I/O error.
+     */
+    private static void rethrow(Throwable failure) throws IOException {
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (failure instanceof InterruptedException) {
+            throw new InterruptedIOException("A pipeline stage was interrupted.");
+        }
+        throw new IllegalStateException("A pipeline stage failed unexpectedly.", failure);
+    }
+
+    /**
+     * An input stream reading the blocks of the inflater stage and recycling them once consumed.
+     */
+    private static final class BlockInputStream extends InputStream {
+        private final BlockingQueue<Block> blocks;
+        private final BlockingQueue<byte[]> freeBlocks;
+        private Block current;
+        private int position;
+
+        /**
+         * Creates a stream over the given queue of blocks.
+         *
+         * @param blocks     The queue supplying the inflated blocks.
+         * @param freeBlocks The queue receiving the arrays of consumed blocks.
+         */
+        private BlockInputStream(@NotNull BlockingQueue<Block> blocks, @NotNull BlockingQueue<byte[]> freeBlocks) {
+            this.blocks = blocks;
+            this.freeBlocks = freeBlocks;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (current == END_OF_BLOCKS || !nextBlockIfConsumed()) {
+                return -1;
+            }
+            int copied = Math.min(length, current.length() - position);
+            System.arraycopy(current.bytes(), position, bytes, offset, copied);
+            position += copied;
+            return copied;
+        }
+
+        /**
+         * Recycles the current block once it is consumed and takes the next one.
+         *
+         * @return False if the end of the blocks is reached.
+         * @throws InterruptedIOException If the stage is cancelled.
+         */
+        private boolean nextBlockIfConsumed() throws InterruptedIOException {
+            if (current != null && position < current.length()) {
+                return true;
+            }
+            try {
+                if (current != null) {
+                    freeBlocks.put(current.bytes());
+                }
+                current = blocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Scanner stage cancelled.");
+            }
+            position = 0;
+            return current != END_OF_BLOCKS;
+        }
+    }
+
+    /**
+     * A batch of chat line tails copied out of the inflated blocks, stored back to back in one array.
+     */
+    private static final class TailBatch {
+        private static final int CAPACITY = 256 * 1024;
+        private static final int MAX_COUNT = 4096;
+        private byte[] bytes;
+        private int[] ends = new int[1024];
+        private int size;
+        private int count;
+
+        /**
+         * Creates an empty batch.
+         *
+         * @param capacity The initial capacity in bytes.
+         */
+        private TailBatch(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        /**
+         * Copies the remaining bytes of a tail into the batch.
+         *
+         * @param tail The tail of a chat line.
+         */
+        private void add(@NotNull ByteBuffer tail) {
+            int length = tail.remaining();
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+            if (count == ends.length) {
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            tail.get(bytes, size, length);
+            size += length;
+            ends[count++] = size;
+        }
+
+        /**
+         * Checks whether the batch should be handed over.
+         *
+         * @return True if the batch holds at least its nominal capacity.
+         */
+        private boolean isFull() {
+            return size >= CAPACITY || count >= MAX_COUNT;
+        }
+
+        /**
+         * Hands every tail of the batch to a handler, in order.
+         *
+         * @param handler The handler receiving the tails.
+         * @throws IOException If the handler fails.
+         */
+        private void forEach(@NotNull ChatLineScanner.ChatLineHandler handler) throws IOException {
+            ByteBuffer view = ByteBuffer.wrap(bytes);
+            int start = 0;
+            for (int i = 0; i < count; i++) {
+                view.limit(ends[i]).position(start);
+                handler.handle(view);
+                start = ends[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import eu.lilithmonodia.dialogextractor.data.ChatLineScanner;
+import eu.lilithmonodia.dialogextractor.data.DialogueWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logAction;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
+
+/**
+ * Follows a growing log file, such as {@code latest.log} during a game session, and extracts the dialogue of the
+ * lines appended to it.
+ * <p>
+ * Every update reads the file from the last offset read with positional reads, so its cost depends only on the
+ * appended bytes. A line that is still being written is kept until its line separator arrives. The follower notices
+ * when the file is truncated, or replaced by a new file as Minecraft does when it rotates its logs, and starts again
+ * at the beginning of the new content. The dialogue is written in the usual format, one line after the other without a
+ * trailing separator, so the output of a whole session is the same as a single extraction.
+ * <p>
+ * A follower is not thread-safe, except for {@link #close()}, which stops {@link #follow(Listener)} from any thread.
+ */
+public class LogFollower implements Closeable {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+    private static final Logger LOGGER = LogManager.getLogger(LogFollower.class);
+
+    private final Path log;
+    private final Charset charset;
+    private final Writer writer;
+    private final DialogueWriter dialogueWriter;
+    private final ChatLineScanner.ChatLineHandler chatLineHandler;
+    private @Nullable FileChannel channel;
+    private @Nullable Object fileIdentity;
+    private long offset;
+    private byte[] pending = new byte[BUFFER_SIZE];
+    private int pendingLength;
+    private volatile @Nullable WatchService watchService;
+    private volatile boolean closed;
+
+    /**
+     * Receives the dialogue lines extracted by each update.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called on the following thread after an update wrote new dialogue lines and flushed the writer.
+         *
+         * @param lines The number of dialogue lines written by the update.
+         * @throws IOException If following should stop.
+         */
+        void appended(long lines) throws IOException;
+    }
+
+    /**
+     * Creates a follower starting at the beginning of the log.
+     *
+     * @param log     The log file to follow; it does not have to exist yet.
+     * @param charset The character encoding of the log; it must be ASCII-compatible, as lines are split on bytes.
+     * @param writer  The writer receiving the dialogue. It is flushed after every update but not closed.
+     */
+    public LogFollower(@NotNull Path log, @NotNull Charset charset, @NotNull Writer writer) {
+        this.log = log;
+        this.charset = charset;
+        this.writer = writer;
+        this.dialogueWriter = new DialogueWriter(writer);
+        this.chatLineHandler = dialogueWriter.chatLineHandler(charset);
+    }
+
+    /**
+     * Returns the number of dialogue lines written so far.
+     *
+     * @return The number of lines written.
+     */
+    public long written() {
+        return dialogueWriter.written();
+    }
+
+    /**
+     * Extracts the dialogue of the lines appended since the last update.
+     * <p>
+     * If the file was replaced, the rest of the old file is read first. If it was truncated, reading starts again at
+     * its beginning. A missing file is not an error; it is picked up once it is created.
+     *
+     * @return The number of dialogue lines written by this update.
+     * @throws IOException If the file cannot be read or the writer fails.
+     */
+    public long update() throws IOException {
+        long before = dialogueWriter.written();
+        BasicFileAttributes attributes = readAttributes();
+        Object identity = attributes == null ? null : identityOf(attributes);
+        if (channel != null && (identity == null || !identity.equals(fileIdentity))) {
+            readAppended();
+            flushLastLine();
+            closeChannel();
+            if (identity != null) {
+                logAction(LOGGER, "The followed log was replaced, following the new file.");
+            }
+        }
+        if (channel == null && identity != null) {
+            try {
+                channel = FileChannel.open(log, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                return dialogueWriter.written() - before;
+            }
+            fileIdentity = identity;
+            offset = 0;
+            pendingLength = 0;
+        }
+        if (channel != null) {
+            if (channel.size() < offset) {
+                logAction(LOGGER, "The followed log was truncated, reading it again from the start.");
+                offset = 0;
+                pendingLength = 0;
+            }
+            readAppended();
+        }
+        writer.flush();
+        dialogueWriter.publishMetrics();
+        return dialogueWriter.written() - before;
+    }
+
+    /**
+     * Updates whenever the log changes, until the follower is closed or the thread is interrupted.
+     * <p>
+     * Changes are noticed through a {@link WatchService} on the directory of the log, and the log is also checked
+     * every second in case the file system does not report them promptly.
+     *
+     * @param listener The listener receiving the updates that wrote dialogue.
+     * @throws IOException          If the log cannot be read, the writer fails, or the listener stops following.
+     * @throws InterruptedException If the thread is interrupted while waiting for a change.
+     */
+    public void follow(@NotNull Listener listener) throws IOException, InterruptedException {
+        Path directory = log.toAbsolutePath().getParent();
+        try (WatchService watcher = directory.getFileSystem().newWatchService()) {
+            watchService = watcher;
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            logAction(LOGGER, "Following " + log + " ...");
+            while (!closed) {
+                long lines = update();
+                if (lines > 0) {
+                    listener.appended(lines);
+                }
+                WatchKey key = watcher.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Closed by another thread to stop following.
+        } finally {
+            watchService = null;
+            closeChannel();
+        }
+        logAction(LOGGER, "Stopped following " + log + ".");
+    }
+
+    /**
+     * Stops following and closes the log. The writer is not closed.
+     * <p>
+     * While {@link #follow(Listener)} runs, the log is closed by the following thread once it stops.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        WatchService watcher = watchService;
+        try {
+            if (watcher != null) {
+                watcher.close();
+            } else {
+                closeChannel();
+            }
+        } catch (IOException e) {
+            logError(LOGGER, "An error occurred while closing the followed log.", e);
+        }
+    }
+
+    /**
+     * Reads the bytes appended after the current offset and extracts the dialogue of their whole lines.
+     *
+     * @throws IOException If the file cannot be read or the writer fails.
+     */
+    private void readAppended() throws IOException {
+        FileChannel current = channel;
+        if (current == null) {
+            return;
+        }
+        while (true) {
+            if (pendingLength == pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            int read = current.read(ByteBuffer.wrap(pending, pendingLength, pending.length - pendingLength), offset);
+            if (read <= 0) {
+                return;
+            }
+            offset += read;
+            ExtractionMetrics.add(ExtractionMetrics.Counter.BYTES_READ, read);
+            int end = pendingLength + read;
+            int lineEnd = lastNewline(pendingLength, end) + 1;
+            if (lineEnd > 0) {
+                extract(lineEnd);
+                System.arraycopy(pending, lineEnd, pending, 0, end - lineEnd);
+                pendingLength = end - lineEnd;
+            } else {
+                pendingLength = end;
+            }
+        }
+    }
+
+    /**
+     * Extracts the dialogue of the last line of a file that is being left, even if it has no line separator.
+     *
+     * @throws IOException If the writer fails.
+     */
+    private void flushLastLine() throws IOException {
+        if (pendingLength > 0) {
+            extract(pendingLength);
+            pendingLength = 0;
+        }
+    }
+
+    /**
+     * Extracts the dialogue of the first bytes of the pending buffer, which hold whole lines.
+     *
+     * @param length The number of bytes to extract.
+     * @throws IOException If the writer fails.
+     */
+    private void extract(int length) throws IOException {
+        if (ChatLineScanner.supports(charset)) {
+            new ChatLineScanner().scan(ByteBuffer.wrap(pending), 0, length, chatLineHandler);
+            return;
+        }
+        String text = new String(pending, 0, length, charset);
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            dialogueWriter.writeLine(text.substring(start, end));
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Finds the last line separator in a range of the pending buffer.
+     *
+     * @param from The index of the first byte to search.
+     * @param to   The index just past the last byte to search.
+     * @return The index of the last line separator, or -1 if there is none.
+     */
+    private int lastNewline(int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (pending[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the attributes of the log file.
+     *
+     * @return The attributes, or null if the file does not exist.
+     * @throws IOException If the attributes cannot be read.
+     */
+    private @Nullable BasicFileAttributes readAttributes() throws IOException {
+        try {
+            return Files.readAttributes(log, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a value identifying the file currently at the log path, which changes when the file is replaced.
+     *
+     * @param attributes The attributes of the file.
+     * @return The file key where the platform has one, and the creation time otherwise.
+     */
+    private static @NotNull Object identityOf(@NotNull BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return key != null ? key : attributes.creationTime();
+    }
+
+    /**
+     * Closes the channel of the file being left.
+     *
+     * @throws IOException If the channel cannot be closed.
+     */
+    private void closeChannel() throws IOException {
+        FileChannel current = channel;
+        channel = null;
+        fileIdentity = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
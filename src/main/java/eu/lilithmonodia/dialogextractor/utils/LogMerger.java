@@ -0,0 +1,305 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import eu.lilithmonodia.dialogextractor.data.ChatLineCleaner;
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import eu.lilithmonodia.dialogextractor.data.DialogueWriter;
+import eu.lilithmonodia.dialogextractor.data.FilterRules;
+import eu.lilithmonodia.dialogextractor.data.LineDeduplicator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logAction;
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logError;
+
+/**
+ * Merges the dialogue of rotated Minecraft logs into one chronological transcript.
+ * <p>
+ * Each log is streamed and extracted on its own, and the extracted lines are merged with a k-way merge on a priority
+ * queue keyed by the date of the log and the {@code [HH:MM:SS]} timestamp of the line. Only one pending line and one
+ * read buffer are held per log, so memory use depends on the number of logs and not on their size.
+ */
+public class LogMerger {
+    private static final Logger LOGGER = LogManager.getLogger(LogMerger.class);
+    private static final Pattern ROTATED_NAME = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})-(\\d+)\\.log(?:\\.gz)?");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final int ROLLOVER_THRESHOLD = 60 * 60;
+
+    private final Charset charset;
+
+    /**
+     * Creates a log merger.
+     *
+     * @param charset The character encoding of the log files.
+     */
+    public LogMerger(@NotNull Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * A log file and its place in the rotation.
+     * <p>
+     * Rotated logs are named {@code YYYY-MM-DD-N.log.gz}. Any other log, such as {@code latest.log}, is dated by its
+     * last modification and placed after the rotated logs of that day.
+     *
+     * @param path  The log file.
+     * @param date  The day the log starts on.
+     * @param index The rotation index of the log within its day.
+     */
+    public record RotatedLog(@NotNull Path path, @NotNull LocalDate date, int index) {
+        private static final Comparator<RotatedLog> ORDER = Comparator.comparing(RotatedLog::date)
+                .thenComparingInt(RotatedLog::index)
+                .thenComparing(RotatedLog::path);
+
+        /**
+         * Reads the place of a log file in the rotation from its name, or from its last modification.
+         *
+         * @param path The log file.
+         * @return The rotated log.
+         * @throws IOException If the name is not a rotated log name and the last modification cannot be read.
+         */
+        public static @NotNull RotatedLog of(@NotNull Path path) throws IOException {
+            Matcher matcher = ROTATED_NAME.matcher(path.getFileName().toString());
+            if (matcher.matches()) {
+                return new RotatedLog(path, LocalDate.parse(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            }
+            LocalDate modified = LocalDate.ofInstant(Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault());
+            return new RotatedLog(path, modified, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Merges the dialogue of the given logs into the writer, in chronological order.
+     * <p>
+     * Lines are ordered by the date of their log plus their timestamp, rolling over to the next day when the
+     * timestamps of a log jump back by more than an hour. Lines without a timestamp keep the timestamp of the
+     * previous line, and lines with the same timestamp keep the rotation order. The filter rules active when the merge
+     * starts are used for the whole merge; with a {@code dedup} rule, repeated lines are dropped in the merged order,
+     * across logs. The lines are joined with {@code '\n'}, without a trailing
+     * separator, and the writer is flushed but not closed.
+     *
+     * @param inputs The log files, in any order.
+     * @param writer The writer receiving the transcript.
+     * @return The number of dialogue lines written.
+     * @throws IOException If a log cannot be read or writing to the writer fails.
+     */
+    public long merge(@NotNull List<Path> inputs, @NotNull Writer writer) throws IOException {
+        logAction(LOGGER, "Merging " + inputs.size() + " logs started...");
+
+        List<RotatedLog> logs = new ArrayList<>(inputs.size());
+        for (Path input : inputs) {
+            logs.add(RotatedLog.of(input));
+        }
+        logs.sort(RotatedLog.ORDER);
+
+        List<Cursor> cursors = new ArrayList<>(logs.size());
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, logs.size()));
+        FilterRules rules = FilterRules.active();
+        LineDeduplicator deduplicator = rules.newDeduplicator();
+        long written = 0;
+        long duplicates = 0;
+        try {
+            for (RotatedLog log : logs) {
+                Cursor cursor = new Cursor(log, cursors.size(), charset, rules);
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+            while (!queue.isEmpty()) {
+                Cursor cursor = queue.poll();
+                if (deduplicator != null && deduplicator.isDuplicate(cursor.dialogue)) {
+                    duplicates++;
+                } else {
+                    if (written > 0) {
+                        writer.write('\n');
+                    }
+                    writer.write(cursor.dialogue);
+                    written++;
+                }
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+            writer.flush();
+        } finally {
+            closeAll(cursors);
+            ExtractionMetrics.add(ExtractionMetrics.Counter.DUPLICATE_LINES, duplicates);
+        }
+
+        logAction(LOGGER, "Merging finished successfully.");
+        return written;
+    }
+
+    /**
+     * Closes every cursor, logging the failures instead of throwing them so that the other cursors are closed too.
+     *
+     * @param cursors The cursors to close.
+     */
+    private static void closeAll(@NotNull List<Cursor> cursors) {
+        for (Cursor cursor : cursors) {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                logError(LOGGER, "An error occurred while closing " + cursor.log.path(), e);
+            }
+        }
+    }
+
+    /**
+     * Streams the dialogue lines of one log along with their timestamps.
+     * <p>
+     * A cursor holds the next dialogue line of its log until the merge takes it. Cursors are ordered by the
+     * timestamp of that line and then by the rank of their log in the rotation.
+     */
+    private static final class Cursor implements Comparable<Cursor>, Closeable {
+        private final RotatedLog log;
+        private final int rank;
+        private final Reader reader;
+        private final FilterRules rules;
+        private final ChatLineCleaner cleaner = new ChatLineCleaner();
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private long dayStart;
+        private int lastSecondOfDay = -1;
+        private long timestamp;
+        private @Nullable String dialogue;
+
+        /**
+         * Opens a cursor over a log.
+         *
+         * @param log     The log to read.
+         * @param rank    The place of the log in the rotation order.
+         * @param charset The character encoding of the log.
+         * @param rules   The filter rules deciding which chat lines are kept.
+         * @throws IOException If the log cannot be opened.
+         */
+        Cursor(@NotNull RotatedLog log, int rank, @NotNull Charset charset, @NotNull FilterRules rules)
+                throws IOException {
+            this.log = log;
+            this.rank = rank;
+            this.rules = rules;
+            this.reader = new InputStreamReader(FileUtils.openLogStream(log.path().toFile()), charset);
+            this.dayStart = log.date().toEpochDay() * SECONDS_PER_DAY;
+            this.timestamp = dayStart;
+        }
+
+        /**
+         * Reads up to the next dialogue line of the log.
+         * <p>
+         * Each line is cleaned in place from the line buffer; only the lines kept by the rules become strings.
+         *
+         * @return True if a dialogue line was found, false at the end of the log.
+         * @throws IOException If the log cannot be read.
+         */
+        boolean advance() throws IOException {
+            while (readLine()) {
+                updateTimestamp();
+                int chatIndex = DialogueWriter.indexOfPrefix(line);
+                if (chatIndex == -1) {
+                    continue;
+                }
+                cleaner.clean(line, chatIndex + DialogueExtractor.DIALOG_PREFIX.length(), line.length());
+                if (cleaner.isAcceptedBy(rules)) {
+                    dialogue = cleaner.toString();
+                    return true;
+                }
+            }
+            dialogue = null;
+            return false;
+        }
+
+        /**
+         * Reads the next raw line, split on {@code '\n'} only like the other extraction paths.
+         *
+         * @return True if a line was read, false at the end of the log.
+         * @throws IOException If the log cannot be read.
+         */
+        private boolean readLine() throws IOException {
+            line.setLength(0);
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = reader.read(buffer);
+                    position = 0;
+                    if (limit == -1) {
+                        limit = 0;
+                        return read;
+                    }
+                }
+                read = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                line.append(buffer, start, position - start);
+                if (position < limit) {
+                    position++;
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Updates the timestamp from the {@code [HH:MM:SS]} prefix of the current line, if it has one.
+         */
+        private void updateTimestamp() {
+            if (line.length() < 10 || line.charAt(0) != '[' || line.charAt(3) != ':' || line.charAt(6) != ':'
+                    || line.charAt(9) != ']') {
+                return;
+            }
+            int hours = twoDigits(1);
+            int minutes = twoDigits(4);
+            int seconds = twoDigits(7);
+            if (hours < 0 || minutes < 0 || seconds < 0) {
+                return;
+            }
+            int secondOfDay = hours * 3600 + minutes * 60 + seconds;
+            if (secondOfDay + ROLLOVER_THRESHOLD < lastSecondOfDay) {
+                dayStart += SECONDS_PER_DAY;
+            }
+            lastSecondOfDay = secondOfDay;
+            timestamp = dayStart + secondOfDay;
+        }
+
+        /**
+         * Parses two decimal digits of the current line.
+         *
+         * @param index The index of the first digit.
+         * @return The parsed number, or -1 if the characters are not digits.
+         */
+        private int twoDigits(int index) {
+            int tens = Character.digit(line.charAt(index), 10);
+            int units = Character.digit(line.charAt(index + 1), 10);
+            return tens < 0 || units < 0 ? -1 : tens * 10 + units;
+        }
+
+        @Override
+        public int compareTo(@NotNull Cursor other) {
+            int byTime = Long.compare(timestamp, other.timestamp);
+            return byTime != 0 ? byTime : Integer.compare(rank, other.rank);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -28,6 +28,19 @@ public class LogUtils {
         logger.info(msg);
     }
 
+    /**
+     * Logs a step of the work on a log at debug level, which the default configuration leaves out.
+     * <p>
+     * Use it for the steps repeated for every file; the time and volume of the work are available through
+     * {@link ExtractionMetrics} instead.
+     *
+     * @param logger The logger to use for logging.
+     * @param msg    The msg to log.
+     */
+    public static void logDebug(@NotNull Logger logger, String msg) {
+        logger.debug(msg);
+    }
+
     /**
      * Logs an error message, along with the corresponding exception, using the provided logger.
      *
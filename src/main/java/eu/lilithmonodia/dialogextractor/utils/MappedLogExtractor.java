@@ -0,0 +1,203 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static eu.lilithmonodia.dialogextractor.utils.LogUtils.logDebug;
+
+/**
+ * Extracts the dialogue of a large uncompressed log file in parallel.
+ * <p>
+ * The file is cut into chunks that end on line boundaries. Each chunk is memory-mapped and scanned by its own
+ * fork-join task, and the chunk results are written back in their original order. Only a bounded number of chunks is
+ * in flight at any time, so memory use does not grow with the file size.
+ */
+public class MappedLogExtractor {
+    static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int BOUNDARY_PROBE_SIZE = 64 * 1024;
+    private static final Logger LOGGER = LogManager.getLogger(MappedLogExtractor.class);
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Creates an extractor running on the common fork-join pool with the default chunk size.
+     */
+    public MappedLogExtractor() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates an extractor.
+     *
+     * @param pool      The fork-join pool running the chunk tasks.
+     * @param chunkSize The approximate size of a chunk in bytes; a chunk is extended to the end of its last line.
+     * @throws IllegalArgumentException if the chunk size is not positive.
+     */
+    public MappedLogExtractor(@NotNull ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size must be at least 1.");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * The dialogue extracted from one chunk.
+     *
+     * @param dialogue The extracted lines, joined with line separators.
+     * @param lines    The number of extracted lines.
+     */
+    private record ChunkResult(@NotNull CharSequence dialogue, long lines) {
+    }
+
+    /**
+     * Extracts the dialogue of a log file and writes it to the given writer.
+     * <p>
+     * The output is the same as the sequential extraction of {@link DialogueExtractor}. The writer is flushed but not
+     * closed.
+     *
+     * @param file    The uncompressed log file.
+     * @param charset The character encoding of the log file.
+     * @param writer  The writer receiving the extracted dialogue.
+     * @return The number of dialogue lines written.
+     * @throws IOException If the file cannot be read or the writer fails.
+     */
+    public long extract(@NotNull Path file, @NotNull Charset charset, @NotNull Writer writer) throws IOException {
+        logDebug(LOGGER, "Mapped parallel extraction started...");
+
+        Deque<Future<ChunkResult>> inFlight = new ArrayDeque<>();
+        int maxInFlight = pool.getParallelism() * 2;
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long end = chunkEnd(channel, start, size);
+                long chunkStart = start;
+                inFlight.add(pool.submit(() -> extractChunk(channel, chunkStart, end, charset)));
+                if (inFlight.size() >= maxInFlight) {
+                    written = append(await(inFlight.poll()), writer, written);
+                }
+                start = end;
+            }
+            while (!inFlight.isEmpty()) {
+                written = append(await(inFlight.poll()), writer, written);
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+        writer.flush();
+
+        logDebug(LOGGER, "Mapped parallel extraction finished successfully.");
+        return written;
+    }
+
+    /**
+     * Finds the end of the chunk starting at the given offset, i.e. the byte after the first line separator at or
+     * after {@code start + chunkSize}.
+     *
+     * @param channel The channel of the log file.
+     * @param start   The offset of the chunk.
+     * @param size    The size of the file.
+     * @return The offset just past the end of the chunk.
+     * @throws IOException If the file cannot be read or a single line does not fit in a chunk.
+     */
+    private long chunkEnd(@NotNull FileChannel channel, long start, long size) throws IOException {
+        long position = start + chunkSize;
+        ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_PROBE_SIZE);
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+            if (position - start > Integer.MAX_VALUE) {
+                throw new IOException("A line of the log is too long to be mapped.");
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Maps a chunk of the log file and extracts its dialogue.
+     *
+     * @param channel The channel of the log file.
+     * @param start   The offset of the chunk.
+     * @param end     The offset just past the end of the chunk.
+     * @param charset The character encoding of the log file.
+     * @return The dialogue of the chunk.
+     * @throws IOException If the chunk cannot be mapped.
+     */
+    private static @NotNull ChunkResult extractChunk(@NotNull FileChannel channel, long start, long end,
+                                                     @NotNull Charset charset) throws IOException {
+        ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        StringWriter dialogue = new StringWriter();
+        long lines = new DialogueExtractor().extract(chunk, charset, dialogue);
+        return new ChunkResult(dialogue.getBuffer(), lines);
+    }
+
+    /**
+     * Waits for a chunk task and unwraps its failure.
+     *
+     * @param future The chunk task.
+     * @return The dialogue of the chunk.
+     * @throws IOException If the chunk task failed with an I/O error or the thread was interrupted.
+     */
+    private static @NotNull ChunkResult await(@NotNull Future<ChunkResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a chunk.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IllegalStateException("A chunk task failed unexpectedly.", e.getCause());
+        }
+    }
+
+    /**
+     * Appends the dialogue of a chunk to the output, separated from the previous chunks by a line separator.
+     *
+     * @param chunk   The dialogue of the chunk.
+     * @param writer  The writer receiving the dialogue.
+     * @param written The number of dialogue lines written so far.
+     * @return The number of dialogue lines written after this call.
+     * @throws IOException If writing to the writer fails.
+     */
+    private static long append(@NotNull ChunkResult chunk, @NotNull Writer writer, long written) throws IOException {
+        if (chunk.lines() == 0) {
+            return written;
+        }
+        if (written > 0) {
+            writer.write('\n');
+        }
+        writer.append(chunk.dialogue());
+        return written + chunk.lines();
+    }
+}
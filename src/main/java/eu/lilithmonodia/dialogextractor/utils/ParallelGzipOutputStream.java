@@ -0,0 +1,183 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An output stream compressing its bytes into a multi-member GZIP file, compressing independent blocks in parallel.
+ * <p>
+ * The bytes are cut into fixed-size blocks, and each block is compressed by its own fork-join task into a complete
+ * GZIP member. The members are written in order, and concatenated members form a valid GZIP file that any GZIP reader,
+ * including {@link java.util.zip.GZIPInputStream}, decompresses as a whole. Only a bounded number of blocks is in
+ * flight at any time. Blocks do not share a dictionary, so the output is slightly larger than sequential compression.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    private static final int MEMBER_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final ForkJoinPool pool;
+    private final int blockSize;
+    private final int maxInFlight;
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private byte[] block;
+    private int size;
+    private boolean membersWritten;
+    private boolean closed;
+
+    /**
+     * Creates a stream compressing on the common fork-join pool with the default block size.
+     *
+     * @param out The stream receiving the GZIP members; it is closed with this stream.
+     */
+    public ParallelGzipOutputStream(@NotNull OutputStream out) {
+        this(out, ForkJoinPool.commonPool(), DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a stream.
+     *
+     * @param out       The stream receiving the GZIP members; it is closed with this stream.
+     * @param pool      The fork-join pool compressing the blocks.
+     * @param blockSize The number of uncompressed bytes in a block.
+     * @throws IllegalArgumentException if the block size is not positive.
+     */
+    public ParallelGzipOutputStream(@NotNull OutputStream out, @NotNull ForkJoinPool pool, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("The block size must be at least 1.");
+        }
+        this.out = out;
+        this.pool = pool;
+        this.blockSize = blockSize;
+        this.maxInFlight = pool.getParallelism() * 2;
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[size++] = (byte) b;
+        if (size == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            int copied = Math.min(length, blockSize - size);
+            System.arraycopy(bytes, offset, block, size, copied);
+            size += copied;
+            offset += copied;
+            length -= copied;
+            if (size == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Compresses the pending bytes into a member and writes every member to the underlying stream.
+     * <p>
+     * Each flush with pending bytes ends a member, so flushing often degrades compression.
+     *
+     * @throws IOException If a block cannot be compressed or the underlying stream fails.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (size > 0) {
+            submitBlock();
+        }
+        while (!inFlight.isEmpty()) {
+            writeMember(inFlight.poll());
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the remaining members and closes the underlying stream.
+     * <p>
+     * An empty stream still produces one empty member, so the output is always a valid GZIP file.
+     *
+     * @throws IOException If a block cannot be compressed or the underlying stream fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (size > 0 || !membersWritten && inFlight.isEmpty()) {
+                submitBlock();
+            }
+            flush();
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+            out.close();
+        }
+    }
+
+    /**
+     * Hands the current block to a compression task and starts a new block, waiting for the oldest block if too many
+     * are in flight.
+     *
+     * @throws IOException If the oldest block cannot be compressed or written.
+     */
+    private void submitBlock() throws IOException {
+        byte[] bytes = block;
+        int length = size;
+        inFlight.add(pool.submit(() -> compress(bytes, length)));
+        block = new byte[blockSize];
+        size = 0;
+        if (inFlight.size() >= maxInFlight) {
+            writeMember(inFlight.poll());
+        }
+    }
+
+    /**
+     * Compresses a block into a complete GZIP member.
+     *
+     * @param bytes  The array holding the block.
+     * @param length The number of bytes of the block.
+     * @return The GZIP member.
+     * @throws IOException Never, as the member is built in memory.
+     */
+    private static byte @NotNull [] compress(byte @NotNull [] bytes, int length) throws IOException {
+        ByteArrayOutputStream member = new ByteArrayOutputStream(length / 3 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(member, MEMBER_BUFFER_SIZE)) {
+            gzip.write(bytes, 0, length);
+        }
+        return member.toByteArray();
+    }
+
+    /**
+     * Waits for a compression task and writes its member.
+     *
+     * @param future The compression task.
+     * @throws IOException If the task failed, the thread was interrupted or the underlying stream fails.
+     */
+    private void writeMember(@NotNull Future<byte[]> future) throws IOException {
+        try {
+            out.write(future.get());
+            membersWritten = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a block to be compressed.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IllegalStateException("A compression task failed unexpectedly.", e.getCause());
+        }
+    }
+}
@@ -7,6 +7,8 @@
  *     <li><b>atlantafx.base:</b> Provides additional UI controls and functionalities.</li>
  *     <li><b>org.jetbrains.annotations:</b> Delivers annotations for code analysis.</li>
  *     <li><b>java.logging:</b> Facilitates logging capabilities.</li>
+ *     <li><b>jdk.jfr:</b> Records the stages of the work on logs as JDK Flight Recorder events.</li>
+ *     <li><b>jdk.httpserver:</b> Serves the extraction over HTTP in the headless {@code serve} command.</li>
  * </ul>
  * <h3>Package Accessibility: </h3>
  * <ul>
@@ -24,6 +26,8 @@ module eu.lilithmonodia.dialogextractor {
     requires atlantafx.base;
     requires org.jetbrains.annotations;
     requires org.apache.logging.log4j;
+    requires jdk.jfr;
+    requires jdk.httpserver;
 
     opens eu.lilithmonodia.dialogextractor to javafx.fxml;
     exports eu.lilithmonodia.dialogextractor;
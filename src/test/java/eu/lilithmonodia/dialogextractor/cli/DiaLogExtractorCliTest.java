@@ -0,0 +1,289 @@
+package eu.lilithmonodia.dialogextractor.cli;
+
+import eu.lilithmonodia.dialogextractor.data.FilterRules;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The DiaLogExtractorCliTest class contains unit tests for the headless command-line entry point.
+ * It checks command detection, usage errors and a full extract run.
+ */
+class DiaLogExtractorCliTest {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test case for the isCliCommand method.
+     * It checks that only known commands select the headless mode.
+     */
+    @Test
+    void testIsCliCommand() {
+        assertTrue(DiaLogExtractorCli.isCliCommand(new String[]{"extract", "logs"}), "extract is a command.");
+        assertTrue(DiaLogExtractorCli.isCliCommand(new String[]{"merge", "logs"}), "merge is a command.");
+        assertTrue(DiaLogExtractorCli.isCliCommand(new String[]{"stats", "latest.log"}), "stats is a command.");
+        assertTrue(DiaLogExtractorCli.isCliCommand(new String[]{"serve"}), "serve is a command.");
+        assertFalse(DiaLogExtractorCli.isCliCommand(new String[0]), "No arguments start the GUI.");
+        assertFalse(DiaLogExtractorCli.isCliCommand(new String[]{"--foo"}), "Unknown arguments start the GUI.");
+    }
+
+    /**
+     * Test case for the run method with the extract command.
+     * It checks that the logs of a directory are extracted into the output directory.
+     */
+    @Test
+    void testRunExtract() throws IOException {
+        Path logs = Files.createDirectory(tempDir.resolve("logs"));
+        Files.writeString(logs.resolve("latest.log"), "[CHAT] hi\n[CHAT] §ethere\n", StandardCharsets.UTF_8);
+        Path output = tempDir.resolve("out");
+
+        int status = run("extract", logs.toString(), "--output", output.toString(), "--parallelism", "2",
+                "--charset", "UTF-8");
+
+        assertEquals(DiaLogExtractorCli.EXIT_SUCCESS, status, "The command should succeed: " + err);
+        assertEquals("hi\nthere", Files.readString(output.resolve("latest-dialog-extracted.log")),
+                "The extracted file content is wrong.");
+    }
+
+    /**
+     * Test case for the run method with the gzip flag.
+     * It checks that the extracted file is compressed and named with the {@code .gz} suffix.
+     */
+    @Test
+    void testRunExtractGzip() throws IOException {
+        Path log = Files.writeString(tempDir.resolve("latest.log"), "[CHAT] hi\n[CHAT] there\n", StandardCharsets.UTF_8);
+        Path output = tempDir.resolve("out");
+
+        int status = run("extract", log.toString(), "--output", output.toString(), "--gzip");
+
+        assertEquals(DiaLogExtractorCli.EXIT_SUCCESS, status, "The command should succeed: " + err);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(output.resolve("latest-dialog-extracted.log.gz")))) {
+            assertEquals("hi\nthere", new String(in.readAllBytes(), StandardCharsets.UTF_8),
+                    "The compressed file content is wrong.");
+        }
+    }
+
+    /**
+     * Test case for the run method with the merge command.
+     * It checks that rotated logs are merged into one transcript in rotation order.
+     */
+    @Test
+    void testRunMerge() throws IOException {
+        Path logs = Files.createDirectory(tempDir.resolve("logs"));
+        Files.writeString(logs.resolve("2024-01-02-1.log"), "[09:00:00] [CHAT] later\n", StandardCharsets.UTF_8);
+        Files.writeString(logs.resolve("2024-01-01-1.log"), "[18:00:00] [CHAT] earlier\n", StandardCharsets.UTF_8);
+        Path output = tempDir.resolve("transcript.log");
+
+        int status = run("merge", logs.toString(), "--output", output.toString(), "--charset", "UTF-8");
+
+        assertEquals(DiaLogExtractorCli.EXIT_SUCCESS, status, "The command should succeed: " + err);
+        assertEquals("earlier\nlater", Files.readString(output), "The merged file content is wrong.");
+    }
+
+    /**
+     * Test case for the run method with the range command.
+     * It checks that only the dialogue of the time range is extracted and that the index is saved on request.
+     */
+    @Test
+    void testRunRange() throws IOException {
+        Path log = Files.writeString(tempDir.resolve("latest.log"),
+                "[09:00:00] [CHAT] before\n[10:00:00] [CHAT] inside\n[11:00:00] [CHAT] after\n", StandardCharsets.UTF_8);
+        Path output = tempDir.resolve("range.log");
+
+        int status = run("range", log.toString(), "--from", "09:30:00", "--to", "10:30:00", "--output",
+                output.toString(), "--charset", "UTF-8", "--save-index");
+
+        assertEquals(DiaLogExtractorCli.EXIT_SUCCESS, status, "The command should succeed: " + err);
+        assertEquals("inside", Files.readString(output), "The range content is wrong.");
+        assertTrue(Files.exists(tempDir.resolve("latest.log.tidx")), "The index should be saved.");
+        assertEquals(DiaLogExtractorCli.EXIT_USAGE, run("range", log.toString(), "--from", "noon", "--to", "13:00:00"),
+                "An invalid time is a usage error.");
+    }
+
+    /**
+     * Test case for the run method with the stats command.
+     * It checks that the messages are counted per sender, most active sender first.
+     */
+    @Test
+    void testRunStats() throws IOException {
+        Path log = Files.writeString(tempDir.resolve("latest.log"), """
+                [10:00:00] [Render thread/INFO]: [CHAT] <Alex> hi
+                [10:00:01] [Render thread/INFO]: [CHAT] <Steve> hello
+                [10:00:02] [Render thread/INFO]: [CHAT] <Steve> bye
+                [10:00:03] [Render thread/INFO]: [CHAT] Steve left the game
+                """, StandardCharsets.UTF_8);
+
+        int status = run("stats", log.toString(), "--charset", "UTF-8");
+
+        assertEquals(DiaLogExtractorCli.EXIT_SUCCESS, status, "The command should succeed: " + err);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals("       2  Steve", lines[0], "The most active sender should come first.");
+        assertEquals("       1  Alex", lines[1], "Every sender should be counted.");
+        assertEquals("4 chat lines, 3 from 2 players, 1 system messages", lines[2], "The summary is wrong.");
+    }
+
+    /**
+     * Test case for the run method with the index and search commands.
+     * It checks that the dialogue files of a directory are indexed and that a search prints the matching lines.
+     */
+    @Test
+    void testRunIndexAndSearch() throws IOException {
+        Path archive = Files.createDirectories(tempDir.resolve("archive").resolve("2024"));
+        Path dialogue = Files.writeString(archive.resolve("latest-dialog-extracted.log"), "<Steve> hi\n<Alex> hi Steve");
+        Files.writeString(archive.resolve("latest.log"), "[CHAT] <Steve> not a dialogue file");
+        String index = tempDir.resolve("index").toString();
+
+        assertEquals(DiaLogExtractorCli.EXIT_SUCCESS, run("index", tempDir.resolve("archive").toString(), "--index", index),
+                "The index command should succeed: " + err);
+        out.reset();
+        int status = run("search", "from:alex", "steve", "--index", index);
+
+        assertEquals(DiaLogExtractorCli.EXIT_SUCCESS, status, "The search should find a line: " + err);
+        assertEquals(dialogue.toAbsolutePath() + ":2: <Alex> hi Steve", out.toString(StandardCharsets.UTF_8).trim(),
+                "The search output is wrong.");
+        assertEquals(DiaLogExtractorCli.EXIT_FAILURE, run("search", "dialogue", "--index", index),
+                "Only dialogue files should be indexed.");
+    }
+
+    /**
+     * Test case for the run method with a rule file.
+     * It checks that the rules given with --rules decide which chat lines are extracted.
+     */
+    @Test
+    void testRunWithRules() throws IOException {
+        Path logs = Files.createDirectory(tempDir.resolve("logs"));
+        Files.writeString(logs.resolve("latest.log"),
+                "[CHAT] Steve joined the game\n[CHAT] <Steve> hello\n[CHAT] Shaders Reloaded!\n", StandardCharsets.UTF_8);
+        Path rules = Files.writeString(tempDir.resolve("rules.txt"), "# Server messages\nexclude joined the game\n");
+        Path output = tempDir.resolve("out");
+
+        try {
+            int status = run("extract", logs.toString(), "--output", output.toString(), "--charset", "UTF-8",
+                    "--rules", rules.toString());
+
+            assertEquals(DiaLogExtractorCli.EXIT_SUCCESS, status, "The command should succeed: " + err);
+            assertEquals("<Steve> hello\nShaders Reloaded!",
+                    Files.readString(output.resolve("latest-dialog-extracted.log")),
+                    "The rule file should replace the default rules.");
+        } finally {
+            FilterRules.activate(FilterRules.DEFAULT);
+        }
+    }
+
+    /**
+     * Test case for the run method with the --dedup option.
+     * It checks that repeated lines are dropped and counted in the statistics.
+     */
+    @Test
+    void testRunWithDedup() throws IOException {
+        Path logs = Files.createDirectory(tempDir.resolve("logs"));
+        Files.writeString(logs.resolve("latest.log"), "[CHAT] Vote for us!\n[CHAT] <Steve> hello\n[CHAT] Vote for us!\n"
+                + "[CHAT] <Alex> hi\n[CHAT] <Steve> hello\n", StandardCharsets.UTF_8);
+        Path output = tempDir.resolve("out");
+
+        try {
+            int status = run("extract", logs.toString(), "--output", output.toString(), "--charset", "UTF-8",
+                    "--dedup", "2", "--stats");
+
+            assertEquals(DiaLogExtractorCli.EXIT_SUCCESS, status, "The command should succeed: " + err);
+            assertEquals("Vote for us!\n<Steve> hello\n<Alex> hi\n<Steve> hello",
+                    Files.readString(output.resolve("latest-dialog-extracted.log")),
+                    "Only the lines repeated within the window should be dropped.");
+            assertTrue(err.toString().matches("(?s).*Duplicate lines dropped:\\s+1\\R.*"),
+                    "The duplicates should be counted: " + err);
+            assertEquals(DiaLogExtractorCli.EXIT_USAGE, run("extract", logs.toString(), "--dedup", "often"),
+                    "An invalid window is a usage error.");
+        } finally {
+            FilterRules.activate(FilterRules.DEFAULT);
+        }
+    }
+
+    /**
+     * Test case for the run method with the merge and stats commands and the --dedup option.
+     * It checks that lines repeated across the merged logs are dropped, and not counted by the statistics.
+     */
+    @Test
+    void testRunMergeWithDedup() throws IOException {
+        Path logs = Files.createDirectory(tempDir.resolve("logs"));
+        Files.writeString(logs.resolve("2024-01-01-1.log"), "[18:00:00] [CHAT] <Steve> hello\n[18:00:01] [CHAT] "
+                + "Vote for us!\n", StandardCharsets.UTF_8);
+        Files.writeString(logs.resolve("2024-01-02-1.log"), "[09:00:00] [CHAT] Vote for us!\n[09:00:01] [CHAT] "
+                + "<Steve> bye\n[09:00:02] [CHAT] <Steve> hello\n", StandardCharsets.UTF_8);
+        Path output = tempDir.resolve("transcript.log");
+
+        try {
+            int status = run("merge", logs.toString(), "--output", output.toString(), "--charset", "UTF-8",
+                    "--dedup", "all");
+
+            assertEquals(DiaLogExtractorCli.EXIT_SUCCESS, status, "The command should succeed: " + err);
+            assertEquals("<Steve> hello\nVote for us!\n<Steve> bye", Files.readString(output),
+                    "The lines repeated across logs should be dropped.");
+
+            Path log = Files.writeString(tempDir.resolve("latest.log"), "[10:00:00] [CHAT] <Steve> hello\n"
+                    + "[10:00:01] [CHAT] <Steve> hello\n[10:00:02] [CHAT] <Alex> hello\n", StandardCharsets.UTF_8);
+            status = run("stats", log.toString(), "--charset", "UTF-8", "--dedup", "1");
+
+            assertEquals(DiaLogExtractorCli.EXIT_SUCCESS, status, "The command should succeed: " + err);
+            assertTrue(out.toString(StandardCharsets.UTF_8).contains("2 chat lines, 2 from 2 players"),
+                    "The repeated line should not be counted: " + out);
+        } finally {
+            FilterRules.activate(FilterRules.DEFAULT);
+        }
+    }
+
+    /**
+     * Test case for the run method with the --stats flag.
+     * It checks that the time of each stage and the counters are printed to the error stream.
+     */
+    @Test
+    void testRunWithStats() throws IOException {
+        Path logs = Files.createDirectory(tempDir.resolve("logs"));
+        Files.writeString(logs.resolve("latest.log"),
+                "[12:00:00] [Render thread/INFO]: [CHAT] <Steve> hello\n[12:00:01] [Server thread/INFO]: Saving\n",
+                StandardCharsets.UTF_8);
+
+        int status = run("extract", logs.toString(), "--output", tempDir.resolve("out").toString(),
+                "--charset", "UTF-8", "--stats");
+
+        assertEquals(DiaLogExtractorCli.EXIT_SUCCESS, status, "The command should succeed: " + err);
+        String stats = err.toString(StandardCharsets.UTF_8);
+        assertTrue(stats.matches("(?s).*extract\\s+1\\s.*"), "One extraction should be timed: " + stats);
+        assertTrue(stats.matches("(?s).*Dialogue lines matched:\\s+1\\R.*"), "The line should be counted: " + stats);
+    }
+
+    /**
+     * Test case for the run method with invalid options.
+     * It checks that usage errors are reported with the usage exit status.
+     */
+    @Test
+    void testRunWithInvalidUsage() {
+        assertEquals(DiaLogExtractorCli.EXIT_USAGE, run("extract"), "Missing inputs are a usage error.");
+        assertEquals(DiaLogExtractorCli.EXIT_USAGE, run("extract", "logs", "--parallelism", "many"),
+                "A non-numeric parallelism is a usage error.");
+        assertEquals(DiaLogExtractorCli.EXIT_USAGE, run("extract", "logs", "--parallelism", "0"),
+                "A parallelism below 1 is a usage error.");
+    }
+
+    /**
+     * Runs the command line with the test output streams.
+     *
+     * @param args The command-line arguments.
+     * @return The exit status.
+     */
+    private int run(String... args) {
+        return DiaLogExtractorCli.run(args, new PrintStream(out, true), new PrintStream(err, true));
+    }
+}
@@ -0,0 +1,222 @@
+package eu.lilithmonodia.dialogextractor.cli;
+
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ExtractionServerTest class contains unit tests for the ExtractionServer class.
+ * It runs the server on a free localhost port and checks the extraction, the concurrency limit and the metrics.
+ */
+class ExtractionServerTest {
+    private static final Charset CHARSET = Charset.forName("windows-1252");
+
+    /**
+     * Test case for the extract endpoint with plain and GZIP-compressed logs.
+     * It checks that the dialogue sent back matches a local extraction.
+     */
+    @Test
+    void testExtract() throws IOException {
+        byte[] log = sampleLog(20_000).getBytes(CHARSET);
+        try (ExtractionServer server = startServer(2, 2)) {
+            HttpURLConnection plain = post(server, "/extract", log);
+            assertEquals(200, plain.getResponseCode(), "The plain log should be extracted.");
+            assertEquals(expected(log, CHARSET), read(plain.getInputStream()), "The dialogue is wrong.");
+
+            HttpURLConnection compressed = post(server, "/extract", gzip(log));
+            assertEquals(200, compressed.getResponseCode(), "The compressed log should be extracted.");
+            assertEquals(expected(log, CHARSET), read(compressed.getInputStream()), "The inflated dialogue is wrong.");
+
+            byte[] utf8 = sampleLog(20_000).getBytes(StandardCharsets.UTF_8);
+            HttpURLConnection withCharset = post(server, "/extract?charset=UTF-8", utf8);
+            assertEquals(expected(utf8, StandardCharsets.UTF_8), read(withCharset.getInputStream()),
+                    "The charset parameter should be used.");
+        }
+    }
+
+    /**
+     * Test case for the extract endpoint under load.
+     * It checks that a request beyond the limits is rejected while another one is extracted, and that both are
+     * counted in the metrics.
+     */
+    @Test
+    void testConcurrencyLimit() throws IOException, InterruptedException {
+        byte[] log = sampleLog(200).getBytes(CHARSET);
+        try (ExtractionServer server = startServer(1, 0)) {
+            HttpURLConnection slow = connect(server, "/extract");
+            slow.setDoOutput(true);
+            slow.setChunkedStreamingMode(1024);
+            OutputStream upload = slow.getOutputStream();
+            upload.write(log, 0, log.length / 2);
+            upload.flush();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!metrics(server).contains("dialog_extractor_requests_active 1\n")) {
+                assertTrue(System.currentTimeMillis() < deadline, "The first upload should be extracted.");
+                Thread.sleep(10);
+            }
+
+            HttpURLConnection rejected = post(server, "/extract", log);
+            assertEquals(503, rejected.getResponseCode(), "A request beyond the limits should be rejected.");
+            assertEquals("1", rejected.getHeaderField("Retry-After"), "The client should be told when to retry.");
+
+            upload.write(log, log.length / 2, log.length - log.length / 2);
+            upload.close();
+            assertEquals(200, slow.getResponseCode(), "The first upload should succeed.");
+            assertEquals(expected(log, CHARSET), read(slow.getInputStream()), "The streamed dialogue is wrong.");
+
+            String metrics = metrics(server);
+            assertTrue(metrics.contains("dialog_extractor_requests_rejected_total 1\n"), metrics);
+            assertTrue(metrics.contains("dialog_extractor_bytes_received_total " + log.length + "\n"), metrics);
+        }
+    }
+
+    /**
+     * Test case for the extract endpoint with invalid requests.
+     * It checks that a wrong method and an unknown charset are answered with client errors.
+     */
+    @Test
+    void testInvalidRequests() throws IOException {
+        try (ExtractionServer server = startServer(1, 1)) {
+            HttpURLConnection get = connect(server, "/extract");
+            assertEquals(405, get.getResponseCode(), "Only POST should be allowed.");
+            assertEquals("POST", get.getHeaderField("Allow"), "The allowed method should be given.");
+
+            HttpURLConnection charset = post(server, "/extract?charset=nope", new byte[0]);
+            assertEquals(400, charset.getResponseCode(), "An unknown charset should be rejected.");
+        }
+        assertThrows(IllegalArgumentException.class, () -> startServer(0, 0), "No concurrency is invalid.");
+    }
+
+    /**
+     * Starts a server on a free localhost port.
+     *
+     * @param maxConcurrent The maximum number of logs extracted at the same time.
+     * @param maxQueued     The maximum number of requests waiting for their turn.
+     * @return The started server.
+     * @throws IOException If the server cannot be bound.
+     */
+    private static ExtractionServer startServer(int maxConcurrent, int maxQueued) throws IOException {
+        ExtractionServer server = new ExtractionServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                maxConcurrent, maxQueued, 100, CHARSET);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Opens a connection to the server.
+     *
+     * @param server The server.
+     * @param path   The path and query of the request.
+     * @return The unconnected connection.
+     * @throws IOException If the URL is invalid.
+     */
+    private static HttpURLConnection connect(ExtractionServer server, String path) throws IOException {
+        URL url = new URL("http", server.address().getHostString(), server.address().getPort(), path);
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    /**
+     * Posts a body to the server.
+     *
+     * @param server The server.
+     * @param path   The path and query of the request.
+     * @param body   The body to post.
+     * @return The connection, whose request was sent.
+     * @throws IOException If the request cannot be sent.
+     */
+    private static HttpURLConnection post(ExtractionServer server, String path, byte[] body) throws IOException {
+        HttpURLConnection connection = connect(server, path);
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        return connection;
+    }
+
+    /**
+     * Reads the metrics page of the server.
+     *
+     * @param server The server.
+     * @return The metrics page.
+     * @throws IOException If the request fails.
+     */
+    private static String metrics(ExtractionServer server) throws IOException {
+        return read(connect(server, "/metrics").getInputStream());
+    }
+
+    /**
+     * Reads a response body as UTF-8 and closes it.
+     *
+     * @param in The response body.
+     * @return The text of the body.
+     * @throws IOException If the body cannot be read.
+     */
+    private static String read(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Extracts the dialogue of a log locally.
+     *
+     * @param log     The bytes of the log.
+     * @param charset The character encoding of the log.
+     * @return The dialogue.
+     * @throws IOException If the extraction fails.
+     */
+    private static String expected(byte[] log, Charset charset) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DialogueExtractor().extract(new ByteArrayInputStream(log), charset, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compresses bytes with GZIP.
+     *
+     * @param bytes The bytes to compress.
+     * @return The compressed bytes.
+     * @throws IOException If the compression fails.
+     */
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Builds a log mixing dialogue, noise and filtered chat lines.
+     *
+     * @param lines The number of lines of the log.
+     * @return The text of the log.
+     */
+    private static String sampleLog(int lines) {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            String prefix = "[12:00:00] [Render thread/INFO]: ";
+            log.append(switch (i % 3) {
+                case 0 -> prefix + "[CHAT] <Player> message " + i + " é";
+                case 1 -> prefix + "Noise line " + i;
+                default -> prefix + "[CHAT] Shaders Reloaded!";
+            }).append('\n');
+        }
+        return log.toString();
+    }
+}
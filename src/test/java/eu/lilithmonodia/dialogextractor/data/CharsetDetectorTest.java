@@ -0,0 +1,69 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The CharsetDetectorTest class contains unit tests for the CharsetDetector class.
+ * It checks that UTF-8 and windows-1252 logs are told apart by their colour codes.
+ */
+class CharsetDetectorTest {
+    private static final String CHAT_LINE = "[12:00:00] [Render thread/INFO]: [CHAT] §aHello §lworld\n";
+
+    /**
+     * Test case for the detect method with a UTF-8 log.
+     * It checks that two-byte section signs are recognised as UTF-8.
+     */
+    @Test
+    void testDetectUtf8() {
+        ByteBuffer sample = ByteBuffer.wrap(CHAT_LINE.repeat(3).getBytes(StandardCharsets.UTF_8));
+        assertEquals(StandardCharsets.UTF_8, CharsetDetector.detect(sample), "A UTF-8 log was not detected");
+    }
+
+    /**
+     * Test case for the detect method with a windows-1252 log.
+     * It checks that single-byte section signs are recognised as windows-1252.
+     */
+    @Test
+    void testDetectWindows1252() {
+        ByteBuffer sample = ByteBuffer.wrap(CHAT_LINE.repeat(3).getBytes(CharsetDetector.WINDOWS_1252));
+        assertEquals(CharsetDetector.WINDOWS_1252, CharsetDetector.detect(sample), "A windows-1252 log was not detected");
+    }
+
+    /**
+     * Test case for the detect method with a pure ASCII log.
+     * It checks that the legacy encoding is chosen, as both decode it the same way.
+     */
+    @Test
+    void testDetectAscii() {
+        ByteBuffer sample = ByteBuffer.wrap("[CHAT] Hello\n".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(CharsetDetector.WINDOWS_1252, CharsetDetector.detect(sample), "An ASCII log was not windows-1252");
+    }
+
+    /**
+     * Test case for the detect method with a UTF-8 sample cut in the middle of a sequence and holding a stray byte.
+     * It checks that the truncated sequence is ignored and that a single stray byte does not outweigh the colour codes.
+     */
+    @Test
+    void testDetectTruncatedUtf8WithStrayByte() {
+        byte[] utf8 = CHAT_LINE.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer sample = ByteBuffer.allocate(utf8.length + 2);
+        sample.put(utf8).put((byte) 0x80).put((byte) 0xC2).flip();
+        assertEquals(StandardCharsets.UTF_8, CharsetDetector.detect(sample), "The truncated UTF-8 log was not detected");
+        assertEquals(0, sample.position(), "The position of the sample was changed");
+    }
+
+    /**
+     * Test case for the detect method with overlong and surrogate sequences.
+     * It checks that they count as malformed bytes.
+     */
+    @Test
+    void testDetectRejectsOverlongAndSurrogates() {
+        ByteBuffer sample = ByteBuffer.wrap(new byte[]{(byte) 0xC0, (byte) 0xA7, (byte) 0xED, (byte) 0xA0, (byte) 0x80});
+        assertEquals(CharsetDetector.WINDOWS_1252, CharsetDetector.detect(sample), "Malformed sequences counted as UTF-8");
+    }
+}
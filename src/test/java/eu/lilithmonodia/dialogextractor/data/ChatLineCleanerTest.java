@@ -0,0 +1,152 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The ChatLineCleanerTest class contains unit tests for the allocation-free ChatLineCleaner.
+ * It checks that the cleaner gives exactly the same output as the former regex-based implementation.
+ */
+class ChatLineCleanerTest {
+    private static final String DIALOG_PREFIX = "[CHAT]";
+    private static final String ALPHABET = "ab §§§ \t\r\u0085\u2028\u2029\u00a0é😀\ud83d[CHAT]";
+
+    /**
+     * Test case for edge cases of the colour code syntax.
+     * It checks doubled markers, markers before line terminators, surrogate pairs and a trailing marker.
+     */
+    @Test
+    void testCleanEdgeCases() {
+        ChatLineCleaner cleaner = new ChatLineCleaner();
+        for (String tail : List.of("", " ", "§", "§§a", "a§", "§\r", "§\u2028x", "§😀x", "§\ud83dx",
+                " §a §b hello §c ", "§ ", "\u00a0x\u00a0")) {
+            assertEquals(legacyClean(tail), cleaner.clean(tail, 0, tail.length()).toString(),
+                    "Cleaned output differs from the regex output for \"" + tail + "\"");
+        }
+    }
+
+    /**
+     * Test case for the contentEquals method.
+     * It checks that the comparison is done on the cleaned and trimmed line.
+     */
+    @Test
+    void testContentEquals() {
+        ChatLineCleaner cleaner = new ChatLineCleaner().clean(" §aShaders Reloaded!§r ", 0, 23);
+
+        assertTrue(cleaner.contentEquals("Shaders Reloaded!"), "The cleaned line should equal the text.");
+        assertFalse(cleaner.contentEquals("Shaders Reloaded"), "The cleaned line should not equal a shorter text.");
+    }
+
+    /**
+     * Test case comparing the cleaner with the regex on random lines, for character and byte input.
+     * It checks that both input forms give the regex output.
+     */
+    @Test
+    void testCleanMatchesRegexOnRandomLines() {
+        Random random = new Random(7);
+        ChatLineCleaner cleaner = new ChatLineCleaner();
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        for (int i = 0; i < 10_000; i++) {
+            String tail = randomText(random, random.nextInt(600));
+            String expected = legacyClean(tail);
+
+            assertEquals(expected, cleaner.clean(tail, 0, tail.length()).toString(), "Character cleaning differs.");
+            String decodable = new String(tail.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+            assertEquals(legacyClean(decodable),
+                    cleaner.clean(ByteBuffer.wrap(tail.getBytes(StandardCharsets.UTF_8)), decoder).toString(),
+                    "Byte cleaning differs.");
+        }
+    }
+
+    /**
+     * Test case comparing whole-log extraction with the former MinecraftLog implementation on generated logs.
+     * It checks the in-memory API as well as the windows-1252 and UTF-8 stream APIs.
+     */
+    @Test
+    void testExtractionMatchesLegacyOnGeneratedLogs() throws IOException {
+        Random random = new Random(1234);
+        DialogueExtractor extractor = new DialogueExtractor();
+        for (int run = 0; run < 50; run++) {
+            StringBuilder log = new StringBuilder();
+            int lines = random.nextInt(300);
+            for (int i = 0; i < lines; i++) {
+                log.append("[12:00:0").append(i % 10).append("] [Render thread/INFO]: ");
+                if (random.nextBoolean()) {
+                    log.append("[System] [CHAT] ");
+                }
+                if (random.nextInt(20) == 0) {
+                    log.append("§aShaders Reloaded!");
+                }
+                log.append(randomText(random, random.nextInt(80))).append('\n');
+            }
+            String expected = legacyExtract(log.toString());
+
+            assertEquals(expected, new MinecraftLog(log.toString()).extractDialogue().log(),
+                    "In-memory extraction differs from the legacy implementation.");
+            for (Charset charset : List.of(StandardCharsets.UTF_8, Charset.forName("windows-1252"))) {
+                String decoded = new String(log.toString().getBytes(charset), charset);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                extractor.extract(new ByteArrayInputStream(decoded.getBytes(charset)), charset, out);
+
+                assertEquals(legacyExtract(decoded), out.toString(StandardCharsets.UTF_8),
+                        "Stream extraction differs from the legacy implementation for " + charset);
+            }
+        }
+    }
+
+    /**
+     * The former regex-based line cleaning, kept as the reference for the cleaner.
+     *
+     * @param tail The chat line without its prefix.
+     * @return The cleaned chat line.
+     */
+    private static String legacyClean(String tail) {
+        return tail.replaceAll("§.", "").trim();
+    }
+
+    /**
+     * The former MinecraftLog extraction, kept as the reference for the streaming extraction.
+     *
+     * @param log The raw log.
+     * @return The extracted dialogue.
+     */
+    private static String legacyExtract(String log) {
+        return String.join("\n", Arrays.stream(log.split("\n"))
+                .filter(line -> line.contains(DIALOG_PREFIX))
+                .map(line -> legacyClean(line.substring(line.indexOf(DIALOG_PREFIX) + DIALOG_PREFIX.length())))
+                .filter(cleanedLine -> !"Shaders Reloaded!".equals(cleanedLine))
+                .toList());
+    }
+
+    /**
+     * Generates random text from an alphabet rich in colour codes, whitespace and surrogates.
+     *
+     * @param random The random source.
+     * @param length The number of characters to generate.
+     * @return The generated text.
+     */
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+}
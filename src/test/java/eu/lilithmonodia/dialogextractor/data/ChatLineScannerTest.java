@@ -0,0 +1,128 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The ChatLineScannerTest class contains unit tests for the byte-level ChatLineScanner.
+ * It checks that the scanner finds the same chat lines as the character-based extraction.
+ */
+class ChatLineScannerTest {
+
+    /**
+     * Test case for the indexOfMarker method.
+     * It checks that the Horspool search finds the marker at the start, in the middle and at the end of a region.
+     */
+    @Test
+    void testIndexOfMarker() {
+        ByteBuffer buffer = ByteBuffer.wrap("[CHAT] a [CHA[CHAT]".getBytes(StandardCharsets.US_ASCII));
+
+        assertEquals(0, ChatLineScanner.indexOfMarker(buffer, 0, buffer.limit()), "Marker at start not found.");
+        assertEquals(13, ChatLineScanner.indexOfMarker(buffer, 1, buffer.limit()), "Marker at end not found.");
+        assertEquals(-1, ChatLineScanner.indexOfMarker(buffer, 1, buffer.limit() - 1), "Marker found outside region.");
+    }
+
+    /**
+     * Test case for the scan method with a stream that delivers its bytes in tiny pieces.
+     * It checks that lines and markers cut across reads are still found.
+     */
+    @Test
+    void testScanAcrossReads() throws IOException {
+        byte[] log = "x [CHAT] one\nno chat\n[CHAT] two\n[CH\n[CHAT] three".getBytes(StandardCharsets.US_ASCII);
+        List<String> tails = new ArrayList<>();
+        long found = new ChatLineScanner().scan(new TrickleInputStream(log), tail ->
+                tails.add(StandardCharsets.US_ASCII.decode(tail).toString()));
+
+        assertEquals(List.of(" one", " two", " three"), tails, "Chat line tails are wrong.");
+        assertEquals(3, found, "The number of chat lines found is wrong.");
+    }
+
+    /**
+     * Test case for the supports method.
+     * It checks that ASCII-compatible charsets are supported and UTF-16 is not.
+     */
+    @Test
+    void testSupports() {
+        assertTrue(ChatLineScanner.supports(Charset.forName("windows-1252")), "windows-1252 should be supported.");
+        assertTrue(ChatLineScanner.supports(StandardCharsets.UTF_8), "UTF-8 should be supported.");
+        assertFalse(ChatLineScanner.supports(StandardCharsets.UTF_16), "UTF-16 should not be supported.");
+    }
+
+    /**
+     * Test case comparing byte-level extraction with character-based extraction on generated logs.
+     * It checks both windows-1252 and UTF-8 input, including multibyte characters and colour codes.
+     */
+    @Test
+    void testByteLevelExtractionMatchesReaderExtraction() throws IOException {
+        Random random = new Random(42);
+        DialogueExtractor extractor = new DialogueExtractor();
+        for (Charset charset : List.of(Charset.forName("windows-1252"), StandardCharsets.UTF_8)) {
+            for (int run = 0; run < 20; run++) {
+                String log = generateLog(random, 500);
+                byte[] bytes = log.getBytes(charset);
+
+                StringWriter expected = new StringWriter();
+                extractor.extract(new InputStreamReader(new ByteArrayInputStream(bytes), charset), expected);
+                ByteArrayOutputStream actual = new ByteArrayOutputStream();
+                extractor.extract(new TrickleInputStream(bytes), charset, actual);
+
+                assertEquals(expected.toString(), actual.toString(StandardCharsets.UTF_8),
+                        "Byte-level extraction differs from reader extraction for " + charset);
+            }
+        }
+    }
+
+    /**
+     * Generates a random log mixing chat lines, other lines, colour codes and non-ASCII characters.
+     *
+     * @param random The random source.
+     * @param lines  The number of lines to generate.
+     * @return The generated log.
+     */
+    private static String generateLog(Random random, int lines) {
+        String alphabet = "ab [CHAT]§éÿ\r\t<>";
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            log.append("[12:00:00] [Render thread/INFO]: ");
+            if (random.nextInt(4) == 0) {
+                log.append("[System] [CHAT] ");
+            }
+            int length = random.nextInt(30);
+            for (int j = 0; j < length; j++) {
+                log.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            log.append('\n');
+        }
+        return log.toString();
+    }
+
+    /**
+     * An input stream that returns at most a few bytes per read.
+     */
+    private static class TrickleInputStream extends ByteArrayInputStream {
+        /**
+         * Creates a trickle stream over the given bytes.
+         *
+         * @param bytes The bytes to return.
+         */
+        TrickleInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 3));
+        }
+    }
+}
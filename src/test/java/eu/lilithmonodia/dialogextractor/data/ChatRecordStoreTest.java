@@ -0,0 +1,76 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ChatRecordStoreTest class contains unit tests for the ChatRecordStore class.
+ * It checks the parsing of chat lines into records, the interning of senders and the queries by sender.
+ */
+class ChatRecordStoreTest {
+    private static final String LOG = """
+            [23:59:58] [Render thread/INFO]: [CHAT] <Steve> §ahello there
+            [23:59:59] [Render thread/INFO]: Not a chat line
+            [23:59:59] [Render thread/INFO]: [CHAT] Alex joined the game
+            [00:00:01] [Server thread/WARN]: [CHAT] <Alex> hi <Steve>
+            continuation [CHAT] <Steve>   bye
+            [00:00:02] [Render thread/INFO]: [CHAT] Shaders Reloaded!""";
+
+    /**
+     * Test case for the read method.
+     * It checks every column of the records, including lines without a header and timestamps after midnight.
+     */
+    @Test
+    void testRead() throws IOException {
+        ChatRecordStore store = ChatRecordStore.read(new StringReader(LOG));
+
+        assertEquals(4, store.size(), "Every chat line kept by the default rules should be stored.");
+        assertEquals(new ChatRecordStore.ChatRecord(86398, "Render thread", "INFO", "Steve", "hello there"), store.get(0),
+                "The first record is wrong.");
+        assertEquals(new ChatRecordStore.ChatRecord(86399, "Render thread", "INFO", null, "Alex joined the game"),
+                store.get(1), "A system message should have no sender.");
+        assertEquals(new ChatRecordStore.ChatRecord(86401, "Server thread", "WARN", "Alex", "hi <Steve>"), store.get(2),
+                "The timestamp after midnight should be on the next day.");
+        assertEquals(new ChatRecordStore.ChatRecord(86401, null, null, "Steve", "bye"), store.get(3),
+                "A line without a timestamp should keep the previous one.");
+    }
+
+    /**
+     * Test case for the queries by sender.
+     * It checks that senders are interned once and that their records are found and counted.
+     */
+    @Test
+    void testQueriesBySender() throws IOException {
+        ChatRecordStore store = ChatRecordStore.read(new StringReader(LOG));
+
+        assertEquals(2, store.senderCount(), "Each sender should be interned once.");
+        assertSame(store.sender(0), store.sender(3), "The same sender should be the same string.");
+        assertArrayEquals(new int[]{0, 3}, store.recordsOf("Steve"), "The records of Steve are wrong.");
+        assertArrayEquals(new int[0], store.recordsOf("Herobrine"), "An unknown sender has no records.");
+        assertEquals(2, store.messageCounts()[store.senderIdOf("Steve")], "The message count of Steve is wrong.");
+        assertEquals(ChatRecordStore.NONE, store.senderId(1), "A system message should have no sender id.");
+    }
+
+    /**
+     * Test case for a store with many records and senders.
+     * It checks that the columns and the name table grow without losing records.
+     */
+    @Test
+    void testGrowth() {
+        ChatRecordStore store = new ChatRecordStore(new FilterRules(List.of()));
+        for (int i = 0; i < 5000; i++) {
+            store.addLine("[12:00:00] [Render thread/INFO]: [CHAT] <player" + (i % 300) + "> message number " + i);
+        }
+
+        assertEquals(5000, store.size(), "Every line should be stored.");
+        assertEquals(300, store.senderCount(), "Every sender should be interned once.");
+        assertEquals("player223", store.sender(4123), "The sender of a late record is wrong.");
+        assertEquals("message number 4999", store.message(4999), "The message of the last record is wrong.");
+        assertEquals(17, store.recordsOf("player7").length, "The records of a sender are wrong.");
+    }
+}
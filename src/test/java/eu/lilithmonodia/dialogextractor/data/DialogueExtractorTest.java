@@ -0,0 +1,69 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The DialogueExtractorTest class contains unit tests for the streaming DialogueExtractor.
+ * It checks that streaming extraction gives the same output as the in-memory MinecraftLog API.
+ */
+class DialogueExtractorTest {
+    private DialogueExtractor extractor;
+
+    /**
+     * Sets up the test environment before each test case is executed.
+     */
+    @BeforeEach
+    void setUp() {
+        extractor = new DialogueExtractor();
+    }
+
+    /**
+     * Test case for the Reader/Writer extract method.
+     * It checks that the streamed output matches the output of MinecraftLog.extractDialogue.
+     */
+    @Test
+    void testExtractMatchesMinecraftLog() throws IOException {
+        StringWriter writer = new StringWriter();
+        long written = extractor.extract(new StringReader(MinecraftLogTest.LOG_SAMPLE), writer);
+
+        assertEquals(new MinecraftLog(MinecraftLogTest.LOG_SAMPLE).extractDialogue().log(), writer.toString(),
+                "Streaming extraction should give the same output as the in-memory API.");
+        assertEquals(5, written, "The number of written dialogue lines is wrong.");
+    }
+
+    /**
+     * Test case for the extract method with lines that are longer than the read buffer.
+     * It checks that lines spanning several buffer fills are reassembled correctly.
+     */
+    @Test
+    void testExtractWithLinesLongerThanBuffer() throws IOException {
+        String longMessage = "a".repeat(200_000);
+        String log = "[12:00:00] [Render thread/INFO]: [CHAT] " + longMessage + "\nno chat here\n[CHAT] §ebye";
+        StringWriter writer = new StringWriter();
+        extractor.extract(new StringReader(log), writer);
+
+        assertEquals(longMessage + "\nbye", writer.toString(), "Long lines were not extracted correctly.");
+    }
+
+    /**
+     * Test case for the InputStream/OutputStream extract method.
+     * It checks that windows-1252 input is decoded and the output is written as UTF-8.
+     */
+    @Test
+    void testExtractFromStream() throws IOException {
+        Charset windows1252 = Charset.forName("windows-1252");
+        byte[] input = "[CHAT] <§fKohaku§f> été\r\n[CHAT] Shaders Reloaded!\r\n".getBytes(windows1252);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = extractor.extract(new ByteArrayInputStream(input), windows1252, out);
+
+        assertEquals("<Kohaku> été", out.toString(StandardCharsets.UTF_8), "Stream extraction output is wrong.");
+        assertEquals(1, written, "The number of written dialogue lines is wrong.");
+    }
+}
@@ -0,0 +1,118 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The FilterRulesTest class contains unit tests for the FilterRules class.
+ * It checks the matching of include, exclude and whole-line rules, the parsing of rule files and the filtering done
+ * by the extractor.
+ */
+class FilterRulesTest {
+
+    /**
+     * Test case for the accepts method.
+     * It checks overlapping patterns, patterns found through failure links and whole-line rules.
+     */
+    @Test
+    void testAccepts() {
+        FilterRules rules = FilterRules.parse(List.of(
+                "exclude he said",
+                "exclude said hello",
+                "exclude-line ok",
+                "exclude-line"));
+
+        assertFalse(rules.accepts("and she said hello"), "A pattern found through a failure link should match.");
+        assertFalse(rules.accepts("he said"), "A pattern covering the whole line should match.");
+        assertTrue(rules.accepts("he sai"), "A partial pattern should not match.");
+        assertFalse(rules.accepts("ok"), "A whole-line rule should match an equal line.");
+        assertTrue(rules.accepts("ok then"), "A whole-line rule should not match a longer line.");
+        assertTrue(rules.accepts("not ok"), "A whole-line rule should not match the end of a line.");
+        assertFalse(rules.accepts(""), "An empty whole-line rule should match an empty line.");
+    }
+
+    /**
+     * Test case for include rules.
+     * It checks that lines are kept only if they contain an included text and no excluded text.
+     */
+    @Test
+    void testIncludeRules() {
+        FilterRules rules = FilterRules.parse(List.of("include <Steve>", "include <Alex>", "exclude spam"));
+
+        assertTrue(rules.accepts("<Alex> hi"), "A line with an included text should be kept.");
+        assertFalse(rules.accepts("<Herobrine> hi"), "A line without an included text should be dropped.");
+        assertFalse(rules.accepts("<Steve> spam"), "Exclusions should win over inclusions.");
+    }
+
+    /**
+     * Test case for the parse method.
+     * It checks comments, trimming and the errors reported for invalid rules.
+     */
+    @Test
+    void testParse() {
+        FilterRules rules = FilterRules.parse(List.of("# comment", "", "  EXCLUDE   left the game  "));
+
+        assertEquals(List.of(new FilterRules.Rule(FilterRules.Kind.EXCLUDE, "left the game")), rules.rules(),
+                "The rule should be parsed and trimmed.");
+        assertEquals(rules.fingerprint(), FilterRules.parse(List.of("exclude left the game")).fingerprint(),
+                "Equal rules should have the same fingerprint.");
+        assertNotEquals(rules.fingerprint(), FilterRules.DEFAULT.fingerprint(),
+                "Different rules should have different fingerprints.");
+        assertThrows(IllegalArgumentException.class, () -> FilterRules.parse(List.of("drop spam")),
+                "An unknown keyword should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> FilterRules.parse(List.of("include")),
+                "An empty include rule should be rejected.");
+    }
+
+    /**
+     * Test case for the dedup rule.
+     * It checks that it is not matched against lines, that the last one wins, and that invalid windows are rejected.
+     */
+    @Test
+    void testDedupRule() throws IOException {
+        FilterRules rules = FilterRules.parse(List.of("exclude spam", "dedup 100", "dedup all"));
+
+        assertTrue(rules.deduplicates(), "A dedup rule should be found.");
+        assertTrue(rules.accepts("dedup all"), "A dedup rule should not be matched against lines.");
+        assertFalse(FilterRules.DEFAULT.deduplicates(), "The default rules should keep repeated lines.");
+        assertNull(FilterRules.DEFAULT.newDeduplicator(), "The default rules should not create a deduplicator.");
+        assertThrows(IllegalArgumentException.class, () -> FilterRules.parse(List.of("dedup")),
+                "A dedup rule without a window should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> FilterRules.parse(List.of("dedup 0")),
+                "An empty window should be rejected.");
+
+        StringWriter writer = new StringWriter();
+        new DialogueExtractor(rules).extract(new StringReader(
+                "[CHAT] a\n[CHAT] spam\n[CHAT] b\n[CHAT] a\n[CHAT] spam\n[CHAT] b\n[CHAT] c"), writer);
+        assertEquals("a\nb\nc", writer.toString(), "Lines seen anywhere before should be dropped.");
+    }
+
+    /**
+     * Test case for an extractor with many rules.
+     * It checks that every pattern of a large rule set is applied by the extraction.
+     */
+    @Test
+    void testExtractWithManyRules() throws IOException {
+        List<String> lines = new ArrayList<>();
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            lines.add("exclude plugin-" + i + ":");
+            log.append("[CHAT] §7plugin-").append(i).append(": message\n");
+        }
+        log.append("[CHAT] <Steve> plugin-200: is not a plugin\n");
+        DialogueExtractor extractor = new DialogueExtractor(FilterRules.parse(lines));
+        StringWriter writer = new StringWriter();
+
+        long written = extractor.extract(new StringReader(log.toString()), writer);
+
+        assertEquals(1, written, "Only the line matching no rule should be written.");
+        assertEquals("<Steve> plugin-200: is not a plugin", writer.toString(), "The wrong line was kept.");
+    }
+}
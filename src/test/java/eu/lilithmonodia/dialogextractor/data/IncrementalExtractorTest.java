@@ -0,0 +1,173 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The IncrementalExtractorTest class contains unit tests for the IncrementalExtractor class.
+ * It checks that extracting an edited log again gives the same dialogue as a full extraction, while only the changed
+ * lines are cleaned.
+ */
+class IncrementalExtractorTest {
+    private static final Charset CHARSET = Charset.forName("windows-1252");
+
+    @TempDir
+    Path tempDir;
+
+    private int outputs;
+
+    /**
+     * Test case for the extract method with edits at the start, in the middle and at the end of a log.
+     * It checks that each extraction matches a full one and only cleans the edited lines.
+     */
+    @Test
+    void testEditsAreExtractedIncrementally() throws IOException {
+        List<String> lines = sampleLog();
+        IncrementalExtractor extractor = new IncrementalExtractor();
+
+        assertExtraction(extractor, lines, lines.size());
+
+        lines.set(500, "[12:00:00] [Render thread/INFO]: [CHAT] <Player> edited message é");
+        assertExtraction(extractor, lines, 1);
+
+        lines.remove(0);
+        lines.remove(0);
+        assertExtraction(extractor, lines, 0);
+
+        lines.add("[12:00:00] [Render thread/INFO]: [CHAT] <Player> appended message");
+        assertExtraction(extractor, lines, 1);
+
+        lines.add(0, "[12:00:00] [Render thread/INFO]: [CHAT] <Player> first message");
+        lines.add(300, "Noise inserted in the middle");
+        assertExtraction(extractor, lines, 301);
+
+        lines.subList(100, 900).clear();
+        assertExtraction(extractor, lines, 0);
+    }
+
+    /**
+     * Test case for the extract method when the charset or the filter rules change.
+     * It checks that every line is cleaned again.
+     */
+    @Test
+    void testSettingsChangeExtractsEverything() throws IOException {
+        List<String> lines = sampleLog();
+        IncrementalExtractor extractor = new IncrementalExtractor();
+        assertExtraction(extractor, lines, lines.size());
+
+        FilterRules active = FilterRules.active();
+        try {
+            FilterRules.activate(FilterRules.parse(List.of("exclude message 1")));
+            assertExtraction(extractor, lines, lines.size());
+        } finally {
+            FilterRules.activate(active);
+        }
+        assertExtraction(extractor, lines, lines.size());
+
+        Path log = write(lines);
+        try (LogDocument document = LogDocument.open(log, StandardCharsets.UTF_8)) {
+            IncrementalExtractor.Result result = extractor.extract(document, nextOutput(), (phase, b, t, l) -> {
+            });
+            assertEquals(lines.size(), result.cleanedLines(), "A charset change should clean every line");
+        }
+    }
+
+    /**
+     * Test case for the extract method when the previous output was removed.
+     * It checks that everything is extracted again.
+     */
+    @Test
+    void testRemovedOutputExtractsEverything() throws IOException {
+        List<String> lines = sampleLog();
+        IncrementalExtractor extractor = new IncrementalExtractor();
+        Path first = assertExtraction(extractor, lines, lines.size());
+
+        Files.delete(first);
+
+        assertExtraction(extractor, lines, lines.size());
+    }
+
+    /**
+     * Extracts a log with the given lines and checks the result against a full extraction.
+     *
+     * @param extractor The incremental extractor.
+     * @param lines     The lines of the log.
+     * @param cleaned   The expected number of cleaned lines.
+     * @return The output file.
+     * @throws IOException If the files cannot be read or written.
+     */
+    private Path assertExtraction(IncrementalExtractor extractor, List<String> lines, int cleaned) throws IOException {
+        Path log = write(lines);
+        Path output = nextOutput();
+        IncrementalExtractor.Result result;
+        try (LogDocument document = LogDocument.open(log, CHARSET)) {
+            result = extractor.extract(document, output, (phase, bytes, totalBytes, written) -> {
+            });
+        }
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        long expectedLines;
+        try (InputStream in = Files.newInputStream(log)) {
+            expectedLines = new DialogueExtractor().extract(in, CHARSET, expected);
+        }
+        assertEquals(expected.toString(StandardCharsets.UTF_8), Files.readString(output, StandardCharsets.UTF_8),
+                "The dialogue should match a full extraction");
+        assertEquals(expectedLines, result.lines(), "The dialogue lines should be counted");
+        assertEquals(cleaned, result.cleanedLines(), "Only the changed lines should be cleaned");
+        return output;
+    }
+
+    /**
+     * Writes a log file with the given lines, each followed by a line separator.
+     *
+     * @param lines The lines of the log.
+     * @return The log file.
+     * @throws IOException If the file cannot be written.
+     */
+    private Path write(List<String> lines) throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        Files.writeString(log, String.join("\n", lines) + "\n", CHARSET);
+        return log;
+    }
+
+    /**
+     * Returns a new output file name.
+     *
+     * @return The path of an output file that does not exist yet.
+     */
+    private Path nextOutput() {
+        return tempDir.resolve("dialogue-" + outputs++ + ".txt");
+    }
+
+    /**
+     * Builds a log mixing dialogue, filtered chat lines, empty chat lines and noise.
+     *
+     * @return The lines of the log, in a mutable list.
+     */
+    private static List<String> sampleLog() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String prefix = "[12:00:00] [Render thread/INFO]: ";
+            lines.add(switch (i % 5) {
+                case 0 -> prefix + "[CHAT] <Player> message " + i;
+                case 1 -> prefix + "[CHAT] Shaders Reloaded!";
+                case 2 -> prefix + "[CHAT] ";
+                case 3 -> prefix + "Noise line " + i + "\r";
+                default -> prefix + "[CHAT] [Guard] Halt " + i + " à";
+            });
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,70 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The LineDeduplicatorTest class contains unit tests for the LineDeduplicator class.
+ * It checks the windowed and the global deduplication against straightforward implementations.
+ */
+class LineDeduplicatorTest {
+
+    /**
+     * Test case for the isDuplicate method with a window.
+     * It checks that only the lines repeated within the window are duplicates, over many insertions and evictions.
+     */
+    @Test
+    void testWindow() {
+        int window = 50;
+        LineDeduplicator deduplicator = new LineDeduplicator(window);
+        Deque<String> previous = new ArrayDeque<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            String line = "<Player> message " + random.nextInt(200);
+            assertEquals(previous.contains(line), deduplicator.isDuplicate(line), "Line " + i + " was misjudged.");
+            previous.addLast(line);
+            if (previous.size() > window) {
+                previous.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Test case for the isDuplicate method without a window.
+     * It checks that a line is a duplicate if it was seen anywhere before, including after the set has grown.
+     */
+    @Test
+    void testEverySeenLine() {
+        LineDeduplicator deduplicator = new LineDeduplicator(0);
+        Set<String> seen = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            String line = "<Player> message " + random.nextInt(20_000);
+            assertEquals(!seen.add(line), deduplicator.isDuplicate(line), "Line " + i + " was misjudged.");
+        }
+    }
+
+    /**
+     * Test case for the hash method and the constructor.
+     * It checks that close texts get different hashes and that invalid windows are rejected.
+     */
+    @Test
+    void testHash() {
+        assertNotEquals(LineDeduplicator.hash("ab"), LineDeduplicator.hash("ba"), "The order of characters counts.");
+        assertNotEquals(LineDeduplicator.hash(""), LineDeduplicator.hash("\0"), "The length counts.");
+        assertEquals(LineDeduplicator.hash("same"), LineDeduplicator.hash(new StringBuilder("same")),
+                "The hash should only depend on the characters.");
+        assertThrows(IllegalArgumentException.class, () -> new LineDeduplicator(-1), "A negative window is invalid.");
+        assertThrows(IllegalArgumentException.class, () -> new LineDeduplicator(LineDeduplicator.MAX_WINDOW + 1),
+                "A window over the maximum is invalid.");
+    }
+}
@@ -0,0 +1,289 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The LogDocumentTest class contains unit tests for the LogDocument class.
+ * It checks the line index and the on-demand decoding of lines.
+ */
+class LogDocumentTest {
+    private static final Charset CHARSET = Charset.forName("windows-1252");
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test case for the line method.
+     * It checks that lines are split on line feeds and returned without their carriage returns.
+     */
+    @Test
+    void testLinesAreSplitOnLineFeeds() throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        Files.writeString(log, "first\r\n\nthird é\rstill third\nlast", CHARSET);
+
+        try (LogDocument document = LogDocument.open(log, CHARSET)) {
+            assertEquals(4, document.lineCount(), "The document has the wrong number of lines");
+            assertEquals("first", document.line(0), "The carriage return was not removed");
+            assertEquals("", document.line(1), "The empty line is wrong");
+            assertEquals("third é\rstill third", document.line(2), "The third line is wrong");
+            assertEquals("last", document.line(3), "The line without separator is wrong");
+        }
+    }
+
+    /**
+     * Test case for the lineCount method with a trailing line separator and with an empty file.
+     * It checks that a trailing separator does not start a new line.
+     */
+    @Test
+    void testLineCountIgnoresTrailingSeparator() throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        Files.writeString(log, "one\ntwo\n", CHARSET);
+        Path empty = tempDir.resolve("empty.log");
+        Files.writeString(empty, "", CHARSET);
+
+        try (LogDocument document = LogDocument.open(log, CHARSET);
+             LogDocument emptyDocument = LogDocument.open(empty, CHARSET)) {
+            assertEquals(2, document.lineCount(), "A trailing separator started a new line");
+            assertEquals("two", document.line(1), "The last line is wrong");
+            assertTrue(emptyDocument.isEmpty(), "An empty file has lines");
+        }
+    }
+
+    /**
+     * Test case for the line method with an index out of range.
+     * It checks that an IndexOutOfBoundsException is thrown.
+     */
+    @Test
+    void testLineOutOfRange() throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        Files.writeString(log, "only", CHARSET);
+
+        try (LogDocument document = LogDocument.open(log, CHARSET)) {
+            assertThrows(IndexOutOfBoundsException.class, () -> document.line(1), "An index past the end was accepted");
+            assertThrows(IndexOutOfBoundsException.class, () -> document.line(-1), "A negative index was accepted");
+        }
+    }
+
+    /**
+     * Test case for the open method with a GZIP-compressed log.
+     * It checks that the log is inflated into a temporary file that is deleted on close.
+     */
+    @Test
+    void testOpenGzipInflatesToTemporaryFile() throws IOException {
+        Path log = tempDir.resolve("2024-01-01-1.log.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(log))) {
+            out.write("[CHAT] Hello\nworld\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        LogDocument document = LogDocument.open(log, StandardCharsets.UTF_8);
+        Path inflated = document.path();
+        assertEquals(2, document.lineCount(), "The inflated document has the wrong number of lines");
+        assertEquals("[CHAT] Hello", document.line(0), "The inflated line is wrong");
+        document.close();
+        assertFalse(Files.exists(inflated), "The inflated file was not deleted");
+        assertTrue(Files.exists(log), "The original file was deleted");
+    }
+
+    /**
+     * Test case for the close method with a document over a user file.
+     * It checks that the file is kept.
+     */
+    @Test
+    void testCloseKeepsUserFile() throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        Files.writeString(log, "line", CHARSET);
+
+        LogDocument.open(log, CHARSET).close();
+        assertTrue(Files.exists(log), "The user file was deleted");
+    }
+
+    /**
+     * Test case for the open method with an index listener.
+     * It checks that the lines indexed so far can be read while the document grows.
+     */
+    @Test
+    void testListenerSeesGrowingDocument() throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        String line = "x".repeat(999) + "\n";
+        Files.writeString(log, line.repeat(3000), CHARSET);
+
+        List<Integer> lineCounts = new ArrayList<>();
+        long[] lastBytes = new long[1];
+        try (LogDocument document = LogDocument.open(log, CHARSET, (indexed, bytesRead, totalBytes) -> {
+            lineCounts.add(indexed.lineCount());
+            if (indexed.lineCount() > 0) {
+                assertEquals(999, indexed.line(indexed.lineCount() - 1).length(), "A partially indexed line is wrong");
+            }
+            lastBytes[0] = bytesRead;
+            assertEquals(3_000_000, totalBytes, "The total size is wrong");
+        })) {
+            assertTrue(lineCounts.size() > 2, "The listener was not called for each block");
+            assertTrue(lineCounts.get(0) < 3000, "The first batch already held every line");
+            assertEquals(3000, (int) lineCounts.get(lineCounts.size() - 1), "The last batch is incomplete");
+            assertEquals(3_000_000, lastBytes[0], "The last progress is not the file size");
+            assertEquals(3000, document.lineCount(), "The document has the wrong number of lines");
+        }
+    }
+
+    /**
+     * Test case for the open method with a listener stopping the indexing of a GZIP-compressed log.
+     * It checks that the exception is propagated and the inflated file is deleted.
+     */
+    @Test
+    void testListenerStopsIndexing() throws IOException {
+        Path log = tempDir.resolve("2024-01-01-1.log.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(log))) {
+            out.write("[CHAT] Hello\n".repeat(200_000).getBytes(StandardCharsets.UTF_8));
+        }
+
+        Path[] inflated = new Path[1];
+        assertThrows(InterruptedIOException.class, () -> LogDocument.open(log, StandardCharsets.UTF_8,
+                (indexed, bytesRead, totalBytes) -> {
+                    inflated[0] = indexed.path();
+                    throw new InterruptedIOException("Cancelled");
+                }), "The listener did not stop the indexing");
+        assertFalse(Files.exists(inflated[0]), "The inflated file was not deleted");
+    }
+
+    /**
+     * Test case for the open method without a charset, followed by a charset change.
+     * It checks that the encoding is detected and that changing it decodes the same bytes again.
+     */
+    @Test
+    void testDetectAndChangeCharset() throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        Files.writeString(log, "[CHAT] \u00a7aHello\n", StandardCharsets.UTF_8);
+
+        try (LogDocument document = LogDocument.open(log, null, LogDocument.IndexListener.NONE)) {
+            assertEquals(StandardCharsets.UTF_8, document.charset(), "The encoding was not detected");
+            assertEquals("[CHAT] \u00a7aHello", document.line(0), "The line was not decoded as UTF-8");
+
+            document.setCharset(CHARSET);
+            assertEquals("[CHAT] \u00c2\u00a7aHello", document.line(0), "The line was not decoded again");
+            assertEquals(1, document.lineCount(), "The line index was changed");
+        }
+    }
+
+    /**
+     * Test case for the refresh method with dialogue appended after an unterminated last line.
+     * It checks that only the appended lines are added and that the last line keeps its text.
+     */
+    @Test
+    void testRefreshIndexesAppendedLines() throws IOException {
+        Path file = tempDir.resolve("dialogue.log");
+        Files.writeString(file, "first", StandardCharsets.UTF_8);
+
+        try (LogDocument document = LogDocument.open(file, StandardCharsets.UTF_8)) {
+            assertFalse(document.refresh(), "Nothing was appended yet");
+            Files.writeString(file, "\nsecond\nthird", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+            assertTrue(document.refresh(), "The appended lines were not indexed");
+            assertEquals(3, document.lineCount(), "The line count after the refresh is wrong");
+            assertEquals("first", document.line(0), "The previous last line was changed");
+            assertEquals("third", document.line(2), "The appended last line is wrong");
+        }
+    }
+
+    /**
+     * Test case for the lineText method with a single-byte and a multibyte charset.
+     * It checks that the views read the same text as the decoded lines, and that their parts are views too.
+     */
+    @Test
+    void testLineTextViews() throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        Files.writeString(log, "[CHAT] \u00a7aH\u00e9llo \u20ac\r\n\n", CHARSET);
+        Path utf8 = tempDir.resolve("utf8.log");
+        Files.writeString(utf8, "[CHAT] \u00a7aH\u00e9llo \u20ac\r\n\n", StandardCharsets.UTF_8);
+
+        for (LogDocument document : new LogDocument[]{LogDocument.open(log, CHARSET),
+                LogDocument.open(utf8, StandardCharsets.UTF_8)}) {
+            try (document) {
+                CharSequence text = document.lineText(0);
+
+                assertEquals("[CHAT] \u00a7aH\u00e9llo \u20ac", text.toString(), "The view reads the wrong text");
+                assertEquals(16, text.length(), "The carriage return should not be part of the view");
+                assertEquals('\u20ac', text.charAt(15), "The last character is decoded wrongly");
+                assertEquals("H\u00e9llo", text.subSequence(9, 14).toString(), "The part of the view is wrong");
+                assertEquals(0, document.lineText(1).length(), "The empty line should have an empty view");
+            }
+        }
+    }
+
+    /**
+     * Test case for the find method.
+     * It checks that lines are searched from the given line on, and that a missing text is reported.
+     */
+    @Test
+    void testFind() throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("[12:00:00] [Render thread/INFO]: [CHAT] <Player").append(i % 50).append("> line ").append(i)
+                    .append('\n');
+        }
+        Files.writeString(log, text, CHARSET);
+
+        try (LogDocument document = LogDocument.open(log, CHARSET)) {
+            assertEquals(5000, document.lineCount(), "Every line should be indexed");
+            assertEquals(7, document.find("<Player7>", 0), "The first match is wrong");
+            assertEquals(57, document.find("<Player7>", 8), "The search should start at the given line");
+            assertEquals(4999, document.find("line 4999", 0), "The last line should be searched");
+            assertEquals(-1, document.find("<Player50>", 0), "A missing text should not be found");
+        }
+    }
+
+    /**
+     * Test case for a log with more lines than a chunk of the offset table.
+     * It checks that lines on both sides of a chunk boundary, and the last line, are read back.
+     */
+    @Test
+    void testIndexGrowth() throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 150_000; i++) {
+            text.append("[12:00:00] [Render thread/INFO]: [CHAT] <Player").append(i % 50).append("> line ").append(i)
+                    .append('\n');
+        }
+        Files.writeString(log, text, CHARSET);
+
+        try (LogDocument document = LogDocument.open(log, CHARSET)) {
+            assertEquals(150_000, document.lineCount(), "The index should grow past its first chunk");
+            assertTrue(document.line(65_535).endsWith("> line 65535"), "The last line of a chunk is wrong");
+            assertTrue(document.line(65_536).endsWith("> line 65536"), "The first line of a chunk is wrong");
+            assertTrue(document.line(149_999).endsWith("> line 149999"), "The last line is wrong");
+        }
+    }
+
+    /**
+     * Test case for reading lines of a file that grows after it was opened.
+     * It checks that lines past the first end of the file are read once they are indexed.
+     */
+    @Test
+    void testReadAfterGrowth() throws IOException {
+        Path file = tempDir.resolve("dialogue.log");
+        Files.writeString(file, "first", StandardCharsets.UTF_8);
+
+        try (LogDocument document = LogDocument.open(file, StandardCharsets.UTF_8)) {
+            assertEquals("first", document.line(0), "The first line is wrong");
+            Files.writeString(file, "\nsecond", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+            assertTrue(document.refresh(), "The appended line was not indexed");
+            assertEquals("second", document.line(1), "The line past the first end of the file is wrong");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The SearchIndexTest class contains unit tests for the SearchIndex class.
+ * It checks keyword and sender queries, incremental updates and the merging of segments.
+ */
+class SearchIndexTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test case for the search method.
+     * It checks that every word of a query must match, case-insensitively, and that senders are searchable.
+     */
+    @Test
+    void testSearch() throws IOException {
+        Path day1 = Files.writeString(tempDir.resolve("day1-dialog-extracted.log"),
+                "<Steve> Hello there\n<Alex> hello, Steve!\nSteve joined the game");
+        Path day2 = Files.writeString(tempDir.resolve("day2-dialog-extracted.log"), "<Alex> the diamonds are here");
+
+        try (SearchIndex index = SearchIndex.open(tempDir.resolve("index"))) {
+            assertEquals(2, index.update(List.of(day1, day2)), "Both files should be read.");
+
+            assertEquals(List.of(hit(day1, 1), hit(day1, 2)), index.search("HELLO", 10),
+                    "Words should match case-insensitively.");
+            assertEquals(List.of(hit(day1, 2), hit(day2, 1)), index.search("from:alex", 10),
+                    "The sender query should match the lines of the player.");
+            assertEquals(List.of(hit(day1, 2)), index.search("from:Alex steve", 10),
+                    "Every word of the query should match.");
+            assertEquals(List.of(), index.search("creeper", 10), "An unknown word should not match.");
+            assertEquals(List.of("<Alex> hello, Steve!", "<Alex> the diamonds are here"),
+                    SearchIndex.readLines(index.search("from:alex", 10)), "The text of the hits is wrong.");
+        }
+    }
+
+    /**
+     * Test case for the update method.
+     * It checks that unchanged files are skipped, modified files are re-indexed and deleted files disappear, also
+     * after the index is reopened.
+     */
+    @Test
+    void testIncrementalUpdate() throws IOException {
+        Path index = tempDir.resolve("index");
+        Path day1 = Files.writeString(tempDir.resolve("day1-dialog-extracted.log"), "<Steve> old words");
+        Path day2 = Files.writeString(tempDir.resolve("day2-dialog-extracted.log"), "<Alex> old news");
+        try (SearchIndex searchIndex = SearchIndex.open(index)) {
+            searchIndex.update(List.of(day1, day2));
+        }
+
+        Files.writeString(day1, "<Steve> new words");
+        Files.setLastModifiedTime(day1, FileTime.fromMillis(Files.getLastModifiedTime(day1).toMillis() + 2000));
+        Files.delete(day2);
+        try (SearchIndex searchIndex = SearchIndex.open(index)) {
+            assertEquals(1, searchIndex.update(List.of(day1)), "Only the modified file should be read.");
+            assertEquals(0, searchIndex.update(List.of(day1)), "An unchanged file should not be read again.");
+        }
+
+        try (SearchIndex searchIndex = SearchIndex.open(index)) {
+            assertEquals(1, searchIndex.size(), "The deleted file should be dropped.");
+            assertEquals(List.of(), searchIndex.search("old", 10), "Old contents should not match.");
+            assertEquals(List.of(hit(day1, 1)), searchIndex.search("new words", 10), "New contents should match.");
+        }
+    }
+
+    /**
+     * Test case for the merging of segments.
+     * It checks that many small updates are merged without losing postings.
+     */
+    @Test
+    void testManyUpdates() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (SearchIndex index = SearchIndex.open(tempDir.resolve("index"))) {
+            for (int day = 0; day < 20; day++) {
+                StringBuilder dialogue = new StringBuilder();
+                for (int line = 0; line < 300; line++) {
+                    dialogue.append("<player").append(line % 7).append("> message ").append(line)
+                            .append(" of day ").append(day).append('\n');
+                }
+                Path file = Files.writeString(tempDir.resolve("day" + day + "-dialog-extracted.log"), dialogue);
+                files.add(file);
+                index.update(List.of(file));
+            }
+            assertEquals(20, index.search("message", 10_000).size() / 300, "Every line should still be indexed.");
+            assertEquals(List.of(hit(files.get(19), 43)), index.search("from:player0 42 day 19", 10),
+                    "A late posting should be found.");
+        }
+        try (Stream<Path> entries = Files.list(tempDir.resolve("index"))) {
+            assertTrue(entries.count() <= 10, "The segments should have been merged.");
+        }
+    }
+
+    /**
+     * Creates a hit on an absolute path.
+     *
+     * @param file The file of the hit.
+     * @param line The line of the hit.
+     * @return The hit.
+     */
+    private static SearchIndex.Hit hit(Path file, int line) {
+        return new SearchIndex.Hit(file.toAbsolutePath().normalize(), line);
+    }
+}
@@ -0,0 +1,108 @@
+package eu.lilithmonodia.dialogextractor.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The TimeIndexTest class contains unit tests for the TimeIndex class.
+ * It checks the time range lookup, the extraction of a slice and the sidecar file.
+ */
+class TimeIndexTest {
+    private static final String LOG = """
+            [09:59:59] [Render thread/INFO]: [CHAT] too early
+            [10:00:00] [Render thread/INFO]: [CHAT] §afirst
+            continuation without timestamp [CHAT] second
+            [10:00:00] [Render thread/INFO]: [CHAT] third
+            [10:30:00] [Render thread/INFO]: [CHAT] fourth
+            [10:30:01] [Render thread/INFO]: [CHAT] too late
+            [00:05:00] [Render thread/INFO]: [CHAT] next day""";
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test case for the build and slice methods.
+     * It checks that one entry is kept per second and that a range covers whole lines, including the lines without a
+     * timestamp.
+     */
+    @Test
+    void testSliceAndExtract() throws IOException {
+        Path log = writeLog();
+        TimeIndex index = TimeIndex.build(log);
+
+        assertEquals(5, index.size(), "One entry per distinct second is expected.");
+        assertEquals("first\nsecond\nthird\nfourth", extract(log, index.slice(10 * 3600, 10 * 3600 + 30 * 60)),
+                "The range holds the wrong lines.");
+        assertEquals("", extract(log, index.slice(11 * 3600, 12 * 3600)), "A range without lines should be empty.");
+    }
+
+    /**
+     * Test case for the slice method with a log spanning midnight.
+     * It checks that times after midnight are counted on the next day.
+     */
+    @Test
+    void testSliceAfterMidnight() throws IOException {
+        Path log = writeLog();
+        TimeIndex index = TimeIndex.build(log);
+        int nextDay = 24 * 3600;
+
+        assertEquals("next day", extract(log, index.slice(nextDay, nextDay + 3600)),
+                "The line after midnight should be on the next day.");
+    }
+
+    /**
+     * Test case for the save, load and open methods.
+     * It checks that a saved index is reused and that it is ignored once the log changes.
+     */
+    @Test
+    void testSidecar() throws IOException {
+        Path log = writeLog();
+        assertNull(TimeIndex.load(log), "No sidecar should exist yet.");
+
+        TimeIndex.build(log).save(log);
+        TimeIndex loaded = TimeIndex.load(log);
+
+        assertNotNull(loaded, "The saved sidecar should be loaded.");
+        assertEquals(5, loaded.size(), "The loaded index has the wrong size.");
+        assertTrue(Files.exists(tempDir.resolve("latest.log" + TimeIndex.SIDECAR_SUFFIX)),
+                "The sidecar should sit next to the log.");
+
+        Files.writeString(log, LOG + "\n[11:00:00] [CHAT] more", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(log, FileTime.fromMillis(0));
+        assertNull(TimeIndex.load(log), "A sidecar of a changed log should be ignored.");
+        assertEquals(6, TimeIndex.open(log).size(), "The index of the changed log should be rebuilt.");
+    }
+
+    /**
+     * Writes the test log.
+     *
+     * @return The log file.
+     * @throws IOException If the file cannot be written.
+     */
+    private Path writeLog() throws IOException {
+        return Files.writeString(tempDir.resolve("latest.log"), LOG, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Extracts a slice of a log into a string.
+     *
+     * @param log   The log file.
+     * @param slice The slice to extract.
+     * @return The extracted dialogue.
+     * @throws IOException If the log cannot be read.
+     */
+    private static String extract(Path log, TimeIndex.Slice slice) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TimeIndex.extract(log, slice, StandardCharsets.UTF_8, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
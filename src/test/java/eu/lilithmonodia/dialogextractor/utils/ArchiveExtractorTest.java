@@ -0,0 +1,288 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import eu.lilithmonodia.dialogextractor.data.LogDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ArchiveExtractorTest class contains unit tests for the ArchiveExtractor class.
+ * It checks that the logs of zip and tar.gz archives are extracted like the same logs on disk.
+ */
+class ArchiveExtractorTest {
+    private static final Charset CHARSET = Charset.forName("windows-1252");
+    private static final String LONG_NAME = "logs/" + "very-long-directory-name/".repeat(5) + "2024-01-02-1.log";
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test case for the extractEntries method with a zip archive.
+     * It checks that each log entry is extracted into its own file, that other entries are skipped and that an entry
+     * whose output name is taken fails.
+     */
+    @Test
+    void testExtractZipEntries() throws IOException, InterruptedException {
+        Map<String, String> logs = sampleLogs(12);
+        logs.put("notes.txt", "[12:00:00] [Render thread/INFO]: [CHAT] <Player> not a log\n");
+        logs.put("old/2024-01-01-1.log", "[12:00:00] [Render thread/INFO]: [CHAT] <Player> same base name\n");
+        Path archive = writeZip(tempDir.resolve("logs.zip"), logs);
+        Path out = Files.createDirectory(tempDir.resolve("out"));
+
+        List<BatchExtractor.Result> results = new ArchiveExtractor(4, CHARSET)
+                .extractEntries(archive, out, FileUtils.EXTRACTED_FILE_SUFFIX);
+
+        assertEquals(13, results.size(), "Every log entry should have a result.");
+        for (int i = 0; i < 12; i++) {
+            BatchExtractor.Result result = results.get(i);
+            String name = "2024-01-01-" + (i + 1) + ".log" + (i % 2 == 0 ? ".gz" : "");
+            assertTrue(result.succeeded(), "Entry " + name + " should be extracted.");
+            assertEquals(archive.resolve(name), result.input(), "The input should name the entry.");
+            assertEquals(expected(logs.get(name)), Files.readString(result.output(), StandardCharsets.UTF_8),
+                    "Entry " + name + " should match a plain extraction.");
+        }
+        assertFalse(results.get(12).succeeded(), "An entry with the same base name should fail.");
+        assertFalse(Files.exists(out.resolve("notes" + FileUtils.EXTRACTED_FILE_SUFFIX)), "Other entries are skipped.");
+    }
+
+    /**
+     * Test case for the extractEntries method with a tar.gz archive.
+     * It checks that plain, compressed and long-named entries are extracted.
+     */
+    @Test
+    void testExtractTarEntries() throws IOException, InterruptedException {
+        Map<String, String> logs = sampleLogs(3);
+        logs.put(LONG_NAME, "[12:00:00] [Render thread/INFO]: [CHAT] <Player> long name\n");
+        Path archive = writeTarGz(tempDir.resolve("logs.tar.gz"), logs);
+        Path out = Files.createDirectory(tempDir.resolve("out"));
+
+        List<BatchExtractor.Result> results = new ArchiveExtractor(4, CHARSET)
+                .extractEntries(archive, out, FileUtils.EXTRACTED_FILE_SUFFIX);
+
+        assertEquals(4, results.size(), "Every log entry should have a result.");
+        List<String> names = new ArrayList<>(logs.keySet());
+        for (int i = 0; i < results.size(); i++) {
+            BatchExtractor.Result result = results.get(i);
+            assertTrue(result.succeeded(), "Entry " + names.get(i) + " should be extracted.");
+            assertEquals(expected(logs.get(names.get(i))), Files.readString(result.output(), StandardCharsets.UTF_8),
+                    "Entry " + names.get(i) + " should match a plain extraction.");
+        }
+        assertEquals(out.resolve("2024-01-02-1" + FileUtils.EXTRACTED_FILE_SUFFIX), results.get(3).output(),
+                "The long name should be read from its own header.");
+    }
+
+    /**
+     * Test case for the extractCombined method with zip and tar.gz archives.
+     * It checks that the dialogue of every entry is joined in the order of the archive.
+     */
+    @Test
+    void testExtractCombined() throws IOException, InterruptedException {
+        Map<String, String> logs = sampleLogs(25);
+        logs.put("2024-01-01-26.log", "no dialogue at all\n");
+        StringBuilder expected = new StringBuilder();
+        for (String log : logs.values()) {
+            String dialogue = expected(log);
+            if (!dialogue.isEmpty()) {
+                expected.append(expected.isEmpty() ? "" : "\n").append(dialogue);
+            }
+        }
+
+        for (Path archive : List.of(writeZip(tempDir.resolve("logs.zip"), logs),
+                writeTarGz(tempDir.resolve("logs.tgz"), logs))) {
+            for (int parallelism : new int[]{1, 3}) {
+                Path output = tempDir.resolve("combined.log");
+                long lines = new ArchiveExtractor(parallelism, CHARSET).extractCombined(archive, output.toFile());
+                assertEquals(expected.toString(), Files.readString(output, StandardCharsets.UTF_8),
+                        archive.getFileName() + " should be combined in order with " + parallelism + " workers.");
+                assertEquals(expected.toString().split("\n").length, lines, "The lines should be counted.");
+            }
+        }
+    }
+
+    /**
+     * Test case for the readEntries method, as used to open an archive in the viewer.
+     * It checks that a document opened from an archive holds the lines of every log, one log after the other.
+     */
+    @Test
+    void testOpenArchiveDocument() throws IOException {
+        Map<String, String> logs = new LinkedHashMap<>();
+        logs.put("a.log", "first\nsecond");
+        logs.put("b.log.gz", "third\n");
+        logs.put("c.log", "fourth\n");
+        Path archive = writeZip(tempDir.resolve("logs.zip"), logs);
+
+        try (LogDocument document = LogDocument.open(archive, CHARSET)) {
+            assertEquals(4, document.lineCount(), "Each log should start a new line.");
+            assertEquals("second", document.line(1), "A log without a final separator should end its line.");
+            assertEquals("third", document.line(2), "The compressed log should be inflated.");
+        }
+        assertThrows(IOException.class, () -> ArchiveExtractor.readEntries(
+                new ByteArrayInputStream(new byte[]{1, 2, 3}), "broken.tar.gz", (name, in) -> {
+                }), "A broken archive should fail.");
+    }
+
+    /**
+     * Builds logs alternating compressed and plain entries, with dialogue, noise and filtered lines.
+     *
+     * @param count The number of logs.
+     * @return The content of each log by entry name, in order.
+     */
+    private static Map<String, String> sampleLogs(int count) {
+        Map<String, String> logs = new LinkedHashMap<>();
+        for (int i = 1; i <= count; i++) {
+            StringBuilder log = new StringBuilder();
+            for (int line = 0; line < 200; line++) {
+                String prefix = "[12:00:00] [Render thread/INFO]: ";
+                log.append(switch (line % 4) {
+                    case 0 -> prefix + "[CHAT] <Player> log " + i + " message " + line + " é";
+                    case 1 -> prefix + "Noise line " + line;
+                    case 2 -> prefix + "[CHAT] Shaders Reloaded!";
+                    default -> prefix + "[CHAT] [Guard] Halt " + line;
+                }).append('\n');
+            }
+            logs.put("2024-01-01-" + i + ".log" + (i % 2 == 1 ? ".gz" : ""), log.toString());
+        }
+        return logs;
+    }
+
+    /**
+     * Extracts the dialogue of a log with the plain extractor.
+     *
+     * @param log The content of the log.
+     * @return The dialogue.
+     * @throws IOException If the extraction fails.
+     */
+    private static String expected(String log) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new ByteArrayInputStream(log.getBytes(CHARSET))) {
+            new DialogueExtractor().extract(in, CHARSET, out);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes a log entry, GZIP-compressing it if its name ends with {@code .gz}.
+     *
+     * @param name The name of the entry.
+     * @param log  The content of the log.
+     * @return The bytes of the entry.
+     * @throws IOException If the compression fails.
+     */
+    private static byte[] entryBytes(String name, String log) throws IOException {
+        byte[] bytes = log.getBytes(CHARSET);
+        if (!name.endsWith(".gz")) {
+            return bytes;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Writes a zip archive.
+     *
+     * @param path The archive file.
+     * @param logs The content of each entry by name.
+     * @return The archive file.
+     * @throws IOException If the file cannot be written.
+     */
+    private static Path writeZip(Path path, Map<String, String> logs) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(path))) {
+            for (Map.Entry<String, String> log : logs.entrySet()) {
+                zip.putNextEntry(new ZipEntry(log.getKey()));
+                zip.write(entryBytes(log.getKey(), log.getValue()));
+                zip.closeEntry();
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Writes a GZIP-compressed ustar archive, with a GNU long name header for names over 100 bytes.
+     *
+     * @param path The archive file.
+     * @param logs The content of each entry by name.
+     * @return The archive file.
+     * @throws IOException If the file cannot be written.
+     */
+    private static Path writeTarGz(Path path, Map<String, String> logs) throws IOException {
+        try (OutputStream tar = new GZIPOutputStream(Files.newOutputStream(path))) {
+            for (Map.Entry<String, String> log : logs.entrySet()) {
+                byte[] name = log.getKey().getBytes(StandardCharsets.UTF_8);
+                if (name.length > 100) {
+                    byte[] longName = new byte[name.length + 1];
+                    System.arraycopy(name, 0, longName, 0, name.length);
+                    writeTarEntry(tar, "././@LongLink", (byte) 'L', longName);
+                }
+                writeTarEntry(tar, log.getKey(), (byte) '0', entryBytes(log.getKey(), log.getValue()));
+            }
+            tar.write(new byte[1024]);
+        }
+        return path;
+    }
+
+    /**
+     * Writes one tar entry: its header, its data and the padding to the next block.
+     *
+     * @param tar  The uncompressed tar stream.
+     * @param name The name of the entry, truncated to 100 bytes.
+     * @param type The type flag of the entry.
+     * @param data The data of the entry.
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void writeTarEntry(OutputStream tar, String name, byte type, byte[] data) throws IOException {
+        byte[] header = new byte[512];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
+        putOctal(header, 100, 8, 0644);
+        putOctal(header, 124, 12, data.length);
+        header[156] = type;
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+        System.arraycopy("00".getBytes(StandardCharsets.US_ASCII), 0, header, 263, 2);
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        int checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xFF;
+        }
+        putOctal(header, 148, 7, checksum);
+        tar.write(header);
+        tar.write(data);
+        tar.write(new byte[(512 - data.length % 512) % 512]);
+    }
+
+    /**
+     * Writes a NUL-terminated octal number into a tar header field.
+     *
+     * @param header The header.
+     * @param offset The offset of the field.
+     * @param length The length of the field, including the NUL byte.
+     * @param value  The number.
+     */
+    private static void putOctal(byte[] header, int offset, int length, long value) {
+        String octal = String.format("%0" + (length - 1) + "o", value);
+        System.arraycopy(octal.getBytes(StandardCharsets.US_ASCII), 0, header, offset, length - 1);
+    }
+}
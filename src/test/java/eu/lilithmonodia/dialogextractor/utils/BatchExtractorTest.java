@@ -0,0 +1,156 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The BatchExtractorTest class contains unit tests for the BatchExtractor class.
+ * It checks input collection and the parallel extraction of many log files.
+ */
+class BatchExtractorTest {
+    private static final Charset CHARSET = Charset.forName("windows-1252");
+    private static final String LOG = "[12:00:00] [Render thread/INFO]: [System] [CHAT] <§fKohaku§f> hello\nnoise\n";
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test case for the collectInputs method with a directory and a glob.
+     * It checks that only .log and .log.gz files are taken and that extracted files are skipped.
+     */
+    @Test
+    void testCollectInputs() throws IOException {
+        Path logs = Files.createDirectory(tempDir.resolve("logs"));
+        writeLog(logs.resolve("latest.log"));
+        writeGzipLog(logs.resolve("2024-01-01-1.log.gz"));
+        Files.writeString(logs.resolve("notes.txt"), "not a log");
+        Files.writeString(logs.resolve("old" + FileUtils.EXTRACTED_FILE_SUFFIX), "already extracted");
+        BatchExtractor batchExtractor = newBatchExtractor(2);
+
+        assertEquals(List.of(logs.resolve("2024-01-01-1.log.gz"), logs.resolve("latest.log")),
+                batchExtractor.collectInputs(List.of(logs.toString())), "Directory inputs are wrong.");
+        assertEquals(List.of(logs.resolve("2024-01-01-1.log.gz")),
+                batchExtractor.collectInputs(List.of(logs + "/*.log.gz")), "Glob inputs are wrong.");
+    }
+
+    /**
+     * Test case for the extractAll method with more files than workers.
+     * It checks that every file is extracted into its own output file, in input order.
+     */
+    @Test
+    void testExtractAll() throws IOException, InterruptedException {
+        Path logs = Files.createDirectory(tempDir.resolve("logs"));
+        for (int i = 1; i <= 20; i++) {
+            writeGzipLog(logs.resolve("2024-01-01-" + i + ".log.gz"));
+        }
+        writeLog(logs.resolve("latest.log"));
+        BatchExtractor batchExtractor = newBatchExtractor(4);
+        List<Path> inputs = batchExtractor.collectInputs(List.of(logs.toString()));
+
+        List<BatchExtractor.Result> results = batchExtractor.extractAll(inputs);
+
+        assertEquals(21, results.size(), "Every input should have a result.");
+        for (int i = 0; i < results.size(); i++) {
+            BatchExtractor.Result result = results.get(i);
+            assertTrue(result.succeeded(), "Extraction should succeed for " + result.input());
+            assertEquals(inputs.get(i), result.input(), "Results should keep the input order.");
+            assertEquals(1, result.lines(), "Each log holds one dialogue line.");
+            assertEquals("<Kohaku> hello", Files.readString(result.output(), StandardCharsets.UTF_8),
+                    "The extracted file content is wrong.");
+        }
+        assertTrue(Files.exists(tempDir.resolve("out/latest" + FileUtils.EXTRACTED_FILE_SUFFIX)),
+                "The output file should be named after the log's base name.");
+    }
+
+    /**
+     * Test case for the extractAll method with two inputs sharing a base name.
+     * It checks that the second input fails instead of overwriting the first one's output.
+     */
+    @Test
+    void testExtractAllWithCollidingOutputs() throws IOException, InterruptedException {
+        writeLog(tempDir.resolve("latest.log"));
+        writeGzipLog(tempDir.resolve("latest.log.gz"));
+
+        List<BatchExtractor.Result> results = newBatchExtractor(2)
+                .extractAll(List.of(tempDir.resolve("latest.log"), tempDir.resolve("latest.log.gz")));
+
+        assertTrue(results.get(0).succeeded(), "The first input should be extracted.");
+        assertFalse(results.get(1).succeeded(), "The colliding input should fail.");
+    }
+
+    /**
+     * Test case for the extractAll method with a zip archive among the inputs.
+     * It checks that the logs of the archive get one result each, or a single combined result.
+     */
+    @Test
+    void testExtractAllWithArchive() throws IOException, InterruptedException {
+        writeLog(tempDir.resolve("latest.log"));
+        Path archive = tempDir.resolve("old-logs.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (String name : List.of("2024-01-01-1.log", "2024-01-01-2.log")) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(LOG.getBytes(CHARSET));
+                zip.closeEntry();
+            }
+        }
+        List<Path> inputs = List.of(tempDir.resolve("latest.log"), archive);
+
+        List<BatchExtractor.Result> results = newBatchExtractor(2).extractAll(inputs);
+        assertEquals(3, results.size(), "Each log of the archive should have a result.");
+        assertTrue(results.stream().allMatch(BatchExtractor.Result::succeeded), "Every log should be extracted.");
+        assertEquals(archive.resolve("2024-01-01-2.log"), results.get(2).input(),
+                "The results should follow the entries.");
+
+        Path out = tempDir.resolve("out");
+        List<BatchExtractor.Result> combined = new BatchExtractor(2, CHARSET, out, FileUtils.EXTRACTED_FILE_SUFFIX,
+                null, true).extractAll(inputs);
+        assertEquals(2, combined.size(), "The archive should have a single result.");
+        assertEquals("<Kohaku> hello\n<Kohaku> hello",
+                Files.readString(out.resolve("old-logs" + FileUtils.EXTRACTED_FILE_SUFFIX), StandardCharsets.UTF_8),
+                "The logs of the archive should be combined.");
+    }
+
+    /**
+     * Creates a batch extractor writing into the "out" directory of the temporary directory.
+     *
+     * @param parallelism The number of workers.
+     * @return The batch extractor.
+     */
+    private BatchExtractor newBatchExtractor(int parallelism) throws IOException {
+        Path out = Files.createDirectories(tempDir.resolve("out"));
+        return new BatchExtractor(parallelism, CHARSET, out, FileUtils.EXTRACTED_FILE_SUFFIX);
+    }
+
+    /**
+     * Writes the sample log as a plain file.
+     *
+     * @param path The file to write.
+     */
+    private static void writeLog(Path path) throws IOException {
+        Files.writeString(path, LOG, CHARSET);
+    }
+
+    /**
+     * Writes the sample log as a GZIP-compressed file.
+     *
+     * @param path The file to write.
+     */
+    private static void writeGzipLog(Path path) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path))) {
+            out.write(LOG.getBytes(CHARSET));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * The ChannelOutputStreamTest class contains unit tests for the ChannelOutputStream class.
+ * It checks that small, buffered writes and large, direct writes reach the file in order.
+ */
+class ChannelOutputStreamTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test case for mixing small and large writes.
+     * It checks that the file holds every byte in the order it was written, and that an existing file is truncated.
+     */
+    @Test
+    void testMixedWrites() throws IOException {
+        Path file = tempDir.resolve("out.log");
+        Files.write(file, new byte[3 * ChannelOutputStream.BUFFER_SIZE]);
+        byte[] large = new byte[ChannelOutputStream.BUFFER_SIZE + 7];
+        Arrays.fill(large, (byte) 'b');
+
+        try (ChannelOutputStream out = ChannelOutputStream.create(file)) {
+            out.write('a');
+            out.write(large);
+            out.write(new byte[]{'c', 'd'}, 0, 2);
+        }
+
+        byte[] expected = new byte[large.length + 3];
+        expected[0] = 'a';
+        System.arraycopy(large, 0, expected, 1, large.length);
+        expected[expected.length - 2] = 'c';
+        expected[expected.length - 1] = 'd';
+        assertArrayEquals(expected, Files.readAllBytes(file), "The file content is wrong");
+    }
+}
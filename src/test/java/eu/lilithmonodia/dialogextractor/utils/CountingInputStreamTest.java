@@ -0,0 +1,33 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The CountingInputStreamTest class contains unit tests for the CountingInputStream class.
+ * It checks that every way of consuming the stream is counted exactly once.
+ */
+class CountingInputStreamTest {
+    /**
+     * Test case for reading and skipping through the stream.
+     * It checks that single bytes, arrays and skipped bytes are counted, and that the end of the stream is not.
+     */
+    @Test
+    void testCount() throws IOException {
+        try (CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(new byte[100]))) {
+            assertEquals(0, in.read(), "The first byte is wrong");
+            assertEquals(10, in.read(new byte[10]), "The array should be filled");
+            assertEquals(20, in.skip(20), "The bytes should be skipped");
+            assertEquals(69, in.readAllBytes().length, "The rest should be read");
+            assertEquals(-1, in.read(), "The stream should be over");
+            assertEquals(0, in.skip(5), "Nothing is left to skip");
+
+            assertEquals(100, in.count(), "Every byte should be counted once");
+            assertFalse(in.markSupported(), "A reset would count bytes twice");
+        }
+    }
+}
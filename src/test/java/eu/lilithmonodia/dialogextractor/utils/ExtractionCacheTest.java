@@ -0,0 +1,122 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ExtractionCacheTest class contains unit tests for the ExtractionCache class.
+ * It checks the cache keys, the reuse of cached dialogue and the least recently used eviction.
+ */
+class ExtractionCacheTest {
+    private static final Charset CHARSET = Charset.forName("windows-1252");
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test case for the key method.
+     * It checks that the key changes with the content of the log and with the charset.
+     */
+    @Test
+    void testKey() throws IOException {
+        ExtractionCache cache = new ExtractionCache(tempDir.resolve("cache"), 1024);
+        Path log = Files.writeString(tempDir.resolve("a.log"), "[CHAT] hello");
+        String key = cache.key(log, CHARSET);
+
+        assertEquals(key, cache.key(log, CHARSET), "The key of an unchanged log should be stable.");
+        assertNotEquals(key, cache.key(log, StandardCharsets.UTF_8), "The charset should be part of the key.");
+
+        FileTime modified = Files.getLastModifiedTime(log);
+        Files.writeString(log, "[CHAT] hellp");
+        Files.setLastModifiedTime(log, modified);
+        assertNotEquals(key, cache.key(log, CHARSET), "A rewritten log of the same size should change the key.");
+    }
+
+    /**
+     * Test case for the extractToFile method.
+     * It checks that a second extraction of the same log is served from the cache.
+     */
+    @Test
+    void testExtractToFileHit() throws IOException {
+        ExtractionCache cache = new ExtractionCache(tempDir.resolve("cache"), 1024 * 1024);
+        Path log = Files.writeString(tempDir.resolve("a.log"), "[CHAT] hello\nnoise\n[CHAT] §eworld\n", CHARSET);
+        Path first = tempDir.resolve("first.log");
+        Path second = tempDir.resolve("second.log");
+
+        assertEquals(2, cache.extractToFile(log.toFile(), CHARSET, first.toFile()), "The miss should extract two lines.");
+        Path entry = cache.lookup(cache.key(log, CHARSET));
+        assertNotNull(entry, "The dialogue should have been stored.");
+        Files.writeString(entry, "from\ncache");
+
+        assertEquals(2, cache.extractToFile(log.toFile(), CHARSET, second.toFile()), "The hit should count two lines.");
+        assertEquals("hello\nworld", Files.readString(first), "The miss wrote the wrong dialogue.");
+        assertEquals("from\ncache", Files.readString(second), "The hit should copy the cached dialogue.");
+        try (Stream<Path> files = Files.list(tempDir.resolve("cache"))) {
+            assertEquals(1, files.count(), "The miss should leave only the entry in the cache directory.");
+        }
+    }
+
+    /**
+     * Test case for the extractToFile method with a dialogue of one empty line.
+     * It checks that the miss and the hit count the line like an extraction without the cache does.
+     */
+    @Test
+    void testExtractToFileEmptyLine() throws IOException {
+        ExtractionCache cache = new ExtractionCache(tempDir.resolve("cache"), 1024 * 1024);
+        Path log = Files.writeString(tempDir.resolve("a.log"), "noise\n[CHAT] §a\n", CHARSET);
+
+        assertEquals(1, FileUtils.extractToFile(log.toFile(), CHARSET, tempDir.resolve("direct.log").toFile()),
+                "The uncached extraction should write one empty line.");
+        assertEquals(1, cache.extractToFile(log.toFile(), CHARSET, tempDir.resolve("miss.log").toFile()),
+                "The miss should count the empty line.");
+        assertEquals(1, cache.extractToFile(log.toFile(), CHARSET, tempDir.resolve("hit.log").toFile()),
+                "The hit should count the empty line.");
+        assertEquals("", Files.readString(tempDir.resolve("hit.log")), "The hit should copy the empty dialogue.");
+    }
+
+    /**
+     * Test case for the extractToFile method with a cache directory that cannot be created.
+     * It checks that the log is still extracted to the output file.
+     */
+    @Test
+    void testExtractToFileWithoutCache() throws IOException {
+        Path blocked = Files.writeString(tempDir.resolve("cache"), "not a directory");
+        ExtractionCache cache = new ExtractionCache(blocked, 1024 * 1024);
+        Path log = Files.writeString(tempDir.resolve("a.log"), "[CHAT] hello\nnoise\n[CHAT] §eworld\n", CHARSET);
+        Path output = tempDir.resolve("out.log");
+
+        assertEquals(2, cache.extractToFile(log.toFile(), CHARSET, output.toFile()), "The log should be extracted.");
+        assertEquals("hello\nworld", Files.readString(output), "The extraction wrote the wrong dialogue.");
+    }
+
+    /**
+     * Test case for the store method with a full cache.
+     * It checks that the least recently used entry is evicted first.
+     */
+    @Test
+    void testEvictsLeastRecentlyUsed() throws IOException {
+        ExtractionCache cache = new ExtractionCache(tempDir.resolve("cache"), 25);
+        Path dialogue = Files.writeString(tempDir.resolve("dialogue.log"), "0123456789");
+
+        cache.store("a", dialogue, 1);
+        cache.store("b", dialogue, 1);
+        Files.setLastModifiedTime(tempDir.resolve("cache/a.1.log"), FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(tempDir.resolve("cache/b.1.log"), FileTime.fromMillis(2000));
+        assertNotNull(cache.lookup("a"), "a should still be cached.");
+        cache.store("c", dialogue, 1);
+
+        assertNotNull(cache.lookup("a"), "a was used most recently and should be kept.");
+        assertNull(cache.lookup("b"), "b was used least recently and should be evicted.");
+        assertNotNull(cache.lookup("c"), "The new entry should be kept.");
+    }
+}
@@ -0,0 +1,104 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import eu.lilithmonodia.dialogextractor.utils.ExtractionMetrics.Counter;
+import eu.lilithmonodia.dialogextractor.utils.ExtractionMetrics.Stage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The ExtractionMetricsTest class contains unit tests for the ExtractionMetrics class.
+ * It checks the stage timers, the counters updated by the extractions and the summary.
+ */
+class ExtractionMetricsTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Clears the totals left by other tests.
+     */
+    @BeforeEach
+    void setUp() {
+        ExtractionMetrics.reset();
+    }
+
+    /**
+     * Test case for the start method.
+     * It checks that a closed timer adds one run and its duration to its stage, only once.
+     */
+    @Test
+    void testStageTimer() throws InterruptedException {
+        ExtractionMetrics.StageTimer timer = ExtractionMetrics.start(Stage.WRITE, "test");
+        Thread.sleep(5);
+        timer.close();
+        timer.close();
+
+        assertEquals(1, ExtractionMetrics.runs(Stage.WRITE), "The run should be counted once.");
+        assertTrue(ExtractionMetrics.nanos(Stage.WRITE) >= 5_000_000, "The time of the run should be added.");
+        assertEquals(0, ExtractionMetrics.runs(Stage.EXTRACT), "Other stages should be left unchanged.");
+    }
+
+    /**
+     * Test case for the metrics of a file extraction.
+     * It extracts a GZIP-compressed log and checks the stages and counters it updates.
+     */
+    @Test
+    void testExtractToFile() throws IOException {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            log.append("[12:00:00] [Render thread/INFO]: ");
+            log.append(i % 4 == 0 ? "[CHAT] <Player> message " + i : "Noise line " + i).append('\n');
+        }
+        log.append("[12:00:00] [Render thread/INFO]: [CHAT] Shaders Reloaded!\n");
+        byte[] bytes = log.toString().getBytes(StandardCharsets.UTF_8);
+        Path file = tempDir.resolve("latest.log.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(bytes);
+        }
+
+        long written = FileUtils.extractToFile(file.toFile(), StandardCharsets.UTF_8,
+                new File(tempDir.toFile(), "out.log"));
+
+        assertEquals(250, written, "Every player message should be written.");
+        assertEquals(1, ExtractionMetrics.runs(Stage.EXTRACT), "The extraction should be timed.");
+        assertEquals(1, ExtractionMetrics.runs(Stage.DECOMPRESS), "The inflation should be timed.");
+        assertEquals(Files.size(file), ExtractionMetrics.count(Counter.BYTES_READ), "The compressed size is read.");
+        assertEquals(bytes.length, ExtractionMetrics.count(Counter.BYTES_INFLATED), "Every byte should be inflated.");
+        assertEquals(251, ExtractionMetrics.count(Counter.CHAT_LINES), "Filtered chat lines are scanned too.");
+        assertEquals(250, ExtractionMetrics.count(Counter.DIALOGUE_LINES), "Only written lines are matched.");
+    }
+
+    /**
+     * Test case for the summary and reset methods.
+     * It checks that the summary lists every stage and counter, and that reset clears them.
+     */
+    @Test
+    void testSummary() {
+        ExtractionMetrics.add(Counter.BYTES_READ, 1234);
+        ExtractionMetrics.start(Stage.OPEN, "test").close();
+
+        String summary = ExtractionMetrics.summary();
+
+        for (Stage stage : Stage.values()) {
+            assertTrue(summary.contains(stage.label()), "The summary should list " + stage);
+        }
+        assertTrue(summary.matches("(?s).*open\\s+1\\s.*"), "The run should be listed: " + summary);
+        assertTrue(summary.matches("(?s).*Bytes read:\\s+1234\\R.*"), "The counter should be listed: " + summary);
+
+        ExtractionMetrics.reset();
+
+        assertEquals(0, ExtractionMetrics.count(Counter.BYTES_READ), "The counters should be cleared.");
+        assertEquals(0, ExtractionMetrics.runs(Stage.OPEN), "The runs should be cleared.");
+    }
+}
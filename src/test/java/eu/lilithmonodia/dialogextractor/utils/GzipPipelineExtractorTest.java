@@ -0,0 +1,65 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The GzipPipelineExtractorTest class contains unit tests for the GzipPipelineExtractor class.
+ * It checks that the pipelined extraction gives the same output as the sequential extraction.
+ */
+class GzipPipelineExtractorTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test case for the extract method with a log spanning many blocks and tail batches.
+     * It checks the output for a byte-level charset and for a charset that falls back to sequential extraction.
+     */
+    @Test
+    void testExtractMatchesSequentialExtraction() throws IOException {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 60_000; i++) {
+            log.append("[12:00:00] [Render thread/INFO]: ");
+            log.append(i % 3 == 0 ? "[System] [CHAT] <§fPlayer§f> message " + i : "Noise line " + i).append('\n');
+        }
+        for (Charset charset : new Charset[]{Charset.forName("windows-1252"), StandardCharsets.UTF_16LE}) {
+            byte[] bytes = log.toString().getBytes(charset);
+            Path file = tempDir.resolve("2024-01-01-1-" + charset.name() + ".log.gz");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+                out.write(bytes);
+            }
+            StringWriter expected = new StringWriter();
+            new DialogueExtractor().extract(new InputStreamReader(new ByteArrayInputStream(bytes), charset), expected);
+            StringWriter actual = new StringWriter();
+
+            long lines = new GzipPipelineExtractor().extract(file, charset, actual);
+
+            assertEquals(expected.toString(), actual.toString(), "Pipelined output differs for " + charset);
+            assertEquals(20_000, lines, "The number of written lines is wrong for " + charset);
+        }
+    }
+
+    /**
+     * Test case for the extract method with a corrupt GZIP file.
+     * It checks that the failure of the inflater stage is reported to the caller.
+     */
+    @Test
+    void testExtractWithCorruptFile() throws IOException {
+        Path file = tempDir.resolve("corrupt.log.gz");
+        Files.write(file, new byte[]{1, 2, 3, 4});
+
+        assertThrows(IOException.class, () -> new GzipPipelineExtractor()
+                .extract(file, StandardCharsets.UTF_8, new StringWriter()), "A corrupt file should fail.");
+    }
+}
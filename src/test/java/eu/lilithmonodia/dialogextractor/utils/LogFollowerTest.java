@@ -0,0 +1,118 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The LogFollowerTest class contains unit tests for the LogFollower class.
+ * It checks incremental extraction of appended lines, truncation and rotation of the followed log.
+ */
+class LogFollowerTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test case for the update method with a log written in pieces.
+     * It checks that only whole lines are extracted and that a line cut in the middle is completed later.
+     */
+    @Test
+    void testUpdateExtractsAppendedLines() throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        StringWriter out = new StringWriter();
+        LogFollower follower = new LogFollower(log, StandardCharsets.UTF_8, out);
+
+        assertEquals(0, follower.update(), "A missing log has no dialogue.");
+        append(log, "[10:00:00] [CHAT] §ahello\n[10:00:01] [CHAT] wor");
+        assertEquals(1, follower.update(), "Only the whole line should be extracted.");
+        append(log, "ld\nnoise\n");
+        assertEquals(1, follower.update(), "The completed line should be extracted.");
+        assertEquals(0, follower.update(), "Nothing was appended.");
+
+        assertEquals("hello\nworld", out.toString(), "The followed dialogue is wrong.");
+        follower.close();
+    }
+
+    /**
+     * Test case for the update method with a truncated and then a replaced log.
+     * It checks that following starts again at the beginning of the new content and that the end of a replaced log
+     * is not lost.
+     */
+    @Test
+    void testUpdateHandlesTruncationAndRotation() throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        StringWriter out = new StringWriter();
+        LogFollower follower = new LogFollower(log, StandardCharsets.UTF_8, out);
+        append(log, "[CHAT] one\n[CHAT] two\n");
+        follower.update();
+
+        Files.writeString(log, "[CHAT] 3\n", StandardCharsets.UTF_8);
+        assertEquals(1, follower.update(), "The truncated log should be read again.");
+
+        append(log, "[CHAT] four");
+        Files.move(log, tempDir.resolve("2024-01-01-1.log"));
+        append(log, "[CHAT] five\n");
+        assertEquals(2, follower.update(), "The end of the old log and the new log should be read.");
+
+        assertEquals("one\ntwo\n3\nfour\nfive", out.toString(), "The followed dialogue is wrong.");
+        follower.close();
+    }
+
+    /**
+     * Test case for the follow method.
+     * It checks that the existing and appended dialogue is reported to the listener and that closing the follower stops it.
+     */
+    @Test
+    void testFollowUntilClosed() throws Exception {
+        Path log = tempDir.resolve("latest.log");
+        append(log, "[CHAT] first\n");
+        StringWriter out = new StringWriter();
+        LogFollower follower = new LogFollower(log, StandardCharsets.UTF_8, out);
+        CountDownLatch reported = new CountDownLatch(2);
+        Thread thread = new Thread(() -> {
+            try {
+                follower.follow(lines -> {
+                    for (long i = 0; i < lines; i++) {
+                        reported.countDown();
+                    }
+                });
+            } catch (IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+
+        try {
+            append(log, "[CHAT] second\n");
+            assertTrue(reported.await(10, TimeUnit.SECONDS), "The appended line was not reported.");
+        } finally {
+            follower.close();
+            thread.join(10_000);
+        }
+
+        assertFalse(thread.isAlive(), "Closing the follower should stop following.");
+        assertEquals("first\nsecond", out.toString(), "The followed dialogue is wrong.");
+    }
+
+    /**
+     * Appends text to a log, creating it if needed.
+     *
+     * @param log  The log file.
+     * @param text The text to append.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void append(Path log, String text) throws IOException {
+        Files.writeString(log, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
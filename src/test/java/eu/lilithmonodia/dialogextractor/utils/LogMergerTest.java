@@ -0,0 +1,118 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The LogMergerTest class contains unit tests for the LogMerger class.
+ * It checks the rotation order of log names and the chronological merge of their dialogue.
+ */
+class LogMergerTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test case for the RotatedLog.of method.
+     * It checks that the date and index are read from rotated log names.
+     */
+    @Test
+    void testRotatedLogOf() throws IOException {
+        LogMerger.RotatedLog log = LogMerger.RotatedLog.of(Path.of("logs", "2024-03-09-12.log.gz"));
+
+        assertEquals(LocalDate.of(2024, 3, 9), log.date(), "The date of the log is wrong.");
+        assertEquals(12, log.index(), "The index of the log is wrong.");
+    }
+
+    /**
+     * Test case for the merge method with logs given out of order.
+     * It checks that the logs are read in rotation order, that overlapping logs are interleaved by timestamp and that
+     * lines without a dialogue or a timestamp are handled like the single-file extraction.
+     */
+    @Test
+    void testMergeOrdersByDateIndexAndTimestamp() throws IOException {
+        Path second = writeGzipLog("2024-01-02-1.log.gz", """
+                [08:00:00] [Render thread/INFO]: [CHAT] §ethird
+                noise""");
+        Path firstB = writeLog("2024-01-01-2.log", """
+                [10:00:01] [Render thread/INFO]: [CHAT] first b
+                [10:00:05] [Render thread/INFO]: [CHAT] Shaders Reloaded!
+                [10:00:05] [Render thread/INFO]: [CHAT] second b
+                """);
+        Path firstA = writeLog("2024-01-01-1.log", """
+                [10:00:00] [Render thread/INFO]: [CHAT] first a
+                [10:00:05] [Render thread/INFO]: [CHAT] second a
+                """);
+
+        assertEquals("first a\nfirst b\nsecond a\nsecond b\nthird", merge(List.of(second, firstB, firstA)),
+                "The merged transcript is out of order.");
+    }
+
+    /**
+     * Test case for the merge method with a log spanning midnight.
+     * It checks that the timestamps after midnight are placed on the next day.
+     */
+    @Test
+    void testMergeRollsOverMidnight() throws IOException {
+        Path late = writeLog("2024-01-01-1.log", """
+                [23:59:00] [Render thread/INFO]: [CHAT] before midnight
+                [00:01:00] [Render thread/INFO]: [CHAT] after midnight
+                """);
+        Path next = writeLog("2024-01-02-1.log", "[00:00:30] [Render thread/INFO]: [CHAT] other session\n");
+
+        assertEquals("before midnight\nother session\nafter midnight", merge(List.of(late, next)),
+                "Lines after midnight should belong to the next day.");
+    }
+
+    /**
+     * Merges logs into a string.
+     *
+     * @param inputs The logs to merge.
+     * @return The transcript.
+     * @throws IOException If a log cannot be read.
+     */
+    private static String merge(List<Path> inputs) throws IOException {
+        StringWriter writer = new StringWriter();
+        new LogMerger(StandardCharsets.UTF_8).merge(inputs, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Writes a plain log file.
+     *
+     * @param name    The file name.
+     * @param content The log content.
+     * @return The log file.
+     * @throws IOException If the file cannot be written.
+     */
+    private Path writeLog(String name, String content) throws IOException {
+        return Files.writeString(tempDir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a GZIP-compressed log file.
+     *
+     * @param name    The file name.
+     * @param content The log content.
+     * @return The log file.
+     * @throws IOException If the file cannot be written.
+     */
+    private Path writeGzipLog(String name, String content) throws IOException {
+        Path path = tempDir.resolve(name);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return path;
+    }
+}
@@ -14,7 +14,7 @@ import static org.mockito.Mockito.verify;
 
 /**
  * The LogUtilsTest class contains unit tests for the LogUtils class.
- * It tests the logAction and logError methods.
+ * It tests the logAction, logDebug and logError methods.
  */
 class LogUtilsTest {
 
@@ -31,6 +31,19 @@ class LogUtilsTest {
         verify(mockLogger).info("Test INFO");
     }
 
+    /**
+     * Test case for the logDebug method of LogUtils class.
+     * It creates a mock Logger object and calls the logDebug method with a test message.
+     * It then verifies if the debug method of the Logger class was called with the correct parameters.
+     */
+    @Test
+    void testLogDebug() {
+        Logger mockLogger = mock(Logger.class);
+        LogUtils.logDebug(mockLogger, "Test DEBUG");
+
+        verify(mockLogger).debug("Test DEBUG");
+    }
+
     /**
      * Test case for the logError method of LogUtils class.
      * It creates a mock Logger object and an Exception, then calls the logError method with a test message and the exception.
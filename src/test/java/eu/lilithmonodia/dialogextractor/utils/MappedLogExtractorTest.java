@@ -0,0 +1,103 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import eu.lilithmonodia.dialogextractor.data.DialogueExtractor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The MappedLogExtractorTest class contains unit tests for the MappedLogExtractor class.
+ * It checks that the chunked parallel extraction gives the same output as the sequential extraction.
+ */
+class MappedLogExtractorTest {
+    private static final Charset CHARSET = Charset.forName("windows-1252");
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test case for the extract method with many small chunks.
+     * It checks that chunk results are joined in their original order.
+     */
+    @Test
+    void testExtractMatchesSequentialExtraction() throws IOException {
+        Path log = tempDir.resolve("latest.log");
+        Files.writeString(log, generateLog(new Random(3), 5_000), CHARSET);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int chunkSize : new int[]{1, 64, 1000, 1 << 20}) {
+                StringWriter actual = new StringWriter();
+                long lines = new MappedLogExtractor(pool, chunkSize).extract(log, CHARSET, actual);
+
+                String expected = extractSequentially(log);
+                assertEquals(expected, actual.toString(), "Parallel output differs for chunk size " + chunkSize);
+                assertEquals(expected.isEmpty() ? 0 : expected.split("\n", -1).length, lines,
+                        "The number of written lines is wrong for chunk size " + chunkSize);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test case for the extract method with a file that has no trailing line separator and no dialogue at all.
+     * It checks that the output is empty.
+     */
+    @Test
+    void testExtractWithoutDialogue() throws IOException {
+        Path log = tempDir.resolve("empty.log");
+        Files.writeString(log, "no chat\nstill no chat", CHARSET);
+        StringWriter actual = new StringWriter();
+
+        assertEquals(0, new MappedLogExtractor(ForkJoinPool.commonPool(), 4).extract(log, CHARSET, actual),
+                "No line should be written.");
+        assertEquals("", actual.toString(), "The output should be empty.");
+    }
+
+    /**
+     * Extracts a log file with the sequential stream extraction.
+     *
+     * @param log The log file.
+     * @return The extracted dialogue.
+     */
+    private static String extractSequentially(Path log) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = Files.newInputStream(log)) {
+            new DialogueExtractor().extract(in, CHARSET, out);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generates a log where about a third of the lines are chat lines.
+     *
+     * @param random The random source.
+     * @param lines  The number of lines.
+     * @return The generated log.
+     */
+    private static String generateLog(Random random, int lines) {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            log.append("[12:00:00] [Render thread/INFO]: ");
+            if (random.nextInt(3) == 0) {
+                log.append("[System] [CHAT] <§fPlayer").append(i).append("§f> message ").append(i);
+            } else {
+                log.append("Noise ").append("x".repeat(random.nextInt(100)));
+            }
+            log.append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+        return log.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package eu.lilithmonodia.dialogextractor.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * The ParallelGzipOutputStreamTest class contains unit tests for the ParallelGzipOutputStream class.
+ * It checks that the concatenated members decompress to the original bytes.
+ */
+class ParallelGzipOutputStreamTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    /**
+     * Shuts the test pool down.
+     */
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Test case for writing many blocks.
+     * It checks that mixed single-byte and array writes spanning many blocks round-trip through GZIPInputStream.
+     */
+    @Test
+    void testRoundTripManyBlocks() throws IOException {
+        byte[] data = new byte[100_000];
+        new Random(42).nextBytes(data);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, pool, 1000)) {
+            out.write(data[0]);
+            out.write(data, 1, 54_321);
+            out.flush();
+            out.write(data, 54_322, data.length - 54_322);
+        }
+        assertArrayEquals(data, decompress(compressed.toByteArray()), "The decompressed bytes differ");
+    }
+
+    /**
+     * Test case for closing an empty stream.
+     * It checks that the output is still a valid, empty GZIP file.
+     */
+    @Test
+    void testEmptyStream() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed, pool, 1000).close();
+        assertArrayEquals(new byte[0], decompress(compressed.toByteArray()), "The empty stream did not decompress");
+    }
+
+    /**
+     * Decompresses a GZIP file.
+     *
+     * @param compressed The GZIP bytes.
+     * @return The decompressed bytes.
+     * @throws IOException If the bytes are not valid GZIP.
+     */
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}